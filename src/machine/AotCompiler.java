@@ -0,0 +1,318 @@
+package machine;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import machine.ClassFile.Label;
+
+/**
+ * class AotCompiler - exports a loaded program as a standalone runnable JAR.
+ * @version $Revision: 22 $  $Date: 2014-05-20 15:14:36 +1000 (Tue, 20 May 2014) $
+ * Each procedure is translated into a method of the class CompiledProgram,
+ * which keeps the stack frames, static links and heap in an int array
+ * laid out exactly as in the stack machine's data memory. The array is
+ * allocated at its full size, the stack size plus the heap size of the
+ * machine's memory layout, when the program starts.
+ * The JAR contains just that class and CompiledRuntime, which provides
+ * input/output and reports runtime errors with a trace back, giving the
+ * source lines of the line table of each procedure.
+ * Runtime errors are reported with the same messages as the stack machine.
+ */
+class AotCompiler {
+    private static final String PROGRAM = "machine/CompiledProgram";
+    private static final String RUNTIME_CLASS = "machine/CompiledRuntime";
+    private static final String PROC_DESC =
+        "(L" + RUNTIME_CLASS + ";[IIIII)I";
+
+    /** Code memory of the machine */
+    private final int[] code;
+    /** Procedures loaded in the machine */
+    private final ProcedureTable procedures;
+    /** Start address of the main program */
+    private final int mainStart;
+    /** Sizes of the stack and heap */
+    private final MemoryLayout layout;
+
+    AotCompiler( int[] code, ProcedureTable procedures, int mainStart,
+            MemoryLayout layout ) {
+        this.code = code;
+        this.procedures = procedures;
+        this.mainStart = mainStart;
+        this.layout = layout;
+    }
+    /** Write the JAR file */
+    void writeJar( String fileName ) throws IOException {
+        ClassFile program = new ClassFile( PROGRAM, "java/lang/Object" );
+        program.addDefaultConstructor();
+        Translator translator = new Translator( code );
+        for( ProcedureTable.Entry proc : procedures.getEntries() ) {
+            translator.translate( program.addMethod( ClassFile.ACC_PUBLIC,
+                    "p" + proc.getStart(), PROC_DESC, CodeTranslator.NUM_LOCALS ),
+                    proc.getStart(), proc.getFinish(), false );
+        }
+        genCall( program );
+        genMain( program );
+        Manifest manifest = new Manifest();
+        Attributes attributes = manifest.getMainAttributes();
+        attributes.put( Attributes.Name.MANIFEST_VERSION, "1.0" );
+        attributes.put( Attributes.Name.MAIN_CLASS, PROGRAM.replace( '/', '.' ) );
+        JarOutputStream jar =
+            new JarOutputStream( new FileOutputStream( fileName ), manifest );
+        try {
+            jar.putNextEntry( new JarEntry( PROGRAM + ".class" ) );
+            jar.write( program.toByteArray() );
+            jar.closeEntry();
+            jar.putNextEntry( new JarEntry( RUNTIME_CLASS + ".class" ) );
+            InputStream runtime =
+                CompiledRuntime.class.getResourceAsStream( "CompiledRuntime.class" );
+            try {
+                byte[] buf = new byte[ 4096 ];
+                for( int n; (n = runtime.read( buf )) > 0; ) {
+                    jar.write( buf, 0, n );
+                }
+            } finally {
+                runtime.close();
+            }
+            jar.closeEntry();
+        } finally {
+            jar.close();
+        }
+    }
+    /** Generate the method call( runtime, memory, addr, fp, sp ), which
+     * calls the procedure starting at addr and returns the stack pointer
+     * after it returns, or TERMINATED */
+    private void genCall( ClassFile program ) {
+        ClassFile.Method m = program.addMethod( ClassFile.ACC_PUBLIC, "call",
+                "(L" + RUNTIME_CLASS + ";[IIII)I", 6 );
+        int n = procedures.getEntries().size();
+        int[] starts = new int[ n ];
+        Label[] labels = new Label[ n ];
+        int i = 0;
+        for( ProcedureTable.Entry proc : procedures.getEntries() ) {
+            starts[i] = proc.getStart();
+            labels[i] = new Label();
+            i++;
+        }
+        Arrays.sort( starts );
+        Label bad = new Label();
+        m.iload( 3 );
+        m.lookupSwitch( bad, starts, labels );
+        for( i = 0; i < n; i++ ) {
+            m.place( labels[i] );
+            m.aload( 0 );
+            m.aload( 1 );
+            m.aload( 2 );
+            m.iload( 4 );
+            m.iload( 5 );
+            m.aload( 1 );
+            m.getField( RUNTIME_CLASS, "stackLimit", "I" );
+            m.iload( 3 );
+            m.invoke( ClassFile.INVOKEVIRTUAL, PROGRAM, "p" + starts[i],
+                    PROC_DESC );
+            m.op( ClassFile.IRETURN );
+        }
+        m.place( bad );
+        m.aload( 1 );
+        m.iconst( CompiledRuntime.PC_RANGE );
+        m.iload( 3 );
+        m.iload( 4 );
+        m.iload( 5 );
+        m.iconst( 0 );
+        m.iconst( 0 );
+        m.invoke( ClassFile.INVOKEVIRTUAL, RUNTIME_CLASS, "fail", "(IIIIII)V" );
+        m.iconst( CompiledRuntime.TERMINATED );
+        m.op( ClassFile.IRETURN );
+    }
+    /** Generate the main method, which sets up the runtime and runs the
+     * main program with the frame and stack pointers 0 */
+    private void genMain( ClassFile program ) {
+        ClassFile.Method m = program.addMethod(
+                ClassFile.ACC_PUBLIC | ClassFile.ACC_STATIC, "main",
+                "([Ljava/lang/String;)V", 3 );
+        m.classOp( ClassFile.NEW, RUNTIME_CLASS );
+        m.op( ClassFile.DUP );
+        m.iconst( layout.getDataSize() );
+        m.iconst( layout.getStackSize() );
+        m.ldcString( procedureTable() );
+        m.invoke( ClassFile.INVOKESPECIAL, RUNTIME_CLASS, "<init>",
+                "(IILjava/lang/String;)V" );
+        m.astore( 1 );
+        m.classOp( ClassFile.NEW, PROGRAM );
+        m.op( ClassFile.DUP );
+        m.invoke( ClassFile.INVOKESPECIAL, PROGRAM, "<init>", "()V" );
+        m.aload( 1 );
+        m.aload( 1 );
+        m.getField( RUNTIME_CLASS, "memory", "[I" );
+        m.iconst( 0 );
+        m.iconst( 0 );
+        m.aload( 1 );
+        m.getField( RUNTIME_CLASS, "stackLimit", "I" );
+        m.iconst( mainStart );
+        m.invoke( ClassFile.INVOKEVIRTUAL, PROGRAM, "p" + mainStart, PROC_DESC );
+        m.istore( 2 );
+        m.aload( 1 );
+        m.iload( 2 );
+        m.invoke( ClassFile.INVOKEVIRTUAL, RUNTIME_CLASS, "exit", "(I)V" );
+        m.op( ClassFile.RETURN );
+    }
+    /** @return the table of procedures and their variables in the form
+     * expected by CompiledRuntime */
+    private String procedureTable() {
+        StringBuilder table = new StringBuilder();
+        for( ProcedureTable.Entry proc : procedures.getEntries() ) {
+            table.append( "P\t" + proc.getStart() + "\t" + proc.getFinish() +
+                    "\t" + proc + "\n" );
+            int[] addresses = proc.getLineAddresses();
+            int[] lines = proc.getLines();
+            for( int i = 0; i < addresses.length; i++ ) {
+                table.append( "L\t" + addresses[i] + "\t" + lines[i] +
+                        "\n" );
+            }
+            for( ProcedureTable.Variable var : proc.getVariables() ) {
+                table.append( "V\t" + var.getIdent() + "\t" +
+                    var.getOffset() + "\t" + var.getSize() + "\n" );
+            }
+        }
+        return table.toString();
+    }
+
+    /** Translation of the code of a procedure into a method of the
+     * program class. Runtime errors are reported by CompiledRuntime and
+     * terminate the program. */
+    private static class Translator extends CodeTranslator {
+
+        Translator( int[] code ) {
+            super( code );
+        }
+        @Override
+        protected void genFailure( int kind, int addr ) {
+            m.aload( RUNTIME );
+            m.iconst( kind );
+            m.iconst( addr );
+            m.iload( FP );
+            m.iload( SP );
+            if( kind == CompiledRuntime.LOAD || kind == CompiledRuntime.STORE ) {
+                Operation op = Operation.decode( code[addr] );
+                m.iload( T1 );
+                m.iconst( op == Operation.LOAD_MULTI ||
+                        op == Operation.STORE_MULTI ?
+                        Operation.operand( code[addr] ) : 1 );
+            } else {
+                m.iconst( 0 );
+                m.iconst( 0 );
+            }
+            m.invoke( ClassFile.INVOKEVIRTUAL, RUNTIME_CLASS, "fail",
+                    "(IIIIII)V" );
+            m.iconst( CompiledRuntime.TERMINATED );
+            m.op( ClassFile.IRETURN );
+        }
+        @Override
+        protected void genDispatchMiss() {
+            m.aload( RUNTIME );
+            m.iconst( CompiledRuntime.PC_RANGE );
+            m.iload( PC );
+            m.iload( FP );
+            m.iload( SP );
+            m.iconst( 0 );
+            m.iconst( 0 );
+            m.invoke( ClassFile.INVOKEVIRTUAL, RUNTIME_CLASS, "fail",
+                    "(IIIIII)V" );
+            m.iconst( CompiledRuntime.TERMINATED );
+            m.op( ClassFile.IRETURN );
+        }
+        @Override
+        protected void genCall() {
+            m.aload( 0 );
+            m.aload( RUNTIME );
+            m.aload( MEM );
+            m.iload( T1 );
+            m.iload( SP );
+            m.iconst( 3 );
+            m.op( ClassFile.ISUB );
+            m.iload( SP );
+            m.invoke( ClassFile.INVOKEVIRTUAL, PROGRAM, "call",
+                    "(L" + RUNTIME_CLASS + ";[IIII)I" );
+        }
+        @Override
+        protected void genReloadLimit() {
+            /* The memory is allocated at its full size, and the heap is
+             * kept apart from the stack, so neither changes */
+        }
+        @Override
+        protected void genReturn() {
+            /* Removing the frame leaves the stack pointer at its start */
+            m.iload( FP );
+            m.op( ClassFile.IRETURN );
+        }
+        @Override
+        protected void genWrite() {
+            m.aload( RUNTIME );
+            stackLoad( 0 );
+            m.invoke( ClassFile.INVOKEVIRTUAL, RUNTIME_CLASS, "write", "(I)V" );
+        }
+        @Override
+        protected void genOther( Operation op, int addr ) {
+            switch( op ) {
+            case READ:
+                needPush( 1, addr );
+                m.aload( RUNTIME );
+                m.iload( SP );
+                m.invoke( ClassFile.INVOKEVIRTUAL, RUNTIME_CLASS, "read",
+                        "(I)Z" );
+                m.branch( ClassFile.IFEQ,
+                        failAt( CompiledRuntime.READ_ERROR, addr ) );
+                m.iinc( SP, 1 );
+                break;
+            case ALLOC_HEAP:
+                needPop( 1, addr );
+                stackLoad( 1 );
+                m.istore( T1 );                 /* size */
+                m.iload( T1 );
+                m.branch( ClassFile.IFLT,
+                        failAt( CompiledRuntime.OVERFLOW, addr ) );
+                m.aload( RUNTIME );
+                m.getField( RUNTIME_CLASS, "limit", "I" );
+                m.iload( T1 );
+                m.op( ClassFile.ISUB );
+                m.istore( T2 );                 /* new heap limit */
+                m.iload( T2 );
+                m.iload( LIMIT );
+                m.branch( ClassFile.IF_ICMPLT,
+                        failAt( CompiledRuntime.OVERFLOW, addr ) );
+                m.aload( RUNTIME );
+                m.iload( T2 );
+                m.putField( RUNTIME_CLASS, "limit", "I" );
+                stackIndex( 1 );
+                m.iload( T2 );
+                m.op( ClassFile.IASTORE );
+                Label done = new Label();
+                m.iload( T1 );
+                m.branch( ClassFile.IFLE, done );
+                m.aload( MEM );
+                m.iload( T2 );
+                m.iload( T2 );
+                m.iload( T1 );
+                m.op( ClassFile.IADD );
+                m.iconst( StackMachine.NULL_ADDR );
+                m.invoke( ClassFile.INVOKESTATIC, "java/util/Arrays",
+                        "fill", "([IIII)V" );
+                m.place( done );
+                break;
+            case STOP:
+                needPop( 1, addr );
+                m.branch( ClassFile.GOTO, failAt( CompiledRuntime.HALT, addr ) );
+                break;
+            default:
+                m.branch( ClassFile.GOTO,
+                        failAt( CompiledRuntime.NOT_IMPLEMENTED, addr ) );
+                break;
+            }
+        }
+    }
+}
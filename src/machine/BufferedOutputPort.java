@@ -0,0 +1,62 @@
+package machine;
+
+import java.io.PrintStream;
+
+/**
+ * class BufferedOutputPort - output port writing integers as text,
+ * one to a line, through a buffer.
+ * @version $Revision: 22 $  $Date: 2014-05-20 15:14:36 +1000 (Tue, 20 May 2014) $
+ * The digits are formatted straight into the buffer, without creating
+ * strings. The buffer is written to the stream when it is full and when
+ * the port is flushed.
+ */
+public class BufferedOutputPort implements OutputPort {
+    private static final int BUFFER_SIZE = 8 * 1024;
+    private static final byte[] NEWLINE = System.lineSeparator().getBytes();
+    /** Longest integer: sign and 10 digits */
+    private static final int MAX_DIGITS = 11;
+
+    private final PrintStream out;
+    private final byte[] buf = new byte[ BUFFER_SIZE ];
+    /** Number of bytes in buf */
+    private int count = 0;
+
+    public BufferedOutputPort( PrintStream out ) {
+        this.out = out;
+    }
+    public void writeInt( int value ) {
+        if( buf.length - count < MAX_DIGITS + NEWLINE.length ) {
+            flushBuffer();
+        }
+        /* Work with the negative value so that MIN_VALUE is handled */
+        if( value < 0 ) {
+            buf[count++] = '-';
+        } else {
+            value = -value;
+        }
+        int start = count;
+        do {
+            buf[count++] = (byte)('0' - value % 10);
+            value /= 10;
+        } while( value != 0 );
+        /* The digits are in reverse order */
+        for( int i = start, j = count - 1; i < j; i++, j-- ) {
+            byte digit = buf[i];
+            buf[i] = buf[j];
+            buf[j] = digit;
+        }
+        for( byte b : NEWLINE ) {
+            buf[count++] = b;
+        }
+    }
+    public void flush() {
+        flushBuffer();
+        out.flush();
+    }
+    private void flushBuffer() {
+        if( count > 0 ) {
+            out.write( buf, 0, count );
+            count = 0;
+        }
+    }
+}
@@ -0,0 +1,483 @@
+package machine;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * class ClassFile - minimal writer for JVM class files, sufficient for
+ * the classes generated from stack machine code.
+ * @version $Revision: 22 $  $Date: 2014-05-20 15:14:36 +1000 (Tue, 20 May 2014) $
+ * Class files are written with version 49 (Java 5) so that no stack map
+ * frames are required; the JVM verifies them by type inference.
+ * The generated methods use only int and reference locals, and
+ * branches with 16 bit offsets. If a method becomes too large for that,
+ * toByteArray throws an IllegalStateException.
+ */
+public class ClassFile {
+    /** Class file version without stack map frames */
+    private static final int MAJOR_VERSION = 49;
+
+    public static final int ACC_PUBLIC = 0x0001;
+    public static final int ACC_STATIC = 0x0008;
+    public static final int ACC_FINAL = 0x0010;
+    public static final int ACC_SUPER = 0x0020;
+
+    /* Byte codes used by the generators */
+    public static final int ICONST_0 = 3;
+    public static final int BIPUSH = 16;
+    public static final int SIPUSH = 17;
+    public static final int LDC_W = 19;
+    public static final int ILOAD = 21;
+    public static final int ALOAD = 25;
+    public static final int IALOAD = 46;
+    public static final int AALOAD = 50;
+    public static final int ISTORE = 54;
+    public static final int ASTORE = 58;
+    public static final int IASTORE = 79;
+    public static final int POP = 87;
+    public static final int DUP = 89;
+    public static final int DUP2 = 92;
+    public static final int SWAP = 95;
+    public static final int IADD = 96;
+    public static final int ISUB = 100;
+    public static final int IMUL = 104;
+    public static final int IDIV = 108;
+    public static final int INEG = 116;
+    public static final int IAND = 126;
+    public static final int IOR = 128;
+    public static final int IXOR = 130;
+    public static final int IINC = 132;
+    public static final int IFEQ = 153;
+    public static final int IFNE = 154;
+    public static final int IFLT = 155;
+    public static final int IFGE = 156;
+    public static final int IFGT = 157;
+    public static final int IFLE = 158;
+    public static final int IF_ICMPEQ = 159;
+    public static final int IF_ICMPNE = 160;
+    public static final int IF_ICMPLT = 161;
+    public static final int IF_ICMPGE = 162;
+    public static final int IF_ICMPGT = 163;
+    public static final int IF_ICMPLE = 164;
+    public static final int GOTO = 167;
+    public static final int LOOKUPSWITCH = 171;
+    public static final int IRETURN = 172;
+    public static final int RETURN = 177;
+    public static final int GETSTATIC = 178;
+    public static final int PUTSTATIC = 179;
+    public static final int GETFIELD = 180;
+    public static final int PUTFIELD = 181;
+    public static final int INVOKEVIRTUAL = 182;
+    public static final int INVOKESPECIAL = 183;
+    public static final int INVOKESTATIC = 184;
+    public static final int INVOKEINTERFACE = 185;
+    public static final int NEW = 187;
+    public static final int NEWARRAY = 188;
+    public static final int ANEWARRAY = 189;
+    public static final int ARRAYLENGTH = 190;
+    public static final int ATHROW = 191;
+    public static final int WIDE = 196;
+    /** Array type code for int[] used with NEWARRAY */
+    public static final int T_INT = 10;
+
+    /** Constant pool entries in order, each as its encoded bytes */
+    private List<byte[]> constants = new ArrayList<byte[]>();
+    /** Index of each constant pool entry by a key describing it */
+    private Map<String,Integer> constantIndex = new HashMap<String,Integer>();
+    /** Next free constant pool index (long and double are never used) */
+    private int nextConstant = 1;
+
+    private String className;
+    private String superName;
+    private List<String> interfaces = new ArrayList<String>();
+    private List<byte[]> fields = new ArrayList<byte[]>();
+    private List<Method> methods = new ArrayList<Method>();
+
+    /** @param className internal name of the class, e.g. machine/Foo
+     * @param superName internal name of its super class */
+    public ClassFile( String className, String superName ) {
+        this.className = className;
+        this.superName = superName;
+    }
+    public String getClassName() {
+        return className;
+    }
+    public void addInterface( String name ) {
+        interfaces.add( name );
+    }
+    /** Add a field with the given access flags, name and descriptor */
+    public void addField( int access, String name, String descriptor ) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream( bytes );
+        try {
+            out.writeShort( access );
+            out.writeShort( utf8( name ) );
+            out.writeShort( utf8( descriptor ) );
+            out.writeShort( 0 );
+        } catch( IOException e ) {
+            throw new IllegalStateException( e );
+        }
+        fields.add( bytes.toByteArray() );
+    }
+    /** Add a method; its code is generated through the returned object */
+    public Method addMethod( int access, String name, String descriptor,
+            int maxLocals ) {
+        Method method = new Method( access, name, descriptor, maxLocals );
+        methods.add( method );
+        return method;
+    }
+    /** Add a constructor that just calls the no argument constructor of
+     * the super class */
+    public void addDefaultConstructor() {
+        Method init = addMethod( ACC_PUBLIC, "<init>", "()V", 1 );
+        init.aload( 0 );
+        init.invoke( INVOKESPECIAL, superName, "<init>", "()V" );
+        init.op( RETURN );
+    }
+
+    /*------------------------- Constant pool -------------------------*/
+
+    /** Add a constant pool entry if not already there.
+     * @return its index */
+    private int constant( String key, byte[] entry ) {
+        Integer index = constantIndex.get( key );
+        if( index == null ) {
+            index = nextConstant++;
+            constants.add( entry );
+            constantIndex.put( key, index );
+        }
+        return index;
+    }
+    private static byte[] entry( int tag, int... shorts ) {
+        byte[] bytes = new byte[ 1 + 2 * shorts.length ];
+        bytes[0] = (byte)tag;
+        for( int i = 0; i < shorts.length; i++ ) {
+            bytes[1 + 2*i] = (byte)(shorts[i] >> 8);
+            bytes[2 + 2*i] = (byte)shorts[i];
+        }
+        return bytes;
+    }
+    int utf8( String s ) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            bytes.write( 1 );
+            new DataOutputStream( bytes ).writeUTF( s );
+        } catch( IOException e ) {
+            throw new IllegalStateException( e );
+        }
+        return constant( "U" + s, bytes.toByteArray() );
+    }
+    int classRef( String name ) {
+        return constant( "C" + name, entry( 7, utf8( name ) ) );
+    }
+    int stringRef( String s ) {
+        return constant( "S" + s, entry( 8, utf8( s ) ) );
+    }
+    int integer( int value ) {
+        return constant( "I" + value, new byte[] { 3,
+                (byte)(value >> 24), (byte)(value >> 16),
+                (byte)(value >> 8), (byte)value } );
+    }
+    private int nameAndType( String name, String descriptor ) {
+        return constant( "N" + name + ":" + descriptor,
+                entry( 12, utf8( name ), utf8( descriptor ) ) );
+    }
+    int fieldRef( String owner, String name, String descriptor ) {
+        return constant( "F" + owner + "." + name + ":" + descriptor,
+                entry( 9, classRef( owner ), nameAndType( name, descriptor ) ) );
+    }
+    int methodRef( String owner, String name, String descriptor,
+            boolean isInterface ) {
+        return constant( (isInterface ? "J" : "M") + owner + "." + name +
+                descriptor, entry( isInterface ? 11 : 10, classRef( owner ),
+                nameAndType( name, descriptor ) ) );
+    }
+
+    /*------------------------- Output -------------------------*/
+
+    /** @return the bytes of the class file */
+    public byte[] toByteArray() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream( bytes );
+        try {
+            /* Make sure all the constants are in the pool first */
+            int thisIndex = classRef( className );
+            int superIndex = classRef( superName );
+            int[] interfaceIndex = new int[ interfaces.size() ];
+            for( int i = 0; i < interfaceIndex.length; i++ ) {
+                interfaceIndex[i] = classRef( interfaces.get(i) );
+            }
+            List<byte[]> methodBytes = new ArrayList<byte[]>();
+            for( Method m : methods ) {
+                methodBytes.add( m.toByteArray() );
+            }
+            out.writeInt( 0xCAFEBABE );
+            out.writeShort( 0 );
+            out.writeShort( MAJOR_VERSION );
+            out.writeShort( nextConstant );
+            for( byte[] entry : constants ) {
+                out.write( entry );
+            }
+            out.writeShort( ACC_PUBLIC | ACC_FINAL | ACC_SUPER );
+            out.writeShort( thisIndex );
+            out.writeShort( superIndex );
+            out.writeShort( interfaceIndex.length );
+            for( int index : interfaceIndex ) {
+                out.writeShort( index );
+            }
+            out.writeShort( fields.size() );
+            for( byte[] field : fields ) {
+                out.write( field );
+            }
+            out.writeShort( methodBytes.size() );
+            for( byte[] method : methodBytes ) {
+                out.write( method );
+            }
+            out.writeShort( 0 );        /* no class attributes */
+        } catch( IOException e ) {
+            throw new IllegalStateException( e );
+        }
+        return bytes.toByteArray();
+    }
+
+    /** A branch target within the code of a method */
+    public static class Label {
+        /** Offset of the label in the code, or -1 if not yet placed */
+        private int position = -1;
+        /** Branches to this label waiting for it to be placed: the offset
+         * of the branch instruction, of its operand, and the operand size */
+        private List<int[]> fixups = new ArrayList<int[]>();
+        public boolean isPlaced() {
+            return position >= 0;
+        }
+    }
+
+    /** The code of a method being generated */
+    public class Method {
+        private int access;
+        private String name;
+        private String descriptor;
+        private int maxLocals;
+        /** Maximum operand stack depth - generous rather than computed */
+        private int maxStack = 16;
+        private ByteArrayOutputStream code = new ByteArrayOutputStream();
+        /** Set if a branch offset does not fit in 16 bits */
+        private boolean tooLarge = false;
+
+        private Method( int access, String name, String descriptor,
+                int maxLocals ) {
+            this.access = access;
+            this.name = name;
+            this.descriptor = descriptor;
+            this.maxLocals = maxLocals;
+        }
+        /** @return current size of the code in bytes */
+        public int size() {
+            return code.size();
+        }
+        public void op( int opcode ) {
+            code.write( opcode );
+        }
+        private void u2( int value ) {
+            code.write( value >> 8 );
+            code.write( value );
+        }
+        private void u4( int value ) {
+            u2( value >> 16 );
+            u2( value );
+        }
+        /** Push an integer constant using the shortest instruction */
+        public void iconst( int value ) {
+            if( -1 <= value && value <= 5 ) {
+                op( ICONST_0 + value );
+            } else if( Byte.MIN_VALUE <= value && value <= Byte.MAX_VALUE ) {
+                op( BIPUSH );
+                code.write( value );
+            } else if( Short.MIN_VALUE <= value && value <= Short.MAX_VALUE ) {
+                op( SIPUSH );
+                u2( value );
+            } else {
+                op( LDC_W );
+                u2( integer( value ) );
+            }
+        }
+        public void ldcString( String s ) {
+            op( LDC_W );
+            u2( stringRef( s ) );
+        }
+        private void local( int opcode, int index ) {
+            if( index < 256 ) {
+                op( opcode );
+                code.write( index );
+            } else {
+                op( WIDE );
+                op( opcode );
+                u2( index );
+            }
+        }
+        public void iload( int index ) {
+            local( ILOAD, index );
+        }
+        public void istore( int index ) {
+            local( ISTORE, index );
+        }
+        public void aload( int index ) {
+            local( ALOAD, index );
+        }
+        public void astore( int index ) {
+            local( ASTORE, index );
+        }
+        /** Add delta to an int local variable */
+        public void iinc( int index, int delta ) {
+            if( index < 256 && Byte.MIN_VALUE <= delta &&
+                    delta <= Byte.MAX_VALUE ) {
+                op( IINC );
+                code.write( index );
+                code.write( delta );
+            } else if( Short.MIN_VALUE <= delta && delta <= Short.MAX_VALUE ) {
+                op( WIDE );
+                op( IINC );
+                u2( index );
+                u2( delta );
+            } else {
+                iload( index );
+                iconst( delta );
+                op( IADD );
+                istore( index );
+            }
+        }
+        public void getStatic( String owner, String name, String desc ) {
+            op( GETSTATIC );
+            u2( fieldRef( owner, name, desc ) );
+        }
+        public void putStatic( String owner, String name, String desc ) {
+            op( PUTSTATIC );
+            u2( fieldRef( owner, name, desc ) );
+        }
+        public void getField( String owner, String name, String desc ) {
+            op( GETFIELD );
+            u2( fieldRef( owner, name, desc ) );
+        }
+        public void putField( String owner, String name, String desc ) {
+            op( PUTFIELD );
+            u2( fieldRef( owner, name, desc ) );
+        }
+        /** Invoke a virtual, special or static method */
+        public void invoke( int opcode, String owner, String name,
+                String desc ) {
+            op( opcode );
+            u2( methodRef( owner, name, desc, false ) );
+        }
+        /** Invoke an interface method with the given number of argument
+         * words (including the receiver) */
+        public void invokeInterface( String owner, String name, String desc,
+                int argWords ) {
+            op( INVOKEINTERFACE );
+            u2( methodRef( owner, name, desc, true ) );
+            code.write( argWords );
+            code.write( 0 );
+        }
+        /** Use a class constant, e.g., for NEW and ANEWARRAY */
+        public void classOp( int opcode, String className ) {
+            op( opcode );
+            u2( classRef( className ) );
+        }
+        public void newIntArray() {
+            op( NEWARRAY );
+            code.write( T_INT );
+        }
+        /** Conditional or unconditional branch to label */
+        public void branch( int opcode, Label label ) {
+            int at = code.size();
+            op( opcode );
+            offset16( at, label );
+        }
+        private void offset16( int at, Label label ) {
+            if( label.isPlaced() ) {
+                int offset = label.position - at;
+                checkOffset( offset );
+                u2( offset );
+            } else {
+                label.fixups.add( new int[] { at, code.size(), 2 } );
+                u2( 0 );
+            }
+        }
+        private void offset32( int at, Label label ) {
+            if( label.isPlaced() ) {
+                u4( label.position - at );
+            } else {
+                label.fixups.add( new int[] { at, code.size(), 4 } );
+                u4( 0 );
+            }
+        }
+        private void checkOffset( int offset ) {
+            if( offset < Short.MIN_VALUE || Short.MAX_VALUE < offset ) {
+                tooLarge = true;
+            }
+        }
+        /** Switch on the int on top of the stack.
+         * @param keys in increasing order */
+        public void lookupSwitch( Label dflt, int[] keys, Label[] labels ) {
+            int at = code.size();
+            op( LOOKUPSWITCH );
+            while( code.size() % 4 != 0 ) {
+                code.write( 0 );
+            }
+            offset32( at, dflt );
+            u4( keys.length );
+            for( int i = 0; i < keys.length; i++ ) {
+                u4( keys[i] );
+                offset32( at, labels[i] );
+            }
+        }
+        /** Set the position of label to the current location */
+        public void place( Label label ) {
+            label.position = code.size();
+            for( int[] fix : label.fixups ) {
+                int offset = label.position - fix[0];
+                if( fix[2] == 2 ) {
+                    checkOffset( offset );
+                }
+                patch( fix[1], offset, fix[2] );
+            }
+            label.fixups.clear();
+        }
+        /** Code already written is patched when the method is output */
+        private List<int[]> patches = new ArrayList<int[]>();
+        private void patch( int at, int value, int size ) {
+            patches.add( new int[] { at, value, size } );
+        }
+        private byte[] toByteArray() throws IOException {
+            if( tooLarge || code.size() >= 65536 ) {
+                throw new IllegalStateException( "method " + name +
+                        " too large" );
+            }
+            byte[] bytes = code.toByteArray();
+            for( int[] p : patches ) {
+                for( int i = 0; i < p[2]; i++ ) {
+                    bytes[p[0] + i] = (byte)(p[1] >> (8 * (p[2] - 1 - i)));
+                }
+            }
+            ByteArrayOutputStream result = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream( result );
+            out.writeShort( access );
+            out.writeShort( utf8( name ) );
+            out.writeShort( utf8( descriptor ) );
+            out.writeShort( 1 );                  /* one attribute: Code */
+            out.writeShort( utf8( "Code" ) );
+            out.writeInt( 12 + bytes.length );
+            out.writeShort( maxStack );
+            out.writeShort( maxLocals );
+            out.writeInt( bytes.length );
+            out.write( bytes );
+            out.writeShort( 0 );                  /* no exception table */
+            out.writeShort( 0 );                  /* no code attributes */
+            return result.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,689 @@
+package machine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import machine.ClassFile.Label;
+
+/**
+ * class CodeTranslator - translates the stack machine code of a procedure
+ * into the byte code of a JVM method.
+ * @version $Revision: 22 $  $Date: 2014-05-20 15:14:36 +1000 (Tue, 20 May 2014) $
+ * The translated code keeps the stack and frames in an int array, exactly
+ * as the stack machine does in its data memory. The method is an instance
+ * method with parameters (runtime, memory, fp, sp, limit, pc), where
+ * runtime is the object supporting the translated code, limit is the top
+ * of stack limit within memory, and pc is the address at which to start
+ * execution. Loads and stores are checked against the length of memory.
+ *
+ * Each instruction checks for the conditions under which the stack machine
+ * would report a runtime error before changing any state, so that the
+ * state seen when an error is reported is the state at the start of the
+ * instruction. What happens then, and how calls, returns, output and the
+ * instructions not translated here are handled, is up to the subclass.
+ */
+abstract class CodeTranslator {
+    /* Local variables of the generated method */
+    protected static final int RUNTIME = 1;
+    protected static final int MEM = 2;
+    protected static final int FP = 3;
+    protected static final int SP = 4;
+    protected static final int LIMIT = 5;
+    protected static final int PC = 6;
+    protected static final int T1 = 7;
+    protected static final int T2 = 8;
+    protected static final int NUM_LOCALS = 9;
+
+    /** Code memory holding the code to be translated, by address */
+    protected final int[] code;
+    /** The method being generated */
+    protected ClassFile.Method m;
+    /** Labels of the instructions of the procedure by address */
+    private Map<Integer,Label> labels;
+    /** Code handling runtime errors by kind and address */
+    private TreeMap<Long,Label> failures;
+    /** Code branching to the address held in PC */
+    private Label dispatch;
+
+    protected CodeTranslator( int[] code ) {
+        this.code = code;
+    }
+
+/*************************** Code for the subclass ***************************/
+
+    /** Generate the code handling a runtime error of the given kind
+     * (see CompiledRuntime) detected by the instruction at addr. For
+     * LOAD and STORE errors T1 holds the address accessed.
+     * The code must not fall through. */
+    protected abstract void genFailure( int kind, int addr );
+    /** Generate the code for a branch to the address in PC, which is not
+     * the address of an instruction of the procedure. */
+    protected abstract void genDispatchMiss();
+    /** Generate the call of the procedure at the address in T1. The new
+     * frame has been set up, with its frame pointer at SP-3, and SP is
+     * one past the return address. The code must leave the stack pointer
+     * after the return, or TERMINATED, on the JVM stack. */
+    protected abstract void genCall();
+    /** Generate the code to reload MEM and LIMIT after a call, as the
+     * called procedure may have grown the memory or allocated from the heap */
+    protected abstract void genReloadLimit();
+    /** Generate the code to return from the procedure activation */
+    protected abstract void genReturn();
+    /** Generate the code to write the value at memory[SP] */
+    protected abstract void genWrite();
+    /** Generate code for an instruction not translated by this class:
+     * READ, ALLOC_HEAP, COPY or STOP */
+    protected abstract void genOther( Operation op, int addr );
+
+/***************************** Translation **********************************/
+
+    /** Translate the code of the procedure from start up to finish into
+     * the method. The method can be entered at the start of the procedure,
+     * or at the head of any loop if loopEntries is set. */
+    protected void translate( ClassFile.Method method, int start, int finish,
+            boolean loopEntries ) {
+        m = method;
+        labels = new HashMap<Integer,Label>();
+        failures = new TreeMap<Long,Label>();
+        dispatch = new Label();
+        List<Integer> entries = new ArrayList<Integer>();
+        entries.add( start );
+        for( int addr = start; addr < finish; addr = next( addr ) ) {
+            labels.put( addr, new Label() );
+        }
+        for( int addr = start; loopEntries && addr < finish;
+                addr = next( addr ) ) {
+            int word = code[addr];
+            if( Operation.decode( word ) == Operation.BR_REL &&
+                    Operation.operand( word ) < 0 ) {
+                int target = addr + 1 + Operation.operand( word );
+                if( labels.containsKey( target ) &&
+                        !entries.contains( target ) ) {
+                    entries.add( target );
+                }
+            }
+        }
+        Collections.sort( entries );
+        Label miss = new Label();
+        switchOn( entries, miss );
+        for( int addr = start; addr < finish; addr = next( addr ) ) {
+            m.place( labels.get( addr ) );
+            translate( addr );
+        }
+        /* Falling off the end of the procedure */
+        m.branch( ClassFile.GOTO, outside( finish ) );
+        /* Branch to a computed address */
+        m.place( dispatch );
+        switchOn( new ArrayList<Integer>( new TreeSet<Integer>(
+                labels.keySet() ) ), miss );
+        m.place( miss );
+        genDispatchMiss();
+        for( Map.Entry<Long,Label> e : failures.entrySet() ) {
+            m.place( e.getValue() );
+            genFailure( (int)(e.getKey() >> 32), e.getKey().intValue() );
+        }
+    }
+    /** Switch on the value of PC to the instructions at the addresses */
+    private void switchOn( List<Integer> addrs, Label dflt ) {
+        int[] keys = new int[ addrs.size() ];
+        Label[] targets = new Label[ keys.length ];
+        for( int i = 0; i < keys.length; i++ ) {
+            keys[i] = addrs.get( i );
+            targets[i] = labels.get( keys[i] );
+        }
+        m.iload( PC );
+        m.lookupSwitch( dflt, keys, targets );
+    }
+    /** @return address of the instruction following that at addr */
+    protected int next( int addr ) {
+        Operation op = Operation.decode( code[addr] );
+        return addr + (op == null ? 1 : op.getSize());
+    }
+    /** @return label of the code handling an error of the given kind
+     * detected by the instruction at addr */
+    protected Label failAt( int kind, int addr ) {
+        long key = ((long)kind << 32) | (addr & 0xFFFFFFFFL);
+        Label label = failures.get( key );
+        if( label == null ) {
+            label = new Label();
+            failures.put( key, label );
+        }
+        return label;
+    }
+    /** @return label for a transfer of control to target, which is not an
+     * instruction of the procedure */
+    private Label outside( int target ) {
+        return failAt( CompiledRuntime.PC_RANGE, target );
+    }
+    /** Branch to the instruction at target */
+    private void jump( int opcode, int target ) {
+        Label label = labels.get( target );
+        m.branch( opcode, label != null ? label : outside( target ) );
+    }
+    /** Fail with a stack underflow if there are fewer than n words on
+     * the stack */
+    protected void needPop( int n, int addr ) {
+        m.iload( SP );
+        m.iconst( n );
+        m.branch( ClassFile.IF_ICMPLT,
+                failAt( CompiledRuntime.UNDERFLOW, addr ) );
+    }
+    /** Fail with a memory overflow if there is not room for n more words
+     * on the stack */
+    protected void needPush( int n, int addr ) {
+        m.iload( SP );
+        m.iconst( n );
+        m.op( ClassFile.IADD );
+        m.iload( LIMIT );
+        m.branch( ClassFile.IF_ICMPGT,
+                failAt( CompiledRuntime.OVERFLOW, addr ) );
+    }
+    /** Fail with an error of the given kind (LOAD or STORE) unless the
+     * n words from the address in T1 are within the memory array */
+    private void needRange( int n, int kind, int addr ) {
+        m.iload( T1 );
+        m.branch( ClassFile.IFLT, failAt( kind, addr ) );
+        m.iload( T1 );
+        m.aload( MEM );
+        m.op( ClassFile.ARRAYLENGTH );
+        m.iconst( n );
+        m.op( ClassFile.ISUB );
+        m.branch( ClassFile.IF_ICMPGT, failAt( kind, addr ) );
+    }
+    /** Push the memory array and the index of the k-th word from
+     * the top of the stack (k = 1 for the top word) */
+    protected void stackIndex( int k ) {
+        m.aload( MEM );
+        m.iload( SP );
+        if( k != 0 ) {
+            m.iconst( k );
+            m.op( ClassFile.ISUB );
+        }
+    }
+    /** Push the k-th word from the top of the stack */
+    protected void stackLoad( int k ) {
+        stackIndex( k );
+        m.op( ClassFile.IALOAD );
+    }
+    /** Push the constant value on to the stack */
+    private void push( int value, int addr ) {
+        needPush( 1, addr );
+        stackIndex( 0 );
+        m.iconst( value );
+        m.op( ClassFile.IASTORE );
+        m.iinc( SP, 1 );
+    }
+    /** Replace the top two words on the stack by the result of the
+     * JVM arithmetic instruction opcode */
+    private void binary( int opcode ) {
+        m.iinc( SP, -1 );
+        stackIndex( 1 );
+        stackLoad( 1 );
+        stackLoad( 0 );
+        m.op( opcode );
+        m.op( ClassFile.IASTORE );
+    }
+    /** Replace the top two words on the stack by the result of the
+     * comparison with JVM branch instruction opcode */
+    private void compare( int opcode, int addr ) {
+        Label isTrue = new Label();
+        Label done = new Label();
+        needPop( 2, addr );
+        m.iinc( SP, -1 );
+        stackIndex( 1 );
+        stackLoad( 1 );
+        stackLoad( 0 );
+        m.branch( opcode, isTrue );
+        m.iconst( StackMachine.FALSE_VALUE );
+        m.branch( ClassFile.GOTO, done );
+        m.place( isTrue );
+        m.iconst( StackMachine.TRUE_VALUE );
+        m.place( done );
+        m.op( ClassFile.IASTORE );
+    }
+    /** Pop the top two words on the stack and branch by offset if their
+     * comparison with JVM branch instruction opcode holds */
+    private void compareBranch( int opcode, int addr, int offset ) {
+        needPop( 2, addr );
+        stackLoad( 2 );
+        stackLoad( 1 );
+        m.iinc( SP, -2 );
+        jump( opcode, addr + 1 + offset );
+        jump( ClassFile.GOTO, addr + 1 );
+    }
+    /** Replace the top word on the stack by the result of combining
+     * it with the value of local variable var using opcode */
+    private void unary( int opcode, int var, int addr ) {
+        needPop( 1, addr );
+        stackIndex( 1 );
+        stackLoad( 1 );
+        m.iload( var );
+        m.op( opcode );
+        m.op( ClassFile.IASTORE );
+    }
+    /** Translate the instruction at addr */
+    private void translate( int addr ) {
+        int word = code[addr];
+        Operation op = Operation.decode( word );
+        int operand = Operation.operand( word );
+        if( op == null ) {
+            m.branch( ClassFile.GOTO, failAt( CompiledRuntime.INVALID, addr ) );
+            return;
+        }
+        switch( op ) {
+        case NO_OP:
+            break;
+        case BR:
+            needPop( 1, addr );
+            m.iinc( SP, -1 );
+            stackLoad( 0 );
+            m.iconst( addr + 1 );
+            m.op( ClassFile.IADD );
+            m.istore( PC );
+            m.branch( ClassFile.GOTO, dispatch );
+            break;
+        case BR_FALSE:
+            needPop( 2, addr );
+            stackLoad( 2 );
+            m.istore( T1 );
+            Label taken = new Label();
+            m.iload( T1 );
+            m.iconst( StackMachine.FALSE_VALUE );
+            m.branch( ClassFile.IF_ICMPEQ, taken );
+            m.iload( T1 );
+            m.iconst( StackMachine.TRUE_VALUE );
+            m.branch( ClassFile.IF_ICMPNE,
+                    failAt( CompiledRuntime.NON_BOOLEAN, addr ) );
+            m.iinc( SP, -2 );
+            jump( ClassFile.GOTO, addr + 1 );
+            m.place( taken );
+            stackLoad( 1 );
+            m.iconst( addr + 1 );
+            m.op( ClassFile.IADD );
+            m.istore( PC );
+            m.iinc( SP, -2 );
+            m.branch( ClassFile.GOTO, dispatch );
+            break;
+        case CALL:
+            needPop( 1, addr );
+            needPush( 1, addr );
+            stackLoad( 1 );
+            m.istore( T1 );                 /* procedure address */
+            stackIndex( 1 );
+            m.iload( FP );                  /* dynamic link */
+            m.op( ClassFile.IASTORE );
+            stackIndex( 0 );
+            m.iconst( addr + 1 );           /* return address */
+            m.op( ClassFile.IASTORE );
+            m.iinc( SP, 1 );
+            genCall();
+            m.op( ClassFile.DUP );
+            m.istore( SP );
+            Label ok = new Label();
+            m.branch( ClassFile.IFGE, ok );
+            m.iconst( CompiledRuntime.TERMINATED );
+            m.op( ClassFile.IRETURN );
+            m.place( ok );
+            genReloadLimit();
+            break;
+        case RETURN:
+            genReturn();
+            break;
+        case ALLOC_STACK:
+            if( operand > 0 ) {
+                needPush( operand, addr );
+                m.aload( MEM );
+                m.iload( SP );
+                m.iload( SP );
+                m.iconst( operand );
+                m.op( ClassFile.IADD );
+                m.iconst( StackMachine.NULL_ADDR );
+                m.invoke( ClassFile.INVOKESTATIC, "java/util/Arrays",
+                        "fill", "([IIII)V" );
+                m.iinc( SP, operand );
+            }
+            break;
+        case DEALLOC_STACK:
+            m.iload( SP );
+            m.iconst( operand );
+            m.op( ClassFile.ISUB );
+            m.iload( FP );
+            m.iconst( 2 );
+            m.op( ClassFile.IADD );
+            m.branch( ClassFile.IF_ICMPLE,
+                    failAt( CompiledRuntime.DEALLOC, addr ) );
+            m.iinc( SP, -operand );
+            break;
+        case POP:
+            needPop( 1, addr );
+            m.iinc( SP, -1 );
+            break;
+        case DUP:
+            needPop( 1, addr );
+            needPush( 1, addr );
+            stackIndex( 0 );
+            stackLoad( 1 );
+            m.op( ClassFile.IASTORE );
+            m.iinc( SP, 1 );
+            break;
+        case SWAP:
+            needPop( 2, addr );
+            stackLoad( 1 );
+            m.istore( T1 );
+            stackIndex( 1 );
+            stackLoad( 2 );
+            m.op( ClassFile.IASTORE );
+            stackIndex( 2 );
+            m.iload( T1 );
+            m.op( ClassFile.IASTORE );
+            break;
+        case ADD:
+            needPop( 2, addr );
+            binary( ClassFile.IADD );
+            break;
+        case MPY:
+            needPop( 2, addr );
+            binary( ClassFile.IMUL );
+            break;
+        case DIV:
+            needPop( 2, addr );
+            stackLoad( 1 );
+            m.branch( ClassFile.IFEQ, failAt( CompiledRuntime.DIVIDE, addr ) );
+            binary( ClassFile.IDIV );
+            break;
+        case OR:
+            needPop( 2, addr );
+            binary( ClassFile.IOR );
+            break;
+        case AND:
+            needPop( 2, addr );
+            binary( ClassFile.IAND );
+            break;
+        case XOR:
+            needPop( 2, addr );
+            binary( ClassFile.IXOR );
+            break;
+        case EQUAL:
+            compare( ClassFile.IF_ICMPEQ, addr );
+            break;
+        case LESS:
+            compare( ClassFile.IF_ICMPLT, addr );
+            break;
+        case LESSEQ:
+            compare( ClassFile.IF_ICMPLE, addr );
+            break;
+        case NOT:
+            m.iconst( -1 );
+            m.istore( T1 );
+            unary( ClassFile.IXOR, T1, addr );
+            break;
+        case NEGATE:
+            needPop( 1, addr );
+            stackIndex( 1 );
+            stackLoad( 1 );
+            m.op( ClassFile.INEG );
+            m.op( ClassFile.IASTORE );
+            break;
+        case WRITE:
+            needPop( 1, addr );
+            m.iinc( SP, -1 );
+            genWrite();
+            break;
+        case BOUND:
+            needPop( 3, addr );
+            stackLoad( 3 );
+            m.istore( T1 );
+            m.iload( T1 );
+            stackLoad( 2 );
+            m.branch( ClassFile.IF_ICMPLT,
+                    failAt( CompiledRuntime.BOUNDS, addr ) );
+            m.iload( T1 );
+            stackLoad( 1 );
+            m.branch( ClassFile.IF_ICMPGT,
+                    failAt( CompiledRuntime.BOUNDS, addr ) );
+            m.iinc( SP, -2 );
+            break;
+        case TO_GLOBAL:
+            unary( ClassFile.IADD, FP, addr );
+            break;
+        case TO_LOCAL:
+            unary( ClassFile.ISUB, FP, addr );
+            break;
+        case LOAD_CON:
+            push( operand, addr );
+            break;
+        case LOAD_WIDE:
+            push( code[addr + 1], addr );
+            break;
+        case ZERO:
+            push( 0, addr );
+            break;
+        case ONE:
+            push( 1, addr );
+            break;
+        case LOAD_ABS:
+            needPop( 1, addr );
+            stackLoad( 1 );
+            m.istore( T1 );
+            loadTop( addr );
+            break;
+        case LOAD_FRAME:
+            needPop( 1, addr );
+            m.iload( FP );
+            stackLoad( 1 );
+            m.op( ClassFile.IADD );
+            m.istore( T1 );
+            loadTop( addr );
+            break;
+        case STORE_FRAME:
+            needPop( 2, addr );
+            m.iload( FP );
+            stackLoad( 1 );
+            m.op( ClassFile.IADD );
+            m.istore( T1 );
+            needRange( 1, CompiledRuntime.STORE, addr );
+            m.aload( MEM );
+            m.iload( T1 );
+            stackLoad( 2 );
+            m.op( ClassFile.IASTORE );
+            m.iinc( SP, -2 );
+            break;
+        case LOAD_LOCAL:
+            needPush( 1, addr );
+            m.iload( FP );
+            m.iconst( operand );
+            m.op( ClassFile.IADD );
+            m.istore( T1 );
+            needRange( 1, CompiledRuntime.LOAD, addr );
+            stackIndex( 0 );
+            m.aload( MEM );
+            m.iload( T1 );
+            m.op( ClassFile.IALOAD );
+            m.op( ClassFile.IASTORE );
+            m.iinc( SP, 1 );
+            break;
+        case STORE_LOCAL:
+            needPop( 1, addr );
+            m.iload( FP );
+            m.iconst( operand );
+            m.op( ClassFile.IADD );
+            m.istore( T1 );
+            needRange( 1, CompiledRuntime.STORE, addr );
+            m.iinc( SP, -1 );
+            m.aload( MEM );
+            m.iload( T1 );
+            stackLoad( 0 );
+            m.op( ClassFile.IASTORE );
+            break;
+        case LOAD_MULTI:
+            loadMulti( operand, addr );
+            break;
+        case STORE_MULTI:
+            storeMulti( operand, addr );
+            break;
+        case BR_REL:
+            jump( ClassFile.GOTO, addr + 1 + operand );
+            break;
+        case BR_FALSE_REL:
+            needPop( 1, addr );
+            stackLoad( 1 );
+            m.istore( T1 );
+            Label isFalse = new Label();
+            m.iload( T1 );
+            m.iconst( StackMachine.FALSE_VALUE );
+            m.branch( ClassFile.IF_ICMPEQ, isFalse );
+            m.iload( T1 );
+            m.iconst( StackMachine.TRUE_VALUE );
+            m.branch( ClassFile.IF_ICMPNE,
+                    failAt( CompiledRuntime.NON_BOOLEAN, addr ) );
+            m.iinc( SP, -1 );
+            jump( ClassFile.GOTO, addr + 1 );
+            m.place( isFalse );
+            m.iinc( SP, -1 );
+            jump( ClassFile.GOTO, addr + 1 + operand );
+            break;
+        case LOAD_CON_ADD:
+            m.iconst( operand );
+            m.istore( T1 );
+            unary( ClassFile.IADD, T1, addr );
+            break;
+        case SUB:
+            needPop( 2, addr );
+            binary( ClassFile.ISUB );
+            break;
+        case GREATER:
+            compare( ClassFile.IF_ICMPGT, addr );
+            break;
+        case GREATEREQ:
+            compare( ClassFile.IF_ICMPGE, addr );
+            break;
+        case NOT_BOOL:
+            needPop( 1, addr );
+            Label isTrue = new Label();
+            Label done = new Label();
+            stackIndex( 1 );
+            stackLoad( 1 );
+            m.branch( ClassFile.IFEQ, isTrue );
+            m.iconst( StackMachine.FALSE_VALUE );
+            m.branch( ClassFile.GOTO, done );
+            m.place( isTrue );
+            m.iconst( StackMachine.TRUE_VALUE );
+            m.place( done );
+            m.op( ClassFile.IASTORE );
+            break;
+        case INC:
+        case DEC:
+            m.iconst( op == Operation.INC ? 1 : -1 );
+            m.istore( T1 );
+            unary( ClassFile.IADD, T1, addr );
+            break;
+        case BR_EQUAL:
+            compareBranch( ClassFile.IF_ICMPEQ, addr, operand );
+            break;
+        case BR_NOT_EQUAL:
+            compareBranch( ClassFile.IF_ICMPNE, addr, operand );
+            break;
+        case BR_LESS:
+            compareBranch( ClassFile.IF_ICMPLT, addr, operand );
+            break;
+        case BR_LESSEQ:
+            compareBranch( ClassFile.IF_ICMPLE, addr, operand );
+            break;
+        case BR_GREATER:
+            compareBranch( ClassFile.IF_ICMPGT, addr, operand );
+            break;
+        case BR_GREATEREQ:
+            compareBranch( ClassFile.IF_ICMPGE, addr, operand );
+            break;
+        default:
+            /* READ, ALLOC_HEAP, COPY, STOP */
+            genOther( op, addr );
+            break;
+        }
+    }
+    /** Replace the top of stack by the word at the address in T1 */
+    private void loadTop( int addr ) {
+        needRange( 1, CompiledRuntime.LOAD, addr );
+        stackIndex( 1 );
+        m.aload( MEM );
+        m.iload( T1 );
+        m.op( ClassFile.IALOAD );
+        m.op( ClassFile.IASTORE );
+    }
+    /** Replace the frame offset on top of the stack by count words
+     * loaded from that offset */
+    private void loadMulti( int count, int addr ) {
+        needPop( 1, addr );
+        if( count > 0 ) {
+            m.iload( FP );
+            stackLoad( 1 );
+            m.op( ClassFile.IADD );
+            m.istore( T1 );
+            needRange( count, CompiledRuntime.LOAD, addr );
+            needPush( count - 1, addr );
+        }
+        m.iinc( SP, -1 );
+        if( count > 0 ) {
+            /* Copy word by word, as the stack machine does */
+            Label loop = new Label();
+            Label done = new Label();
+            m.iconst( 0 );
+            m.istore( T2 );
+            m.place( loop );
+            m.iload( T2 );
+            m.iconst( count );
+            m.branch( ClassFile.IF_ICMPGE, done );
+            stackIndex( 0 );
+            m.aload( MEM );
+            m.iload( T1 );
+            m.iload( T2 );
+            m.op( ClassFile.IADD );
+            m.op( ClassFile.IALOAD );
+            m.op( ClassFile.IASTORE );
+            m.iinc( SP, 1 );
+            m.iinc( T2, 1 );
+            m.branch( ClassFile.GOTO, loop );
+            m.place( done );
+        }
+    }
+    /** Store count words from the stack at the frame offset on top of
+     * the stack */
+    private void storeMulti( int count, int addr ) {
+        if( count > 0 ) {
+            needPop( count + 1, addr );
+            m.iload( FP );
+            stackLoad( 1 );
+            m.op( ClassFile.IADD );
+            m.istore( T1 );
+            needRange( count, CompiledRuntime.STORE, addr );
+        } else {
+            needPop( 1, addr );
+        }
+        m.iinc( SP, -1 );
+        if( count > 0 ) {
+            /* Store from the last location back, as the stack machine does */
+            Label loop = new Label();
+            Label done = new Label();
+            m.iconst( count );
+            m.istore( T2 );
+            m.place( loop );
+            m.iload( T2 );
+            m.branch( ClassFile.IFLE, done );
+            m.iinc( T2, -1 );
+            m.iinc( SP, -1 );
+            m.aload( MEM );
+            m.iload( T1 );
+            m.iload( T2 );
+            m.op( ClassFile.IADD );
+            stackLoad( 0 );
+            m.op( ClassFile.IASTORE );
+            m.branch( ClassFile.GOTO, loop );
+            m.place( done );
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package machine;
+
+/**
+ * interface CompiledProcedure - the code of a procedure translated to
+ * JVM byte code by the JitCompiler.
+ * @version $Revision: 22 $  $Date: 2014-05-20 15:14:36 +1000 (Tue, 20 May 2014) $
+ * The translated code works directly on the memory of the stack machine.
+ * It returns to the machine either when the procedure returns, or when it
+ * reaches an instruction it does not handle itself (including any
+ * instruction that would cause a runtime error), in which case the
+ * machine continues by interpreting that instruction.
+ */
+interface CompiledProcedure {
+    /** Returned by run if execution of the program was terminated,
+     * e.g., by a runtime error within a called procedure. */
+    int TERMINATED = CompiledRuntime.TERMINATED;
+
+    /** Execute the procedure code starting at address pc within the
+     * current stack frame. Before returning, the frame and stack pointers
+     * are set in the machine via jitExit.
+     * @param machine executing the code
+     * @param memory of the machine
+     * @param fp frame pointer of the procedure activation
+     * @param sp stack pointer
+     * @param limit top of stack limit within memory
+     * @param pc address at which to start execution
+     * @return address of the next instruction to be executed by the
+     *  machine, or TERMINATED
+     */
+    int run( StackMachine machine, int[] memory, int fp, int sp, int limit,
+            int pc );
+}
@@ -0,0 +1,282 @@
+package machine;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * class CompiledRuntime - run time support for a program exported as a
+ * standalone JAR by the AotCompiler.
+ * @version $Revision: 22 $  $Date: 2014-05-20 15:14:36 +1000 (Tue, 20 May 2014) $
+ * This class is copied into the exported JAR along with the generated
+ * program class, so it must only depend on the Java library.
+ * It holds the memory for the stack and heap, does input and output, and
+ * reports runtime errors with a trace back in the same form as the
+ * stack machine.
+ */
+final class CompiledRuntime {
+    /* Kinds of runtime errors detected by translated code */
+    static final int UNDERFLOW = 1;
+    static final int OVERFLOW = 2;
+    static final int LOAD = 3;
+    static final int STORE = 4;
+    static final int DIVIDE = 5;
+    static final int BOUNDS = 6;
+    static final int NON_BOOLEAN = 7;
+    static final int DEALLOC = 8;
+    static final int HALT = 9;
+    static final int INVALID = 10;
+    static final int PC_RANGE = 11;
+    static final int READ_ERROR = 12;
+    static final int NOT_IMPLEMENTED = 13;
+
+    /** Value returned by translated code if execution was terminated */
+    static final int TERMINATED = -1;
+    /** Address outside memory, as StackMachine.NULL_ADDR */
+    private static final int NULL_ADDR = Integer.MIN_VALUE;
+
+    /** Memory for the stack and heap */
+    final int[] memory;
+    /** Top of stack limit */
+    final int stackLimit;
+    /** Bottom of heap limit */
+    int limit;
+
+    /** Procedure descriptions for trace back, with their start and finish
+     * addresses and the local variables of each */
+    private final List<String> procNames = new ArrayList<String>();
+    private final List<int[]> procRanges = new ArrayList<int[]>();
+    private final List<List<String[]>> procVars = new ArrayList<List<String[]>>();
+    /** Line table of each procedure: the addresses at which its source
+     * lines start, in increasing order, and the lines */
+    private final List<List<int[]>> procLines = new ArrayList<List<int[]>>();
+
+    private final PrintStream outStream = System.out;
+    private final BufferedReader in =
+        new BufferedReader( new InputStreamReader( System.in ) );
+
+    /** Registers at the point of a runtime error, for the trace back */
+    private int pc, fp, sp;
+
+    /** @param memSize size of memory, the stack size plus the heap size
+     * @param stackSize maximum size of the stack
+     * @param procedures table of procedures: lines of the form
+     *  "P tab start tab finish tab description" each followed by lines
+     *  "L tab address tab line" for its line table and
+     *  "V tab identifier tab offset tab size" for its local variables
+     */
+    CompiledRuntime( int memSize, int stackSize, String procedures ) {
+        memory = new int[ memSize ];
+        for( int i = 0; i < memSize; i++ ) {
+            memory[i] = NULL_ADDR;      // out of memory address
+        }
+        this.stackLimit = stackSize;
+        this.limit = memSize;
+        for( String line : procedures.split( "\n" ) ) {
+            String[] field = line.split( "\t" );
+            if( field[0].equals( "P" ) ) {
+                procRanges.add( new int[] { Integer.parseInt( field[1] ),
+                        Integer.parseInt( field[2] ) } );
+                procNames.add( field[3] );
+                procVars.add( new ArrayList<String[]>() );
+                procLines.add( new ArrayList<int[]>() );
+            } else if( field[0].equals( "L" ) ) {
+                procLines.get( procLines.size() - 1 ).add( new int[] {
+                        Integer.parseInt( field[1] ),
+                        Integer.parseInt( field[2] ) } );
+            } else if( field[0].equals( "V" ) ) {
+                procVars.get( procVars.size() - 1 ).add( field );
+            }
+        }
+    }
+    /** Write a number to stdout */
+    void write( int value ) {
+        outStream.println( Integer.toString( value ) );
+    }
+    /** Read a number from stdin into memory[sp].
+     * @return false if the value read was not an integer */
+    boolean read( int sp ) {
+        try {
+            memory[sp] = Integer.parseInt( in.readLine() );
+            return true;
+        } catch( Exception e ) {
+            return false;
+        }
+    }
+    /** Finish execution of the program, as the stack machine does */
+    void exit( int result ) {
+        outStream.println( "\nTerminated" );
+        outStream.flush();
+        if( result == TERMINATED ) {
+            System.exit( 1 );
+        }
+    }
+    /** Report a runtime error detected by the instruction at addr.
+     * @param kind of error
+     * @param addr address of the instruction
+     * @param fp frame pointer
+     * @param sp stack pointer before the instruction
+     * @param address memory address accessed, for LOAD and STORE errors
+     * @param count number of words accessed, for LOAD and STORE errors
+     */
+    void fail( int kind, int addr, int fp, int sp, int address, int count ) {
+        String message;
+        this.pc = addr + 1;
+        this.fp = fp;
+        this.sp = sp;
+        switch( kind ) {
+        case UNDERFLOW:
+            message = "stack underflow!";
+            break;
+        case OVERFLOW:
+            message = "memory overflow!";
+            break;
+        case LOAD:
+            /* The first address outside memory */
+            if( 0 <= address && address < memory.length ) {
+                address = memory.length;
+            }
+            message = "load outside memory pc=" + addr + ": address=" + address;
+            break;
+        case STORE:
+            /* Multiple words are stored from the last one back */
+            int last = address + count - 1;
+            if( 0 <= last && last < memory.length ) {
+                last = -1;
+            }
+            message = "store outside memory pc=" + addr + ": address=" + last;
+            break;
+        case DIVIDE:
+            message = "divide by zero";
+            break;
+        case BOUNDS:
+            message = "bounds check failed at " + addr + ": " +
+                memory[sp-3] + " not in " + memory[sp-2] + ".." + memory[sp-1];
+            break;
+        case NON_BOOLEAN:
+            message = "non-boolean operand in branch";
+            break;
+        case DEALLOC:
+            message = "deallocating too many words";
+            break;
+        case HALT:
+            message = "machine halted with code " + memory[sp-1];
+            break;
+        case PC_RANGE:
+            this.pc = addr;
+            message = "PC = " + addr + " out of range of code";
+            break;
+        case READ_ERROR:
+            message = "invalid value read - must be an integer";
+            break;
+        case NOT_IMPLEMENTED:
+            message = "opcode not implemented";
+            break;
+        case INVALID:
+        default:
+            message = "invalid opcode";
+            break;
+        }
+        outStream.println( "\nRuntime error: " + message );
+        traceBack();
+    }
+    /** @return index of the procedure containing address pc, or -1 */
+    private int getProcedure( int pc ) {
+        for( int i = 0; i < procRanges.size(); i++ ) {
+            int[] range = procRanges.get( i );
+            if( range[0] <= pc && pc < range[1] ) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    /** @return the source line of the code at pc in procedure proc, or 0
+     * if not known */
+    private int getLine( int proc, int pc ) {
+        int line = 0;
+        for( int[] entry : procLines.get( proc ) ) {
+            if( entry[0] > pc ) {
+                break;
+            }
+            line = entry[1];
+        }
+        return line;
+    }
+    /** Dump the contents of the stack to stdout */
+    private void dumpStack() {
+        outStream.println();
+        outStream.println( "Stack pointer = " + sp );
+        for( int i = 0; i < sp; i++ ) {
+            StringBuffer out = new StringBuffer( "" );
+            if( i == fp ) {
+                out.append( " FP: " );
+            } else {
+                out.append( "     " );
+            }
+            int n = out.length();
+            out.append( i );
+            pad( out, n+4 );
+            out.append( ": " );
+            out.append( memory[i] );
+            outStream.println( out );
+        }
+    }
+    /** Trace back of procedure calls, as for the stack machine */
+    private void traceBack() {
+        int tracePC = pc;
+        int traceFP = fp;
+        while( tracePC != 0 ) {
+            int proc = getProcedure( tracePC-1 );
+            if( proc < 0 ) {
+                if( fp != 0 ) {
+                    outStream.println( "Trace back terminated early - " +
+                        "PC " + tracePC + " out of valid range" );
+                    dumpStack();
+                }
+                return;
+            }
+            int line = getLine( proc, tracePC-1 );
+            outStream.print( "PC=" + tracePC + (line == 0 ? ""
+                    : " line " + line) + " in " + procNames.get( proc ) );
+            outStream.print( " FP=" + traceFP );
+            int staticLink = memory[traceFP];
+            outStream.print( " SL=" + staticLink );
+            int dynamicLink = memory[traceFP+1];
+            outStream.print( " DL=" + dynamicLink );
+            outStream.println( " RA=" + memory[traceFP+2] );
+            for( String[] var : procVars.get( proc ) ) {
+                int offset = Integer.parseInt( var[2] );
+                int varSize = Integer.parseInt( var[3] );
+                int addr = traceFP + offset;
+                String varVal = "  " + var[1] + "(" + offset + ")" + " =";
+                for( int i = 0; i < varSize; i++ ) {
+                    if( 0 <= addr && addr < memory.length ) {
+                        varVal += " " + memory[addr];
+                        addr++;
+                    } else {
+                        varVal += " offset out of stack bounds";
+                        break;
+                    }
+                }
+                outStream.println( varVal );
+            }
+            tracePC = memory[traceFP+2];
+            if( dynamicLink != 0 && dynamicLink > traceFP - 3 ) {
+                outStream.println( "Trace back terminated early - " +
+                    "invalid dynamic link " + dynamicLink + " FP= " + traceFP );
+                dumpStack();
+                return;
+            }
+            traceFP = dynamicLink;
+        }
+        outStream.println( "End of traceBack" );
+    }
+    /** Right pad the given string buffer to the given length */
+    private void pad( StringBuffer buf, int to ) {
+        for( int i=buf.length(); i<to; i++ ) {
+            buf.append( ' ' );
+        }
+    }
+}
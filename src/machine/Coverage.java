@@ -0,0 +1,113 @@
+package machine;
+
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * class Coverage - statement coverage of the program run by the stack
+ * machine.
+ * @version $Revision: 22 $  $Date: 2014-05-20 15:14:36 +1000 (Tue, 20 May 2014) $
+ * The interpreter counts the executions of the instruction at each
+ * address. The code of a statement is entered only at its first
+ * instruction, so the count at each address in the line tables of the
+ * procedures is the number of times that statement was executed.
+ * The count of a source line is the largest count of the statements
+ * starting on it, so that a line is covered if any of its statements
+ * were executed.
+ */
+public class Coverage {
+    /** Procedures of the program, with their line tables */
+    private final ProcedureTable procedures;
+    /** Number of executions of the instruction at each address */
+    private final long[] counts;
+
+    /** @param codeEnd address just past the last instruction
+     * @param procedures procedures of the program */
+    Coverage( int codeEnd, ProcedureTable procedures ) {
+        this.procedures = procedures;
+        this.counts = new long[ codeEnd ];
+    }
+    /** Count the execution of the instruction at pc, which must be a
+     * valid code address */
+    void hit( int pc ) {
+        counts[pc]++;
+    }
+    /** @return the execution count of each source line with a statement
+     * on it, in order of the lines */
+    public Map<Integer,Long> getLineCounts() {
+        Map<Integer,Long> lines = new TreeMap<Integer,Long>();
+        for( ProcedureTable.Entry proc : procedures.getEntries() ) {
+            int[] addresses = proc.getLineAddresses();
+            int[] procLines = proc.getLines();
+            for( int i = 0; i < addresses.length; i++ ) {
+                if( procLines[i] == 0 || addresses[i] < 0 ||
+                        counts.length <= addresses[i] ) {
+                    continue;
+                }
+                long count = counts[ addresses[i] ];
+                Long previous = lines.get( procLines[i] );
+                if( previous == null || previous < count ) {
+                    lines.put( procLines[i], count );
+                }
+            }
+        }
+        return lines;
+    }
+    /** Write the source with the execution count of each line beside it:
+     * "-" for lines without statements, and "#####" for lines whose
+     * statements were never executed.
+     * @param source lines of the source of the program */
+    public void writeListing( List<String> source, PrintStream out ) {
+        Map<Integer,Long> lines = getLineCounts();
+        for( int i = 0; i < source.size(); i++ ) {
+            Long count = lines.get( i + 1 );
+            String hits = count == null ? "-"
+                    : count == 0 ? "#####" : count.toString();
+            out.println( String.format( "%9s:%5d: %s", hits, i + 1,
+                    source.get( i ) ) );
+        }
+    }
+    /** @return a JSON summary of the coverage of the source file */
+    public String toJson( String fileName ) {
+        Map<Integer,Long> lines = getLineCounts();
+        int executed = 0;
+        StringBuilder counts = new StringBuilder();
+        String sep = "\n";
+        for( Map.Entry<Integer,Long> line : lines.entrySet() ) {
+            if( line.getValue() != 0 ) {
+                executed++;
+            }
+            counts.append( sep ).append( "    {\"line\": " )
+                .append( line.getKey() ).append( ", \"count\": " )
+                .append( line.getValue() ).append( "}" );
+            sep = ",\n";
+        }
+        StringBuilder json = new StringBuilder();
+        json.append( "{\n" );
+        json.append( "  \"file\": " ).append( quote( fileName ) )
+            .append( ",\n" );
+        json.append( "  \"lines\": " ).append( lines.size() )
+            .append( ",\n" );
+        json.append( "  \"linesExecuted\": " ).append( executed )
+            .append( ",\n" );
+        json.append( "  \"counts\": [" ).append( counts )
+            .append( "\n  ]\n}\n" );
+        return json.toString();
+    }
+    /** @return s as a JSON string literal */
+    private static String quote( String s ) {
+        StringBuilder buf = new StringBuilder( "\"" );
+        for( char c : s.toCharArray() ) {
+            if( c == '"' || c == '\\' ) {
+                buf.append( '\\' ).append( c );
+            } else if( c < ' ' ) {
+                buf.append( String.format( "\\u%04x", (int)c ) );
+            } else {
+                buf.append( c );
+            }
+        }
+        return buf.append( '"' ).toString();
+    }
+}
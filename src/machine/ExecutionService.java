@@ -0,0 +1,178 @@
+package machine;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import source.ErrorHandler;
+
+/**
+ * class ExecutionService - runs many programs concurrently, each in its
+ * own stack machine with its own input and output.
+ * @version $Revision: 22 $  $Date: 2014-05-20 15:14:36 +1000 (Tue, 20 May 2014) $
+ * The programs share a fixed pool of threads. Each runs for a slice of
+ * SLICE instructions at a time (see StackMachine.run( maxInstructions )),
+ * and then goes to the back of the queue, so long running programs
+ * take turns. A program reading input that is not ready yet gives up
+ * its thread, and checks again for the input every INPUT_POLL
+ * milliseconds, so programs waiting for input hold no thread at all.
+ * Once its input has ended (see InputPort.atEnd) the read fails.
+ * Machines running in slices cannot use compiled code, so programs are
+ * always interpreted.
+ * At most maxJobs programs are admitted at once; submit waits for a
+ * running program to finish when the service is full.
+ * The data memory arrays of finished machines, as grown by the programs,
+ * are pooled and reused.
+ */
+public class ExecutionService {
+    /** Instructions a program runs before another program has a turn */
+    static final long SLICE = 10000;
+    /** Interval in milliseconds at which a program waiting for input
+     * checks for it */
+    static final long INPUT_POLL = 1;
+
+    /** Threads running the slices of the programs */
+    private final ScheduledExecutorService executor;
+    /** Permits for the programs admitted */
+    private final Semaphore admission;
+    /** Memory arrays of finished machines available for reuse */
+    private final Queue<int[]> memories = new ConcurrentLinkedQueue<int[]>();
+    /** Number of machines that reused a memory array */
+    private final AtomicInteger reused = new AtomicInteger();
+    /** Sizes of the code, stack and heap of every machine */
+    private final MemoryLayout layout;
+    /** Number of programs admitted and not yet finished */
+    private int running = 0;
+    /** Set once no more programs are admitted */
+    private boolean shutdown = false;
+
+    /** @param maxJobs maximum number of programs admitted at once
+     * @param threads number of threads running the programs */
+    public ExecutionService( int maxJobs, int threads ) {
+        this( maxJobs, threads, MemoryLayout.DEFAULT );
+    }
+    /** @param maxJobs maximum number of programs admitted at once
+     * @param threads number of threads running the programs
+     * @param layout sizes of the code, stack and heap of the machines */
+    public ExecutionService( int maxJobs, int threads,
+            MemoryLayout layout ) {
+        this.executor = new ScheduledThreadPoolExecutor( threads );
+        this.admission = new Semaphore( maxJobs );
+        this.layout = layout;
+    }
+
+    /** Run a program in a new machine, waiting for admission if the
+     * service is full.
+     * @param image code of the program
+     * @param in input read by the program; ready must not wait
+     * @param out output of the program and its runtime errors
+     * @return result that is true if the program terminated without a
+     *  runtime error
+     * @throws InterruptedException if interrupted waiting for admission
+     * @throws RejectedExecutionException if the service has been shut down
+     */
+    public Future<Boolean> submit( ProgramImage image, InputPort in,
+            PrintStream out ) throws InterruptedException {
+        admission.acquire();
+        synchronized( this ) {
+            if( shutdown ) {
+                admission.release();
+                throw new RejectedExecutionException( "service shut down" );
+            }
+            running++;
+        }
+        int[] memory = memories.poll();
+        if( memory != null ) {
+            reused.incrementAndGet();
+        }
+        Job job = new Job( new StackMachine(
+                new ErrorHandler( out, null, false ), out, image, layout,
+                memory ), in, out );
+        executor.execute( job );
+        return job.result;
+    }
+    /** Stop admitting programs; those already admitted run to completion */
+    public synchronized void shutdown() {
+        shutdown = true;
+        if( running == 0 ) {
+            executor.shutdown();
+        }
+    }
+    /** @return the number of machines that reused the memory array of a
+     * finished machine */
+    int getReusedMemories() {
+        return reused.get();
+    }
+
+    /** A program admitted to the service, run a slice at a time */
+    private class Job implements Runnable {
+        private final StackMachine machine;
+        private final InputPort in;
+        private final PrintStream out;
+        /** Completed when the program terminates */
+        private final CompletableFuture<Boolean> result =
+            new CompletableFuture<Boolean>();
+
+        Job( StackMachine machine, InputPort in, PrintStream out ) {
+            this.machine = machine;
+            this.in = in;
+            this.out = out;
+            machine.setInput( in );
+        }
+        /** Run the next slice of the program, then queue it again unless
+         * it has terminated */
+        public void run() {
+            try {
+                StackMachine.Status status = machine.run( SLICE );
+                if( status == StackMachine.Status.BUDGET_EXHAUSTED ) {
+                    executor.execute( this );
+                    return;
+                }
+                if( status == StackMachine.Status.WAITING_FOR_INPUT ) {
+                    if( !ended() ) {
+                        executor.schedule( this, INPUT_POLL,
+                                TimeUnit.MILLISECONDS );
+                        return;
+                    }
+                    /* Let the read report the end of the input */
+                    machine.run();
+                }
+                out.flush();
+                finished();
+                result.complete( !machine.hadRuntimeError() );
+            } catch( RuntimeException e ) {
+                finished();
+                result.completeExceptionally( e );
+            }
+        }
+        /** @return true if the input has ended, or cannot be read */
+        private boolean ended() {
+            try {
+                return in.atEnd();
+            } catch( IOException e ) {
+                return true;
+            }
+        }
+        /** Return the memory of the machine to the pool, and admit
+         * another program */
+        private void finished() {
+            memories.offer( machine.getDataMemory() );
+            admission.release();
+            synchronized( ExecutionService.this ) {
+                running--;
+                if( shutdown && running == 0 ) {
+                    executor.shutdown();
+                }
+            }
+        }
+    }
+}
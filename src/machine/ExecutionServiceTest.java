@@ -0,0 +1,168 @@
+package machine;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+/**
+ * class ExecutionServiceTest - JUnit test for ExecutionService.
+ * @version $Revision: 22 $  $Date: 2014-05-20 15:14:36 +1000 (Tue, 20 May 2014) $
+ */
+public class ExecutionServiceTest extends TestCase {
+
+    public ExecutionServiceTest(String arg0) {
+        super(arg0);
+    }
+
+    /** Loops for more than a slice, then writes the running sum of the
+     * values read up to a 0 */
+    private static final String SUMS =
+        "var x: int;\n" +
+        "    s: int;\n" +
+        "    i: int;\n" +
+        "begin\n" +
+        "  i := 0;\n" +
+        "  while i < 25000 do i := i + 1;\n" +
+        "  s := 0;\n" +
+        "  read x;\n" +
+        "  while x != 0 do\n" +
+        "    begin\n" +
+        "      s := s + x;\n" +
+        "      write s;\n" +
+        "      read x\n" +
+        "    end;\n" +
+        "  write i\n" +
+        "end\n";
+    /** Seconds to wait for a program that should finish */
+    private static final long TIMEOUT = 30;
+
+    private ProgramImage image;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        image = StackMachineTest.compile( SUMS,
+                new PrintStream( new ByteArrayOutputStream() ) ).getImage();
+    }
+
+    /** Feed job k its input, 0 ending it */
+    private static void feed( StackMachineTest.FedInput in, int k ) {
+        in.feed( k + 1 );
+        in.feed( k + 2 );
+        in.feed( 0 );
+        in.close();
+    }
+    /** @return the output expected of job k */
+    private static String expected( int k ) {
+        String nl = System.lineSeparator();
+        return (k + 1) + nl + (2 * k + 3) + nl + 25000 + nl +
+            "\nTerminated" + nl;
+    }
+
+    /*
+     * Test more programs than are admitted at once, each with its own
+     * input and output, reusing the memory of finished machines.
+     */
+    public void testManyJobs() throws Exception {
+        final int maxJobs = 4;
+        final int jobs = 25;
+        ExecutionService service = new ExecutionService( maxJobs, 2 );
+        ByteArrayOutputStream[] outputs = new ByteArrayOutputStream[ jobs ];
+        @SuppressWarnings("unchecked")
+        Future<Boolean>[] results = new Future[ jobs ];
+        for( int k = 0; k < jobs; k++ ) {
+            StackMachineTest.FedInput in = new StackMachineTest.FedInput();
+            feed( in, k );
+            outputs[k] = new ByteArrayOutputStream();
+            results[k] = service.submit( image, in,
+                    new PrintStream( outputs[k], true ) );
+        }
+        for( int k = 0; k < jobs; k++ ) {
+            assertTrue( "job " + k,
+                    results[k].get( TIMEOUT, TimeUnit.SECONDS ) );
+            assertEquals( "job " + k, expected( k ), outputs[k].toString() );
+        }
+        assertTrue( "memory reused " + service.getReusedMemories(),
+                service.getReusedMemories() >= jobs - maxJobs );
+        service.shutdown();
+    }
+    /*
+     * Test that programs waiting for input hold no thread, so that with
+     * a single thread a later program runs while earlier ones wait.
+     */
+    public void testWaitingForInput() throws Exception {
+        ExecutionService service = new ExecutionService( 3, 1 );
+        StackMachineTest.FedInput[] inputs = new StackMachineTest.FedInput[3];
+        ByteArrayOutputStream[] outputs = new ByteArrayOutputStream[3];
+        @SuppressWarnings("unchecked")
+        Future<Boolean>[] results = new Future[3];
+        for( int k = 0; k < 3; k++ ) {
+            inputs[k] = new StackMachineTest.FedInput();
+            outputs[k] = new ByteArrayOutputStream();
+            results[k] = service.submit( image, inputs[k],
+                    new PrintStream( outputs[k], true ) );
+        }
+        feed( inputs[2], 2 );
+        assertTrue( results[2].get( TIMEOUT, TimeUnit.SECONDS ) );
+        assertEquals( expected( 2 ), outputs[2].toString() );
+        assertFalse( results[0].isDone() );
+        assertFalse( results[1].isDone() );
+        feed( inputs[1], 1 );
+        feed( inputs[0], 0 );
+        for( int k = 0; k < 2; k++ ) {
+            assertTrue( results[k].get( TIMEOUT, TimeUnit.SECONDS ) );
+            assertEquals( expected( k ), outputs[k].toString() );
+        }
+        service.shutdown();
+    }
+    /*
+     * Test that a program reading past the end of its input fails.
+     */
+    public void testEndOfInput() throws Exception {
+        ExecutionService service = new ExecutionService( 1, 1 );
+        StackMachineTest.FedInput in = new StackMachineTest.FedInput();
+        in.feed( 5 );
+        in.close();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Future<Boolean> result = service.submit( image, in,
+                new PrintStream( output, true ) );
+        assertFalse( result.get( TIMEOUT, TimeUnit.SECONDS ) );
+        assertTrue( output.toString().startsWith( "5" ) );
+        assertTrue( output.toString().contains( "invalid value read" ) );
+        service.shutdown();
+    }
+    /*
+     * Test that a program reading past the end of a stream fails, rather
+     * than waiting for more input forever.
+     */
+    public void testEndOfStream() throws Exception {
+        ExecutionService service = new ExecutionService( 1, 1 );
+        InputPort in = new StreamInputPort(
+                new ByteArrayInputStream( "5\n".getBytes() ) );
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Future<Boolean> result = service.submit( image, in,
+                new PrintStream( output, true ) );
+        assertFalse( result.get( TIMEOUT, TimeUnit.SECONDS ) );
+        assertTrue( output.toString().startsWith( "5" ) );
+        assertTrue( output.toString().contains( "invalid value read" ) );
+        service.shutdown();
+    }
+    /*
+     * Test a program reading all its input from a stream.
+     */
+    public void testStreamInput() throws Exception {
+        ExecutionService service = new ExecutionService( 1, 1 );
+        InputPort in = new StreamInputPort(
+                new ByteArrayInputStream( "4 5 0\n".getBytes() ) );
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Future<Boolean> result = service.submit( image, in,
+                new PrintStream( output, true ) );
+        assertTrue( result.get( TIMEOUT, TimeUnit.SECONDS ) );
+        assertEquals( expected( 3 ), output.toString() );
+        service.shutdown();
+    }
+}
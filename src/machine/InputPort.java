@@ -0,0 +1,21 @@
+package machine;
+
+import java.io.IOException;
+
+/**
+ * interface InputPort - source of the integers read by the READ
+ * instruction.
+ * @version $Revision: 22 $  $Date: 2014-05-20 15:14:36 +1000 (Tue, 20 May 2014) $
+ */
+public interface InputPort {
+    /** Read the next integer.
+     * @throws NumberFormatException if the next value is not an integer,
+     *  or there is no more input
+     * @throws IOException if the input cannot be read */
+    int readInt() throws IOException;
+    /** @return true if a value can be read without waiting for input */
+    boolean ready() throws IOException;
+    /** @return true if the input is known to have ended, so that no value
+     * can ever be read */
+    boolean atEnd() throws IOException;
+}
@@ -0,0 +1,197 @@
+package machine;
+
+import java.lang.invoke.MethodHandles;
+
+import machine.ClassFile.Label;
+
+/**
+ * class JitCompiler - translates the code of frequently executed procedures
+ * into JVM byte code, so that it is compiled by the JVM rather than
+ * interpreted by the stack machine.
+ * @version $Revision: 22 $  $Date: 2014-05-20 15:14:36 +1000 (Tue, 20 May 2014) $
+ * The machine counts the calls to each procedure and the backward branches
+ * to each loop head. When a count reaches its threshold the whole procedure
+ * containing it is translated into a hidden class implementing
+ * CompiledProcedure.
+ *
+ * The translated code keeps the stack and frames in the machine's memory,
+ * exactly as the interpreter does, so that the interpreter can take over
+ * at any instruction boundary. Running out of stack also returns to the
+ * interpreter, which grows the memory, so the memory is reloaded from the
+ * machine after every call. If an instruction would cause a runtime
+ * error, control is returned to the interpreter at that instruction, which
+ * then reports the error with the usual trace back. Instructions that are
+ * not translated (READ, ALLOC_HEAP, COPY and STOP) are handled the same way.
+ */
+class JitCompiler {
+    /** Number of calls of a procedure before it is compiled */
+    static final int CALL_THRESHOLD = 1000;
+    /** Number of backward branches to a loop head before the procedure
+     * containing it is compiled */
+    static final int LOOP_THRESHOLD = 10000;
+
+    /** Internal name of the stack machine class */
+    private static final String MACHINE = "machine/StackMachine";
+
+    /** Code memory of the machine */
+    private final int[] code;
+    /** Address one past the end of the code */
+    private final int codeEnd;
+    /** Procedures loaded in the machine */
+    private final ProcedureTable procedures;
+    /** Compiled code for every address within a compiled procedure */
+    private final CompiledProcedure[] compiled;
+    /** Counts of calls of procedure start addresses and of branches to
+     * loop heads. Set to Integer.MIN_VALUE for all addresses of a
+     * procedure that could not be compiled, so it is not tried again. */
+    private final int[] counts;
+
+    JitCompiler( int[] code, int codeEnd, ProcedureTable procedures ) {
+        this.code = code;
+        this.codeEnd = codeEnd;
+        this.procedures = procedures;
+        this.compiled = new CompiledProcedure[ codeEnd ];
+        this.counts = new int[ codeEnd ];
+    }
+    /** Count a call to the procedure starting at addr.
+     * @return the compiled code for the procedure, or null if it is not
+     *  (yet) compiled */
+    CompiledProcedure called( int addr ) {
+        return count( addr, CALL_THRESHOLD );
+    }
+    /** Count a backward branch to addr.
+     * @return the compiled code for the procedure containing the branch,
+     *  or null if it is not (yet) compiled */
+    CompiledProcedure looped( int addr ) {
+        return count( addr, LOOP_THRESHOLD );
+    }
+    private CompiledProcedure count( int addr, int threshold ) {
+        if( addr < StackMachine.CODE_START || codeEnd <= addr ) {
+            return null;
+        }
+        CompiledProcedure code = compiled[addr];
+        if( code == null && ++counts[addr] == threshold ) {
+            code = compile( procedures.getProcedure( addr ) );
+        }
+        return code;
+    }
+    /** Compile the procedure and record its code for all its addresses.
+     * @return the compiled code or null if it could not be compiled */
+    private CompiledProcedure compile( ProcedureTable.Entry proc ) {
+        if( proc == null ) {
+            return null;
+        }
+        int start = proc.getStart();
+        int finish = proc.getFinish();
+        CompiledProcedure code;
+        try {
+            byte[] classBytes = new Translator( this.code ).translate( start, finish );
+            Class<?> c = MethodHandles.lookup()
+                    .defineHiddenClass( classBytes, true ).lookupClass();
+            code = (CompiledProcedure)c.getDeclaredConstructor().newInstance();
+        } catch( IllegalStateException e ) {
+            code = null;        /* procedure too large for a JVM method */
+        } catch( ReflectiveOperationException e ) {
+            code = null;
+        }
+        for( int addr = start; addr < finish; addr++ ) {
+            if( code == null ) {
+                counts[addr] = Integer.MIN_VALUE;
+            } else {
+                compiled[addr] = code;
+            }
+        }
+        return code;
+    }
+
+    /** Translation of the code of a procedure into a class implementing
+     * CompiledProcedure. Runtime errors, and instructions that are not
+     * translated, return control to the interpreter at that instruction. */
+    private static class Translator extends CodeTranslator {
+        /** Code returning to the interpreter at the address in PC */
+        private final Label exit = new Label();
+
+        Translator( int[] code ) {
+            super( code );
+        }
+        /** @return the bytes of the class file for the procedure */
+        byte[] translate( int start, int finish ) {
+            ClassFile classFile = new ClassFile( "machine/CompiledCode",
+                    "java/lang/Object" );
+            classFile.addInterface( "machine/CompiledProcedure" );
+            classFile.addDefaultConstructor();
+            translate( classFile.addMethod( ClassFile.ACC_PUBLIC, "run",
+                    "(L" + MACHINE + ";[IIIII)I", NUM_LOCALS ),
+                    start, finish, true );
+            m.place( exit );
+            m.aload( RUNTIME );
+            m.iload( FP );
+            m.iload( SP );
+            m.invoke( ClassFile.INVOKEVIRTUAL, MACHINE, "jitExit", "(II)V" );
+            m.iload( PC );
+            m.op( ClassFile.IRETURN );
+            return classFile.toByteArray();
+        }
+        @Override
+        protected void genFailure( int kind, int addr ) {
+            /* The interpreter reports the error */
+            m.iconst( addr );
+            m.istore( PC );
+            m.branch( ClassFile.GOTO, exit );
+        }
+        @Override
+        protected void genDispatchMiss() {
+            m.branch( ClassFile.GOTO, exit );
+        }
+        @Override
+        protected void genCall() {
+            m.aload( RUNTIME );
+            m.iload( T1 );
+            m.iload( SP );
+            m.iconst( 3 );
+            m.op( ClassFile.ISUB );
+            m.iload( SP );
+            m.invoke( ClassFile.INVOKEVIRTUAL, MACHINE, "jitCall", "(III)I" );
+        }
+        @Override
+        protected void genReloadLimit() {
+            m.aload( RUNTIME );
+            m.invoke( ClassFile.INVOKEVIRTUAL, MACHINE, "jitMemory", "()[I" );
+            m.astore( MEM );
+            m.aload( RUNTIME );
+            m.invoke( ClassFile.INVOKEVIRTUAL, MACHINE, "jitLimit", "()I" );
+            m.istore( LIMIT );
+        }
+        @Override
+        protected void genReturn() {
+            m.aload( MEM );
+            m.iload( FP );
+            m.iconst( 2 );
+            m.op( ClassFile.IADD );
+            m.op( ClassFile.IALOAD );
+            m.istore( PC );                     /* return address */
+            m.aload( RUNTIME );
+            m.aload( MEM );
+            m.iload( FP );
+            m.iconst( 1 );
+            m.op( ClassFile.IADD );
+            m.op( ClassFile.IALOAD );           /* dynamic link */
+            m.iload( FP );                      /* remove the frame */
+            m.invoke( ClassFile.INVOKEVIRTUAL, MACHINE, "jitExit", "(II)V" );
+            m.iload( PC );
+            m.op( ClassFile.IRETURN );
+        }
+        @Override
+        protected void genWrite() {
+            m.aload( RUNTIME );
+            stackLoad( 0 );
+            m.invoke( ClassFile.INVOKEVIRTUAL, MACHINE, "jitWrite", "(I)V" );
+        }
+        @Override
+        protected void genOther( Operation op, int addr ) {
+            /* Left to the interpreter */
+            m.branch( ClassFile.GOTO,
+                    failAt( CompiledRuntime.NOT_IMPLEMENTED, addr ) );
+        }
+    }
+}
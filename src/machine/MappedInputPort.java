@@ -0,0 +1,36 @@
+package machine;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * class MappedInputPort - input port reading integers from a file that
+ * is mapped into memory, so the input is parsed without copying it.
+ * @version $Revision: 22 $  $Date: 2014-05-20 15:14:36 +1000 (Tue, 20 May 2014) $
+ */
+public class MappedInputPort extends TokenInputPort {
+
+    /** @throws IOException if the file cannot be read or is too large
+     * to be mapped */
+    public MappedInputPort( String fileName ) throws IOException {
+        FileChannel channel = FileChannel.open( Paths.get( fileName ),
+                StandardOpenOption.READ );
+        try {
+            if( channel.size() > Integer.MAX_VALUE ) {
+                throw new IOException( fileName + " is too large to map" );
+            }
+            buf = channel.map( FileChannel.MapMode.READ_ONLY, 0, 
+                    channel.size() );
+        } finally {
+            channel.close();
+        }
+    }
+    /** The whole file is already in the buffer */
+    @Override
+    protected boolean fill( boolean wait ) {
+        ended = true;
+        return false;
+    }
+}
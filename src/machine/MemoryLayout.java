@@ -0,0 +1,99 @@
+package machine;
+
+/**
+ * class MemoryLayout - sizes of the code, stack and heap of a machine.
+ * @version $Revision: 22 $  $Date: 2014-05-20 15:14:36 +1000 (Tue, 20 May 2014) $
+ * The code is held apart from the data, at addresses from CODE_START.
+ * The data memory holds the stack, growing up from address 0 to at most
+ * the stack size, with the heap above it, growing down from the end of
+ * the data memory. The data memory is allocated on demand: it starts
+ * small and grows as the stack does, and is extended to its full size
+ * when the heap is first used.
+ */
+public class MemoryLayout {
+    /** Default layout, the same space as the original fixed memory */
+    public static final MemoryLayout DEFAULT = new MemoryLayout( 9000, 1000, 0 );
+    /** Largest code size, so that every code address fits an operand */
+    public static final int MAX_CODE_SIZE =
+        Operation.MAX_OPERAND - StackMachine.CODE_START;
+    /** Number of data words allocated at first */
+    private static final int INITIAL_DATA = 1024;
+
+    /** Maximum number of code words */
+    private final int codeSize;
+    /** Maximum number of words on the stack */
+    private final int stackSize;
+    /** Number of words for the heap */
+    private final int heapSize;
+
+    /** @throws IllegalArgumentException if a size is negative, or the
+     *  sizes are too large */
+    public MemoryLayout( int codeSize, int stackSize, int heapSize ) {
+        if( codeSize < 0 || stackSize < 0 || heapSize < 0 ||
+                codeSize > MAX_CODE_SIZE ||
+                stackSize > Integer.MAX_VALUE - heapSize ) {
+            throw new IllegalArgumentException( "invalid memory layout " +
+                    "code=" + codeSize + ",stack=" + stackSize +
+                    ",heap=" + heapSize );
+        }
+        this.codeSize = codeSize;
+        this.stackSize = stackSize;
+        this.heapSize = heapSize;
+    }
+    /** Parse a layout of the form "code=n,stack=n,heap=n", in which each
+     * size may be omitted to use the default.
+     * @throws IllegalArgumentException if the layout is not valid */
+    public static MemoryLayout parse( String spec ) {
+        int code = DEFAULT.codeSize;
+        int stack = DEFAULT.stackSize;
+        int heap = DEFAULT.heapSize;
+        for( String field : spec.split( "," ) ) {
+            String[] pair = field.split( "=", 2 );
+            if( pair.length != 2 ) {
+                throw new IllegalArgumentException(
+                        "invalid memory size " + field );
+            }
+            int size = Integer.parseInt( pair[1].trim() );
+            switch( pair[0].trim() ) {
+            case "code":
+                code = size;
+                break;
+            case "stack":
+                stack = size;
+                break;
+            case "heap":
+                heap = size;
+                break;
+            default:
+                throw new IllegalArgumentException(
+                        "unknown memory area " + pair[0] );
+            }
+        }
+        return new MemoryLayout( code, stack, heap );
+    }
+    public int getCodeSize() {
+        return codeSize;
+    }
+    public int getStackSize() {
+        return stackSize;
+    }
+    public int getHeapSize() {
+        return heapSize;
+    }
+    /** @return address one past the last possible code word */
+    public int getCodeLimit() {
+        return StackMachine.CODE_START + codeSize;
+    }
+    /** @return number of words of data memory: the stack and the heap */
+    public int getDataSize() {
+        return stackSize + heapSize;
+    }
+    /** @return number of data words to allocate at first */
+    int getInitialDataSize() {
+        return Math.min( stackSize, INITIAL_DATA );
+    }
+    @Override
+    public String toString() {
+        return "code=" + codeSize + ",stack=" + stackSize + ",heap=" + heapSize;
+    }
+}
@@ -3,6 +3,11 @@ package machine;
 /**
  * enumeration Operation - Operation codes for the instructions
  * @version $Revision: 22 $  $Date: 2014-05-20 15:14:36 +1000 (Tue, 20 May 2014) $
+ * An instruction is a single word. The operation code is in the low order
+ * OPCODE_BITS bits, and operations that take an operand hold it as a
+ * signed immediate value in the remaining high order bits.
+ * The only exception is LOAD_WIDE, which takes its operand from the
+ * following word, for constants too large for an immediate operand.
  */
 
 public enum Operation {
@@ -14,8 +19,8 @@ public enum Operation {
     CALL(),            /* Call */
     RETURN(),          /* Exit stack frame and return */
     /* Stack manipulation */
-    ALLOC_STACK(),     /* Allocate space on stack frame */
-    DEALLOC_STACK(),   /* Deallocate space from stack */
+    ALLOC_STACK( true ),   /* Allocate operand words on stack frame */
+    DEALLOC_STACK( true ), /* Deallocate operand words from stack */
     POP(),             /* Discard the top of stack */
     DUP(),             /* Duplicate top of stack */
     SWAP(),            /* Swap top two stack words */
@@ -23,7 +28,7 @@ public enum Operation {
     ADD(),             /* Add */
     MPY(),             /* Multiply */
     DIV(),             /* Divide */
-    OR(),              /* Bitwise or */ 
+    OR(),              /* Bitwise or */
     AND(),             /* Bitwise and */
     XOR(),             /* Bitwise xor */
     EQUAL(),           /* Test for equality */
@@ -41,7 +46,8 @@ public enum Operation {
     TO_GLOBAL(),       /* Covert local address on top of stack to global */
     TO_LOCAL(),        /* Covert global address on top of stack to local*/
     /* Load and store instructions */
-    LOAD_CON( 2 ),     /* Load next word as constant */
+    LOAD_CON( true ),  /* Load operand as constant */
+    LOAD_WIDE( 2 ),    /* Load next word as constant */
     LOAD_ABS(),        /* Load from address in top of stack */
     STORE_FRAME(),     /* Store word in memory */
     LOAD_FRAME(),      /* Load word from memory frame relative */
@@ -51,19 +57,105 @@ public enum Operation {
     /* Allocating space on the heap */
     ALLOC_HEAP(),      /* Allocate memory from heap */
     /* Loading multiple words onto the stack */
-    LOAD_MULTI(),      /* Load multiple words onto stack */
-    STORE_MULTI(),     /* Store multiple words from stack */
+    LOAD_MULTI( true ),  /* Load operand words onto stack */
+    STORE_MULTI( true ), /* Store operand words from stack */
+    /* Superinstructions - a LOAD_CON fused with the following instruction,
+     * the constant is the operand */
+    LOAD_LOCAL( true ),   /* Load word from frame at offset operand */
+    STORE_LOCAL( true ),  /* Store word in frame at offset operand */
+    BR_REL( true ),       /* Unconditional branch by operand */
+    BR_FALSE_REL( true ), /* Branch if false by operand */
+    LOAD_CON_ADD( true ), /* Add operand to top of stack */
+    /* Operations otherwise done by a sequence of the above */
+    SUB(),             /* Subtract */
+    GREATER(),         /* Test for greater-than */
+    GREATEREQ(),       /* Test for greater-than-or-equal */
+    NOT_BOOL(),        /* Logical not of a boolean */
+    INC(),             /* Add one to top of stack */
+    DEC(),             /* Subtract one from top of stack */
+    /* Compare-and-branch - compare the second top value with the top
+     * value, popping both, and branch by operand if the test holds */
+    BR_EQUAL( true ),     /* Branch if equal */
+    BR_NOT_EQUAL( true ), /* Branch if not equal */
+    BR_LESS( true ),      /* Branch if less-than */
+    BR_LESSEQ( true ),    /* Branch if less-than-or-equal */
+    BR_GREATER( true ),   /* Branch if greater-than */
+    BR_GREATEREQ( true ), /* Branch if greater-than-or-equal */
     STOP();            /* Halt execution */
 
-    /* Size of the instruction - LOAD_CON of size 2 */
+    /** Number of bits for the operation code in an instruction word */
+    public static final int OPCODE_BITS = 8;
+    /** Mask to extract the operation code from an instruction word */
+    public static final int OPCODE_MASK = (1 << OPCODE_BITS) - 1;
+    /** Range of values of immediate operands */
+    public static final int MIN_OPERAND = Integer.MIN_VALUE >> OPCODE_BITS;
+    public static final int MAX_OPERAND = Integer.MAX_VALUE >> OPCODE_BITS;
+
+    /* Size of the instruction - LOAD_WIDE of size 2 */
     private int size;
+    /* Whether the instruction word contains an operand */
+    private boolean operand;
     
     public int getSize() {
         return size;
     }
+    public boolean hasOperand() {
+        return operand;
+    }
+    /** @return whether this is a branch by its operand, relative to the
+     * following instruction */
+    public boolean isRelativeBranch() {
+        switch( this ) {
+        case BR_REL:
+        case BR_FALSE_REL:
+        case BR_EQUAL:
+        case BR_NOT_EQUAL:
+        case BR_LESS:
+        case BR_LESSEQ:
+        case BR_GREATER:
+        case BR_GREATEREQ:
+            return true;
+        default:
+            return false;
+        }
+    }
+    /** @return the instruction word for this operation with operand value.
+     * @requires hasOperand() or value == 0, and fitsOperand( value ) */
+    public int encode( int value ) {
+        return (value << OPCODE_BITS) | ordinal();
+    }
+    /** @return whether value can be held as an immediate operand */
+    public static boolean fitsOperand( int value ) {
+        return MIN_OPERAND <= value && value <= MAX_OPERAND;
+    }
+    /** @return the operand of an instruction word */
+    public static int operand( int word ) {
+        return word >> OPCODE_BITS;
+    }
+    /** Operations indexed by operation code */
+    private static final Operation[] OPERATIONS = values();
+    /** @return the operation of an instruction word, or null if the word
+     * is not a valid instruction */
+    public static Operation decode( int word ) {
+        int opcode = word & OPCODE_MASK;
+        if( OPERATIONS.length <= opcode ) {
+            return null;
+        }
+        Operation op = OPERATIONS[opcode];
+        if( !op.operand && operand( word ) != 0 ) {
+            return null;
+        }
+        return op;
+    }
     /* Constructor for operation with explicit size */
     Operation( int size ) {
         this.size = size;
+        this.operand = false;
+    }
+    /* Constructor for an operation with an immediate operand */
+    Operation( boolean operand ) {
+        this.size = 1;
+        this.operand = operand;
     }
     /* Constructor with default instruction size of 1 */
     Operation() {
@@ -0,0 +1,13 @@
+package machine;
+
+/**
+ * interface OutputPort - destination of the integers written by the
+ * WRITE instruction.
+ * @version $Revision: 22 $  $Date: 2014-05-20 15:14:36 +1000 (Tue, 20 May 2014) $
+ */
+public interface OutputPort {
+    /** Write an integer on a line of its own */
+    void writeInt( int value );
+    /** Write out any buffered output */
+    void flush();
+}
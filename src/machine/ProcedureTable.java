@@ -0,0 +1,175 @@
+package machine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import syms.SymEntry;
+import tree.Procedures;
+import tree.Procedures.ProcedureCode;
+
+/**
+ * class ProcedureTable - compact table of the procedures loaded in the
+ * stack machine, with their local variables, for the trace back.
+ * @version $Revision: 22 $  $Date: 2014-05-20 15:14:36 +1000 (Tue, 20 May 2014) $
+ * Unlike Procedures it does not refer to the abstract syntax tree or the
+ * symbol table, so it can be saved in a program image and read back
+ * without compiling the program.
+ */
+public class ProcedureTable {
+    /** Entries for the procedures in order of their addresses */
+    private final List<Entry> entries = new ArrayList<Entry>();
+
+    /** Empty table, to be filled by add */
+    ProcedureTable() {
+        super();
+    }
+    /** Table of the procedures with their loaded addresses */
+    public ProcedureTable( Procedures procedures ) {
+        for( ProcedureCode proc : procedures.getProcedureEntries() ) {
+            Entry entry = add( proc.getStart(), proc.getFinish(),
+                    proc.getName(), proc.toString() );
+            /* Resolve the line table, merging the statements on a line */
+            int[] addresses = proc.getLineAddresses();
+            for( int addr : addresses ) {
+                int line = procedures.getLineNumber( proc.getPosition( addr ) );
+                if( entry.lineCount == 0 ||
+                        line != entry.lines[entry.lineCount - 1] ) {
+                    entry.addLine( addr, line );
+                }
+            }
+            for( SymEntry sym : proc.getLocals().getEntries() ) {
+                if( sym instanceof SymEntry.VarEntry ) {
+                    SymEntry.VarEntry varEntry = (SymEntry.VarEntry)sym;
+                    entry.addVariable( varEntry.getIdent(), varEntry.getOffset(),
+                            varEntry.getType().getBaseType().getSpace() );
+                }
+            }
+        }
+    }
+    /** Add a procedure, which must follow those already in the table */
+    Entry add( int start, int finish, String name, String description ) {
+        Entry entry = new Entry( start, finish, name, description );
+        entries.add( entry );
+        return entry;
+    }
+    public List<Entry> getEntries() {
+        return entries;
+    }
+    /** @return the procedure containing address pc, or null if none does.
+     * The entries are in order of their addresses, so they are searched
+     * by bisection. */
+    public Entry getProcedure( int pc ) {
+        int low = 0;
+        int high = entries.size() - 1;
+        while( low <= high ) {
+            int mid = (low + high) >>> 1;
+            Entry entry = entries.get( mid );
+            if( pc < entry.start ) {
+                high = mid - 1;
+            } else if( entry.finish <= pc ) {
+                low = mid + 1;
+            } else {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /** Procedure with the address range of its code */
+    public static class Entry {
+        private final int start;
+        private final int finish;
+        /** Identifier of the procedure */
+        private final String name;
+        /** Line table: the source line (0 if not known) of the code
+         * from each address in lineAddresses up to the next, for the
+         * first lineCount entries */
+        private int[] lineAddresses = new int[1];
+        private int[] lines = new int[1];
+        private int lineCount = 0;
+        /** Description of the procedure used in the trace back */
+        private final String description;
+        private final List<Variable> variables = new ArrayList<Variable>();
+
+        Entry( int start, int finish, String name, String description ) {
+            this.start = start;
+            this.finish = finish;
+            this.name = name;
+            this.description = description;
+        }
+        void addVariable( String ident, int offset, int size ) {
+            variables.add( new Variable( ident, offset, size ) );
+        }
+        /** Add the line of the code from addr on, which must follow the
+         * lines already added */
+        void addLine( int addr, int line ) {
+            if( lineCount == lines.length ) {
+                lineAddresses = Arrays.copyOf( lineAddresses, 2 * lineCount );
+                lines = Arrays.copyOf( lines, 2 * lineCount );
+            }
+            lineAddresses[lineCount] = addr;
+            lines[lineCount] = line;
+            lineCount++;
+        }
+        /** @return the addresses at which the lines of the line table
+         * start, in increasing order */
+        public int[] getLineAddresses() {
+            return Arrays.copyOf( lineAddresses, lineCount );
+        }
+        /** @return the source lines of the line table */
+        public int[] getLines() {
+            return Arrays.copyOf( lines, lineCount );
+        }
+        /** @return the source line of the code at pc, or 0 if not known */
+        public int getLine( int pc ) {
+            int i = Arrays.binarySearch( lineAddresses, 0, lineCount, pc );
+            if( i < 0 ) {
+                i = -(i + 1) - 1;
+            }
+            return i < 0 ? 0 : lines[i];
+        }
+        /** @return address of the first instruction of the procedure */
+        public int getStart() {
+            return start;
+        }
+        /** @return address just past the last instruction of the procedure */
+        public int getFinish() {
+            return finish;
+        }
+        public String getName() {
+            return name;
+        }
+        public List<Variable> getVariables() {
+            return variables;
+        }
+        @Override
+        public String toString() {
+            return description;
+        }
+    }
+
+    /** Local variable of a procedure */
+    public static class Variable {
+        private final String ident;
+        /** Offset from the frame pointer */
+        private final int offset;
+        /** Size in words */
+        private final int size;
+
+        Variable( String ident, int offset, int size ) {
+            this.ident = ident;
+            this.offset = offset;
+            this.size = size;
+        }
+        public String getIdent() {
+            return ident;
+        }
+        public int getOffset() {
+            return offset;
+        }
+        public int getSize() {
+            return size;
+        }
+    }
+}
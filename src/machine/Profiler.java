@@ -0,0 +1,146 @@
+package machine;
+
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * class Profiler - sampling profiler of the procedure call stacks of the
+ * program run by the stack machine.
+ * @version $Revision: 22 $  $Date: 2014-05-20 15:14:36 +1000 (Tue, 20 May 2014) $
+ * Every interval instructions the stack of active procedures is found by
+ * following the dynamic links from the current frame, as the trace back
+ * does, and the sample is counted in a tree of the call stacks seen.
+ * The counts are written in the collapsed stack format read by flame
+ * graph tools: one line per call stack, with the procedure names from
+ * the main program outwards separated by semicolons, then the count.
+ * Only the innermost MAX_FRAMES procedures of a deeper stack are kept,
+ * below a frame named "[truncated]".
+ */
+public class Profiler {
+    /** Default number of instructions between samples. Not a round
+     * number, so the samples do not keep hitting the same point of a
+     * loop whose length divides it. */
+    public static final int DEFAULT_INTERVAL = 97;
+    /** Largest number of procedures kept in a sample */
+    public static final int MAX_FRAMES = 2048;
+
+    /** Procedures of the program */
+    private final ProcedureTable procedures;
+    /** Number of instructions between samples */
+    private final int interval;
+    /** Instructions left until the next sample */
+    private int countdown;
+    /** Root of the tree of call stacks, which counts (but does not write)
+     * the samples outside any procedure */
+    private final Node root = new Node( null );
+    /** Procedures on the stack of the current sample, innermost first */
+    private final List<ProcedureTable.Entry> stack =
+        new ArrayList<ProcedureTable.Entry>();
+
+    /** Call stack in the tree of call stacks */
+    private static class Node {
+        /** Name of the innermost procedure of the call stack */
+        final String name;
+        /** Call stacks extending this one by a called procedure, with
+         * the null key for truncated stacks */
+        final Map<ProcedureTable.Entry, Node> callees =
+            new HashMap<ProcedureTable.Entry, Node>();
+        /** Number of samples with exactly this call stack */
+        long samples = 0;
+
+        Node( String name ) {
+            this.name = name;
+        }
+        /** @return the call stack extending this one by proc */
+        Node callee( ProcedureTable.Entry proc ) {
+            Node callee = callees.get( proc );
+            if( callee == null ) {
+                callee = new Node( proc == null ? "[truncated]" 
+                        : proc.getName() );
+                callees.put( proc, callee );
+            }
+            return callee;
+        }
+    }
+
+    /** @param procedures procedures of the program
+     * @param interval number of instructions between samples, 1 to count
+     *  every instruction */
+    Profiler( ProcedureTable procedures, int interval ) {
+        this.procedures = procedures;
+        this.interval = Math.max( interval, 1 );
+        this.countdown = this.interval;
+    }
+    /** Count an instruction, sampling the call stack if it is due.
+     * @param pc address of the instruction about to be executed
+     * @param fp frame pointer
+     * @param memory data memory holding the stack frames */
+    void step( int pc, int fp, int[] memory ) {
+        if( --countdown == 0 ) {
+            countdown = interval;
+            sample( pc, fp, memory );
+        }
+    }
+    /** Record the call stack of the instruction at pc */
+    private void sample( int pc, int fp, int[] memory ) {
+        stack.clear();
+        /* Follow the return addresses and dynamic links, as in traceBack */
+        int tracePC = pc + 1;
+        int traceFP = fp;
+        while( tracePC != 0 ) {
+            if( stack.size() == MAX_FRAMES ) {
+                stack.add( null );
+                break;
+            }
+            ProcedureTable.Entry proc = procedures.getProcedure( tracePC - 1 );
+            if( proc == null || traceFP < 0 || memory.length <= traceFP + 2 ) {
+                break;
+            }
+            stack.add( proc );
+            tracePC = memory[traceFP + 2];
+            int dynamicLink = memory[traceFP + 1];
+            if( dynamicLink != 0 && dynamicLink > traceFP - 3 ) {
+                break;
+            }
+            traceFP = dynamicLink;
+        }
+        Node node = root;
+        for( int i = stack.size() - 1; i >= 0; i-- ) {
+            node = node.callee( stack.get( i ) );
+        }
+        node.samples++;
+    }
+    /** Write the samples of each call stack in collapsed stack format */
+    public void write( PrintStream out ) {
+        /* Depth first through the tree, without recursion as the stacks
+         * may be deep, keeping the path to the node in path */
+        StringBuilder path = new StringBuilder();
+        Deque<Node> nodes = new ArrayDeque<Node>();
+        /* Length of the path to the caller of each node in nodes */
+        Deque<Integer> lengths = new ArrayDeque<Integer>();
+        nodes.push( root );
+        lengths.push( 0 );
+        while( !nodes.isEmpty() ) {
+            Node node = nodes.pop();
+            path.setLength( lengths.pop() );
+            if( node != root ) {
+                if( path.length() > 0 ) {
+                    path.append( ';' );
+                }
+                path.append( node.name );
+                if( node.samples != 0 ) {
+                    out.println( path + " " + node.samples );
+                }
+            }
+            for( Node callee : node.callees.values() ) {
+                nodes.push( callee );
+                lengths.push( path.length() );
+            }
+        }
+    }
+}
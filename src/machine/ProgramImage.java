@@ -0,0 +1,170 @@
+package machine;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * class ProgramImage - executable image of a loaded program, so that it
+ * can be run again without compiling it.
+ * @version $Revision: 22 $  $Date: 2014-05-20 15:14:36 +1000 (Tue, 20 May 2014) $
+ * The image file holds, as big-endian words:
+ * <pre>
+ *   magic number, version,
+ *   start address of the main program,
+ *   start address of the code, number of code words, the code words,
+ *   number of procedures, and for each procedure
+ *     start, finish, name, description, number of variables, and for each
+ *     variable its identifier, offset and size, then the number of
+ *     entries of its line table, and for each its address and line.
+ * </pre>
+ * Strings are stored as their length followed by their UTF-8 bytes.
+ * An image is read by mapping the file into memory, and its code words
+ * are copied straight from the mapping into the machine's code memory.
+ */
+public class ProgramImage {
+    /** Magic number identifying an image file: "IBSM" */
+    private static final int MAGIC = 0x4942534d;
+    /** Version of the image format */
+    private static final int VERSION = 4;
+
+    /** Start address of the main program */
+    private final int start;
+    /** Start address of the code */
+    private final int codeStart;
+    /** Code words */
+    private final IntBuffer code;
+    /** Procedures and their variables */
+    private final ProcedureTable procedures;
+
+    ProgramImage( int start, int codeStart, IntBuffer code,
+            ProcedureTable procedures ) {
+        this.start = start;
+        this.codeStart = codeStart;
+        this.code = code;
+        this.procedures = procedures;
+    }
+    int getStart() {
+        return start;
+    }
+    int getCodeStart() {
+        return codeStart;
+    }
+    /** @return number of code words */
+    int getCodeSize() {
+        return code.limit();
+    }
+    ProcedureTable getProcedures() {
+        return procedures;
+    }
+    /** Copy the code words into the code memory at the start address of
+     * the code */
+    void load( int[] codeMemory ) {
+        code.duplicate().rewind().get( codeMemory, codeStart, code.limit() );
+    }
+
+    /** Write the image to the given file */
+    void write( String fileName ) throws IOException {
+        DataOutputStream out = new DataOutputStream( new BufferedOutputStream(
+                new FileOutputStream( fileName ) ) );
+        try {
+            out.writeInt( MAGIC );
+            out.writeInt( VERSION );
+            out.writeInt( start );
+            out.writeInt( codeStart );
+            out.writeInt( code.limit() );
+            for( int i = 0; i < code.limit(); i++ ) {
+                out.writeInt( code.get( i ) );
+            }
+            out.writeInt( procedures.getEntries().size() );
+            for( ProcedureTable.Entry entry : procedures.getEntries() ) {
+                out.writeInt( entry.getStart() );
+                out.writeInt( entry.getFinish() );
+                writeString( out, entry.getName() );
+                writeString( out, entry.toString() );
+                out.writeInt( entry.getVariables().size() );
+                for( ProcedureTable.Variable var : entry.getVariables() ) {
+                    writeString( out, var.getIdent() );
+                    out.writeInt( var.getOffset() );
+                    out.writeInt( var.getSize() );
+                }
+                int[] addresses = entry.getLineAddresses();
+                int[] lines = entry.getLines();
+                out.writeInt( lines.length );
+                for( int i = 0; i < lines.length; i++ ) {
+                    out.writeInt( addresses[i] );
+                    out.writeInt( lines[i] );
+                }
+            }
+        } finally {
+            out.close();
+        }
+    }
+    private static void writeString( DataOutputStream out, String s )
+        throws IOException
+    {
+        byte[] bytes = s.getBytes( StandardCharsets.UTF_8 );
+        out.writeInt( bytes.length );
+        out.write( bytes );
+    }
+
+    /** Read an image by mapping the given file into memory.
+     * @throws IOException if the file cannot be read or is not an image */
+    public static ProgramImage map( String fileName ) throws IOException {
+        MappedByteBuffer buf;
+        FileChannel channel = FileChannel.open( Paths.get( fileName ),
+                StandardOpenOption.READ );
+        try {
+            buf = channel.map( FileChannel.MapMode.READ_ONLY, 0, channel.size() );
+        } finally {
+            channel.close();
+        }
+        try {
+            if( buf.getInt() != MAGIC || buf.getInt() != VERSION ) {
+                throw new IOException( fileName + " is not a PL0 image" );
+            }
+            int start = buf.getInt();
+            int codeStart = buf.getInt();
+            int size = buf.getInt();
+            if( codeStart != StackMachine.CODE_START || size < 0 ||
+                    MemoryLayout.MAX_CODE_SIZE < size ) {
+                throw new IOException( fileName + " has invalid code bounds" );
+            }
+            if( buf.remaining() < 4 * size ) {
+                throw new IOException( fileName + " is truncated" );
+            }
+            IntBuffer code = buf.asIntBuffer();
+            code.limit( size );
+            buf.position( buf.position() + 4 * size );
+            ProcedureTable procedures = new ProcedureTable();
+            for( int n = buf.getInt(); n > 0; n-- ) {
+                ProcedureTable.Entry entry = procedures.add( buf.getInt(),
+                        buf.getInt(), readString( buf ), readString( buf ) );
+                for( int vars = buf.getInt(); vars > 0; vars-- ) {
+                    entry.addVariable( readString( buf ), buf.getInt(),
+                            buf.getInt() );
+                }
+                for( int lines = buf.getInt(); lines > 0; lines-- ) {
+                    entry.addLine( buf.getInt(), buf.getInt() );
+                }
+            }
+            return new ProgramImage( start, codeStart, code, procedures );
+        } catch( BufferUnderflowException | NegativeArraySizeException e ) {
+            throw new IOException( fileName + " is truncated" );
+        }
+    }
+    private static String readString( ByteBuffer buf ) {
+        byte[] bytes = new byte[ buf.getInt() ];
+        buf.get( bytes );
+        return new String( bytes, StandardCharsets.UTF_8 );
+    }
+}
@@ -1,13 +1,16 @@
 package machine;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.util.Arrays;
 import java.util.EnumSet;
+import java.util.List;
 import java.io.PrintStream;
 
 import source.Errors;
 import source.Position;
 import syms.SymEntry;
+import tree.Code;
 import tree.Procedures;
 import tree.Procedures.ProcedureCode;
 
@@ -33,15 +36,19 @@ public class StackMachine {
     public final static int LOCALS_BASE = 3; 
     /** Offset of start of parameters from frame pointer */
     public final static int PARAMS_BASE = 0; 
-    /** Start of code within memory */
+    /** Start of code. Code addresses are separate from data addresses */
     public final static int CODE_START = 1000;
-    /** Size of memory */
-    private final static int MEM_LIMIT = 10000;
-    /** Address outside memory */
-    public final static int NULL_ADDR = MEM_LIMIT;
+    /** Address outside memory, whatever the memory layout */
+    public final static int NULL_ADDR = Integer.MIN_VALUE;
     
-    /** Memory array - stack and heap and code */
-    private int memory[] = new int [MEM_LIMIT];
+    /** Sizes of the code, stack and heap */
+    private final MemoryLayout layout;
+    /** Code memory, indexed by address; the words below CODE_START are
+     * not used. Grows as code is generated, up to the code size. */
+    private int code[];
+    /** Data memory - stack and heap. Grows as the stack does, up to the
+     * stack limit, and to its full size when the heap is first used. */
+    private int memory[];
     /** Location to store the next instruction during code generation */
     private int currLocn = CODE_START;
     /** Print an assembler listing? */
@@ -51,6 +58,21 @@ public class StackMachine {
 
     /** Stack machine stop codes */
     
+    /** Outcome of run( maxInstructions ) */
+    public static enum Status {
+        /** The program terminated normally */
+        HALTED,
+        /** The instruction budget ran out; running again continues */
+        BUDGET_EXHAUSTED,
+        /** A READ found no input ready; running again (once more input
+         * has been supplied) continues with the READ */
+        WAITING_FOR_INPUT,
+        /** The program terminated with a runtime error */
+        ERROR;
+    }
+    /** No limit on the number of instructions executed */
+    private static final long NO_LIMIT = -1;
+
     /** Tracing constants (unioned together) */
     public static enum Trace {
         MEM, 
@@ -66,13 +88,47 @@ public class StackMachine {
         EnumSet.complementOf( TRACE_ALL );
     /** Current tracing during execution of stack machine */
     private EnumSet<Trace> tracing = TRACE_NONE;
+    /** Binary trace being written, or null to trace as text to outStream */
+    private TraceBuffer traceBuffer = null;
+    /** Whether the instruction at each code address is traced, or null
+     * to trace them all */
+    private boolean[] traceFilter = null;
+    /** Whether the instruction being executed is traced */
+    private boolean tracingInstruction = true;
 
     /** Output stream */
     private PrintStream outStream;
     /** Object to handle error reports */
     private Errors errors;
-    /** Stores addresses of procedure starts */
-    private Procedures procedures;
+    /** Stores addresses of procedure starts and their variables */
+    private ProcedureTable procedures;
+    /** Code words pre-decoded into operations for the fast execution
+     * loop, indexed by address. Entries outside the code, and words that
+     * are not valid instructions, are null. Built on the first fast run. */
+    private Operation[] decoded = null;
+    /** Immediate operands of the pre-decoded code words */
+    private int[] operands = null;
+    /** Frame sizes of the verified procedures indexed by their start
+     * address, 0 for procedures that were not verified. See Verifier. */
+    private int[] frameSizes;
+    /** Depth of the stack above the frame pointer at each instruction of
+     * the verified procedures, otherwise Verifier.UNREACHED */
+    private int[] depths;
+    /** Translate frequently executed procedures to JVM code? */
+    private boolean tiered = false;
+    /** Compiler for the tiered execution mode, or null if not in use */
+    private JitCompiler jit = null;
+    /** Maximum nesting of calls from compiled code. These nest on the
+     * JVM stack, so deeper calls are interpreted instead. */
+    private static final int MAX_JIT_NESTING = 1000;
+    /** Current nesting of calls from compiled code */
+    private int jitNesting = 0;
+    /** Execution statistics being collected, or null if not collecting */
+    private Statistics statistics = null;
+    /** Profiler sampling the call stacks, or null if not profiling */
+    private Profiler profiler = null;
+    /** Statement coverage being collected, or null if not collecting */
+    private Coverage coverage = null;
 
     /** Bottom of stack */
     private final int STACK_START = 0;
@@ -82,23 +138,32 @@ public class StackMachine {
     private int fp = STACK_START;
     /** Top of stack pointer - always one past top */
     private int sp = STACK_START;
-    /** Top of stack limit = bottom of heap limit */
-    private int limit = CODE_START;
-    /** Standard input line reader */
-    private BufferedReader in =
-        new BufferedReader( new InputStreamReader (System.in) );
+    /** Top of stack limit */
+    private final int stackLimit;
+    /** Bottom of heap limit */
+    private int limit;
+    /** Input port for READ; the standard input unless set by setInput.
+     * Created when first used, see input() */
+    private InputPort in = null;
+    /** Output port for WRITE; flushed before anything else is written
+     * to outStream */
+    private OutputPort output;
+    /** Set if the program terminated with a runtime error */
+    private boolean failed = false;
+    /** Status when the machine last stopped, or null if it is still 
+     * running or has not been run */
+    private Status status = null;
 
 /****************************** Constructors **************************/
 
     public StackMachine( Errors errors, PrintStream outStream, 
             boolean verbose, Procedures procedures ) {
-        this.errors = errors;
-        this.outStream = outStream;
-        this.listing = verbose;
-        this.procedures = procedures;
-        for( int i=0; i<MEM_LIMIT; i++ ) {
-            memory[i] = NULL_ADDR;  // out of memory address
-        }
+        this( errors, outStream, verbose, procedures, MemoryLayout.DEFAULT );
+    }
+    /** Machine with the given sizes of code, stack and heap */
+    public StackMachine( Errors errors, PrintStream outStream, 
+            boolean verbose, Procedures procedures, MemoryLayout layout ) {
+        this( errors, outStream, verbose, layout, null );
         for( ProcedureCode proc : procedures.getProcedureEntries() ) {
             if( listing ) {
                 outStream.println( "Procedure " +
@@ -108,8 +173,68 @@ public class StackMachine {
                 /* Set the start location for execution */
                 pc = currLocn;
             }
-            for( Instruction inst : proc.getCode().getInstructionList() ) {
-                 inst.loadInstruction(this);
+            loadCode( proc.getCode() );
+        }
+        this.procedures = new ProcedureTable( procedures );
+        verify();
+    }
+    /** Machine with the code loaded from a program image */
+    public StackMachine( Errors errors, PrintStream outStream, 
+            ProgramImage image ) {
+        this( errors, outStream, image, MemoryLayout.DEFAULT );
+    }
+    /** Machine with the code loaded from a program image, with the given
+     * sizes of code, stack and heap */
+    public StackMachine( Errors errors, PrintStream outStream, 
+            ProgramImage image, MemoryLayout layout ) {
+        this( errors, outStream, image, layout, null );
+    }
+    /** Machine with the code loaded from a program image, with its data
+     * memory initially the given array, which may be reused from an
+     * earlier machine.
+     * @param memory array of at most the data size of the layout words,
+     *  whose contents are cleared, or null to allocate one */
+    StackMachine( Errors errors, PrintStream outStream, 
+            ProgramImage image, MemoryLayout layout, int[] memory ) {
+        this( errors, outStream, false, layout, memory );
+        if( image.getCodeSize() > layout.getCodeSize() ) {
+            errors.error( "Object code too large.", Position.NO_POSITION );
+        } else {
+            code = new int[ image.getCodeStart() + image.getCodeSize() ];
+            image.load( code );
+            currLocn = code.length;
+        }
+        pc = image.getStart();
+        this.procedures = image.getProcedures();
+        verify();
+    }
+    private StackMachine( Errors errors, PrintStream outStream, 
+            boolean verbose, MemoryLayout layout, int[] memory ) {
+        if( memory == null ) {
+            memory = new int[ layout.getInitialDataSize() ];
+        }
+        assert memory.length <= layout.getDataSize();
+        this.layout = layout;
+        this.code = new int[ CODE_START ];
+        this.memory = memory;
+        this.stackLimit = layout.getStackSize();
+        this.limit = layout.getDataSize();
+        this.errors = errors;
+        this.outStream = outStream;
+        this.output = new BufferedOutputPort( outStream );
+        this.listing = verbose;
+        Arrays.fill( memory, NULL_ADDR );   // out of memory address
+    }
+
+    /** Verify the stack discipline of the loaded procedures, so that
+     * those that pass can be run without checking every push and pop */
+    private void verify() {
+        Verifier verifier = new Verifier( code, currLocn, procedures, pc );
+        frameSizes = verifier.getFrameSizes();
+        depths = verifier.getDepths();
+        if( listing ) {
+            for( String failure : verifier.getFailures() ) {
+                outStream.println( "Not verified: " + failure );
             }
         }
     }
@@ -122,60 +247,362 @@ public class StackMachine {
     public void setListing( boolean list ) {
         listing = list;
     }
+    /** Specify whether frequently executed procedures are to be translated
+     * into JVM code. Only applies when no tracing is requested. */
+    public void setTiered( boolean tiered ) {
+        this.tiered = tiered;
+    }
+    /** Specify whether execution statistics are to be collected, and
+     * reported when the program terminates. Compiled code does not count
+     * its instructions, so the program is interpreted even in tiered mode.
+     */
+    public void setStatistics( boolean collect ) {
+        statistics = collect ? new Statistics( code, currLocn, procedures )
+                : null;
+    }
+    /** @return the statistics collected, or null if not collecting */
+    public Statistics getStatistics() {
+        return statistics;
+    }
+    /** Specify whether the call stacks are to be sampled by a profiler.
+     * As for statistics, the program is interpreted even in tiered mode.
+     */
+    public void setProfiling( boolean profiling ) {
+        profiler = profiling ? new Profiler( procedures,
+                Profiler.DEFAULT_INTERVAL ) : null;
+    }
+    /** @return the profiler, or null if not profiling */
+    public Profiler getProfiler() {
+        return profiler;
+    }
+    /** Specify whether the statements executed are to be counted for
+     * coverage. As for statistics, the program is interpreted even in
+     * tiered mode. */
+    public void setCoverage( boolean covering ) {
+        coverage = covering ? new Coverage( currLocn, procedures ) : null;
+    }
+    /** @return the coverage, or null if not collecting it */
+    public Coverage getCoverage() {
+        return coverage;
+    }
+    /** Specify the input read by the program, instead of stdin */
+    public void setInput( InputPort in ) {
+        this.in = in;
+    }
+    /** Specify the output port for the values written by the program,
+     * instead of a buffered port writing to the machine's output stream */
+    public void setOutput( OutputPort output ) {
+        this.output = output;
+    }
+    /** @return the input port, by default reading the standard input */
+    private InputPort input() {
+        if( in == null ) {
+            in = new StreamInputPort( System.in );
+        }
+        return in;
+    }
+    /** Read a value, first writing out any buffered output if the read
+     * has to wait for input, so that a prompt is seen */
+    private int readInt() throws IOException {
+        if( !input().ready() ) {
+            output.flush();
+        }
+        return in.readInt();
+    }
+    /** @return true if the program terminated with a runtime error */
+    public boolean hadRuntimeError() {
+        return failed;
+    }
+    /** @return the data memory, as grown by the program so far */
+    int[] getDataMemory() {
+        return memory;
+    }
     /** Specify whether code tracing is to be output when executing */
     public void setTracing( EnumSet<Trace> flags ) {
         tracing = flags;
     }
+    /** Write the trace as binary records to the file, rather than as text
+     * to the output stream. See TraceBuffer and TraceDecoder. */
+    public void setTraceFile( String fileName ) throws IOException {
+        traceBuffer = new TraceBuffer( fileName );
+    }
+    /** Finish writing the binary trace file, if any */
+    public void closeTrace() throws IOException {
+        if( traceBuffer != null ) {
+            traceBuffer.close();
+            traceBuffer = null;
+        }
+    }
+    /** Only trace the instructions of the given procedures and ranges
+     * of addresses.
+     * @param spec comma separated list of procedure names and inclusive
+     *  address ranges, e.g. "p,1000..1020"
+     * @throws IllegalArgumentException if a procedure is not found */
+    public void setTraceFilter( String spec ) {
+        boolean[] filter = new boolean[ currLocn ];
+        for( String item : spec.split( "," ) ) {
+            item = item.trim();
+            int range = item.indexOf( ".." );
+            if( range > 0 ) {
+                int low, high;
+                try {
+                    low = Integer.parseInt( item.substring( 0, range ).trim() );
+                    high = Integer.parseInt( item.substring( range + 2 ).trim() );
+                } catch( NumberFormatException e ) {
+                    throw new IllegalArgumentException(
+                            "Invalid address range " + item );
+                }
+                Arrays.fill( filter, Math.max( low, 0 ),
+                        Math.max( Math.min( high + 1, currLocn ), 0 ), true );
+                continue;
+            }
+            boolean found = false;
+            for( ProcedureTable.Entry proc : procedures.getEntries() ) {
+                if( item.equals( proc.getName() ) ) {
+                    Arrays.fill( filter, Math.max( proc.getStart(), 0 ),
+                            Math.min( proc.getFinish(), currLocn ), true );
+                    found = true;
+                }
+            }
+            if( !found ) {
+                throw new IllegalArgumentException( "No procedure " + item );
+            }
+        }
+        traceFilter = filter;
+    }
+    /** @return true if the instruction being executed is traced for flag */
+    private boolean traces( Trace flag ) {
+        return tracingInstruction && tracing.contains( flag );
+    }
+    /** Trace an event, as a binary record if writing a trace file,
+     * otherwise as text. Values written are only traced in a binary
+     * trace, as they already appear in the output. */
+    private void trace( int kind, int a, int b, int c, int d, int e,
+            int f ) {
+        if( traceBuffer != null ) {
+            traceBuffer.record( kind, a, b, c, d, e, f );
+        } else if( kind != TraceBuffer.WRITE ) {
+            outStream.print( TraceBuffer.format( kind, a, b, c, d, e, f ) );
+        }
+    }
+    private void trace( int kind, int a ) {
+        trace( kind, a, 0, 0, 0, 0, 0 );
+    }
+    private void trace( int kind, int a, int b ) {
+        trace( kind, a, b, 0, 0, 0, 0 );
+    }
     /** Begin executing the code stored in the stack machine. 
      * Runs until a STOP opcode, a return to 0, or an illegal condition 
      * e.g., popping an empty stack.
+     * If no tracing is requested the fast execution loop is used,
+     * otherwise each instruction is executed (and traced) by 
+     * execInstruction. In tiered mode the fast execution loop hands
+     * frequently executed procedures over to compiled JVM code.
+     * A READ waits for input.
      */
     public void run( ) {
+        run( NO_LIMIT, false );
+    }
+    /** Execute at most maxInstructions instructions, stopping early if
+     * the program terminates or a READ finds no input ready.
+     * The registers are kept, so that a later call to run continues
+     * exactly where this one stopped. Compiled code cannot be suspended,
+     * so the program is interpreted even in tiered mode.
+     * Note that a READ at the end of the input also reports 
+     * WAITING_FOR_INPUT; calling run() then reports the invalid read.
+     * @return the status of the machine when it stopped
+     */
+    public Status run( long maxInstructions ) {
+        return run( Math.max( maxInstructions, 0 ), true );
+    }
+    /** @param budget maximum number of instructions, or NO_LIMIT
+     * @param suspending whether a READ with no input ready suspends */
+    private Status run( long budget, boolean suspending ) {
+        if( status == Status.HALTED || status == Status.ERROR ) {
+            return status;
+        }
+        if( status == null && statistics != null ) {
+            /* The main program is starting, which counts as its call */
+            statistics.called( pc );
+        }
+        status = null;
         running = true;
-        while( running ) {
-            execInstruction();
+        long start = System.nanoTime();
+        if( tracing.isEmpty() ) {
+            runFast( budget, suspending );
+        } else {
+            while( running ) {
+                if( budget-- == 0 ) {
+                    status = Status.BUDGET_EXHAUSTED;
+                    break;
+                }
+                if( suspending && !inputReady( pc ) ) {
+                    status = Status.WAITING_FOR_INPUT;
+                    break;
+                }
+                if( observing() && CODE_START <= pc && pc < currLocn ) {
+                    observe( pc, sp, fp, memory );
+                }
+                execInstruction();
+            }
+        }
+        output.flush();
+        if( statistics != null ) {
+            statistics.addTime( System.nanoTime() - start );
+        }
+        if( status != null ) {
+            return status;
         }
+        running = false;
         outStream.println("\nTerminated");
         // dumpStack();
+        status = failed ? Status.ERROR : Status.HALTED;
+        if( statistics != null ) {
+            statistics.stopped( sp );
+            statistics.setHeapWords( layout.getDataSize() - limit );
+            statistics.report( outStream );
+        }
+        return status;
+    }
+    /** @return true if statistics, a profile or coverage is collected */
+    private boolean observing() {
+        return statistics != null || profiler != null || coverage != null;
+    }
+    /** Record the instruction at pc, about to be executed, in the 
+     * statistics, profile and coverage being collected */
+    private void observe( int pc, int sp, int fp, int[] mem ) {
+        if( statistics != null ) {
+            statistics.step( pc, sp );
+        }
+        if( profiler != null ) {
+            profiler.step( pc, fp, mem );
+        }
+        if( coverage != null ) {
+            coverage.hit( pc );
+        }
+    }
+    /** @return false if the instruction at addr is a READ and no input
+     * is ready for it */
+    private boolean inputReady( int addr ) {
+        if( addr < CODE_START || currLocn <= addr ||
+                Operation.decode( code[addr] ) != Operation.READ ) {
+            return true;
+        }
+        try {
+            return input().ready();
+        } catch( IOException e ) {
+            /* Let the READ report the error */
+            return true;
+        }
+    }
+
+    /** Export the loaded program as a standalone runnable JAR file,
+     * with each procedure translated into a JVM method.
+     * Must be called before the program is run.
+     */
+    public void writeJar( String fileName ) throws IOException {
+        new AotCompiler( code, procedures, pc, layout ).writeJar( fileName );
+    }
+    /** Write the loaded program as an image file, from which it can be
+     * run again without compiling it.
+     * Must be called before the program is run. */
+    public void writeImage( String fileName ) throws IOException {
+        getImage().write( fileName );
+    }
+    /** @return an image of the loaded program, from which other machines
+     * can run it without compiling it.
+     * Must be called before the program is run. */
+    public ProgramImage getImage() {
+        IntBuffer words = IntBuffer.wrap( code, CODE_START,
+                currLocn - CODE_START ).slice();
+        return new ProgramImage( pc, CODE_START, words, procedures );
     }
 
-/*********************** Public Code Generators ************************/
-    /** Store the given word (with associated name) into the code buffer
-     * @param word to be stored
-     * @param name of operation code to be used in listing. */
-    public void generateWord( int word, String name ) {
-        if( currLocn >= MEM_LIMIT ) {
+/*************************** Code Loading ******************************/
+    /** Load the code of a procedure at currLocn. The words are copied in
+     * one go, then the addresses of the procedures it calls are filled in.
+     * @param procCode code of the procedure */
+    private void loadCode( Code procCode ) {
+        for( String error : procCode.getOperandErrors() ) {
+            errors.error( error, Position.NO_POSITION );
+        }
+        int size = procCode.size();
+        if( currLocn + size > layout.getCodeLimit() ) {
+            /* Load as much as fits */
             errors.error( "Object code too large.", Position.NO_POSITION );
-        } else {
-            memory[ currLocn++ ] = word;
-            if( listing ) {
-                printListing( currLocn - 1, word, name );
+            size = Math.max( layout.getCodeLimit() - currLocn, 0 );
+        }
+        if( currLocn + size > code.length ) {
+            code = Arrays.copyOf( code, Math.min( layout.getCodeLimit(),
+                    Math.max( 2 * code.length, currLocn + size ) ) );
+        }
+        int start = currLocn;
+        System.arraycopy( procCode.getWords(), 0, code, start, size );
+        int[] relocations = procCode.getRelocations();
+        List<SymEntry.ProcedureEntry> called = 
+            procCode.getRelocatedProcedures();
+        for( int i = 0; i < relocations.length && relocations[i] < size;
+                i++ ) {
+            int addr = called.get( i ).getStart();
+            if( !Operation.fitsOperand( addr ) ) {
+                errors.error( "Operand " + addr + " of " + Operation.LOAD_CON +
+                        " too large.", Position.NO_POSITION );
+            } else {
+                code[start + relocations[i]] = 
+                    Operation.LOAD_CON.encode( addr );
+            }
+        }
+        currLocn += size;
+        if( listing ) {
+            for( int locn = start; locn < currLocn; ) {
+                int word = code[locn];
+                Operation op = Operation.decode( word );
+                if( op == null ) {
+                    printListing( locn, word, "" );
+                    locn++;
+                    continue;
+                }
+                if( op == Operation.LOAD_WIDE && locn + 1 < currLocn ) {
+                    /* The value is in the following word, listed alone */
+                    printListing( locn, word, op + " " + code[locn + 1] );
+                    printListing( locn + 1, code[locn + 1], "" );
+                } else {
+                    printListing( locn, word, op.hasOperand() ?
+                        op + " " + Operation.operand( word ) : op.toString() );
+                }
+                locn += op.getSize();
             }
         }
     }
-    /** Print a listing line to the message handler */
+    /** Print a listing line to the message handler.
+     * The word is right aligned in a field wide enough for any int, so the
+     * names line up whatever the words are. */
     private void printListing( int locn, int word, String name ) {
         /** Offset used in listing code */
         final int ASSEMBLY_POSN = 4;
+        /** Width of the widest word, -2147483648 */
+        final int WORD_WIDTH = 11;
         StringBuffer buf = new StringBuffer();
         pad( buf, ASSEMBLY_POSN );
         buf.append( locn );
         pad( buf, ASSEMBLY_POSN + 5 );
         buf.append( ":  " );
-        buf.append( word );
-        pad( buf, ASSEMBLY_POSN + 14 );
-        buf.append( name );
+        buf.append( String.format( "%" + WORD_WIDTH + "d", word ) );
+        if( name.length() > 0 ) {
+            buf.append( "  " );
+            buf.append( name );
+        }
         outStream.println( buf.toString() );
     }
     
 /*********************** Run time auxiliary methods ********************/
     /** Push the value onto the stack, and increment the stack pointer */
     private void push( int val ) {
-        if( sp >= limit ) {
+        if( sp >= stackTop() && !growStack( sp ) ) {
             runtimeError( "memory overflow!" );
         } else {
-            if( tracing.contains( Trace.STACK ) ) {
-                outStream.print( " Push(" + val + ") " );
+            if( traces( Trace.STACK ) ) {
+                trace( TraceBuffer.PUSH, val );
             }
             memory[sp++] = val;
         }
@@ -186,8 +613,8 @@ public class StackMachine {
             runtimeError( "stack underflow!" );
             return 0;
         } else {
-            if( tracing.contains( Trace.STACK) ) {
-                outStream.print( " Pop() = " + memory[sp-1] + " " );
+            if( traces( Trace.STACK ) ) {
+                trace( TraceBuffer.POP, memory[sp-1] );
             }
             return memory[--sp];
         }
@@ -195,27 +622,27 @@ public class StackMachine {
     /** Return value stored at address */
     private int loadValue( int address ) {
         int val = 0;
-        if( address < 0 || address >= MEM_LIMIT ) {
+        if( address < 0 || address >= memory.length ) {
             runtimeError("load outside memory pc="  +
                 + (pc-1) + ": address=" + address );
         } else {
              val = memory[address];
         }
-        if( tracing.contains( Trace.MEM ) ) {
-            outStream.print( "\n    Load [" + address + "] => " + val );
+        if( traces( Trace.MEM ) ) {
+            trace( TraceBuffer.LOAD, address, val );
         }
         return val;
     }
     /** Store value at StoreAdr */
     private void storeValue( int address, int value ) {
-        if( address < 0 || address >= CODE_START ) {
+        if( address < 0 || address >= memory.length ) {
             runtimeError("store outside memory pc="  +
                 + (pc-1) + ": address=" + (address) );
         } else {
              memory[ address ] = value;
         }
-        if( tracing.contains( Trace.MEM ) ) {
-            outStream.print( "\n    Store [" + (address) + "] <= " + value );
+        if( traces( Trace.MEM ) ) {
+            trace( TraceBuffer.STORE, address, value );
         }
     }
     /** Dump the contents of the stack to stdout.
@@ -244,7 +671,7 @@ public class StackMachine {
         int tracePC = pc;
         int traceFP = fp;
         while( tracePC != 0 ) {
-            Procedures.ProcedureCode proc = procedures.getProcedure( tracePC-1 );
+            ProcedureTable.Entry proc = procedures.getProcedure( tracePC-1 );
             if( proc == null ) {
                 // if fp is 0 then in main program setup/finalisation code
                 if( fp != 0 ) {
@@ -254,7 +681,9 @@ public class StackMachine {
                 }
                 return;
             }
-            outStream.print( "PC=" + tracePC + " in " + proc );
+            int line = proc.getLine( tracePC-1 );
+            outStream.print( "PC=" + tracePC + (line == 0 ? "" 
+                    : " line " + line) + " in " + proc );
             outStream.print( " FP=" + traceFP );
             int staticLink = memory[traceFP];
             outStream.print( " SL=" + staticLink );
@@ -263,24 +692,20 @@ public class StackMachine {
             outStream.print( " DL=" + dynamicLink );
             // Return address is at offset 2
             outStream.println( " RA=" + memory[traceFP+2] );
-            for( SymEntry entry : proc.getLocals().getEntries() ) {
-                if( entry instanceof SymEntry.VarEntry ) {
-                    SymEntry.VarEntry varEntry = (SymEntry.VarEntry)entry;
-                    int varSize = varEntry.getType().getBaseType().getSpace();
-                    int addr = traceFP + varEntry.getOffset();
-                    String varVal = "  " + varEntry.getIdent() + 
-                            "(" + varEntry.getOffset() + ")" + " =";
-                    for( int i = 0; i < varSize; i++ ) {
-                        if( 0 <= addr && addr < CODE_START ) {
-                            varVal += " " + memory[addr];
-                            addr++;
-                        } else {
-                            varVal += " offset out of stack bounds";
-                            break;
-                        }
+            for( ProcedureTable.Variable var : proc.getVariables() ) {
+                int addr = traceFP + var.getOffset();
+                String varVal = "  " + var.getIdent() + 
+                        "(" + var.getOffset() + ")" + " =";
+                for( int i = 0; i < var.getSize(); i++ ) {
+                    if( 0 <= addr && addr < memory.length ) {
+                        varVal += " " + memory[addr];
+                        addr++;
+                    } else {
+                        varVal += " offset out of stack bounds";
+                        break;
                     }
-                    outStream.println( varVal );
                 }
+                outStream.println( varVal );
             }
             // Return PC is at offset 2 from frame pointer
             tracePC = memory[traceFP+2];
@@ -303,13 +728,62 @@ public class StackMachine {
     /** Runtime error while executing program. */
     private void runtimeError( String message ) {
         running = false;
+        failed = true;
+        output.flush();
         outStream.println( "\nRuntime error: " + message );
         // dumpStack();
         traceBack();
     }
+    /** @return the top of stack limit within the current data memory */
+    private int stackTop() {
+        return Math.min( memory.length, stackLimit );
+    }
+    /** Make room for the stack word at address sp, growing the data
+     * memory (by doubling it) if it does not yet reach the stack limit.
+     * @return false if sp is beyond the stack limit */
+    private boolean growStack( int sp ) {
+        if( sp >= stackLimit ) {
+            return false;
+        }
+        if( sp >= memory.length ) {
+            resize( Math.min( stackLimit, 
+                    Math.max( sp + 1, 2 * memory.length ) ) );
+        }
+        return true;
+    }
+    /** Make room for the whole stack frame of the procedure at start, for
+     * a frame pointer of fp, if the procedure has been verified.
+     * @return false if the procedure was not verified, or its frame does
+     *  not fit below the stack limit */
+    private boolean reserveFrame( int start, int fp ) {
+        int size = 0 <= start && start < frameSizes.length 
+                ? frameSizes[start] : 0;
+        return size > 0 && (fp + size <= stackTop() || 
+                growStack( fp + size - 1 ));
+    }
+    /** Allocate size words from the heap, growing the data memory to its
+     * full size when the heap is first used. The heap grows down from the
+     * end of the data memory, and cannot go below the stack limit.
+     * @return false if there is not enough space left in the heap */
+    private boolean allocHeap( int size ) {
+        if( size < 0 || limit - size < stackLimit ) {
+            return false;
+        }
+        if( memory.length < layout.getDataSize() ) {
+            resize( layout.getDataSize() );
+        }
+        limit -= size;
+        Arrays.fill( memory, limit, limit + size, NULL_ADDR );
+        return true;
+    }
+    /** Replace the data memory by one of the given size with the same
+     * contents, and any new words set to NULL_ADDR */
+    private void resize( int size ) {
+        int old = memory.length;
+        memory = Arrays.copyOf( memory, size );
+        Arrays.fill( memory, old, size, NULL_ADDR );
+    }
 /********************************** Execution *******************************/
-    /** Convert from integer to operation */
-    Operation[] getOperation = Operation.values();
     /** Execute the instruction pointed to by the pc register, 
      * and adjust pc to point to the next instruction.
      */
@@ -318,23 +792,18 @@ public class StackMachine {
             runtimeError( "PC = " + pc + " out of range of code" );
             return;
         }
-        int instWord = memory[pc++];
-        if( instWord < 0 || getOperation.length <= instWord ) {
+        tracingInstruction = traceFilter == null || traceFilter[pc];
+        int instWord = code[pc++];
+        Operation inst = Operation.decode( instWord );
+        if( inst == null ) {
             runtimeError( "invalid opcode" );
             return;
         }
-        Operation inst = getOperation[instWord];
+        int operand = Operation.operand( instWord );
         int address;
-        if( tracing.contains( Trace.STATE ) ) {
-            outStream.print( "\n" + "PC: " + (pc-1) +
-                              ": FP: " + fp +
-                              "  SP: " + sp +
-                              "  Limit: " + limit + 
-                              "  Opcode: " +
-                              inst + " " );
-            if( inst == Operation.LOAD_CON ) {
-                outStream.print( memory[pc] + " " );
-            }
+        if( traces( Trace.STATE ) ) {
+            trace( TraceBuffer.STATE, pc-1, instWord, fp, sp, limit,
+                    inst == Operation.LOAD_WIDE ? code[pc] : 0 );
         }
         switch (inst) {
         case NO_OP: /* Do nothing */
@@ -342,8 +811,8 @@ public class StackMachine {
         case BR: /* Unconditional branch */
             int dest = pop(); /* destination offset */
             pc += dest;       /* branch relative to pc */
-            if (tracing.contains(Trace.JUMPS)) {
-                outStream.print("\n      Branch => " + pc);
+            if( traces( Trace.JUMPS ) ) {
+                trace( TraceBuffer.BRANCH, pc );
             }
             break;
         case BR_FALSE: /* If the second top value = FALSE_VALUE, 
@@ -355,8 +824,8 @@ public class StackMachine {
             } else if (test != TRUE_VALUE ) {
                 runtimeError("non-boolean operand in branch");
             }
-            if (tracing.contains(Trace.JUMPS)) {
-                outStream.print("\n      Branch => " + pc);
+            if( traces( Trace.JUMPS ) ) {
+                trace( TraceBuffer.BRANCH, pc );
             }
             break;
         case COPY: /* Copy top-of-stack words from third-top-of-stack address 
@@ -379,11 +848,17 @@ public class StackMachine {
             fp = sp - 2;        /* frame pointer addresses static link */
             push(pc);           /* save return address */
             pc = addr;          /* branch to procedure */
-            if (tracing.contains(Trace.CALLS)) {
-                outStream.print("\n      Call => " + pc);
+            if( statistics != null ) {
+                statistics.called( pc );
+            }
+            if( traces( Trace.CALLS ) ) {
+                trace( TraceBuffer.CALL, pc );
             }
             break;
         case RETURN: /* Return to caller */
+            if( statistics != null ) {
+                statistics.returned();
+            }
             sp = fp + 3;   /* Set stack pointer so next pop is return address
                               this will also deallocate any locals */ 
             pc = pop();    /* Set program counter to return address. */
@@ -392,14 +867,12 @@ public class StackMachine {
             if (pc == 0) { /* Return from main terminates program */
                 running = false;
             }
-            if (tracing.contains(Trace.CALLS)) {
-                outStream.print("\n      Returning => " + pc);
+            if( traces( Trace.CALLS ) ) {
+                trace( TraceBuffer.RETURN, pc );
             }
             break;
-        case ALLOC_STACK: /* Allocate top-of-stack words on stack */
-            /* It is assumed that the top of stack contains the number of 
-             * words to be allocated on the stack. */
-            int locs = pop(); /* size in words */
+        case ALLOC_STACK: /* Allocate operand words on stack */
+            int locs = operand; /* size in words */
             /* Allocate space on stack */
             for (int i = 1; i <= locs && running; i++) {
                 /* Push a useless value to make error detection more likely. */
@@ -407,7 +880,7 @@ public class StackMachine {
             }
             break;
         case DEALLOC_STACK: /* Remove locations from the stack */
-            int nwords = pop(); /* Number of words for to deallocate */
+            int nwords = operand; /* Number of words for to deallocate */
             if( sp - nwords <= fp + 2 ) {
                 runtimeError( "deallocating too many words");
             } else {
@@ -474,14 +947,22 @@ public class StackMachine {
         case READ: /* Read a number from stdin */
             int read;
             try {
-                read = Integer.parseInt(in.readLine());
+                read = readInt();
                 push(read);
             } catch (Exception e) {
                 runtimeError( "invalid value read - must be an integer");
             }
             break;
         case WRITE: /* Write a number to stdout */
-            outStream.println(Integer.toString(pop()));
+            int written = pop();
+            output.writeInt(written);
+            if( tracingInstruction ) {
+                trace( TraceBuffer.WRITE, written );
+            }
+            if( traceBuffer == null ) {
+                /* Keep the output in step with the trace */
+                output.flush();
+            }
             break;
         case BOUND: /* Check if index is within bounds, halt if not. 
                 This needs to be an instruction to write the error */
@@ -500,8 +981,11 @@ public class StackMachine {
         case TO_LOCAL: /* Adjust a global address to a frame-local one */
             push(pop() - fp);
             break;
-        case LOAD_CON: /* Load a constant value from the following word */
-            push(memory[pc++]);
+        case LOAD_CON: /* Load the operand as a constant value */
+            push(operand);
+            break;
+        case LOAD_WIDE: /* Load a constant value from the following word */
+            push(code[pc++]);
             break;
         case LOAD_ABS: /* Load a value from address in top of stack */
             address = pop();
@@ -524,24 +1008,24 @@ public class StackMachine {
             break;
         case ALLOC_HEAP: /* Allocate memory from heap */
             int size = pop();
-            limit -= size;
-            push(limit); // will fail if limit less than sp
-            for(int i = limit; i < limit+size; i++ ) {
-                memory[i] = NULL_ADDR;
+            if( !allocHeap( size ) ) {
+                runtimeError( "memory overflow!" );
+            } else {
+                push(limit);
             }
             break;
-        case LOAD_MULTI: /* Load multiple words onto stack from
-                            address on second top of stack */
-            int count = pop();        /* pop count of number of words */
+        case LOAD_MULTI: /* Load operand words onto stack from
+                            address on top of stack */
+            int count = operand;      /* count of number of words */
             address = fp + pop();     /* address relative to frame pointer */
             while( count > 0 ) {
                 push(loadValue(address++));
                 count--;
             }
             break;
-        case STORE_MULTI: /* Store multiple words from stack to
-                             address on second top of stack */
-            count = pop();        /* pop count of number of words */
+        case STORE_MULTI: /* Store operand words from stack to
+                             address on top of stack */
+            count = operand;      /* count of number of words */
             address = fp + pop() + count; /* relative to frame pointer */
             while( count > 0 ) {
                 /* store from last location back (to match LOAD_MULTI) */
@@ -549,6 +1033,117 @@ public class StackMachine {
                 count--;
             }
             break;
+        case LOAD_LOCAL: /* Load a value from frame offset operand */
+            address = fp + operand;
+            push(loadValue(address));
+            break;
+        case STORE_LOCAL: /* Store a value at frame offset operand */
+            address = fp + operand;
+            storeValue(address, pop());
+            break;
+        case BR_REL: /* Unconditional branch by operand */
+            pc += operand;
+            if( traces( Trace.JUMPS ) ) {
+                trace( TraceBuffer.BRANCH, pc );
+            }
+            break;
+        case BR_FALSE_REL: /* Branch by operand if false */
+            test = pop();
+            if (test == FALSE_VALUE) {
+                pc += operand;
+            } else if (test != TRUE_VALUE ) {
+                runtimeError("non-boolean operand in branch");
+            }
+            if( traces( Trace.JUMPS ) ) {
+                trace( TraceBuffer.BRANCH, pc );
+            }
+            break;
+        case LOAD_CON_ADD: /* Add operand to top of stack */
+            push(pop() + operand);
+            break;
+        case SUB: /* Subtract top value from second top value */
+            top = pop();
+            push(pop() - top);
+            break;
+        case GREATER: /* Test if second top value > top value */
+            top = pop();
+            second = pop();
+            push(second > top ? TRUE_VALUE : FALSE_VALUE);
+            break;
+        case GREATEREQ: /* Test if second top value >= top value */
+            top = pop();
+            second = pop();
+            push(second >= top ? TRUE_VALUE : FALSE_VALUE);
+            break;
+        case NOT_BOOL: /* Logical not */
+            push(pop() == FALSE_VALUE ? TRUE_VALUE : FALSE_VALUE);
+            break;
+        case INC: /* Add one */
+            push(pop() + 1);
+            break;
+        case DEC: /* Subtract one */
+            push(pop() - 1);
+            break;
+        case BR_EQUAL: /* Branch by operand if the top two values are equal */
+            top = pop();
+            second = pop();
+            if (second == top) {
+                pc += operand;
+            }
+            if( traces( Trace.JUMPS ) ) {
+                trace( TraceBuffer.BRANCH, pc );
+            }
+            break;
+        case BR_NOT_EQUAL: /* Branch if the top two values are not equal */
+            top = pop();
+            second = pop();
+            if (second != top) {
+                pc += operand;
+            }
+            if( traces( Trace.JUMPS ) ) {
+                trace( TraceBuffer.BRANCH, pc );
+            }
+            break;
+        case BR_LESS: /* Branch by operand if second top value < top value */
+            top = pop();
+            second = pop();
+            if (second < top) {
+                pc += operand;
+            }
+            if( traces( Trace.JUMPS ) ) {
+                trace( TraceBuffer.BRANCH, pc );
+            }
+            break;
+        case BR_LESSEQ: /* Branch by operand if second top value <= top value */
+            top = pop();
+            second = pop();
+            if (second <= top) {
+                pc += operand;
+            }
+            if( traces( Trace.JUMPS ) ) {
+                trace( TraceBuffer.BRANCH, pc );
+            }
+            break;
+        case BR_GREATER: /* Branch by operand if second top value > top value */
+            top = pop();
+            second = pop();
+            if (second > top) {
+                pc += operand;
+            }
+            if( traces( Trace.JUMPS ) ) {
+                trace( TraceBuffer.BRANCH, pc );
+            }
+            break;
+        case BR_GREATEREQ: /* Branch if second top value >= top value */
+            top = pop();
+            second = pop();
+            if (second >= top) {
+                pc += operand;
+            }
+            if( traces( Trace.JUMPS ) ) {
+                trace( TraceBuffer.BRANCH, pc );
+            }
+            break;
         case STOP: /* Halt */
             int exitcode = pop();
             switch( exitcode ) {
@@ -561,4 +1156,698 @@ public class StackMachine {
             runtimeError("opcode not implemented: " + inst );
         }
     }
+
+/***************************** Fast Execution *******************************/
+    /** Decode the loaded code into operations for the fast execution loop.
+     * The code area cannot be stored into at run time, so decoding is only
+     * done once. Every word is decoded as if it were an opcode, so a branch
+     * into the middle of an instruction behaves as it does in execInstruction.
+     */
+    private void predecode() {
+        decoded = new Operation[ currLocn + 1 ];
+        operands = new int[ currLocn + 1 ];
+        for( int locn = CODE_START; locn < currLocn; locn++ ) {
+            decoded[locn] = Operation.decode( code[locn] );
+            operands[locn] = Operation.operand( code[locn] );
+        }
+    }
+    /** Fast execution loop used when no tracing is required.
+     * The registers are held in local variables and the stack operations
+     * are expanded inline. The registers are only written back to the 
+     * machine when execution finishes, so that a runtime error reports
+     * the same state (and trace back) as execInstruction would.
+     * The valid range of the pc is checked only when control is transferred;
+     * falling off the end of the code reaches a null entry in decoded.
+     * In tiered mode calls and backward branches are counted, and once a
+     * procedure is compiled control is transferred to its compiled code.
+     * A run without a budget that starts a verified main program executes
+     * it without checking the stack. When statistics, a profile or 
+     * coverage are collected the stack is always checked.
+     */
+    private void runFast( long budget, boolean suspending ) {
+        if( decoded == null ) {
+            predecode();
+        }
+        if( tiered && jit == null && budget == NO_LIMIT && !suspending &&
+                !observing() ) {
+            jit = new JitCompiler( code, currLocn, procedures );
+        }
+        boolean verified = budget == NO_LIMIT && !suspending && 
+                !observing() && sp == STACK_START && reserveFrame( pc, fp );
+        execFast( STACK_START - 1, budget, suspending, verified );
+    }
+    /** Number of words each operation pops, indexed by operation code.
+     * Unless the code is verified, execFast checks they are on the stack
+     * before executing the operation. Operations that pop a number of 
+     * words given by their operand check the rest as they go. */
+    private static final int[] POPS = new int[ Operation.values().length ];
+    /** Number of words each operation pushes beyond those it pops, for
+     * which execFast makes room above the top of stack in the same way */
+    private static final int[] PUSHES = new int[ Operation.values().length ];
+    static {
+        for( Operation op : Operation.values() ) {
+            switch( op ) {
+            case COPY:
+            case BOUND:
+                POPS[op.ordinal()] = 3;
+                break;
+            case BR_FALSE:
+            case SWAP:
+            case ADD:
+            case MPY:
+            case DIV:
+            case OR:
+            case AND:
+            case XOR:
+            case EQUAL:
+            case LESS:
+            case LESSEQ:
+            case STORE_FRAME:
+            case SUB:
+            case GREATER:
+            case GREATEREQ:
+            case BR_EQUAL:
+            case BR_NOT_EQUAL:
+            case BR_LESS:
+            case BR_LESSEQ:
+            case BR_GREATER:
+            case BR_GREATEREQ:
+                POPS[op.ordinal()] = 2;
+                break;
+            case BR:
+            case CALL:
+            case POP:
+            case DUP:
+            case NOT:
+            case NEGATE:
+            case WRITE:
+            case TO_GLOBAL:
+            case TO_LOCAL:
+            case LOAD_ABS:
+            case LOAD_FRAME:
+            case ALLOC_HEAP:
+            case LOAD_MULTI:
+            case STORE_MULTI:
+            case STORE_LOCAL:
+            case BR_FALSE_REL:
+            case LOAD_CON_ADD:
+            case NOT_BOOL:
+            case INC:
+            case DEC:
+            case STOP:
+                POPS[op.ordinal()] = 1;
+                break;
+            default:
+                break;
+            }
+            switch( op ) {
+            case CALL:
+            case DUP:
+            case READ:
+            case LOAD_CON:
+            case LOAD_WIDE:
+            case ZERO:
+            case ONE:
+            case LOAD_LOCAL:
+                PUSHES[op.ordinal()] = 1;
+                break;
+            default:
+                break;
+            }
+        }
+    }
+    /** Execute from the current state of the registers until the program
+     * terminates, or until the activation with frame pointer entryFp
+     * returns.
+     * Unless the code is verified each instruction is checked, before it
+     * is executed, for the stack words it pops and the room it needs to
+     * push (see POPS and PUSHES), and for the budget and the range of 
+     * the pc.
+     * The Verifier has shown that each verified procedure keeps the depth
+     * of its stack between 0 and its frame size, so for verified code the
+     * stack is only checked once for each call, by making room for the
+     * whole frame of the procedure called. Loads and stores, and the 
+     * other runtime errors, are checked either way. A call that the stack
+     * has no room for, a call of a procedure that was not verified, or a
+     * return to an address that was not a verified return point (because
+     * the program overwrote its stack frame) continues with the checks,
+     * so any error is reported at the instruction at which it happens.
+     * @param entryFp frame pointer of the activation to run until it
+     *  returns; a value that is not a valid frame pointer runs the program
+     *  to completion
+     * @param budget maximum number of instructions to execute, or NO_LIMIT;
+     *  if it runs out the status is set to BUDGET_EXHAUSTED
+     * @param suspending if a READ with no input ready sets the status to
+     *  WAITING_FOR_INPUT rather than waiting for input
+     * @param verified if the current procedure is verified, and its frame
+     *  has been reserved (see reserveFrame); then budget must be NO_LIMIT
+     *  and nothing is being observed
+     * @return true if the activation entryFp returned, false if the
+     *  program terminated (normally or with a runtime error) or was
+     *  suspended
+     */
+    private boolean execFast( int entryFp, long budget, boolean suspending,
+            boolean verified ) {
+        final int[] codeMem = code;
+        final Operation[] ops = decoded;
+        final int[] opnd = operands;
+        final int[] frames = frameSizes;
+        final int[] depthAt = depths;
+        final Statistics stats = statistics;
+        final boolean observed = observing();
+        /* The data memory, and the top of stack within it, are reloaded
+         * whenever the stack grows, or compiled code has run */
+        int[] mem = memory;
+        int top = stackTop();
+        int pc = this.pc;
+        int sp = this.sp;
+        int fp = this.fp;
+        /* Set once the code can no longer be trusted to be verified */
+        boolean checking = !verified;
+        String error = null;
+        boolean returned = false;
+        execution:
+        while( true ) {
+            if( checking ) {
+                if( budget-- == 0 ) {
+                    status = Status.BUDGET_EXHAUSTED;
+                    break;
+                }
+                if( pc < 0 || ops.length <= pc ) {
+                    error = "PC = " + pc + " out of range of code";
+                    break;
+                }
+                Operation inst = ops[pc];
+                if( inst == null ) {
+                    if( pc < CODE_START || currLocn <= pc ) {
+                        error = "PC = " + pc + " out of range of code";
+                    } else {
+                        error = "invalid opcode";
+                    }
+                    pc++;
+                    break;
+                }
+                if( observed ) {
+                    observe( pc, sp, fp, mem );
+                }
+                if( sp < STACK_START + POPS[inst.ordinal()] ) {
+                    pc++;
+                    error = "stack underflow!";
+                    break;
+                }
+                if( top < sp + PUSHES[inst.ordinal()] ) {
+                    if( !growStack( sp ) ) {
+                        pc++;
+                        error = "memory overflow!";
+                        break;
+                    }
+                    mem = memory;
+                    top = stackTop();
+                }
+            }
+            int operand = opnd[pc];
+            Operation inst = ops[pc++];
+            switch( inst ) {
+            case NO_OP:
+                break;
+            case BR:
+                pc += mem[--sp];
+                break;
+            case BR_FALSE:
+                int dest = mem[--sp];
+                int test = mem[--sp];
+                if( test == FALSE_VALUE ) {
+                    pc += dest;
+                } else if( test != TRUE_VALUE ) {
+                    error = "non-boolean operand in branch";
+                    break execution;
+                }
+                break;
+            case COPY:
+                int copySize = mem[--sp];
+                int toAddr = fp + mem[--sp];
+                int fromAddr = fp + mem[--sp];
+                for( int i = 0; i < copySize; i++ ) {
+                    if( fromAddr + i < 0 || mem.length <= fromAddr + i ) {
+                        error = "load outside memory pc=" + (pc-1) + 
+                                ": address=" + (fromAddr + i);
+                        break execution;
+                    }
+                    if( toAddr + i < 0 || mem.length <= toAddr + i ) {
+                        error = "store outside memory pc=" + (pc-1) + 
+                                ": address=" + (toAddr + i);
+                        break execution;
+                    }
+                    mem[toAddr + i] = mem[fromAddr + i];
+                }
+                break;
+            case CALL:
+                int addr = mem[sp-1];
+                if( !checking ) {
+                    int frameSize = frames[addr];
+                    if( frameSize == 0 || top < sp - 2 + frameSize ) {
+                        if( frameSize == 0 || 
+                                !growStack( sp - 3 + frameSize ) ) {
+                            /* Make the call again, with checks */
+                            pc--;
+                            checking = true;
+                            break;
+                        }
+                        mem = memory;
+                        top = stackTop();
+                    }
+                }
+                mem[sp-1] = fp;     /* dynamic link */
+                fp = sp - 2;        /* frame pointer addresses static link */
+                mem[sp++] = pc;     /* return address */
+                pc = addr;
+                if( stats != null ) {
+                    stats.called( pc );
+                }
+                if( jit != null && jitNesting < MAX_JIT_NESTING ) {
+                    CompiledProcedure code = jit.called( pc );
+                    if( code != null ) {
+                        pc = code.run( this, mem, fp, sp, top, pc );
+                        if( pc == CompiledProcedure.TERMINATED ) {
+                            return false;
+                        }
+                        fp = this.fp;
+                        sp = this.sp;
+                        mem = memory;
+                        top = stackTop();
+                    }
+                }
+                break;
+            case RETURN:
+                if( stats != null ) {
+                    stats.returned();
+                }
+                int frame = fp;
+                sp = fp + 3;
+                pc = mem[--sp];
+                fp = mem[--sp];
+                --sp;
+                if( pc == 0 ) {
+                    break execution;
+                }
+                if( frame == entryFp ) {
+                    returned = true;
+                    break execution;
+                }
+                if( !checking && (pc < 0 || depthAt.length <= pc || 
+                        fp < STACK_START || depthAt[pc] != sp - fp) ) {
+                    checking = true;
+                }
+                break;
+            case ALLOC_STACK:
+                if( !checking ) {
+                    Arrays.fill( mem, sp, sp + operand, NULL_ADDR );
+                    sp += operand;
+                    break;
+                }
+                for( int i = 1; i <= operand; i++ ) {
+                    if( top <= sp ) {
+                        if( !growStack( sp ) ) {
+                            error = "memory overflow!";
+                            break execution;
+                        }
+                        mem = memory;
+                        top = stackTop();
+                    }
+                    mem[sp++] = NULL_ADDR;
+                }
+                break;
+            case DEALLOC_STACK:
+                if( checking && sp - operand <= fp + 2 ) {
+                    error = "deallocating too many words";
+                    break execution;
+                }
+                sp -= operand;
+                break;
+            case POP:
+                sp--;
+                break;
+            case DUP:
+                mem[sp] = mem[sp-1];
+                sp++;
+                break;
+            case SWAP:
+                int val = mem[sp-1];
+                mem[sp-1] = mem[sp-2];
+                mem[sp-2] = val;
+                break;
+            case DIV:
+                if( mem[sp-1] == 0 ) {
+                    sp -= 2;
+                    error = "divide by zero";
+                    break execution;
+                }
+                sp--;
+                mem[sp-1] = mem[sp-1] / mem[sp];
+                break;
+            case MPY:
+                sp--;
+                mem[sp-1] = mem[sp-1] * mem[sp];
+                break;
+            case ADD:
+                sp--;
+                mem[sp-1] = mem[sp-1] + mem[sp];
+                break;
+            case XOR:
+                sp--;
+                mem[sp-1] = mem[sp-1] ^ mem[sp];
+                break;
+            case OR:
+                sp--;
+                mem[sp-1] = mem[sp-1] | mem[sp];
+                break;
+            case AND:
+                sp--;
+                mem[sp-1] = mem[sp-1] & mem[sp];
+                break;
+            case EQUAL:
+                sp--;
+                mem[sp-1] = mem[sp-1] == mem[sp] ? TRUE_VALUE : FALSE_VALUE;
+                break;
+            case LESS:
+                sp--;
+                mem[sp-1] = mem[sp-1] < mem[sp] ? TRUE_VALUE : FALSE_VALUE;
+                break;
+            case LESSEQ:
+                sp--;
+                mem[sp-1] = mem[sp-1] <= mem[sp] ? TRUE_VALUE : FALSE_VALUE;
+                break;
+            case NOT:
+                mem[sp-1] = ~mem[sp-1];
+                break;
+            case NEGATE:
+                mem[sp-1] = -mem[sp-1];
+                break;
+            case READ:
+                try {
+                    if( suspending && !input().ready() ) {
+                        pc--;
+                        status = Status.WAITING_FOR_INPUT;
+                        break execution;
+                    }
+                    mem[sp] = readInt();
+                    sp++;
+                } catch( Exception e ) {
+                    error = "invalid value read - must be an integer";
+                    break execution;
+                }
+                break;
+            case WRITE:
+                output.writeInt( mem[--sp] );
+                break;
+            case BOUND:
+                int upper = mem[--sp];
+                int lower = mem[--sp];
+                val = mem[sp-1];
+                if( val < lower || val > upper ) {
+                    error = "bounds check failed at " + (pc - 1) + ": "
+                            + val + " not in " + lower + ".." + upper;
+                    break execution;
+                }
+                break;
+            case TO_GLOBAL:
+                mem[sp-1] += fp;
+                break;
+            case TO_LOCAL:
+                mem[sp-1] -= fp;
+                break;
+            case LOAD_CON:
+                mem[sp++] = operand;
+                break;
+            case LOAD_WIDE:
+                mem[sp++] = codeMem[pc++];
+                break;
+            case LOAD_ABS:
+                int address = mem[sp-1];
+                if( address < 0 || mem.length <= address ) {
+                    error = "load outside memory pc=" + (pc-1) + 
+                            ": address=" + address;
+                    break execution;
+                }
+                mem[sp-1] = mem[address];
+                break;
+            case STORE_FRAME:
+                address = fp + mem[--sp];
+                int value = mem[--sp];
+                if( address < 0 || mem.length <= address ) {
+                    error = "store outside memory pc=" + (pc-1) + 
+                            ": address=" + address;
+                    break execution;
+                }
+                mem[address] = value;
+                break;
+            case LOAD_FRAME:
+                address = fp + mem[sp-1];
+                if( address < 0 || mem.length <= address ) {
+                    error = "load outside memory pc=" + (pc-1) + 
+                            ": address=" + address;
+                    break execution;
+                }
+                mem[sp-1] = mem[address];
+                break;
+            case ZERO:
+                mem[sp++] = 0;
+                break;
+            case ONE:
+                mem[sp++] = 1;
+                break;
+            case ALLOC_HEAP:
+                if( !allocHeap( mem[--sp] ) ) {
+                    error = "memory overflow!";
+                    break execution;
+                }
+                mem = memory;
+                top = stackTop();
+                mem[sp++] = limit;
+                break;
+            case LOAD_MULTI:
+                int count = operand;
+                address = fp + mem[--sp];
+                for( ; count > 0; count-- ) {
+                    if( address < 0 || mem.length <= address ) {
+                        error = "load outside memory pc=" + (pc-1) + 
+                                ": address=" + address;
+                        break execution;
+                    }
+                    if( checking && top <= sp ) {
+                        if( !growStack( sp ) ) {
+                            error = "memory overflow!";
+                            break execution;
+                        }
+                        mem = memory;
+                        top = stackTop();
+                    }
+                    mem[sp++] = mem[address++];
+                }
+                break;
+            case STORE_MULTI:
+                count = operand;
+                address = fp + mem[--sp] + count;
+                for( ; count > 0; count-- ) {
+                    if( checking && sp <= STACK_START ) {
+                        error = "stack underflow!";
+                        break execution;
+                    }
+                    --address;
+                    if( address < 0 || mem.length <= address ) {
+                        error = "store outside memory pc=" + (pc-1) + 
+                                ": address=" + address;
+                        break execution;
+                    }
+                    mem[address] = mem[--sp];
+                }
+                break;
+            case LOAD_LOCAL:
+                address = fp + operand;
+                if( address < 0 || mem.length <= address ) {
+                    error = "load outside memory pc=" + (pc-1) + 
+                            ": address=" + address;
+                    break execution;
+                }
+                mem[sp++] = mem[address];
+                break;
+            case STORE_LOCAL:
+                address = fp + operand;
+                if( address < 0 || mem.length <= address ) {
+                    error = "store outside memory pc=" + (pc-1) + 
+                            ": address=" + address;
+                    break execution;
+                }
+                mem[address] = mem[--sp];
+                break;
+            case BR_REL:
+                pc += operand;
+                if( operand < 0 && jit != null && 
+                        jitNesting < MAX_JIT_NESTING ) {
+                    CompiledProcedure code = jit.looped( pc );
+                    if( code != null ) {
+                        /* Continue the current activation in compiled code */
+                        frame = fp;
+                        pc = code.run( this, mem, fp, sp, top, pc );
+                        if( pc == CompiledProcedure.TERMINATED ) {
+                            return false;
+                        }
+                        fp = this.fp;
+                        sp = this.sp;
+                        mem = memory;
+                        top = stackTop();
+                        if( pc == 0 ) {
+                            break execution;
+                        }
+                        if( frame == entryFp && fp != frame ) {
+                            returned = true;
+                            break execution;
+                        }
+                        if( !checking && fp != frame && (pc < 0 || 
+                                depthAt.length <= pc || fp < STACK_START ||
+                                depthAt[pc] != sp - fp) ) {
+                            checking = true;
+                        }
+                    }
+                }
+                break;
+            case BR_FALSE_REL:
+                test = mem[--sp];
+                if( test == FALSE_VALUE ) {
+                    pc += operand;
+                } else if( test != TRUE_VALUE ) {
+                    error = "non-boolean operand in branch";
+                    break execution;
+                }
+                break;
+            case LOAD_CON_ADD:
+                mem[sp-1] += operand;
+                break;
+            case SUB:
+                sp--;
+                mem[sp-1] = mem[sp-1] - mem[sp];
+                break;
+            case GREATER:
+                sp--;
+                mem[sp-1] = mem[sp-1] > mem[sp] ? TRUE_VALUE : FALSE_VALUE;
+                break;
+            case GREATEREQ:
+                sp--;
+                mem[sp-1] = mem[sp-1] >= mem[sp] ? TRUE_VALUE : FALSE_VALUE;
+                break;
+            case NOT_BOOL:
+                mem[sp-1] =
+                    mem[sp-1] == FALSE_VALUE ? TRUE_VALUE : FALSE_VALUE;
+                break;
+            case INC:
+                mem[sp-1]++;
+                break;
+            case DEC:
+                mem[sp-1]--;
+                break;
+            case BR_EQUAL:
+                sp -= 2;
+                if( mem[sp] == mem[sp+1] ) {
+                    pc += operand;
+                }
+                break;
+            case BR_NOT_EQUAL:
+                sp -= 2;
+                if( mem[sp] != mem[sp+1] ) {
+                    pc += operand;
+                }
+                break;
+            case BR_LESS:
+                sp -= 2;
+                if( mem[sp] < mem[sp+1] ) {
+                    pc += operand;
+                }
+                break;
+            case BR_LESSEQ:
+                sp -= 2;
+                if( mem[sp] <= mem[sp+1] ) {
+                    pc += operand;
+                }
+                break;
+            case BR_GREATER:
+                sp -= 2;
+                if( mem[sp] > mem[sp+1] ) {
+                    pc += operand;
+                }
+                break;
+            case BR_GREATEREQ:
+                sp -= 2;
+                if( mem[sp] >= mem[sp+1] ) {
+                    pc += operand;
+                }
+                break;
+            case STOP:
+                error = "machine halted with code " + mem[--sp];
+                break execution;
+            default:
+                error = "opcode not implemented: " + inst;
+                break execution;
+            }
+        }
+        /* Write back the registers so the trace back sees the final state */
+        this.pc = pc;
+        this.sp = sp;
+        this.fp = fp;
+        if( error != null ) {
+            runtimeError( error );
+            return false;
+        }
+        return returned;
+    }
+
+/***************************** Compiled Code Support ************************/
+    /* These methods are called from the code generated by the JitCompiler */
+
+    /** Call the procedure at addr from compiled code. The new stack frame
+     * has already been set up.
+     * @return the stack pointer after the procedure returns, or
+     *  CompiledProcedure.TERMINATED if execution terminated */
+    int jitCall( int addr, int fp, int sp ) {
+        this.pc = addr;
+        this.fp = fp;
+        this.sp = sp;
+        jitNesting++;
+        try {
+            CompiledProcedure code = 
+                jitNesting < MAX_JIT_NESTING ? jit.called( addr ) : null;
+            if( code != null ) {
+                int pc = code.run( this, memory, fp, sp, stackTop(), addr );
+                if( pc == CompiledProcedure.TERMINATED ) {
+                    return pc;
+                }
+                if( this.fp != fp ) {
+                    return this.sp;     /* the procedure returned */
+                }
+                this.pc = pc;
+            }
+            /* Interpret (the rest of) the procedure */
+            boolean returned = execFast( fp, NO_LIMIT, false, 
+                    reserveFrame( addr, fp ) );
+            return returned ? this.sp : CompiledProcedure.TERMINATED;
+        } finally {
+            jitNesting--;
+        }
+    }
+    /** Set the registers when compiled code returns to the machine */
+    void jitExit( int fp, int sp ) {
+        this.fp = fp;
+        this.sp = sp;
+    }
+    /** @return the current top of stack limit within the data memory */
+    int jitLimit() {
+        return stackTop();
+    }
+    /** @return the current data memory, which may have grown */
+    int[] jitMemory() {
+        return memory;
+    }
+    /** Write a value from compiled code */
+    void jitWrite( int value ) {
+        output.writeInt( value );
+    }
 }
@@ -0,0 +1,172 @@
+package machine;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import junit.framework.TestCase;
+import pl0.Compiler;
+import source.Source;
+import tree.StatementNode;
+
+/**
+ * class StackMachineTest - JUnit test for running the StackMachine in
+ * slices with run( maxInstructions ).
+ * @version $Revision: 22 $  $Date: 2014-05-20 15:14:36 +1000 (Tue, 20 May 2014) $
+ */
+public class StackMachineTest extends TestCase {
+
+    public StackMachineTest(String arg0) {
+        super(arg0);
+    }
+
+    /** Reads two values, writing a result after each */
+    static final String READER =
+        "var x: int;\n" +
+        "begin\n" +
+        "  read x;\n" +
+        "  write x * 2;\n" +
+        "  read x;\n" +
+        "  write x + 1\n" +
+        "end\n";
+    /** Calls and loops, so slices stop in all sorts of places */
+    static final String LOOPS =
+        "var n: int;\n" +
+        "    f: int;\n" +
+        "    i: int;\n" +
+        "procedure fact() =\n" +
+        "  begin\n" +
+        "    if n = 0 then f := 1\n" +
+        "    else begin\n" +
+        "      n := n - 1;\n" +
+        "      call fact();\n" +
+        "      n := n + 1;\n" +
+        "      f := f * n\n" +
+        "    end\n" +
+        "  end;\n" +
+        "begin\n" +
+        "  i := 0;\n" +
+        "  while i < 10 do\n" +
+        "    begin\n" +
+        "      n := i;\n" +
+        "      call fact();\n" +
+        "      write f;\n" +
+        "      i := i + 1\n" +
+        "    end\n" +
+        "end\n";
+
+    /** Input port fed with values by the test, which never waits */
+    static class FedInput implements InputPort {
+        private final ConcurrentLinkedQueue<Integer> values =
+            new ConcurrentLinkedQueue<Integer>();
+        private volatile boolean closed = false;
+
+        void feed( int value ) {
+            values.add( value );
+        }
+        /** No more values will be fed */
+        void close() {
+            closed = true;
+        }
+        public int readInt() {
+            Integer value = values.poll();
+            if( value == null ) {
+                throw new NumberFormatException( "end of input" );
+            }
+            return value;
+        }
+        public boolean ready() {
+            return !values.isEmpty();
+        }
+        public boolean atEnd() {
+            return closed && values.isEmpty();
+        }
+    }
+
+    /** @return the code of the program compiled from the given source */
+    static StackMachine compile( String program, PrintStream out )
+            throws Exception {
+        File file = File.createTempFile( "test", ".pl0" );
+        file.deleteOnExit();
+        FileWriter writer = new FileWriter( file );
+        writer.write( program );
+        writer.close();
+        PrintStream messages = new PrintStream( new ByteArrayOutputStream() );
+        Compiler compiler =
+            new Compiler( new Source( file.getPath() ), messages, false );
+        StatementNode.ProgramNode tree = compiler.compile( true );
+        assertNotNull( "program compiles", tree );
+        return new StackMachine( compiler.getErrors(), out, false,
+                compiler.generateCode( tree ) );
+    }
+
+    /*
+     * Test that a program reading its input is suspended until the input
+     * is fed to it, and resumes where it stopped.
+     */
+    public void testSuspendOnInput() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream( bytes, true );
+        StackMachine machine = compile( READER, out );
+        FedInput in = new FedInput();
+        machine.setInput( in );
+        assertEquals( StackMachine.Status.WAITING_FOR_INPUT,
+                machine.run( 1000 ) );
+        assertEquals( StackMachine.Status.WAITING_FOR_INPUT,
+                machine.run( 1000 ) );
+        assertEquals( "", bytes.toString() );
+        in.feed( 21 );
+        assertEquals( StackMachine.Status.BUDGET_EXHAUSTED,
+                machine.run( 1 ) );
+        assertEquals( StackMachine.Status.WAITING_FOR_INPUT,
+                machine.run( 1000 ) );
+        assertEquals( "42" + System.lineSeparator(), bytes.toString() );
+        in.feed( 5 );
+        assertEquals( StackMachine.Status.HALTED, machine.run( 1000 ) );
+        assertEquals( StackMachine.Status.HALTED, machine.run( 1000 ) );
+        assertTrue( bytes.toString().startsWith( "42" +
+                System.lineSeparator() + "6" + System.lineSeparator() ) );
+        assertFalse( machine.hadRuntimeError() );
+    }
+    /*
+     * Test that running a program in slices gives the same output as
+     * running it in one go.
+     */
+    public void testSlices() throws Exception {
+        ByteArrayOutputStream whole = new ByteArrayOutputStream();
+        compile( LOOPS, new PrintStream( whole, true ) ).run();
+        for( int slice = 1; slice <= 64; slice *= 4 ) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            StackMachine machine =
+                compile( LOOPS, new PrintStream( bytes, true ) );
+            List<StackMachine.Status> statuses =
+                new ArrayList<StackMachine.Status>();
+            StackMachine.Status status;
+            do {
+                status = machine.run( slice );
+                statuses.add( status );
+            } while( status == StackMachine.Status.BUDGET_EXHAUSTED );
+            assertEquals( StackMachine.Status.HALTED, status );
+            assertTrue( "stopped at least once", statuses.size() > 1 );
+            assertEquals( "slices of " + slice,
+                    whole.toString(), bytes.toString() );
+        }
+    }
+    /*
+     * Test that a runtime error stops the machine for good.
+     */
+    public void testError() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        StackMachine machine = compile( "var x: int;\n" +
+                "begin x := 0; write 1 / x end\n",
+                new PrintStream( bytes, true ) );
+        assertEquals( StackMachine.Status.ERROR, machine.run( 1000 ) );
+        assertEquals( StackMachine.Status.ERROR, machine.run( 1000 ) );
+        assertTrue( machine.hadRuntimeError() );
+        assertTrue( bytes.toString().contains( "divide by zero" ) );
+    }
+}
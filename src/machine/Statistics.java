@@ -0,0 +1,218 @@
+package machine;
+
+import java.io.PrintStream;
+import java.util.Locale;
+
+/**
+ * class Statistics - execution statistics collected by the stack machine.
+ * @version $Revision: 22 $  $Date: 2014-05-20 15:14:36 +1000 (Tue, 20 May 2014) $
+ * The number of times each instruction is executed, and the number of
+ * calls of each procedure, are counted by address. They are only summed
+ * by operation and by procedure when the statistics are reported, so
+ * that counting costs an array increment per instruction.
+ * The statistics can be reported as text or as JSON.
+ */
+public class Statistics {
+    /** Code memory, indexed by address */
+    private final int[] code;
+    /** Procedures of the program */
+    private final ProcedureTable procedures;
+    /** Number of times the instruction at each address was executed */
+    private final long[] counts;
+    /** Number of calls of the procedure starting at each address */
+    private final long[] calls;
+    /** Highest stack pointer reached, in words */
+    private int maxStack = 0;
+    /** Current and deepest nesting of calls */
+    private int callDepth = 0;
+    private int maxCallDepth = 0;
+    /** Words allocated from the heap */
+    private int heapWords = 0;
+    /** Time spent running the program */
+    private long nanos = 0;
+
+    /** @param code code memory, indexed by address
+     * @param codeEnd address just past the last instruction
+     * @param procedures procedures of the program */
+    Statistics( int[] code, int codeEnd, ProcedureTable procedures ) {
+        this.code = code;
+        this.procedures = procedures;
+        this.counts = new long[ codeEnd ];
+        this.calls = new long[ codeEnd ];
+    }
+    /** Count the instruction at pc, about to be executed with stack
+     * pointer sp. The pc must be a valid code address. */
+    void step( int pc, int sp ) {
+        counts[pc]++;
+        if( sp > maxStack ) {
+            maxStack = sp;
+        }
+    }
+    /** Count a call of the procedure at addr, or the entry of the main
+     * program at addr when it starts */
+    void called( int addr ) {
+        if( 0 <= addr && addr < calls.length ) {
+            calls[addr]++;
+        }
+        if( ++callDepth > maxCallDepth ) {
+            maxCallDepth = callDepth;
+        }
+    }
+    /** Note a return from a procedure */
+    void returned() {
+        callDepth--;
+    }
+    /** Note the stack pointer when the program stopped */
+    void stopped( int sp ) {
+        maxStack = Math.max( maxStack, sp );
+    }
+    void setHeapWords( int words ) {
+        heapWords = words;
+    }
+    /** Add the time of a run of the program */
+    void addTime( long nanos ) {
+        this.nanos += nanos;
+    }
+
+    /** @return total number of instructions executed */
+    public long getInstructions() {
+        long total = 0;
+        for( long count : counts ) {
+            total += count;
+        }
+        return total;
+    }
+    /** @return number of instructions of each operation, indexed by the
+     * ordinal of the operation */
+    public long[] getOperationCounts() {
+        long[] ops = new long[ Operation.values().length ];
+        for( int addr = 0; addr < counts.length; addr++ ) {
+            if( counts[addr] != 0 ) {
+                Operation op = Operation.decode( code[addr] );
+                if( op != null ) {
+                    ops[op.ordinal()] += counts[addr];
+                }
+            }
+        }
+        return ops;
+    }
+    /** @return number of instructions executed in the procedure */
+    public long getInstructions( ProcedureTable.Entry proc ) {
+        long total = 0;
+        for( int addr = Math.max( proc.getStart(), 0 );
+                addr < Math.min( proc.getFinish(), counts.length ); addr++ ) {
+            total += counts[addr];
+        }
+        return total;
+    }
+    /** @return number of calls of the procedure */
+    public long getCalls( ProcedureTable.Entry proc ) {
+        int start = proc.getStart();
+        return 0 <= start && start < calls.length ? calls[start] : 0;
+    }
+    public int getMaxStackDepth() {
+        return maxStack;
+    }
+    public int getMaxCallDepth() {
+        return maxCallDepth;
+    }
+    public int getHeapWords() {
+        return heapWords;
+    }
+    /** @return time spent running the program in seconds */
+    public double getSeconds() {
+        return nanos / 1e9;
+    }
+    /** @return instructions executed per second */
+    public double getInstructionsPerSecond() {
+        return nanos == 0 ? 0 : getInstructions() / getSeconds();
+    }
+
+    /** Print the statistics as text */
+    public void report( PrintStream out ) {
+        long total = getInstructions();
+        out.println( "Execution statistics" );
+        out.println( String.format( Locale.ROOT,
+                "  %d instructions in %.3f s (%.0f per second)",
+                total, getSeconds(), getInstructionsPerSecond() ) );
+        out.println( "  Maximum stack depth " + maxStack + " words" );
+        out.println( "  Maximum call depth " + maxCallDepth );
+        long[] ops = getOperationCounts();
+        out.println( "  Heap allocations " +
+                ops[Operation.ALLOC_HEAP.ordinal()] +
+                " using " + heapWords + " words" );
+        out.println( "  Operation           Count       %" );
+        for( Operation op : Operation.values() ) {
+            if( ops[op.ordinal()] != 0 ) {
+                out.println( String.format( Locale.ROOT,
+                        "  %-14s %10d  %6.2f", op, ops[op.ordinal()],
+                        100.0 * ops[op.ordinal()] / total ) );
+            }
+        }
+        out.println( "       Calls  Instructions  Procedure" );
+        for( ProcedureTable.Entry proc : procedures.getEntries() ) {
+            out.println( String.format( "  %10d  %12d  %s",
+                    getCalls( proc ), getInstructions( proc ), proc ) );
+        }
+    }
+    /** @return the statistics as a JSON object */
+    public String toJson() {
+        long[] ops = getOperationCounts();
+        StringBuilder json = new StringBuilder();
+        json.append( "{\n" );
+        json.append( "  \"instructions\": " ).append( getInstructions() )
+            .append( ",\n" );
+        json.append( "  \"seconds\": " ).append(
+                String.format( Locale.ROOT, "%.6f", getSeconds() ) )
+            .append( ",\n" );
+        json.append( "  \"instructionsPerSecond\": " ).append(
+                String.format( Locale.ROOT, "%.0f", getInstructionsPerSecond() ) )
+            .append( ",\n" );
+        json.append( "  \"maxStackDepth\": " ).append( maxStack )
+            .append( ",\n" );
+        json.append( "  \"maxCallDepth\": " ).append( maxCallDepth )
+            .append( ",\n" );
+        json.append( "  \"heapAllocations\": " )
+            .append( ops[Operation.ALLOC_HEAP.ordinal()] ).append( ",\n" );
+        json.append( "  \"heapWords\": " ).append( heapWords )
+            .append( ",\n" );
+        json.append( "  \"operations\": {" );
+        String sep = "\n";
+        for( Operation op : Operation.values() ) {
+            if( ops[op.ordinal()] != 0 ) {
+                json.append( sep ).append( "    \"" ).append( op )
+                    .append( "\": " ).append( ops[op.ordinal()] );
+                sep = ",\n";
+            }
+        }
+        json.append( "\n  },\n" );
+        json.append( "  \"procedures\": [" );
+        sep = "\n";
+        for( ProcedureTable.Entry proc : procedures.getEntries() ) {
+            json.append( sep ).append( "    {\"name\": " )
+                .append( quote( proc.getName() ) )
+                .append( ", \"start\": " ).append( proc.getStart() )
+                .append( ", \"finish\": " ).append( proc.getFinish() )
+                .append( ", \"calls\": " ).append( getCalls( proc ) )
+                .append( ", \"instructions\": " )
+                .append( getInstructions( proc ) ).append( "}" );
+            sep = ",\n";
+        }
+        json.append( "\n  ]\n}\n" );
+        return json.toString();
+    }
+    /** @return s as a JSON string literal */
+    private static String quote( String s ) {
+        StringBuilder buf = new StringBuilder( "\"" );
+        for( char c : s.toCharArray() ) {
+            if( c == '"' || c == '\\' ) {
+                buf.append( '\\' ).append( c );
+            } else if( c < ' ' ) {
+                buf.append( String.format( "\\u%04x", (int)c ) );
+            } else {
+                buf.append( c );
+            }
+        }
+        return buf.append( '"' ).toString();
+    }
+}
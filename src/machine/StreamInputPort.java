@@ -0,0 +1,67 @@
+package machine;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * class StreamInputPort - input port reading integers from a stream,
+ * such as the standard input.
+ * A stream that may block, such as the standard input, has nothing
+ * available both while waiting for more input and at its end, so its
+ * end is only detected by a read that waits. A stream that never blocks,
+ * such as a byte array or a regular file, is at its end when nothing is
+ * available, which is checked by a single byte read that cannot wait.
+ * @version $Revision: 22 $  $Date: 2014-05-20 15:14:36 +1000 (Tue, 20 May 2014) $
+ */
+public class StreamInputPort extends TokenInputPort {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final InputStream in;
+    private final byte[] bytes = new byte[ BUFFER_SIZE ];
+    /** True if reading the stream never blocks */
+    private final boolean neverBlocks;
+
+    /** A byte array stream never blocks; any other stream may */
+    public StreamInputPort( InputStream in ) {
+        this( in, in instanceof ByteArrayInputStream );
+    }
+    /** @param in stream to read
+     * @param neverBlocks true if reading in never blocks, as for a byte
+     *  array or a regular file */
+    public StreamInputPort( InputStream in, boolean neverBlocks ) {
+        this.in = in;
+        this.neverBlocks = neverBlocks;
+        buf = ByteBuffer.wrap( bytes );
+        buf.limit( 0 );
+    }
+    @Override
+    protected boolean fill( boolean wait ) throws IOException {
+        int n = wait ? bytes.length : Math.min( in.available(), bytes.length );
+        if( n <= 0 ) {
+            return !wait && neverBlocks && fillOne();
+        }
+        n = in.read( bytes, 0, n );
+        if( n < 0 ) {
+            ended = true;
+            return false;
+        }
+        buf.clear();
+        buf.limit( n );
+        return true;
+    }
+    /** Read a single byte, which cannot block, to tell whether the stream
+     * has ended or available was just conservative */
+    private boolean fillOne() throws IOException {
+        int c = in.read();
+        if( c < 0 ) {
+            ended = true;
+            return false;
+        }
+        bytes[0] = (byte)c;
+        buf.clear();
+        buf.limit( 1 );
+        return true;
+    }
+}
@@ -0,0 +1,93 @@
+package machine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * class TokenInputPort - input port reading integers separated by white
+ * space, any number of them to a line.
+ * @version $Revision: 22 $  $Date: 2014-05-20 15:14:36 +1000 (Tue, 20 May 2014) $
+ * The integers are parsed straight from the bytes in a buffer, without
+ * creating strings. Subclasses supply the buffer and refill it.
+ */
+public abstract class TokenInputPort implements InputPort {
+    /** Input bytes from its position up to its limit */
+    protected ByteBuffer buf;
+    /** Set by fill once it has reached the end of the input */
+    protected boolean ended = false;
+
+    /** Refill buf, which has no bytes remaining.
+     * @param wait whether to wait for input if none is available yet
+     * @return false at the end of the input, or if wait is false and no
+     *  input is available */
+    protected abstract boolean fill( boolean wait ) throws IOException;
+
+    public int readInt() throws IOException {
+        int c = skipSpace( true );
+        boolean negative = false;
+        if( c == '-' || c == '+' ) {
+            negative = c == '-';
+            buf.get();
+            c = peek( true );
+        }
+        if( c < '0' || '9' < c ) {
+            throw new NumberFormatException( c < 0 ? "end of input" :
+                "invalid character '" + (char)c + "'" );
+        }
+        /* Accumulate negatively so that MIN_VALUE can be read */
+        int result = 0;
+        do {
+            buf.get();
+            int digit = c - '0';
+            if( result < Integer.MIN_VALUE / 10 ) {
+                throw new NumberFormatException( "integer too large" );
+            }
+            result *= 10;
+            if( result < Integer.MIN_VALUE + digit ) {
+                throw new NumberFormatException( "integer too large" );
+            }
+            result -= digit;
+            c = peek( true );
+        } while( '0' <= c && c <= '9' );
+        if( c >= 0 && !isSpace( c ) ) {
+            throw new NumberFormatException( 
+                    "invalid character '" + (char)c + "'" );
+        }
+        if( negative ) {
+            return result;
+        } else if( result == Integer.MIN_VALUE ) {
+            throw new NumberFormatException( "integer too large" );
+        }
+        return -result;
+    }
+    public boolean ready() throws IOException {
+        return skipSpace( false ) >= 0;
+    }
+    /** Only true once fill has reached the end, which for a stream may
+     * need a read that waits for it */
+    public boolean atEnd() throws IOException {
+        return skipSpace( false ) < 0 && ended;
+    }
+    /** Skip white space.
+     * @return the next byte (which is not consumed), or -1 if there is
+     *  none (available) */
+    private int skipSpace( boolean wait ) throws IOException {
+        int c = peek( wait );
+        while( c >= 0 && isSpace( c ) ) {
+            buf.get();
+            c = peek( wait );
+        }
+        return c;
+    }
+    /** @return the next byte (which is not consumed), or -1 if there is
+     *  none (available) */
+    private int peek( boolean wait ) throws IOException {
+        if( !buf.hasRemaining() && !fill( wait ) ) {
+            return -1;
+        }
+        return buf.get( buf.position() ) & 0xff;
+    }
+    private static boolean isSpace( int c ) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t' || c == '\f';
+    }
+}
@@ -0,0 +1,243 @@
+package machine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * class TraceBuffer - binary execution trace of the stack machine,
+ * written to a file by a background thread.
+ * @version $Revision: 22 $  $Date: 2014-05-20 15:14:36 +1000 (Tue, 20 May 2014) $
+ * Each traced event is a fixed size record of RECORD_SIZE words: its kind
+ * and up to six operands, e.g. the pc, instruction word, frame pointer,
+ * stack pointer and heap limit of a STATE record, or the address and
+ * value of a LOAD or STORE.
+ * The records are stored into blocks that circulate in a ring between the
+ * machine and the writer thread, so tracing costs a few array stores per
+ * event. If the writer falls behind, the machine waits for it to free a
+ * block rather than losing records.
+ * The file is a header (MAGIC, VERSION and RECORD_SIZE) followed by the
+ * records, as big-endian words. TraceDecoder prints it in the same
+ * format as the text trace; format gives the text of a record.
+ */
+public class TraceBuffer {
+    /** First word of a trace file: "PL0T" */
+    public static final int MAGIC = 0x504c3054;
+    public static final int VERSION = 1;
+    /** Words in each record: its kind and six operands */
+    public static final int RECORD_SIZE = 7;
+
+    /* Kinds of record, with their operands */
+    /** Instruction about to be executed: pc, instruction word, fp, sp,
+     * limit, and the following word for LOAD_WIDE */
+    public static final int STATE = 0;
+    /** Value pushed */
+    public static final int PUSH = 1;
+    /** Value popped */
+    public static final int POP = 2;
+    /** Address and value loaded */
+    public static final int LOAD = 3;
+    /** Address and value stored */
+    public static final int STORE = 4;
+    /** Program counter after a branch */
+    public static final int BRANCH = 5;
+    /** Address of the procedure called */
+    public static final int CALL = 6;
+    /** Address returned to */
+    public static final int RETURN = 7;
+    /** Value written by the program */
+    public static final int WRITE = 8;
+
+    /** Records in a block */
+    private static final int BLOCK_RECORDS = 8 * 1024;
+    /** Blocks in the ring */
+    private static final int BLOCKS = 8;
+
+    /** Blocks ready to be filled by the machine */
+    private final BlockingQueue<int[]> free =
+        new ArrayBlockingQueue<int[]>( BLOCKS );
+    /** Blocks ready to be written, ending with an empty block when the
+     * trace is closed. The final block may be shorter. */
+    private final BlockingQueue<int[]> full =
+        new ArrayBlockingQueue<int[]>( BLOCKS + 1 );
+    /** Block being filled */
+    private int[] block;
+    /** Number of words in block */
+    private int count = 0;
+    /** Trace file */
+    private final FileChannel channel;
+    /** Thread writing the full blocks to the file */
+    private final Thread writer;
+    /** Error writing the file, reported when the trace is closed */
+    private volatile IOException failure = null;
+
+    /** Create the trace file and start the thread writing it */
+    public TraceBuffer( String fileName ) throws IOException {
+        channel = FileChannel.open( Paths.get( fileName ),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING );
+        ByteBuffer header = ByteBuffer.allocate( 3 * 4 );
+        header.putInt( MAGIC ).putInt( VERSION ).putInt( RECORD_SIZE );
+        header.flip();
+        while( header.hasRemaining() ) {
+            channel.write( header );
+        }
+        for( int i = 0; i < BLOCKS; i++ ) {
+            free.add( new int[ BLOCK_RECORDS * RECORD_SIZE ] );
+        }
+        block = free.remove();
+        writer = new Thread( new Runnable() {
+            public void run() {
+                drain();
+            }
+        }, "trace writer" );
+        writer.setDaemon( true );
+        writer.start();
+    }
+    /** Add a record to the trace */
+    void record( int kind, int a, int b, int c, int d, int e, int f ) {
+        int[] words = block;
+        int i = count;
+        words[i] = kind;
+        words[i + 1] = a;
+        words[i + 2] = b;
+        words[i + 3] = c;
+        words[i + 4] = d;
+        words[i + 5] = e;
+        words[i + 6] = f;
+        count = i + RECORD_SIZE;
+        if( count == words.length ) {
+            put( full, words );
+            block = take( free );
+            count = 0;
+        }
+    }
+    void record( int kind, int a ) {
+        record( kind, a, 0, 0, 0, 0, 0 );
+    }
+    void record( int kind, int a, int b ) {
+        record( kind, a, b, 0, 0, 0, 0 );
+    }
+    /** Write the remaining records and close the file, once the writer
+     * thread has finished.
+     * @throws IOException if the file could not be written */
+    public void close() throws IOException {
+        put( full, Arrays.copyOf( block, count ) );
+        put( full, new int[ 0 ] );
+        boolean interrupted = false;
+        while( writer.isAlive() ) {
+            try {
+                writer.join();
+            } catch( InterruptedException e ) {
+                interrupted = true;
+            }
+        }
+        if( interrupted ) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        if( failure != null ) {
+            throw failure;
+        }
+    }
+    /** Write the full blocks to the file, and return them to the ring,
+     * until the empty block is reached */
+    private void drain() {
+        ByteBuffer bytes = ByteBuffer.allocateDirect(
+                BLOCK_RECORDS * RECORD_SIZE * 4 );
+        IntBuffer ints = bytes.asIntBuffer();
+        for( int[] words = take( full ); words.length != 0;
+                words = take( full ) ) {
+            if( failure == null ) {
+                try {
+                    ints.clear();
+                    ints.put( words );
+                    bytes.clear();
+                    bytes.limit( words.length * 4 );
+                    while( bytes.hasRemaining() ) {
+                        channel.write( bytes );
+                    }
+                } catch( IOException e ) {
+                    /* Keep taking the blocks, so the machine can finish */
+                    failure = e;
+                }
+            }
+            if( words.length == BLOCK_RECORDS * RECORD_SIZE ) {
+                put( free, words );
+            }
+        }
+    }
+    /** Put a block onto the queue, waiting for space if need be */
+    private static void put( BlockingQueue<int[]> queue, int[] words ) {
+        boolean interrupted = false;
+        while( true ) {
+            try {
+                queue.put( words );
+                break;
+            } catch( InterruptedException e ) {
+                interrupted = true;
+            }
+        }
+        if( interrupted ) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    /** Take a block from the queue, waiting for one if need be */
+    private static int[] take( BlockingQueue<int[]> queue ) {
+        boolean interrupted = false;
+        int[] words;
+        while( true ) {
+            try {
+                words = queue.take();
+                break;
+            } catch( InterruptedException e ) {
+                interrupted = true;
+            }
+        }
+        if( interrupted ) {
+            Thread.currentThread().interrupt();
+        }
+        return words;
+    }
+
+    /** @return the text of a record, as it appears in the text trace */
+    public static String format( int kind, int a, int b, int c, int d,
+            int e, int f ) {
+        switch( kind ) {
+        case STATE:
+            Operation inst = Operation.decode( b );
+            String text = "\n" + "PC: " + a + ": FP: " + c + "  SP: " + d +
+                "  Limit: " + e + "  Opcode: " + inst + " ";
+            if( inst != null && inst.hasOperand() ) {
+                text += Operation.operand( b ) + " ";
+            } else if( inst == Operation.LOAD_WIDE ) {
+                text += f + " ";
+            }
+            return text;
+        case PUSH:
+            return " Push(" + a + ") ";
+        case POP:
+            return " Pop() = " + a + " ";
+        case LOAD:
+            return "\n    Load [" + a + "] => " + b;
+        case STORE:
+            return "\n    Store [" + a + "] <= " + b;
+        case BRANCH:
+            return "\n      Branch => " + a;
+        case CALL:
+            return "\n      Call => " + a;
+        case RETURN:
+            return "\n      Returning => " + a;
+        case WRITE:
+            return a + System.lineSeparator();
+        default:
+            return "\n    Unknown record " + kind;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package machine;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+
+/**
+ * class TraceDecoder - prints a binary trace file written by TraceBuffer
+ * in the format of the text trace of the stack machine.
+ * @version $Revision: 22 $  $Date: 2014-05-20 15:14:36 +1000 (Tue, 20 May 2014) $
+ * Usage: java machine.TraceDecoder tracefile
+ */
+public class TraceDecoder {
+    /** Print the records of the trace file to out.
+     * @return the number of records */
+    public static long decode( String fileName, PrintStream out )
+            throws IOException {
+        DataInputStream in = new DataInputStream( new BufferedInputStream(
+                new FileInputStream( fileName ), 64 * 1024 ) );
+        try {
+            if( in.readInt() != TraceBuffer.MAGIC ) {
+                throw new IOException( fileName + " is not a trace file" );
+            }
+            int version = in.readInt();
+            if( version != TraceBuffer.VERSION ) {
+                throw new IOException( fileName + " is trace version " +
+                        version + ", not " + TraceBuffer.VERSION );
+            }
+            int size = in.readInt();
+            if( size < TraceBuffer.RECORD_SIZE ) {
+                throw new IOException( fileName + " has records of " +
+                        size + " words" );
+            }
+            int[] words = new int[ size ];
+            long records = 0;
+            while( true ) {
+                try {
+                    words[0] = in.readInt();
+                } catch( EOFException e ) {
+                    break;
+                }
+                for( int i = 1; i < size; i++ ) {
+                    words[i] = in.readInt();
+                }
+                out.print( TraceBuffer.format( words[0], words[1], words[2],
+                        words[3], words[4], words[5], words[6] ) );
+                records++;
+            }
+            out.println();
+            return records;
+        } finally {
+            in.close();
+        }
+    }
+    public static void main( String[] args ) {
+        if( args.length != 1 ) {
+            System.out.println( "Usage: java machine.TraceDecoder tracefile" );
+            System.exit( 1 );
+        }
+        PrintStream out = new PrintStream( new BufferedOutputStream(
+                new FileOutputStream( FileDescriptor.out ), 64 * 1024 ) );
+        try {
+            decode( args[0], out );
+        } catch( IOException e ) {
+            out.flush();
+            System.out.println( "Got IOException: " + e + "... Aborting" );
+            System.exit( 1 );
+        }
+        out.flush();
+    }
+}
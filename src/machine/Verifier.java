@@ -0,0 +1,332 @@
+package machine;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * class Verifier - checks the use of the stack by the loaded procedures.
+ * @version $Revision: 22 $  $Date: 2014-05-20 15:14:36 +1000 (Tue, 20 May 2014) $
+ * Each procedure is checked by abstract interpretation of its code,
+ * following every path from its start and tracking the depth of the
+ * stack above the frame pointer, and whether the word on top of the
+ * stack has just been loaded as a constant (the address of a CALL, or
+ * the offset of a BR or BR_FALSE).
+ * A procedure is verified if every instruction it reaches has the same
+ * depth on every path, it never pops below its frame pointer, it only
+ * branches to the start of one of its own instructions, it only calls
+ * the start of a procedure, and it cannot run off the end of its code.
+ * The largest depth it can reach, its frame size, is then known before
+ * it is called, so the stack need only be checked once for each call.
+ */
+class Verifier {
+    /** Depth of the instructions that are not reached */
+    static final int UNREACHED = -1;
+    /** Largest frame size accepted, so frame addresses cannot overflow */
+    private static final int MAX_FRAME = Operation.MAX_OPERAND;
+
+    /** Code memory, indexed by address */
+    private final int[] code;
+    /** Procedures starting at each address */
+    private final boolean[] procStarts;
+    /** Frame sizes of the verified procedures indexed by their start
+     * address, and 0 for all other addresses */
+    private final int[] frameSizes;
+    /** Depth of the stack above the frame pointer at each instruction
+     * reached in the verified procedures, otherwise UNREACHED */
+    private final int[] depths;
+    /** Whether the top of stack at each instruction is a constant */
+    private final boolean[] known;
+    /** Value of the constant on top of the stack at each instruction */
+    private final int[] constants;
+    /** Procedures that could not be verified, with the reason */
+    private final List<String> failures = new ArrayList<String>();
+
+    /** Verify each procedure of the code.
+     * @param code code memory, indexed by address
+     * @param codeEnd address just past the last instruction
+     * @param procedures table of the procedures in the code
+     * @param mainStart address of the main program, which starts with an
+     *  empty stack rather than a stack frame set up by a CALL */
+    Verifier( int[] code, int codeEnd, ProcedureTable procedures,
+            int mainStart ) {
+        this.code = code;
+        this.procStarts = new boolean[ codeEnd ];
+        this.frameSizes = new int[ codeEnd ];
+        this.depths = new int[ codeEnd ];
+        this.known = new boolean[ codeEnd ];
+        this.constants = new int[ codeEnd ];
+        Arrays.fill( depths, UNREACHED );
+        for( ProcedureTable.Entry entry : procedures.getEntries() ) {
+            if( StackMachine.CODE_START <= entry.getStart() &&
+                    entry.getStart() < entry.getFinish() &&
+                    entry.getFinish() <= codeEnd ) {
+                procStarts[ entry.getStart() ] = true;
+            }
+        }
+        for( ProcedureTable.Entry entry : procedures.getEntries() ) {
+            int start = entry.getStart();
+            String failure;
+            if( start < 0 || codeEnd <= start || !procStarts[start] ) {
+                failure = "code outside memory";
+            } else {
+                failure = verify( start, entry.getFinish(), start == mainStart
+                        ? 0 : StackMachine.LOCALS_BASE );
+            }
+            if( failure != null ) {
+                failures.add( entry + ": " + failure );
+                if( 0 <= start && start < codeEnd ) {
+                    frameSizes[start] = 0;
+                    Arrays.fill( depths, start,
+                            Math.min( entry.getFinish(), codeEnd ), UNREACHED );
+                }
+            }
+        }
+    }
+    /** @return the frame sizes of the verified procedures indexed by
+     * their start address, 0 for all other addresses */
+    int[] getFrameSizes() {
+        return frameSizes;
+    }
+    /** @return the depth of the stack above the frame pointer at each
+     * instruction of the verified procedures, otherwise UNREACHED */
+    int[] getDepths() {
+        return depths;
+    }
+    /** @return descriptions of the procedures that were not verified */
+    List<String> getFailures() {
+        return failures;
+    }
+
+    /** Verify the procedure with code from start up to finish, entered
+     * with the given depth of stack.
+     * @return null if it is verified, otherwise the reason it is not */
+    private String verify( int start, int finish, int entryDepth ) {
+        /* The instructions of the procedure are those found by decoding
+         * it in sequence from its start */
+        boolean[] starts = new boolean[ finish - start ];
+        for( int locn = start; locn < finish; ) {
+            starts[locn - start] = true;
+            Operation op = Operation.decode( code[locn] );
+            locn += op == null ? 1 : op.getSize();
+        }
+        Deque<Integer> work = new ArrayDeque<Integer>();
+        int maxDepth = StackMachine.LOCALS_BASE;
+        depths[start] = entryDepth;
+        work.push( start );
+        while( !work.isEmpty() ) {
+            int locn = work.pop();
+            int depth = depths[locn];
+            Operation op = Operation.decode( code[locn] );
+            if( op == null ) {
+                return "invalid opcode at " + locn;
+            }
+            int operand = Operation.operand( code[locn] );
+            int next = locn + op.getSize();
+            if( next > finish ) {
+                return "instruction at " + locn + " runs past the end";
+            }
+            int pops = 0;
+            int pushes = 0;
+            /* Constant loaded onto the top of stack by the instruction */
+            boolean constant = false;
+            int value = 0;
+            /* Address branched to, if any */
+            int target = UNREACHED;
+            boolean fallsThrough = true;
+            switch( op ) {
+            case NO_OP:
+                constant = known[locn];
+                value = constants[locn];
+                break;
+            case BR:
+            case BR_FALSE:
+                if( !known[locn] ) {
+                    return "branch to unknown address at " + locn;
+                }
+                target = next + constants[locn];
+                if( op == Operation.BR ) {
+                    pops = 1;
+                    fallsThrough = false;
+                } else {
+                    pops = 2;
+                }
+                break;
+            case COPY:
+                pops = 3;
+                break;
+            case CALL:
+                int addr = constants[locn];
+                if( !known[locn] || addr < 0 || procStarts.length <= addr ||
+                        !procStarts[addr] ) {
+                    return "call of unknown procedure at " + locn;
+                }
+                /* The static link and address are replaced by the new
+                 * stack frame, which is gone once the procedure returns */
+                pops = 2;
+                break;
+            case RETURN:
+                fallsThrough = false;
+                break;
+            case ALLOC_STACK:
+                if( operand < 0 ) {
+                    return "negative allocation at " + locn;
+                }
+                pushes = operand;
+                break;
+            case DEALLOC_STACK:
+                if( depth - operand < StackMachine.LOCALS_BASE ) {
+                    return "deallocating too many words at " + locn;
+                }
+                pops = Math.max( operand, 0 );
+                pushes = Math.max( -operand, 0 );
+                break;
+            case POP:
+            case WRITE:
+            case STORE_LOCAL:
+                pops = 1;
+                break;
+            case DUP:
+                pops = 1;
+                pushes = 2;
+                constant = known[locn];
+                value = constants[locn];
+                break;
+            case SWAP:
+                pops = 2;
+                pushes = 2;
+                break;
+            case ADD:
+            case MPY:
+            case DIV:
+            case OR:
+            case AND:
+            case XOR:
+            case EQUAL:
+            case LESS:
+            case LESSEQ:
+            case SUB:
+            case GREATER:
+            case GREATEREQ:
+                pops = 2;
+                pushes = 1;
+                break;
+            case NOT:
+            case NEGATE:
+            case TO_GLOBAL:
+            case TO_LOCAL:
+            case LOAD_ABS:
+            case LOAD_FRAME:
+            case ALLOC_HEAP:
+            case LOAD_CON_ADD:
+            case NOT_BOOL:
+            case INC:
+            case DEC:
+                pops = 1;
+                pushes = 1;
+                break;
+            case READ:
+            case LOAD_LOCAL:
+                pushes = 1;
+                break;
+            case LOAD_CON:
+            case LOAD_WIDE:
+            case ZERO:
+            case ONE:
+                pushes = 1;
+                constant = true;
+                value = op == Operation.LOAD_CON ? operand
+                        : op == Operation.LOAD_WIDE ? code[locn + 1]
+                        : op == Operation.ZERO ? 0 : 1;
+                break;
+            case BOUND:
+                pops = 3;
+                pushes = 1;
+                break;
+            case STORE_FRAME:
+                pops = 2;
+                break;
+            case LOAD_MULTI:
+                pops = 1;
+                pushes = Math.max( operand, 0 );
+                break;
+            case STORE_MULTI:
+                pops = 1 + Math.max( operand, 0 );
+                break;
+            case BR_REL:
+                target = next + operand;
+                fallsThrough = false;
+                break;
+            case BR_FALSE_REL:
+                pops = 1;
+                target = next + operand;
+                break;
+            case BR_EQUAL:
+            case BR_NOT_EQUAL:
+            case BR_LESS:
+            case BR_LESSEQ:
+            case BR_GREATER:
+            case BR_GREATEREQ:
+                pops = 2;
+                target = next + operand;
+                break;
+            case STOP:
+                pops = 1;
+                fallsThrough = false;
+                break;
+            default:
+                return "unknown operation " + op + " at " + locn;
+            }
+            if( depth < pops ) {
+                return "stack underflow at " + locn;
+            }
+            int after = depth - pops + pushes;
+            maxDepth = Math.max( maxDepth, after );
+            if( maxDepth > MAX_FRAME ) {
+                return "stack frame too large at " + locn;
+            }
+            String failure = null;
+            if( target != UNREACHED ) {
+                failure = merge( target, after, false, 0, start, starts, work );
+            }
+            if( failure == null && fallsThrough ) {
+                if( next >= finish ) {
+                    failure = "execution runs off the end at " + locn;
+                } else {
+                    failure = merge( next, after, constant, value, start,
+                            starts, work );
+                }
+            }
+            if( failure != null ) {
+                return failure;
+            }
+        }
+        frameSizes[start] = maxDepth;
+        return null;
+    }
+    /** Merge the state reached at locn with the state already recorded
+     * there, adding locn to the work list if the state has changed.
+     * @return null if the states agree, otherwise the reason they don't */
+    private String merge( int locn, int depth, boolean constant, int value,
+            int start, boolean[] starts, Deque<Integer> work ) {
+        if( locn < start || start + starts.length <= locn ||
+                !starts[locn - start] ) {
+            return "branch to " + locn + " outside the procedure's code";
+        }
+        if( depths[locn] == UNREACHED ) {
+            depths[locn] = depth;
+            known[locn] = constant;
+            constants[locn] = value;
+            work.push( locn );
+        } else if( depths[locn] != depth ) {
+            return "stack depth " + depth + " differs from " +
+                depths[locn] + " at " + locn;
+        } else if( known[locn] && (!constant || constants[locn] != value) ) {
+            known[locn] = false;
+            work.push( locn );
+        }
+        return null;
+    }
+}
@@ -1,7 +1,7 @@
 
 //----------------------------------------------------
 // The following code was generated by CUP v0.11a beta 20060608
-// Mon May 02 17:21:43 AEST 2016
+// Sat Oct 17 01:18:51 UTC 2026
 //----------------------------------------------------
 
 package parser;
@@ -20,7 +20,7 @@ import tree.Operator;
 import syms.*;
 
 /** CUP v0.11a beta 20060608 generated parser.
-  * @version Mon May 02 17:21:43 AEST 2016
+  * @version Sat Oct 17 01:18:51 UTC 2026
   */
 public class CUPParser extends java_cup.runtime.lr_parser {
 
@@ -36,30 +36,32 @@ public class CUPParser extends java_cup.runtime.lr_parser {
   /** Production table. */
   protected static final short _production_table[][] = 
     unpackFromStrings(new String[] {
-    "\000\113\000\002\040\002\000\002\002\004\000\002\002" +
+    "\000\123\000\002\043\002\000\002\002\004\000\002\002" +
     "\004\000\002\002\003\000\002\003\004\000\002\004\005" +
     "\000\002\004\004\000\002\004\002\000\002\005\004\000" +
     "\002\005\004\000\002\005\004\000\002\006\003\000\002" +
     "\006\004\000\002\007\006\000\002\007\003\000\002\010" +
-    "\003\000\002\010\004\000\002\010\003\000\002\010\003" +
-    "\000\002\011\003\000\002\011\004\000\002\012\006\000" +
-    "\002\012\003\000\002\013\003\000\002\013\007\000\002" +
-    "\013\006\000\002\013\003\000\002\014\003\000\002\015" +
-    "\003\000\002\015\004\000\002\016\006\000\002\016\003" +
-    "\000\002\017\005\000\002\020\007\000\002\020\005\000" +
-    "\002\021\002\000\002\025\005\000\002\023\003\000\002" +
-    "\023\005\000\002\024\006\000\002\024\010\000\002\024" +
-    "\015\000\002\024\003\000\002\024\004\000\002\024\004" +
-    "\000\002\024\005\000\002\024\007\000\002\024\003\000" +
-    "\002\022\002\000\002\037\003\000\002\037\006\000\002" +
-    "\026\003\000\002\027\003\000\002\027\005\000\002\033" +
-    "\003\000\002\033\003\000\002\033\003\000\002\033\003" +
-    "\000\002\033\003\000\002\033\003\000\002\030\003\000" +
-    "\002\030\005\000\002\034\003\000\002\034\003\000\002" +
-    "\031\003\000\002\031\005\000\002\035\003\000\002\035" +
-    "\003\000\002\032\004\000\002\032\004\000\002\032\005" +
-    "\000\002\032\003\000\002\032\003\000\002\032\003\000" +
-    "\002\036\003" });
+    "\003\000\002\010\005\000\002\011\003\000\002\011\005" +
+    "\000\002\012\003\000\002\012\005\000\002\013\003\000" +
+    "\002\013\004\000\002\013\004\000\002\013\003\000\002" +
+    "\013\005\000\002\013\003\000\002\014\003\000\002\014" +
+    "\004\000\002\015\006\000\002\015\003\000\002\016\003" +
+    "\000\002\016\007\000\002\016\006\000\002\016\003\000" +
+    "\002\017\003\000\002\020\003\000\002\020\004\000\002" +
+    "\021\006\000\002\021\003\000\002\022\005\000\002\023" +
+    "\007\000\002\023\005\000\002\024\002\000\002\030\005" +
+    "\000\002\026\003\000\002\026\005\000\002\027\006\000" +
+    "\002\027\010\000\002\027\015\000\002\027\003\000\002" +
+    "\027\004\000\002\027\004\000\002\027\005\000\002\027" +
+    "\007\000\002\027\003\000\002\025\002\000\002\042\003" +
+    "\000\002\042\006\000\002\031\003\000\002\032\003\000" +
+    "\002\032\005\000\002\036\003\000\002\036\003\000\002" +
+    "\036\003\000\002\036\003\000\002\036\003\000\002\036" +
+    "\003\000\002\033\003\000\002\033\005\000\002\037\003" +
+    "\000\002\037\003\000\002\034\003\000\002\034\005\000" +
+    "\002\040\003\000\002\040\003\000\002\035\004\000\002" +
+    "\035\004\000\002\035\005\000\002\035\003\000\002\035" +
+    "\003\000\002\035\003\000\002\041\003" });
 
   /** Access to production table. */
   public short[][] production_table() {return _production_table;}
@@ -67,166 +69,199 @@ public class CUPParser extends java_cup.runtime.lr_parser {
   /** Parse-action table. */
   protected static final short[][] _action_table = 
     unpackFromStrings(new String[] {
-    "\000\214\000\016\003\005\030\001\032\001\042\001\045" +
-    "\001\046\001\001\002\000\004\002\216\001\002\000\004" +
+    "\000\232\000\016\003\005\030\001\032\001\042\001\045" +
+    "\001\046\001\001\002\000\004\002\234\001\002\000\004" +
     "\002\ufffe\001\002\000\014\030\ufffa\032\ufffa\042\ufffa\045" +
     "\ufffa\046\ufffa\001\002\000\004\002\000\001\002\000\014" +
     "\030\020\032\021\042\011\045\017\046\013\001\002\000" +
-    "\004\052\211\001\002\000\006\002\ufffd\006\ufffd\001\002" +
-    "\000\006\003\201\052\204\001\002\000\004\006\200\001" +
+    "\004\052\227\001\002\000\006\002\ufffd\006\ufffd\001\002" +
+    "\000\006\003\217\052\222\001\002\000\004\006\216\001" +
     "\002\000\014\030\ufffb\032\ufffb\042\ufffb\045\ufffb\046\ufffb" +
-    "\001\002\000\004\015\176\001\002\000\006\003\152\052" +
-    "\153\001\002\000\024\003\046\030\020\031\040\036\050" +
-    "\037\051\043\043\047\037\050\045\052\047\001\002\000" +
+    "\001\002\000\004\015\214\001\002\000\006\003\170\052" +
+    "\171\001\002\000\024\003\076\030\020\031\071\036\100" +
+    "\037\101\043\073\047\067\050\075\052\077\001\002\000" +
     "\006\003\022\052\024\001\002\000\020\003\ufff3\030\ufff3" +
     "\032\ufff3\042\ufff3\045\ufff3\046\ufff3\052\ufff3\001\002\000" +
     "\020\003\022\030\ufff9\032\ufff9\042\ufff9\045\ufff9\046\ufff9" +
     "\052\024\001\002\000\004\015\026\001\002\000\020\003" +
     "\ufff6\030\ufff6\032\ufff6\042\ufff6\045\ufff6\046\ufff6\052\ufff6" +
-    "\001\002\000\012\003\027\012\032\052\031\053\030\001" +
-    "\002\000\010\006\uffef\023\uffef\026\uffef\001\002\000\010" +
-    "\006\ufff2\023\ufff2\026\ufff2\001\002\000\010\006\ufff0\023" +
-    "\ufff0\026\ufff0\001\002\000\012\003\027\012\032\052\031" +
-    "\053\030\001\002\000\004\006\034\001\002\000\020\003" +
-    "\ufff4\030\ufff4\032\ufff4\042\ufff4\045\ufff4\046\ufff4\052\ufff4" +
-    "\001\002\000\010\006\ufff1\023\ufff1\026\ufff1\001\002\000" +
-    "\020\003\ufff5\030\ufff5\032\ufff5\042\ufff5\045\ufff5\046\ufff5" +
-    "\052\ufff5\001\002\000\016\003\065\004\067\011\062\012" +
-    "\055\052\047\053\057\001\002\000\004\052\143\001\002" +
-    "\000\012\006\uffd7\034\uffd7\035\uffd7\040\uffd7\001\002\000" +
-    "\006\006\135\035\142\001\002\000\004\052\047\001\002" +
-    "\000\010\006\uffdc\035\uffdc\040\uffdc\001\002\000\016\003" +
-    "\065\004\067\011\062\012\055\052\047\053\057\001\002" +
-    "\000\012\006\uffd2\034\uffd2\035\uffd2\040\uffd2\001\002\000" +
-    "\054\005\uffd0\006\uffd0\010\uffd0\011\uffd0\012\uffd0\013\uffd0" +
-    "\014\uffd0\015\uffd0\016\uffd0\017\uffd0\020\uffd0\021\uffd0\022" +
-    "\uffd0\023\uffd0\025\uffd0\026\uffd0\033\uffd0\034\uffd0\035\uffd0" +
-    "\040\uffd0\044\uffd0\001\002\000\004\052\124\001\002\000" +
-    "\016\003\065\004\067\011\062\012\055\052\047\053\057" +
-    "\001\002\000\006\010\054\025\053\001\002\000\016\003" +
-    "\065\004\067\011\062\012\055\052\047\053\057\001\002" +
-    "\000\016\003\065\004\067\011\062\012\055\052\047\053" +
-    "\057\001\002\000\016\003\uffb7\004\uffb7\011\uffb7\012\uffb7" +
-    "\052\uffb7\053\uffb7\001\002\000\024\005\uffce\006\uffce\023" +
-    "\uffce\026\uffce\033\uffce\034\uffce\035\uffce\040\uffce\044\uffce" +
-    "\001\002\000\050\005\uffba\006\uffba\011\uffba\012\uffba\013" +
-    "\uffba\014\uffba\015\uffba\016\uffba\017\uffba\020\uffba\021\uffba" +
-    "\022\uffba\023\uffba\026\uffba\033\uffba\034\uffba\035\uffba\040" +
-    "\uffba\044\uffba\001\002\000\044\005\uffcd\006\uffcd\011\105" +
-    "\012\101\015\112\016\103\017\102\020\106\021\110\022" +
-    "\104\023\uffcd\026\uffcd\033\uffcd\034\uffcd\035\uffcd\040\uffcd" +
-    "\044\uffcd\001\002\000\012\006\uffd4\034\uffd4\035\uffd4\040" +
-    "\uffd4\001\002\000\016\003\065\004\067\011\062\012\055" +
-    "\052\047\053\057\001\002\000\050\005\uffc5\006\uffc5\011" +
-    "\uffc5\012\uffc5\013\075\014\074\015\uffc5\016\uffc5\017\uffc5" +
-    "\020\uffc5\021\uffc5\022\uffc5\023\uffc5\026\uffc5\033\uffc5\034" +
-    "\uffc5\035\uffc5\040\uffc5\044\uffc5\001\002\000\050\005\uffc1" +
-    "\006\uffc1\011\uffc1\012\uffc1\013\uffc1\014\uffc1\015\uffc1\016" +
-    "\uffc1\017\uffc1\020\uffc1\021\uffc1\022\uffc1\023\uffc1\026\uffc1" +
-    "\033\uffc1\034\uffc1\035\uffc1\040\uffc1\044\uffc1\001\002\000" +
-    "\050\005\uffb8\006\uffb8\011\uffb8\012\uffb8\013\uffb8\014\uffb8" +
-    "\015\uffb8\016\uffb8\017\uffb8\020\uffb8\021\uffb8\022\uffb8\023" +
-    "\uffb8\026\uffb8\033\uffb8\034\uffb8\035\uffb8\040\uffb8\044\uffb8" +
-    "\001\002\000\016\003\065\004\067\011\062\012\055\052" +
-    "\047\053\057\001\002\000\016\003\065\004\067\011\062" +
-    "\012\055\052\047\053\057\001\002\000\052\005\uffb9\006" +
-    "\uffb9\011\uffb9\012\uffb9\013\uffb9\014\uffb9\015\uffb9\016\uffb9" +
-    "\017\uffb9\020\uffb9\021\uffb9\022\uffb9\023\uffb9\025\053\026" +
-    "\uffb9\033\uffb9\034\uffb9\035\uffb9\040\uffb9\044\uffb9\001\002" +
-    "\000\004\005\072\001\002\000\050\005\uffbb\006\uffbb\011" +
-    "\uffbb\012\uffbb\013\uffbb\014\uffbb\015\uffbb\016\uffbb\017\uffbb" +
-    "\020\uffbb\021\uffbb\022\uffbb\023\uffbb\026\uffbb\033\uffbb\034" +
-    "\uffbb\035\uffbb\040\uffbb\044\uffbb\001\002\000\050\005\uffbc" +
-    "\006\uffbc\011\uffbc\012\uffbc\013\uffbc\014\uffbc\015\uffbc\016" +
-    "\uffbc\017\uffbc\020\uffbc\021\uffbc\022\uffbc\023\uffbc\026\uffbc" +
-    "\033\uffbc\034\uffbc\035\uffbc\040\uffbc\044\uffbc\001\002\000" +
-    "\016\003\uffbe\004\uffbe\011\uffbe\012\uffbe\052\uffbe\053\uffbe" +
-    "\001\002\000\016\003\uffbf\004\uffbf\011\uffbf\012\uffbf\052" +
-    "\uffbf\053\uffbf\001\002\000\016\003\065\004\067\011\062" +
-    "\012\055\052\047\053\057\001\002\000\050\005\uffc0\006" +
-    "\uffc0\011\uffc0\012\uffc0\013\uffc0\014\uffc0\015\uffc0\016\uffc0" +
-    "\017\uffc0\020\uffc0\021\uffc0\022\uffc0\023\uffc0\026\uffc0\033" +
-    "\uffc0\034\uffc0\035\uffc0\040\uffc0\044\uffc0\001\002\000\050" +
-    "\005\uffbd\006\uffbd\011\uffbd\012\uffbd\013\uffbd\014\uffbd\015" +
-    "\uffbd\016\uffbd\017\uffbd\020\uffbd\021\uffbd\022\uffbd\023\uffbd" +
-    "\026\uffbd\033\uffbd\034\uffbd\035\uffbd\040\uffbd\044\uffbd\001" +
-    "\002\000\016\003\uffc2\004\uffc2\011\uffc2\012\uffc2\052\uffc2" +
-    "\053\uffc2\001\002\000\016\003\uffc9\004\uffc9\011\uffc9\012" +
-    "\uffc9\052\uffc9\053\uffc9\001\002\000\016\003\uffca\004\uffca" +
-    "\011\uffca\012\uffca\052\uffca\053\uffca\001\002\000\016\003" +
-    "\uffc7\004\uffc7\011\uffc7\012\uffc7\052\uffc7\053\uffc7\001\002" +
+    "\001\002\000\016\003\035\004\040\011\033\012\027\052" +
+    "\037\053\031\001\002\000\016\003\035\004\040\011\033" +
+    "\012\027\052\037\053\031\001\002\000\032\005\ufff2\006" +
+    "\ufff2\011\055\012\051\015\062\016\053\017\052\020\056" +
+    "\021\060\022\054\023\ufff2\026\ufff2\001\002\000\036\005" +
+    "\uffec\006\uffec\011\uffec\012\uffec\013\uffec\014\uffec\015\uffec" +
+    "\016\uffec\017\uffec\020\uffec\021\uffec\022\uffec\023\uffec\026" +
+    "\uffec\001\002\000\004\006\050\001\002\000\016\003\035" +
+    "\004\040\011\033\012\027\052\037\053\031\001\002\000" +
+    "\036\005\ufff0\006\ufff0\011\ufff0\012\ufff0\013\044\014\043" +
+    "\015\ufff0\016\ufff0\017\ufff0\020\ufff0\021\ufff0\022\ufff0\023" +
+    "\ufff0\026\ufff0\001\002\000\036\005\uffe7\006\uffe7\011\uffe7" +
+    "\012\uffe7\013\uffe7\014\uffe7\015\uffe7\016\uffe7\017\uffe7\020" +
+    "\uffe7\021\uffe7\022\uffe7\023\uffe7\026\uffe7\001\002\000\036" +
+    "\005\uffee\006\uffee\011\uffee\012\uffee\013\uffee\014\uffee\015" +
+    "\uffee\016\uffee\017\uffee\020\uffee\021\uffee\022\uffee\023\uffee" +
+    "\026\uffee\001\002\000\036\005\uffe9\006\uffe9\011\uffe9\012" +
+    "\uffe9\013\uffe9\014\uffe9\015\uffe9\016\uffe9\017\uffe9\020\uffe9" +
+    "\021\uffe9\022\uffe9\023\uffe9\026\uffe9\001\002\000\016\003" +
+    "\035\004\040\011\033\012\027\052\037\053\031\001\002" +
+    "\000\004\005\042\001\002\000\036\005\uffe8\006\uffe8\011" +
+    "\uffe8\012\uffe8\013\uffe8\014\uffe8\015\uffe8\016\uffe8\017\uffe8" +
+    "\020\uffe8\021\uffe8\022\uffe8\023\uffe8\026\uffe8\001\002\000" +
+    "\016\003\uffb6\004\uffb6\011\uffb6\012\uffb6\052\uffb6\053\uffb6" +
+    "\001\002\000\016\003\uffb7\004\uffb7\011\uffb7\012\uffb7\052" +
+    "\uffb7\053\uffb7\001\002\000\016\003\035\004\040\011\033" +
+    "\012\027\052\037\053\031\001\002\000\036\005\uffed\006" +
+    "\uffed\011\uffed\012\uffed\013\uffed\014\uffed\015\uffed\016\uffed" +
+    "\017\uffed\020\uffed\021\uffed\022\uffed\023\uffed\026\uffed\001" +
+    "\002\000\036\005\uffea\006\uffea\011\uffea\012\uffea\013\uffea" +
+    "\014\uffea\015\uffea\016\uffea\017\uffea\020\uffea\021\uffea\022" +
+    "\uffea\023\uffea\026\uffea\001\002\000\020\003\ufff4\030\ufff4" +
+    "\032\ufff4\042\ufff4\045\ufff4\046\ufff4\052\ufff4\001\002\000" +
+    "\016\003\uffba\004\uffba\011\uffba\012\uffba\052\uffba\053\uffba" +
+    "\001\002\000\016\003\uffc1\004\uffc1\011\uffc1\012\uffc1\052" +
+    "\uffc1\053\uffc1\001\002\000\016\003\uffc2\004\uffc2\011\uffc2" +
+    "\012\uffc2\052\uffc2\053\uffc2\001\002\000\016\003\uffbf\004" +
+    "\uffbf\011\uffbf\012\uffbf\052\uffbf\053\uffbf\001\002\000\016" +
+    "\003\uffbb\004\uffbb\011\uffbb\012\uffbb\052\uffbb\053\uffbb\001" +
+    "\002\000\016\003\uffbe\004\uffbe\011\uffbe\012\uffbe\052\uffbe" +
+    "\053\uffbe\001\002\000\016\003\035\004\040\011\033\012" +
+    "\027\052\037\053\031\001\002\000\016\003\uffc0\004\uffc0" +
+    "\011\uffc0\012\uffc0\052\uffc0\053\uffc0\001\002\000\016\003" +
+    "\035\004\040\011\033\012\027\052\037\053\031\001\002" +
     "\000\016\003\uffc3\004\uffc3\011\uffc3\012\uffc3\052\uffc3\053" +
-    "\uffc3\001\002\000\016\003\uffc6\004\uffc6\011\uffc6\012\uffc6" +
-    "\052\uffc6\053\uffc6\001\002\000\016\003\065\004\067\011" +
-    "\062\012\055\052\047\053\057\001\002\000\016\003\uffc8" +
-    "\004\uffc8\011\uffc8\012\uffc8\052\uffc8\053\uffc8\001\002\000" +
-    "\016\003\065\004\067\011\062\012\055\052\047\053\057" +
-    "\001\002\000\016\003\uffcb\004\uffcb\011\uffcb\012\uffcb\052" +
-    "\uffcb\053\uffcb\001\002\000\030\005\uffcc\006\uffcc\011\105" +
-    "\012\101\023\uffcc\026\uffcc\033\uffcc\034\uffcc\035\uffcc\040" +
-    "\uffcc\044\uffcc\001\002\000\050\005\uffc4\006\uffc4\011\uffc4" +
-    "\012\uffc4\013\075\014\074\015\uffc4\016\uffc4\017\uffc4\020" +
-    "\uffc4\021\uffc4\022\uffc4\023\uffc4\026\uffc4\033\uffc4\034\uffc4" +
-    "\035\uffc4\040\uffc4\044\uffc4\001\002\000\004\026\116\001" +
-    "\002\000\054\005\uffcf\006\uffcf\010\uffcf\011\uffcf\012\uffcf" +
-    "\013\uffcf\014\uffcf\015\uffcf\016\uffcf\017\uffcf\020\uffcf\021" +
-    "\uffcf\022\uffcf\023\uffcf\025\uffcf\026\uffcf\033\uffcf\034\uffcf" +
-    "\035\uffcf\040\uffcf\044\uffcf\001\002\000\004\044\120\001" +
-    "\002\000\024\003\046\030\020\031\040\036\050\037\051" +
-    "\043\043\047\037\050\045\052\047\001\002\000\004\034" +
-    "\122\001\002\000\024\003\046\030\020\031\040\036\050" +
-    "\037\051\043\043\047\037\050\045\052\047\001\002\000" +
-    "\012\006\uffd9\034\uffd9\035\uffd9\040\uffd9\001\002\000\004" +
-    "\007\125\001\002\000\004\025\126\001\002\000\016\003" +
-    "\065\004\067\011\062\012\055\052\047\053\057\001\002" +
-    "\000\004\023\130\001\002\000\016\003\065\004\067\011" +
-    "\062\012\055\052\047\053\057\001\002\000\004\026\132" +
-    "\001\002\000\004\033\133\001\002\000\024\003\046\030" +
-    "\020\031\040\036\050\037\051\043\043\047\037\050\045" +
-    "\052\047\001\002\000\006\006\135\040\136\001\002\000" +
-    "\024\003\046\030\020\031\040\036\050\037\051\043\043" +
-    "\047\037\050\045\052\047\001\002\000\012\006\uffd8\034" +
-    "\uffd8\035\uffd8\040\uffd8\001\002\000\010\006\uffdb\035\uffdb" +
-    "\040\uffdb\001\002\000\016\006\uffd5\011\105\012\101\034" +
-    "\uffd5\035\uffd5\040\uffd5\001\002\000\014\006\uffd6\025\053" +
-    "\034\uffd6\035\uffd6\040\uffd6\001\002\000\014\002\uffdd\006" +
-    "\uffdd\034\uffdd\035\uffdd\040\uffdd\001\002\000\004\004\144" +
-    "\001\002\000\004\005\uffd1\001\002\000\004\005\146\001" +
-    "\002\000\012\006\uffd3\034\uffd3\035\uffd3\040\uffd3\001\002" +
-    "\000\004\033\150\001\002\000\024\003\046\030\020\031" +
-    "\040\036\050\037\051\043\043\047\037\050\045\052\047" +
-    "\001\002\000\012\006\uffda\034\uffda\035\uffda\040\uffda\001" +
-    "\002\000\020\003\uffeb\030\uffeb\032\uffeb\042\uffeb\045\uffeb" +
-    "\046\uffeb\052\uffeb\001\002\000\004\015\157\001\002\000" +
-    "\020\003\uffee\030\uffee\032\uffee\042\uffee\045\uffee\046\uffee" +
-    "\052\uffee\001\002\000\020\003\152\030\ufff8\032\ufff8\042" +
-    "\ufff8\045\ufff8\046\ufff8\052\153\001\002\000\020\003\uffed" +
-    "\030\uffed\032\uffed\042\uffed\045\uffed\046\uffed\052\uffed\001" +
-    "\002\000\012\003\162\025\165\027\161\052\163\001\002" +
-    "\000\004\006\175\001\002\000\012\003\162\025\165\027" +
-    "\161\052\163\001\002\000\006\006\uffe7\041\uffe7\001\002" +
-    "\000\006\006\uffe6\041\uffe6\001\002\000\006\006\uffea\041" +
-    "\uffea\001\002\000\012\003\027\012\032\052\031\053\030" +
-    "\001\002\000\004\023\167\001\002\000\012\003\027\012" +
-    "\032\052\031\053\030\001\002\000\004\026\171\001\002" +
-    "\000\006\006\uffe9\041\uffe9\001\002\000\004\041\173\001" +
-    "\002\000\012\003\162\025\165\027\161\052\163\001\002" +
-    "\000\006\006\uffe8\041\uffe8\001\002\000\020\003\uffec\030" +
-    "\uffec\032\uffec\042\uffec\045\uffec\046\uffec\052\uffec\001\002" +
-    "\000\014\030\ufffa\032\ufffa\042\ufffa\045\ufffa\046\ufffa\001" +
-    "\002\000\004\006\uffe1\001\002\000\014\030\ufffc\032\ufffc" +
-    "\042\ufffc\045\ufffc\046\ufffc\001\002\000\020\003\uffe2\030" +
-    "\uffe2\032\uffe2\042\uffe2\045\uffe2\046\uffe2\052\uffe2\001\002" +
-    "\000\020\003\201\030\ufff7\032\ufff7\042\ufff7\045\ufff7\046" +
-    "\ufff7\052\204\001\002\000\020\003\uffe5\030\uffe5\032\uffe5" +
-    "\042\uffe5\045\uffe5\046\uffe5\052\uffe5\001\002\000\004\007" +
-    "\205\001\002\000\004\052\163\001\002\000\004\006\207" +
-    "\001\002\000\020\003\uffe3\030\uffe3\032\uffe3\042\uffe3\045" +
-    "\uffe3\046\uffe3\052\uffe3\001\002\000\020\003\uffe4\030\uffe4" +
-    "\032\uffe4\042\uffe4\045\uffe4\046\uffe4\052\uffe4\001\002\000" +
-    "\006\003\212\004\213\001\002\000\004\015\uffdf\001\002" +
-    "\000\004\005\uffde\001\002\000\004\005\215\001\002\000" +
-    "\004\015\uffe0\001\002\000\004\002\uffff\001\002" });
+    "\uffc3\001\002\000\016\005\ufff1\006\ufff1\011\055\012\051" +
+    "\023\ufff1\026\ufff1\001\002\000\036\005\uffef\006\uffef\011" +
+    "\uffef\012\uffef\013\044\014\043\015\uffef\016\uffef\017\uffef" +
+    "\020\uffef\021\uffef\022\uffef\023\uffef\026\uffef\001\002\000" +
+    "\036\005\uffeb\006\uffeb\011\uffeb\012\uffeb\013\uffeb\014\uffeb" +
+    "\015\uffeb\016\uffeb\017\uffeb\020\uffeb\021\uffeb\022\uffeb\023" +
+    "\uffeb\026\uffeb\001\002\000\020\003\ufff5\030\ufff5\032\ufff5" +
+    "\042\ufff5\045\ufff5\046\ufff5\052\ufff5\001\002\000\016\003" +
+    "\115\004\117\011\112\012\105\052\077\053\107\001\002" +
+    "\000\012\006\uffcf\034\uffcf\035\uffcf\040\uffcf\001\002\000" +
+    "\004\052\161\001\002\000\006\006\153\035\160\001\002" +
+    "\000\004\052\077\001\002\000\010\006\uffd4\035\uffd4\040" +
+    "\uffd4\001\002\000\016\003\115\004\117\011\112\012\105" +
+    "\052\077\053\107\001\002\000\012\006\uffca\034\uffca\035" +
+    "\uffca\040\uffca\001\002\000\054\005\uffc8\006\uffc8\010\uffc8" +
+    "\011\uffc8\012\uffc8\013\uffc8\014\uffc8\015\uffc8\016\uffc8\017" +
+    "\uffc8\020\uffc8\021\uffc8\022\uffc8\023\uffc8\025\uffc8\026\uffc8" +
+    "\033\uffc8\034\uffc8\035\uffc8\040\uffc8\044\uffc8\001\002\000" +
+    "\004\052\142\001\002\000\016\003\115\004\117\011\112" +
+    "\012\105\052\077\053\107\001\002\000\006\010\104\025" +
+    "\103\001\002\000\016\003\115\004\117\011\112\012\105" +
+    "\052\077\053\107\001\002\000\016\003\115\004\117\011" +
+    "\112\012\105\052\077\053\107\001\002\000\016\003\uffaf" +
+    "\004\uffaf\011\uffaf\012\uffaf\052\uffaf\053\uffaf\001\002\000" +
+    "\024\005\uffc6\006\uffc6\023\uffc6\026\uffc6\033\uffc6\034\uffc6" +
+    "\035\uffc6\040\uffc6\044\uffc6\001\002\000\050\005\uffb2\006" +
+    "\uffb2\011\uffb2\012\uffb2\013\uffb2\014\uffb2\015\uffb2\016\uffb2" +
+    "\017\uffb2\020\uffb2\021\uffb2\022\uffb2\023\uffb2\026\uffb2\033" +
+    "\uffb2\034\uffb2\035\uffb2\040\uffb2\044\uffb2\001\002\000\044" +
+    "\005\uffc5\006\uffc5\011\055\012\051\015\062\016\053\017" +
+    "\052\020\056\021\060\022\054\023\uffc5\026\uffc5\033\uffc5" +
+    "\034\uffc5\035\uffc5\040\uffc5\044\uffc5\001\002\000\012\006" +
+    "\uffcc\034\uffcc\035\uffcc\040\uffcc\001\002\000\016\003\115" +
+    "\004\117\011\112\012\105\052\077\053\107\001\002\000" +
+    "\050\005\uffbd\006\uffbd\011\uffbd\012\uffbd\013\044\014\043" +
+    "\015\uffbd\016\uffbd\017\uffbd\020\uffbd\021\uffbd\022\uffbd\023" +
+    "\uffbd\026\uffbd\033\uffbd\034\uffbd\035\uffbd\040\uffbd\044\uffbd" +
+    "\001\002\000\050\005\uffb9\006\uffb9\011\uffb9\012\uffb9\013" +
+    "\uffb9\014\uffb9\015\uffb9\016\uffb9\017\uffb9\020\uffb9\021\uffb9" +
+    "\022\uffb9\023\uffb9\026\uffb9\033\uffb9\034\uffb9\035\uffb9\040" +
+    "\uffb9\044\uffb9\001\002\000\050\005\uffb0\006\uffb0\011\uffb0" +
+    "\012\uffb0\013\uffb0\014\uffb0\015\uffb0\016\uffb0\017\uffb0\020" +
+    "\uffb0\021\uffb0\022\uffb0\023\uffb0\026\uffb0\033\uffb0\034\uffb0" +
+    "\035\uffb0\040\uffb0\044\uffb0\001\002\000\016\003\115\004" +
+    "\117\011\112\012\105\052\077\053\107\001\002\000\016" +
+    "\003\115\004\117\011\112\012\105\052\077\053\107\001" +
+    "\002\000\052\005\uffb1\006\uffb1\011\uffb1\012\uffb1\013\uffb1" +
+    "\014\uffb1\015\uffb1\016\uffb1\017\uffb1\020\uffb1\021\uffb1\022" +
+    "\uffb1\023\uffb1\025\103\026\uffb1\033\uffb1\034\uffb1\035\uffb1" +
+    "\040\uffb1\044\uffb1\001\002\000\004\005\122\001\002\000" +
+    "\050\005\uffb3\006\uffb3\011\uffb3\012\uffb3\013\uffb3\014\uffb3" +
+    "\015\uffb3\016\uffb3\017\uffb3\020\uffb3\021\uffb3\022\uffb3\023" +
+    "\uffb3\026\uffb3\033\uffb3\034\uffb3\035\uffb3\040\uffb3\044\uffb3" +
+    "\001\002\000\050\005\uffb4\006\uffb4\011\uffb4\012\uffb4\013" +
+    "\uffb4\014\uffb4\015\uffb4\016\uffb4\017\uffb4\020\uffb4\021\uffb4" +
+    "\022\uffb4\023\uffb4\026\uffb4\033\uffb4\034\uffb4\035\uffb4\040" +
+    "\uffb4\044\uffb4\001\002\000\016\003\115\004\117\011\112" +
+    "\012\105\052\077\053\107\001\002\000\050\005\uffb8\006" +
+    "\uffb8\011\uffb8\012\uffb8\013\uffb8\014\uffb8\015\uffb8\016\uffb8" +
+    "\017\uffb8\020\uffb8\021\uffb8\022\uffb8\023\uffb8\026\uffb8\033" +
+    "\uffb8\034\uffb8\035\uffb8\040\uffb8\044\uffb8\001\002\000\050" +
+    "\005\uffb5\006\uffb5\011\uffb5\012\uffb5\013\uffb5\014\uffb5\015" +
+    "\uffb5\016\uffb5\017\uffb5\020\uffb5\021\uffb5\022\uffb5\023\uffb5" +
+    "\026\uffb5\033\uffb5\034\uffb5\035\uffb5\040\uffb5\044\uffb5\001" +
+    "\002\000\016\003\115\004\117\011\112\012\105\052\077" +
+    "\053\107\001\002\000\016\003\115\004\117\011\112\012" +
+    "\105\052\077\053\107\001\002\000\030\005\uffc4\006\uffc4" +
+    "\011\055\012\051\023\uffc4\026\uffc4\033\uffc4\034\uffc4\035" +
+    "\uffc4\040\uffc4\044\uffc4\001\002\000\050\005\uffbc\006\uffbc" +
+    "\011\uffbc\012\uffbc\013\044\014\043\015\uffbc\016\uffbc\017" +
+    "\uffbc\020\uffbc\021\uffbc\022\uffbc\023\uffbc\026\uffbc\033\uffbc" +
+    "\034\uffbc\035\uffbc\040\uffbc\044\uffbc\001\002\000\004\026" +
+    "\134\001\002\000\054\005\uffc7\006\uffc7\010\uffc7\011\uffc7" +
+    "\012\uffc7\013\uffc7\014\uffc7\015\uffc7\016\uffc7\017\uffc7\020" +
+    "\uffc7\021\uffc7\022\uffc7\023\uffc7\025\uffc7\026\uffc7\033\uffc7" +
+    "\034\uffc7\035\uffc7\040\uffc7\044\uffc7\001\002\000\004\044" +
+    "\136\001\002\000\024\003\076\030\020\031\071\036\100" +
+    "\037\101\043\073\047\067\050\075\052\077\001\002\000" +
+    "\004\034\140\001\002\000\024\003\076\030\020\031\071" +
+    "\036\100\037\101\043\073\047\067\050\075\052\077\001" +
+    "\002\000\012\006\uffd1\034\uffd1\035\uffd1\040\uffd1\001\002" +
+    "\000\004\007\143\001\002\000\004\025\144\001\002\000" +
+    "\016\003\115\004\117\011\112\012\105\052\077\053\107" +
+    "\001\002\000\004\023\146\001\002\000\016\003\115\004" +
+    "\117\011\112\012\105\052\077\053\107\001\002\000\004" +
+    "\026\150\001\002\000\004\033\151\001\002\000\024\003" +
+    "\076\030\020\031\071\036\100\037\101\043\073\047\067" +
+    "\050\075\052\077\001\002\000\006\006\153\040\154\001" +
+    "\002\000\024\003\076\030\020\031\071\036\100\037\101" +
+    "\043\073\047\067\050\075\052\077\001\002\000\012\006" +
+    "\uffd0\034\uffd0\035\uffd0\040\uffd0\001\002\000\010\006\uffd3" +
+    "\035\uffd3\040\uffd3\001\002\000\016\006\uffcd\011\055\012" +
+    "\051\034\uffcd\035\uffcd\040\uffcd\001\002\000\014\006\uffce" +
+    "\025\103\034\uffce\035\uffce\040\uffce\001\002\000\014\002" +
+    "\uffd5\006\uffd5\034\uffd5\035\uffd5\040\uffd5\001\002\000\004" +
+    "\004\162\001\002\000\004\005\uffc9\001\002\000\004\005" +
+    "\164\001\002\000\012\006\uffcb\034\uffcb\035\uffcb\040\uffcb" +
+    "\001\002\000\004\033\166\001\002\000\024\003\076\030" +
+    "\020\031\071\036\100\037\101\043\073\047\067\050\075" +
+    "\052\077\001\002\000\012\006\uffd2\034\uffd2\035\uffd2\040" +
+    "\uffd2\001\002\000\020\003\uffe3\030\uffe3\032\uffe3\042\uffe3" +
+    "\045\uffe3\046\uffe3\052\uffe3\001\002\000\004\015\175\001" +
+    "\002\000\020\003\uffe6\030\uffe6\032\uffe6\042\uffe6\045\uffe6" +
+    "\046\uffe6\052\uffe6\001\002\000\020\003\170\030\ufff8\032" +
+    "\ufff8\042\ufff8\045\ufff8\046\ufff8\052\171\001\002\000\020" +
+    "\003\uffe5\030\uffe5\032\uffe5\042\uffe5\045\uffe5\046\uffe5\052" +
+    "\uffe5\001\002\000\012\003\200\025\203\027\177\052\201" +
+    "\001\002\000\004\006\213\001\002\000\012\003\200\025" +
+    "\203\027\177\052\201\001\002\000\006\006\uffdf\041\uffdf" +
+    "\001\002\000\006\006\uffde\041\uffde\001\002\000\006\006" +
+    "\uffe2\041\uffe2\001\002\000\016\003\035\004\040\011\033" +
+    "\012\027\052\037\053\031\001\002\000\004\023\205\001" +
+    "\002\000\016\003\035\004\040\011\033\012\027\052\037" +
+    "\053\031\001\002\000\004\026\207\001\002\000\006\006" +
+    "\uffe1\041\uffe1\001\002\000\004\041\211\001\002\000\012" +
+    "\003\200\025\203\027\177\052\201\001\002\000\006\006" +
+    "\uffe0\041\uffe0\001\002\000\020\003\uffe4\030\uffe4\032\uffe4" +
+    "\042\uffe4\045\uffe4\046\uffe4\052\uffe4\001\002\000\014\030" +
+    "\ufffa\032\ufffa\042\ufffa\045\ufffa\046\ufffa\001\002\000\004" +
+    "\006\uffd9\001\002\000\014\030\ufffc\032\ufffc\042\ufffc\045" +
+    "\ufffc\046\ufffc\001\002\000\020\003\uffda\030\uffda\032\uffda" +
+    "\042\uffda\045\uffda\046\uffda\052\uffda\001\002\000\020\003" +
+    "\217\030\ufff7\032\ufff7\042\ufff7\045\ufff7\046\ufff7\052\222" +
+    "\001\002\000\020\003\uffdd\030\uffdd\032\uffdd\042\uffdd\045" +
+    "\uffdd\046\uffdd\052\uffdd\001\002\000\004\007\223\001\002" +
+    "\000\004\052\201\001\002\000\004\006\225\001\002\000" +
+    "\020\003\uffdb\030\uffdb\032\uffdb\042\uffdb\045\uffdb\046\uffdb" +
+    "\052\uffdb\001\002\000\020\003\uffdc\030\uffdc\032\uffdc\042" +
+    "\uffdc\045\uffdc\046\uffdc\052\uffdc\001\002\000\006\003\230" +
+    "\004\231\001\002\000\004\015\uffd7\001\002\000\004\005" +
+    "\uffd6\001\002\000\004\005\233\001\002\000\004\015\uffd8" +
+    "\001\002\000\004\002\uffff\001\002" });
 
   /** Access to parse-action table. */
   public short[][] action_table() {return _action_table;}
@@ -234,70 +269,78 @@ public class CUPParser extends java_cup.runtime.lr_parser {
   /** <code>reduce_goto</code> table. */
   protected static final short[][] _reduce_table = 
     unpackFromStrings(new String[] {
-    "\000\214\000\006\002\003\040\005\001\001\000\002\001" +
+    "\000\232\000\006\002\003\043\005\001\001\000\002\001" +
     "\001\000\002\001\001\000\006\003\006\004\007\001\001" +
-    "\000\002\001\001\000\012\005\014\017\013\020\015\025" +
+    "\000\002\001\001\000\012\005\014\022\013\023\015\030" +
     "\011\001\001\000\002\001\001\000\002\001\001\000\006" +
-    "\015\201\016\202\001\001\000\002\001\001\000\002\001" +
-    "\001\000\002\001\001\000\006\011\154\012\153\001\001" +
-    "\000\012\023\041\024\043\025\040\037\051\001\001\000" +
+    "\020\217\021\220\001\001\000\002\001\001\000\002\001" +
+    "\001\000\002\001\001\000\006\014\172\015\171\001\001" +
+    "\000\012\026\071\027\073\030\067\042\101\001\001\000" +
     "\006\006\022\007\024\001\001\000\002\001\001\000\004" +
-    "\007\035\001\001\000\002\001\001\000\002\001\001\000" +
-    "\004\010\032\001\001\000\002\001\001\000\002\001\001" +
-    "\000\002\001\001\000\004\010\034\001\001\000\002\001" +
-    "\001\000\002\001\001\000\002\001\001\000\002\001\001" +
-    "\000\020\026\146\027\055\030\057\031\062\032\063\036" +
-    "\065\037\067\001\001\000\002\001\001\000\002\001\001" +
-    "\000\002\001\001\000\004\037\140\001\001\000\002\001" +
-    "\001\000\014\030\137\031\062\032\063\036\065\037\067" +
-    "\001\001\000\002\001\001\000\002\001\001\000\002\001" +
-    "\001\000\020\026\116\027\055\030\057\031\062\032\063" +
-    "\036\065\037\067\001\001\000\002\001\001\000\020\026" +
-    "\114\027\055\030\057\031\062\032\063\036\065\037\067" +
-    "\001\001\000\020\026\060\027\055\030\057\031\062\032" +
-    "\063\036\065\037\067\001\001\000\002\001\001\000\002" +
-    "\001\001\000\002\001\001\000\006\033\110\034\106\001" +
-    "\001\000\002\001\001\000\010\032\077\036\065\037\067" +
-    "\001\001\000\004\035\075\001\001\000\002\001\001\000" +
-    "\002\001\001\000\010\032\072\036\065\037\067\001\001" +
-    "\000\020\026\070\027\055\030\057\031\062\032\063\036" +
-    "\065\037\067\001\001\000\002\001\001\000\002\001\001" +
-    "\000\002\001\001\000\002\001\001\000\002\001\001\000" +
-    "\002\001\001\000\010\032\076\036\065\037\067\001\001" +
+    "\007\065\001\001\000\002\001\001\000\002\001\001\000" +
+    "\012\010\031\011\027\012\033\013\035\001\001\000\004" +
+    "\013\064\001\001\000\006\036\060\037\056\001\001\000" +
+    "\002\001\001\000\002\001\001\000\004\013\046\001\001" +
+    "\000\004\040\044\001\001\000\002\001\001\000\002\001" +
+    "\001\000\002\001\001\000\012\010\040\011\027\012\033" +
+    "\013\035\001\001\000\002\001\001\000\002\001\001\000" +
+    "\002\001\001\000\002\001\001\000\004\013\045\001\001" +
     "\000\002\001\001\000\002\001\001\000\002\001\001\000" +
     "\002\001\001\000\002\001\001\000\002\001\001\000\002" +
-    "\001\001\000\002\001\001\000\012\031\113\032\063\036" +
-    "\065\037\067\001\001\000\002\001\001\000\014\030\112" +
-    "\031\062\032\063\036\065\037\067\001\001\000\002\001" +
-    "\001\000\004\034\106\001\001\000\004\035\075\001\001" +
+    "\001\001\000\002\001\001\000\002\001\001\000\006\012" +
+    "\063\013\035\001\001\000\002\001\001\000\010\011\062" +
+    "\012\033\013\035\001\001\000\002\001\001\000\004\037" +
+    "\056\001\001\000\004\040\044\001\001\000\002\001\001" +
+    "\000\002\001\001\000\020\031\164\032\105\033\107\034" +
+    "\112\035\113\041\115\042\117\001\001\000\002\001\001" +
+    "\000\002\001\001\000\002\001\001\000\004\042\156\001" +
+    "\001\000\002\001\001\000\014\033\155\034\112\035\113" +
+    "\041\115\042\117\001\001\000\002\001\001\000\002\001" +
+    "\001\000\002\001\001\000\020\031\134\032\105\033\107" +
+    "\034\112\035\113\041\115\042\117\001\001\000\002\001" +
+    "\001\000\020\031\132\032\105\033\107\034\112\035\113" +
+    "\041\115\042\117\001\001\000\020\031\110\032\105\033" +
+    "\107\034\112\035\113\041\115\042\117\001\001\000\002" +
+    "\001\001\000\002\001\001\000\002\001\001\000\006\036" +
+    "\127\037\126\001\001\000\002\001\001\000\010\035\125" +
+    "\041\115\042\117\001\001\000\004\040\123\001\001\000" +
+    "\002\001\001\000\002\001\001\000\010\035\122\041\115" +
+    "\042\117\001\001\000\020\031\120\032\105\033\107\034" +
+    "\112\035\113\041\115\042\117\001\001\000\002\001\001" +
     "\000\002\001\001\000\002\001\001\000\002\001\001\000" +
-    "\010\024\120\025\040\037\051\001\001\000\002\001\001" +
-    "\000\010\024\122\025\040\037\051\001\001\000\002\001" +
-    "\001\000\002\001\001\000\002\001\001\000\020\026\126" +
-    "\027\055\030\057\031\062\032\063\036\065\037\067\001" +
-    "\001\000\002\001\001\000\020\026\130\027\055\030\057" +
-    "\031\062\032\063\036\065\037\067\001\001\000\002\001" +
-    "\001\000\002\001\001\000\012\023\133\024\043\025\040" +
-    "\037\051\001\001\000\002\001\001\000\010\024\136\025" +
-    "\040\037\051\001\001\000\002\001\001\000\002\001\001" +
-    "\000\004\034\106\001\001\000\002\001\001\000\002\001" +
-    "\001\000\002\001\001\000\004\022\144\001\001\000\002" +
-    "\001\001\000\002\001\001\000\002\001\001\000\010\024" +
-    "\150\025\040\037\051\001\001\000\002\001\001\000\002" +
-    "\001\001\000\002\001\001\000\002\001\001\000\004\012" +
-    "\155\001\001\000\002\001\001\000\006\013\157\014\163" +
-    "\001\001\000\002\001\001\000\006\013\171\014\163\001" +
-    "\001\000\002\001\001\000\002\001\001\000\002\001\001" +
-    "\000\004\010\165\001\001\000\002\001\001\000\004\010" +
-    "\167\001\001\000\002\001\001\000\002\001\001\000\002" +
-    "\001\001\000\006\013\173\014\163\001\001\000\002\001" +
-    "\001\000\002\001\001\000\006\003\176\004\007\001\001" +
+    "\010\035\124\041\115\042\117\001\001\000\002\001\001" +
+    "\000\002\001\001\000\012\034\131\035\113\041\115\042" +
+    "\117\001\001\000\014\033\130\034\112\035\113\041\115" +
+    "\042\117\001\001\000\004\037\126\001\001\000\004\040" +
+    "\123\001\001\000\002\001\001\000\002\001\001\000\002" +
+    "\001\001\000\010\027\136\030\067\042\101\001\001\000" +
+    "\002\001\001\000\010\027\140\030\067\042\101\001\001" +
     "\000\002\001\001\000\002\001\001\000\002\001\001\000" +
-    "\004\016\207\001\001\000\002\001\001\000\002\001\001" +
-    "\000\004\014\205\001\001\000\002\001\001\000\002\001" +
+    "\020\031\144\032\105\033\107\034\112\035\113\041\115" +
+    "\042\117\001\001\000\002\001\001\000\020\031\146\032" +
+    "\105\033\107\034\112\035\113\041\115\042\117\001\001" +
+    "\000\002\001\001\000\002\001\001\000\012\026\151\027" +
+    "\073\030\067\042\101\001\001\000\002\001\001\000\010" +
+    "\027\154\030\067\042\101\001\001\000\002\001\001\000" +
+    "\002\001\001\000\004\037\126\001\001\000\002\001\001" +
+    "\000\002\001\001\000\002\001\001\000\004\025\162\001" +
     "\001\000\002\001\001\000\002\001\001\000\002\001\001" +
-    "\000\004\021\213\001\001\000\002\001\001\000\002\001" +
-    "\001\000\002\001\001" });
+    "\000\010\027\166\030\067\042\101\001\001\000\002\001" +
+    "\001\000\002\001\001\000\002\001\001\000\002\001\001" +
+    "\000\004\015\173\001\001\000\002\001\001\000\006\016" +
+    "\175\017\201\001\001\000\002\001\001\000\006\016\207" +
+    "\017\201\001\001\000\002\001\001\000\002\001\001\000" +
+    "\002\001\001\000\012\010\203\011\027\012\033\013\035" +
+    "\001\001\000\002\001\001\000\012\010\205\011\027\012" +
+    "\033\013\035\001\001\000\002\001\001\000\002\001\001" +
+    "\000\002\001\001\000\006\016\211\017\201\001\001\000" +
+    "\002\001\001\000\002\001\001\000\006\003\214\004\007" +
+    "\001\001\000\002\001\001\000\002\001\001\000\002\001" +
+    "\001\000\004\021\225\001\001\000\002\001\001\000\002" +
+    "\001\001\000\004\017\223\001\001\000\002\001\001\000" +
+    "\002\001\001\000\002\001\001\000\002\001\001\000\002" +
+    "\001\001\000\004\024\231\001\001\000\002\001\001\000" +
+    "\002\001\001\000\002\001\001" });
 
   /** Access to <code>reduce_goto</code> table. */
   public short[][] reduce_table() {return _reduce_table;}
@@ -338,8 +381,17 @@ public class CUPParser extends java_cup.runtime.lr_parser {
   /* This section provides some methods used by Java_CUP during parsing.
        They override its default methods for reporting syntax errors. */
         
-    /** Retrieve the error handler to handle error messages. */
-    private Errors errors = ErrorHandler.getErrorHandler();
+    /** Error handler of the compilation to handle error messages. */
+    private Errors errors;
+
+    /** Construct a parser reporting errors to the given handler. */
+    public CUPParser( Scanner scanner, Errors errors ) {
+        super( scanner );
+        this.errors = errors;
+    }
+    public Errors getErrors() {
+        return errors;
+    }
     
     /** Override the default CUP syntax_error method with one 
      * that integrates better with the compiler's error reporting. */
@@ -365,8 +417,9 @@ class CUP$CUPParser$actions {
      * semantics actions associated with parsing rules.
      * These are the only global variables you should need. */
 
-    /** Error handler for reporting error messages. */
-    private Errors errors = ErrorHandler.getErrorHandler();
+    /** Error handler for reporting error messages.
+     * Set from the parser by the first action for Program. */
+    private Errors errors;
     
     /** Symbol table is available globally.
      *  Its current scope corresponds to the procedure/main program 
@@ -396,7 +449,7 @@ class CUP$CUPParser$actions {
       switch (CUP$CUPParser$act_num)
         {
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 74: // UnaryOperator ::= MINUS 
+          case 82: // UnaryOperator ::= MINUS 
             {
               Operator RESULT =null;
 		int opleft = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()).left;
@@ -405,12 +458,12 @@ class CUP$CUPParser$actions {
 		
             RESULT = Operator.NEG_OP;
         
-              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("UnaryOperator",28, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("UnaryOperator",31, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
             }
           return CUP$CUPParser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 73: // Factor ::= error 
+          case 81: // Factor ::= error 
             {
               ExpNode RESULT =null;
 		int eleft = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()).left;
@@ -419,12 +472,12 @@ class CUP$CUPParser$actions {
 		
             RESULT = new ExpNode.ErrorNode( new Position(eleft) );
         
-              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Factor",24, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Factor",27, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
             }
           return CUP$CUPParser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 72: // Factor ::= LValue 
+          case 80: // Factor ::= LValue 
             {
               ExpNode RESULT =null;
 		int lvalleft = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()).left;
@@ -433,12 +486,12 @@ class CUP$CUPParser$actions {
 		
             RESULT = lval;
         
-              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Factor",24, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Factor",27, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
             }
           return CUP$CUPParser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 71: // Factor ::= NUMBER 
+          case 79: // Factor ::= NUMBER 
             {
               ExpNode RESULT =null;
 		int nleft = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()).left;
@@ -448,12 +501,12 @@ class CUP$CUPParser$actions {
             RESULT = new ExpNode.ConstNode( new Position( nleft ), 
                     Predefined.INTEGER_TYPE, n.intValue() );
         
-              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Factor",24, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Factor",27, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
             }
           return CUP$CUPParser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 70: // Factor ::= LPAREN Condition RPAREN 
+          case 78: // Factor ::= LPAREN Condition RPAREN 
             {
               ExpNode RESULT =null;
 		int cleft = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-1)).left;
@@ -462,12 +515,12 @@ class CUP$CUPParser$actions {
 		
             RESULT = c;
         
-              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Factor",24, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-2)), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Factor",27, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-2)), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
             }
           return CUP$CUPParser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 69: // Factor ::= UnaryOperator Factor 
+          case 77: // Factor ::= UnaryOperator Factor 
             {
               ExpNode RESULT =null;
 		int opleft = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-1)).left;
@@ -480,12 +533,12 @@ class CUP$CUPParser$actions {
             RESULT = new ExpNode.OperatorNode( new Position( opleft ), 
                         op, e );
         
-              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Factor",24, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-1)), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Factor",27, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-1)), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
             }
           return CUP$CUPParser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 68: // Factor ::= PLUS Factor 
+          case 76: // Factor ::= PLUS Factor 
             {
               ExpNode RESULT =null;
 		int eleft = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()).left;
@@ -494,34 +547,34 @@ class CUP$CUPParser$actions {
 		
             RESULT = e; 
         
-              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Factor",24, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-1)), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Factor",27, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-1)), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
             }
           return CUP$CUPParser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 67: // MulOp ::= DIVIDE 
+          case 75: // MulOp ::= DIVIDE 
             {
               Operator RESULT =null;
 		
             RESULT = Operator.DIV_OP;
         
-              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("MulOp",27, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("MulOp",30, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
             }
           return CUP$CUPParser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 66: // MulOp ::= TIMES 
+          case 74: // MulOp ::= TIMES 
             {
               Operator RESULT =null;
 		
             RESULT = Operator.MUL_OP;
         
-              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("MulOp",27, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("MulOp",30, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
             }
           return CUP$CUPParser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 65: // Term ::= Term MulOp Factor 
+          case 73: // Term ::= Term MulOp Factor 
             {
               ExpNode RESULT =null;
 		int e1left = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-2)).left;
@@ -537,12 +590,12 @@ class CUP$CUPParser$actions {
             RESULT = new ExpNode.OperatorNode(new Position(opleft),op,
                 new ExpNode.ArgumentsNode(e1,e2) );
         
-              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Term",23, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-2)), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Term",26, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-2)), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
             }
           return CUP$CUPParser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 64: // Term ::= Factor 
+          case 72: // Term ::= Factor 
             {
               ExpNode RESULT =null;
 		int fleft = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()).left;
@@ -551,34 +604,34 @@ class CUP$CUPParser$actions {
 		
             RESULT = f;
         
-              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Term",23, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Term",26, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
             }
           return CUP$CUPParser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 63: // AddOp ::= MINUS 
+          case 71: // AddOp ::= MINUS 
             {
               Operator RESULT =null;
 		
             RESULT = Operator.SUB_OP;
         
-              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("AddOp",26, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("AddOp",29, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
             }
           return CUP$CUPParser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 62: // AddOp ::= PLUS 
+          case 70: // AddOp ::= PLUS 
             {
               Operator RESULT =null;
 		
             RESULT = Operator.ADD_OP;
         
-              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("AddOp",26, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("AddOp",29, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
             }
           return CUP$CUPParser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 61: // Exp ::= Exp AddOp Term 
+          case 69: // Exp ::= Exp AddOp Term 
             {
               ExpNode RESULT =null;
 		int e1left = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-2)).left;
@@ -594,12 +647,12 @@ class CUP$CUPParser$actions {
             RESULT = new ExpNode.OperatorNode(new Position(opleft),op,
                 new ExpNode.ArgumentsNode(e1,e2) );
         
-              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Exp",22, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-2)), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Exp",25, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-2)), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
             }
           return CUP$CUPParser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 60: // Exp ::= Term 
+          case 68: // Exp ::= Term 
             {
               ExpNode RESULT =null;
 		int tleft = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()).left;
@@ -608,78 +661,78 @@ class CUP$CUPParser$actions {
 		
             RESULT = t;
         
-              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Exp",22, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Exp",25, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
             }
           return CUP$CUPParser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 59: // Relation ::= GEQUALS 
+          case 67: // Relation ::= GEQUALS 
             {
               Operator RESULT =null;
 		
             RESULT = Operator.GEQUALS_OP;
         
-              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Relation",25, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Relation",28, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
             }
           return CUP$CUPParser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 58: // Relation ::= GREATER 
+          case 66: // Relation ::= GREATER 
             {
               Operator RESULT =null;
 		
             RESULT = Operator.GREATER_OP;
         
-              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Relation",25, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Relation",28, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
             }
           return CUP$CUPParser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 57: // Relation ::= LESS 
+          case 65: // Relation ::= LESS 
             {
               Operator RESULT =null;
 		
             RESULT = Operator.LESS_OP;
         
-              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Relation",25, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Relation",28, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
             }
           return CUP$CUPParser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 56: // Relation ::= LEQUALS 
+          case 64: // Relation ::= LEQUALS 
             {
               Operator RESULT =null;
 		
             RESULT = Operator.LEQUALS_OP;
         
-              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Relation",25, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Relation",28, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
             }
           return CUP$CUPParser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 55: // Relation ::= NEQUALS 
+          case 63: // Relation ::= NEQUALS 
             {
               Operator RESULT =null;
 		
             RESULT = Operator.NEQUALS_OP;
         
-              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Relation",25, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Relation",28, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
             }
           return CUP$CUPParser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 54: // Relation ::= EQUALS 
+          case 62: // Relation ::= EQUALS 
             {
               Operator RESULT =null;
 		
             RESULT = Operator.EQUALS_OP;
         
-              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Relation",25, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Relation",28, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
             }
           return CUP$CUPParser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 53: // RelCondition ::= Exp Relation Exp 
+          case 61: // RelCondition ::= Exp Relation Exp 
             {
               ExpNode RESULT =null;
 		int e1left = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-2)).left;
@@ -695,12 +748,12 @@ class CUP$CUPParser$actions {
             RESULT = new ExpNode.OperatorNode( new Position( opleft ),
                 op, new ExpNode.ArgumentsNode(e1,e2) );
         
-              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("RelCondition",21, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-2)), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("RelCondition",24, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-2)), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
             }
           return CUP$CUPParser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 52: // RelCondition ::= Exp 
+          case 60: // RelCondition ::= Exp 
             {
               ExpNode RESULT =null;
 		int eleft = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()).left;
@@ -709,12 +762,12 @@ class CUP$CUPParser$actions {
 		
             RESULT = e;
         
-              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("RelCondition",21, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("RelCondition",24, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
             }
           return CUP$CUPParser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 51: // Condition ::= RelCondition 
+          case 59: // Condition ::= RelCondition 
             {
               ExpNode RESULT =null;
 		int eleft = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()).left;
@@ -723,12 +776,12 @@ class CUP$CUPParser$actions {
 		 
             RESULT = e;
         
-              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Condition",20, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Condition",23, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
             }
           return CUP$CUPParser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 50: // LValue ::= LValue LBRACKET Condition RBRACKET 
+          case 58: // LValue ::= LValue LBRACKET Condition RBRACKET 
             {
               ExpNode RESULT =null;
 		int lvalleft = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-3)).left;
@@ -740,12 +793,12 @@ class CUP$CUPParser$actions {
 		
     		RESULT = new ExpNode.ArrayNode( new Position(lvalleft), lval, cond );
     	
-              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("LValue",29, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-3)), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("LValue",32, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-3)), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
             }
           return CUP$CUPParser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 49: // LValue ::= IDENTIFIER 
+          case 57: // LValue ::= IDENTIFIER 
             {
               ExpNode RESULT =null;
 		int idleft = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()).left;
@@ -754,21 +807,21 @@ class CUP$CUPParser$actions {
 		
             RESULT = new ExpNode.IdentifierNode( new Position(idleft), id );
         
-              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("LValue",29, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("LValue",32, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
             }
           return CUP$CUPParser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 48: // ActualParamList ::= 
+          case 56: // ActualParamList ::= 
             {
               Object RESULT =null;
 
-              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("ActualParamList",16, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("ActualParamList",19, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
             }
           return CUP$CUPParser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 47: // Statement ::= error 
+          case 55: // Statement ::= error 
             {
               StatementNode RESULT =null;
 		int pleft = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()).left;
@@ -777,12 +830,12 @@ class CUP$CUPParser$actions {
 		 
             RESULT = new StatementNode.ErrorNode( new Position(pleft) );
         
-              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Statement",18, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Statement",21, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
             }
           return CUP$CUPParser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 46: // Statement ::= KW_CALL IDENTIFIER LPAREN ActualParamList RPAREN 
+          case 54: // Statement ::= KW_CALL IDENTIFIER LPAREN ActualParamList RPAREN 
             {
               StatementNode RESULT =null;
 		int idleft = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-3)).left;
@@ -794,12 +847,12 @@ class CUP$CUPParser$actions {
 		 
             RESULT = new StatementNode.CallNode( new Position(idleft), id );
         
-              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Statement",18, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-4)), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Statement",21, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-4)), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
             }
           return CUP$CUPParser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 45: // Statement ::= LValue ASSIGN Condition 
+          case 53: // Statement ::= LValue ASSIGN Condition 
             {
               StatementNode RESULT =null;
 		int lvalleft = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-2)).left;
@@ -812,12 +865,12 @@ class CUP$CUPParser$actions {
           RESULT = new StatementNode.AssignmentNode( new Position(lvalleft),
                                             lval, rval );
        
-              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Statement",18, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-2)), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Statement",21, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-2)), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
             }
           return CUP$CUPParser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 44: // Statement ::= KW_WRITE Exp 
+          case 52: // Statement ::= KW_WRITE Exp 
             {
               StatementNode RESULT =null;
 		int eleft = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()).left;
@@ -826,12 +879,12 @@ class CUP$CUPParser$actions {
 		 
             RESULT = new StatementNode.WriteNode( new Position(eleft), e );
         
-              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Statement",18, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-1)), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Statement",21, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-1)), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
             }
           return CUP$CUPParser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 43: // Statement ::= KW_READ LValue 
+          case 51: // Statement ::= KW_READ LValue 
             {
               StatementNode RESULT =null;
 		int rleft = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-1)).left;
@@ -844,12 +897,12 @@ class CUP$CUPParser$actions {
             RESULT = new StatementNode.AssignmentNode( new Position(lvalleft), 
                      lval, new ExpNode.ReadNode( new Position(rleft) ) );
         
-              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Statement",18, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-1)), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Statement",21, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-1)), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
             }
           return CUP$CUPParser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 42: // Statement ::= CompoundStatement 
+          case 50: // Statement ::= CompoundStatement 
             {
               StatementNode RESULT =null;
 		int sleft = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()).left;
@@ -858,12 +911,12 @@ class CUP$CUPParser$actions {
 		 
             RESULT = s; 
         
-              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Statement",18, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Statement",21, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
             }
           return CUP$CUPParser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 41: // Statement ::= KW_FOR IDENTIFIER COLON LBRACKET Condition RANGE Condition RBRACKET KW_DO StatementList KW_OD 
+          case 49: // Statement ::= KW_FOR IDENTIFIER COLON LBRACKET Condition RANGE Condition RBRACKET KW_DO StatementList KW_OD 
             {
               StatementNode RESULT =null;
 		int idleft = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-9)).left;
@@ -881,12 +934,12 @@ class CUP$CUPParser$actions {
 		
 			RESULT = new StatementNode.ForNode( new Position(idleft), id, c1, c2, sl );
 		
-              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Statement",18, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-10)), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Statement",21, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-10)), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
             }
           return CUP$CUPParser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 40: // Statement ::= KW_IF Condition KW_THEN Statement KW_ELSE Statement 
+          case 48: // Statement ::= KW_IF Condition KW_THEN Statement KW_ELSE Statement 
             {
               StatementNode RESULT =null;
 		int cleft = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-4)).left;
@@ -901,12 +954,12 @@ class CUP$CUPParser$actions {
 		 
             RESULT = new StatementNode.IfNode( new Position(cleft), c, s1, s2 );
         
-              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Statement",18, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-5)), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Statement",21, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-5)), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
             }
           return CUP$CUPParser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 39: // Statement ::= KW_WHILE Condition KW_DO Statement 
+          case 47: // Statement ::= KW_WHILE Condition KW_DO Statement 
             {
               StatementNode RESULT =null;
 		int cleft = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-2)).left;
@@ -918,12 +971,12 @@ class CUP$CUPParser$actions {
 		 
             RESULT = new StatementNode.WhileNode( new Position(cleft), c, s );
         
-              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Statement",18, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-3)), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Statement",21, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-3)), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
             }
           return CUP$CUPParser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 38: // StatementList ::= StatementList SEMICOLON Statement 
+          case 46: // StatementList ::= StatementList SEMICOLON Statement 
             {
               StatementNode.ListNode RESULT =null;
 		int slleft = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-2)).left;
@@ -936,12 +989,12 @@ class CUP$CUPParser$actions {
             sl.addStatement( s );
             RESULT = sl;
         
-              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("StatementList",17, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-2)), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("StatementList",20, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-2)), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
             }
           return CUP$CUPParser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 37: // StatementList ::= Statement 
+          case 45: // StatementList ::= Statement 
             {
               StatementNode.ListNode RESULT =null;
 		int sleft = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()).left;
@@ -951,12 +1004,12 @@ class CUP$CUPParser$actions {
             RESULT = new StatementNode.ListNode( new Position(sleft) );
             RESULT.addStatement(s);
         
-              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("StatementList",17, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("StatementList",20, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
             }
           return CUP$CUPParser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 36: // CompoundStatement ::= KW_BEGIN StatementList KW_END 
+          case 44: // CompoundStatement ::= KW_BEGIN StatementList KW_END 
             {
               StatementNode RESULT =null;
 		int slleft = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-1)).left;
@@ -965,21 +1018,21 @@ class CUP$CUPParser$actions {
 		
             RESULT = sl;
         
-              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("CompoundStatement",19, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-2)), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("CompoundStatement",22, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-2)), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
             }
           return CUP$CUPParser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 35: // FormalParamList ::= 
+          case 43: // FormalParamList ::= 
             {
               Object RESULT =null;
 
-              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("FormalParamList",15, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("FormalParamList",18, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
             }
           return CUP$CUPParser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 34: // ProcedureHead ::= KW_PROCEDURE IDENTIFIER error 
+          case 42: // ProcedureHead ::= KW_PROCEDURE IDENTIFIER error 
             {
               Scope RESULT =null;
 		int idleft = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-1)).left;
@@ -991,12 +1044,12 @@ class CUP$CUPParser$actions {
             RESULT = symtab.newScope( procEntry );
             procEntry.setLocalScope( RESULT );
         
-              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("ProcedureHead",14, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-2)), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("ProcedureHead",17, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-2)), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
             }
           return CUP$CUPParser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 33: // ProcedureHead ::= KW_PROCEDURE IDENTIFIER LPAREN FormalParamList RPAREN 
+          case 41: // ProcedureHead ::= KW_PROCEDURE IDENTIFIER LPAREN FormalParamList RPAREN 
             {
               Scope RESULT =null;
 		int idleft = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-3)).left;
@@ -1022,12 +1075,12 @@ class CUP$CUPParser$actions {
             RESULT = symtab.newScope( procEntry );
             procEntry.setLocalScope( RESULT );
         
-              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("ProcedureHead",14, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-4)), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("ProcedureHead",17, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-4)), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
             }
           return CUP$CUPParser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 32: // ProcedureDef ::= ProcedureHead EQUALS Block 
+          case 40: // ProcedureDef ::= ProcedureHead EQUALS Block 
             {
               DeclNode.ProcedureNode RESULT =null;
 		int scopeleft = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-2)).left;
@@ -1041,21 +1094,21 @@ class CUP$CUPParser$actions {
             symtab.leaveScope();
             RESULT = new DeclNode.ProcedureNode( scope.getProcEntry(), b );
         
-              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("ProcedureDef",13, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-2)), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("ProcedureDef",16, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-2)), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
             }
           return CUP$CUPParser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 31: // VarDecl ::= error 
+          case 39: // VarDecl ::= error 
             {
               Object RESULT =null;
 
-              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("VarDecl",12, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("VarDecl",15, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
             }
           return CUP$CUPParser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 30: // VarDecl ::= IDENTIFIER COLON TypeIdentifier SEMICOLON 
+          case 38: // VarDecl ::= IDENTIFIER COLON TypeIdentifier SEMICOLON 
             {
               Object RESULT =null;
 		int idleft = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-3)).left;
@@ -1072,30 +1125,30 @@ class CUP$CUPParser$actions {
                 errors.error( id + " already declared", pos );
             }
         
-              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("VarDecl",12, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-3)), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("VarDecl",15, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-3)), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
             }
           return CUP$CUPParser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 29: // VarDeclSeq ::= VarDeclSeq VarDecl 
+          case 37: // VarDeclSeq ::= VarDeclSeq VarDecl 
             {
               Object RESULT =null;
 
-              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("VarDeclSeq",11, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-1)), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("VarDeclSeq",14, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-1)), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
             }
           return CUP$CUPParser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 28: // VarDeclSeq ::= VarDecl 
+          case 36: // VarDeclSeq ::= VarDecl 
             {
               Object RESULT =null;
 
-              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("VarDeclSeq",11, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("VarDeclSeq",14, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
             }
           return CUP$CUPParser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 27: // TypeIdentifier ::= IDENTIFIER 
+          case 35: // TypeIdentifier ::= IDENTIFIER 
             {
               Type RESULT =null;
 		int idleft = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()).left;
@@ -1108,12 +1161,12 @@ class CUP$CUPParser$actions {
             RESULT = new Type.IdRefType( id, symtab.getCurrentScope(),
                                          new Position( idleft ) );
         
-              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("TypeIdentifier",10, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("TypeIdentifier",13, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
             }
           return CUP$CUPParser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 26: // Type ::= error 
+          case 34: // Type ::= error 
             {
               Type RESULT =null;
 		int errleft = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()).left;
@@ -1122,12 +1175,12 @@ class CUP$CUPParser$actions {
 		
             RESULT = Type.ERROR_TYPE;
         
-              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Type",9, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Type",12, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
             }
           return CUP$CUPParser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 25: // Type ::= KW_ARRAY Type KW_OF Type 
+          case 33: // Type ::= KW_ARRAY Type KW_OF Type 
             {
               Type RESULT =null;
 		int indexleft = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-2)).left;
@@ -1139,12 +1192,12 @@ class CUP$CUPParser$actions {
 		
         	RESULT = new Type.ArrayType( index, element );
         
-              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Type",9, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-3)), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Type",12, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-3)), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
             }
           return CUP$CUPParser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 24: // Type ::= LBRACKET Constant RANGE Constant RBRACKET 
+          case 32: // Type ::= LBRACKET Constant RANGE Constant RBRACKET 
             {
               Type RESULT =null;
 		int loleft = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-3)).left;
@@ -1156,12 +1209,12 @@ class CUP$CUPParser$actions {
 		
             RESULT = new Type.SubrangeType( lo, hi );
         
-              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Type",9, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-4)), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Type",12, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-4)), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
             }
           return CUP$CUPParser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 23: // Type ::= TypeIdentifier 
+          case 31: // Type ::= TypeIdentifier 
             {
               Type RESULT =null;
 		int typeleft = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()).left;
@@ -1170,21 +1223,21 @@ class CUP$CUPParser$actions {
 		 
             RESULT = type;
         
-              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Type",9, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Type",12, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
             }
           return CUP$CUPParser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 22: // TypeDef ::= error 
+          case 30: // TypeDef ::= error 
             {
               Object RESULT =null;
 
-              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("TypeDef",8, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("TypeDef",11, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
             }
           return CUP$CUPParser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 21: // TypeDef ::= IDENTIFIER EQUALS Type SEMICOLON 
+          case 29: // TypeDef ::= IDENTIFIER EQUALS Type SEMICOLON 
             {
               Object RESULT =null;
 		int idleft = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-3)).left;
@@ -1199,30 +1252,30 @@ class CUP$CUPParser$actions {
                 errors.error( id + " already defined", pos );
             }
         
-              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("TypeDef",8, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-3)), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("TypeDef",11, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-3)), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
             }
           return CUP$CUPParser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 20: // TypeDefSeq ::= TypeDefSeq TypeDef 
+          case 28: // TypeDefSeq ::= TypeDefSeq TypeDef 
             {
               Object RESULT =null;
 
-              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("TypeDefSeq",7, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-1)), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("TypeDefSeq",10, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-1)), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
             }
           return CUP$CUPParser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 19: // TypeDefSeq ::= TypeDef 
+          case 27: // TypeDefSeq ::= TypeDef 
             {
               Object RESULT =null;
 
-              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("TypeDefSeq",7, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("TypeDefSeq",10, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
             }
           return CUP$CUPParser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 18: // Constant ::= error 
+          case 26: // ConstFactor ::= error 
             {
               ConstExp RESULT =null;
 		int errleft = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()).left;
@@ -1232,12 +1285,26 @@ class CUP$CUPParser$actions {
             RESULT = new ConstExp.ErrorNode( new Position( errleft ),
                                              symtab.getCurrentScope() );
         
-              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Constant",6, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("ConstFactor",9, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+            }
+          return CUP$CUPParser$result;
+
+          /*. . . . . . . . . . . . . . . . . . . .*/
+          case 25: // ConstFactor ::= LPAREN Constant RPAREN 
+            {
+              ConstExp RESULT =null;
+		int cleft = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-1)).left;
+		int cright = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-1)).right;
+		ConstExp c = (ConstExp)((java_cup.runtime.Symbol) CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-1)).value;
+		 
+            RESULT = c; 
+        
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("ConstFactor",9, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-2)), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
             }
           return CUP$CUPParser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 17: // Constant ::= IDENTIFIER 
+          case 24: // ConstFactor ::= IDENTIFIER 
             {
               ConstExp RESULT =null;
 		int idleft = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()).left;
@@ -1247,12 +1314,26 @@ class CUP$CUPParser$actions {
             RESULT = new ConstExp.ConstIdNode( new Position( idleft ), 
                     symtab.getCurrentScope(), id );
         
-              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Constant",6, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("ConstFactor",9, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+            }
+          return CUP$CUPParser$result;
+
+          /*. . . . . . . . . . . . . . . . . . . .*/
+          case 23: // ConstFactor ::= PLUS ConstFactor 
+            {
+              ConstExp RESULT =null;
+		int cleft = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()).left;
+		int cright = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()).right;
+		ConstExp c = (ConstExp)((java_cup.runtime.Symbol) CUP$CUPParser$stack.peek()).value;
+		 
+            RESULT = c; 
+        
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("ConstFactor",9, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-1)), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
             }
           return CUP$CUPParser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 16: // Constant ::= MINUS Constant 
+          case 22: // ConstFactor ::= MINUS ConstFactor 
             {
               ConstExp RESULT =null;
 		int opleft = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-1)).left;
@@ -1265,12 +1346,12 @@ class CUP$CUPParser$actions {
             RESULT = new ConstExp.NegateNode( new Position( opleft ), 
                     symtab.getCurrentScope(), c ); 
         
-              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Constant",6, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-1)), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("ConstFactor",9, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-1)), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
             }
           return CUP$CUPParser$result;
 
           /*. . . . . . . . . . . . . . . . . . . .*/
-          case 15: // Constant ::= NUMBER 
+          case 21: // ConstFactor ::= NUMBER 
             {
               ConstExp RESULT =null;
 		int nleft = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()).left;
@@ -1280,6 +1361,111 @@ class CUP$CUPParser$actions {
             RESULT = new ConstExp.NumberNode( new Position( nleft), 
                     symtab.getCurrentScope(), Predefined.INTEGER_TYPE, n ); 
         
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("ConstFactor",9, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+            }
+          return CUP$CUPParser$result;
+
+          /*. . . . . . . . . . . . . . . . . . . .*/
+          case 20: // ConstTerm ::= ConstTerm MulOp ConstFactor 
+            {
+              ConstExp RESULT =null;
+		int c1left = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-2)).left;
+		int c1right = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-2)).right;
+		ConstExp c1 = (ConstExp)((java_cup.runtime.Symbol) CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-2)).value;
+		int opleft = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-1)).left;
+		int opright = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-1)).right;
+		Operator op = (Operator)((java_cup.runtime.Symbol) CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-1)).value;
+		int c2left = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()).left;
+		int c2right = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()).right;
+		ConstExp c2 = (ConstExp)((java_cup.runtime.Symbol) CUP$CUPParser$stack.peek()).value;
+		
+            RESULT = new ConstExp.OperatorNode( new Position( opleft ),
+                    symtab.getCurrentScope(), op, c1, c2 );
+        
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("ConstTerm",8, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-2)), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+            }
+          return CUP$CUPParser$result;
+
+          /*. . . . . . . . . . . . . . . . . . . .*/
+          case 19: // ConstTerm ::= ConstFactor 
+            {
+              ConstExp RESULT =null;
+		int cleft = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()).left;
+		int cright = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()).right;
+		ConstExp c = (ConstExp)((java_cup.runtime.Symbol) CUP$CUPParser$stack.peek()).value;
+		
+            RESULT = c;
+        
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("ConstTerm",8, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+            }
+          return CUP$CUPParser$result;
+
+          /*. . . . . . . . . . . . . . . . . . . .*/
+          case 18: // ConstSum ::= ConstSum AddOp ConstTerm 
+            {
+              ConstExp RESULT =null;
+		int c1left = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-2)).left;
+		int c1right = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-2)).right;
+		ConstExp c1 = (ConstExp)((java_cup.runtime.Symbol) CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-2)).value;
+		int opleft = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-1)).left;
+		int opright = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-1)).right;
+		Operator op = (Operator)((java_cup.runtime.Symbol) CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-1)).value;
+		int c2left = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()).left;
+		int c2right = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()).right;
+		ConstExp c2 = (ConstExp)((java_cup.runtime.Symbol) CUP$CUPParser$stack.peek()).value;
+		
+            RESULT = new ConstExp.OperatorNode( new Position( opleft ),
+                    symtab.getCurrentScope(), op, c1, c2 );
+        
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("ConstSum",7, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-2)), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+            }
+          return CUP$CUPParser$result;
+
+          /*. . . . . . . . . . . . . . . . . . . .*/
+          case 17: // ConstSum ::= ConstTerm 
+            {
+              ConstExp RESULT =null;
+		int cleft = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()).left;
+		int cright = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()).right;
+		ConstExp c = (ConstExp)((java_cup.runtime.Symbol) CUP$CUPParser$stack.peek()).value;
+		
+            RESULT = c;
+        
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("ConstSum",7, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+            }
+          return CUP$CUPParser$result;
+
+          /*. . . . . . . . . . . . . . . . . . . .*/
+          case 16: // Constant ::= ConstSum Relation ConstSum 
+            {
+              ConstExp RESULT =null;
+		int c1left = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-2)).left;
+		int c1right = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-2)).right;
+		ConstExp c1 = (ConstExp)((java_cup.runtime.Symbol) CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-2)).value;
+		int opleft = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-1)).left;
+		int opright = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-1)).right;
+		Operator op = (Operator)((java_cup.runtime.Symbol) CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-1)).value;
+		int c2left = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()).left;
+		int c2right = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()).right;
+		ConstExp c2 = (ConstExp)((java_cup.runtime.Symbol) CUP$CUPParser$stack.peek()).value;
+		
+            RESULT = new ConstExp.OperatorNode( new Position( opleft ),
+                    symtab.getCurrentScope(), op, c1, c2 );
+        
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Constant",6, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.elementAt(CUP$CUPParser$top-2)), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+            }
+          return CUP$CUPParser$result;
+
+          /*. . . . . . . . . . . . . . . . . . . .*/
+          case 15: // Constant ::= ConstSum 
+            {
+              ConstExp RESULT =null;
+		int cleft = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()).left;
+		int cright = ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()).right;
+		ConstExp c = (ConstExp)((java_cup.runtime.Symbol) CUP$CUPParser$stack.peek()).value;
+		
+            RESULT = c;
+        
               CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("Constant",6, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
             }
           return CUP$CUPParser$result;
@@ -1482,7 +1668,8 @@ class CUP$CUPParser$actions {
             /* This action occurs before the whole program is recognised.
              * Construct initial symbol table with current scope the 
              * predefined scope. */
-            symtab = new SymbolTable(); 
+            errors = parser.getErrors();
+            symtab = new SymbolTable( errors ); 
             /* Set up a dummy symbol table entry for the main program */
             SymEntry.ProcedureEntry proc = 
                 symtab.getCurrentScope().addProcedure( "<main>", 
@@ -1496,7 +1683,7 @@ class CUP$CUPParser$actions {
             Scope blockLocals = symtab.newScope( proc );
             proc.setLocalScope( blockLocals );
         
-              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("NT$0",30, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
+              CUP$CUPParser$result = parser.getSymbolFactory().newSymbol("NT$0",33, ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), ((java_cup.runtime.Symbol)CUP$CUPParser$stack.peek()), RESULT);
             }
           return CUP$CUPParser$result;
 
@@ -3,6 +3,7 @@ package parser;
 
 import java.io.IOException;
 
+import source.Errors;
 import source.Source;
 
 /** 
@@ -16,8 +17,9 @@ import source.Source;
 
 public class CUPScanner extends Lexer {
 
-    public CUPScanner( Source s ) throws IOException 
+    public CUPScanner( Source s, Errors errors ) throws IOException 
     {
         super(s);
+        this.errors = errors;
     }
 }
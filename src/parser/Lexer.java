@@ -14,7 +14,7 @@
 package parser;
 
 import java_cup.runtime.*;
-import source.ErrorHandler;
+import source.Errors;
 import source.Severity;
 import source.Position;
 
@@ -297,6 +297,9 @@ class Lexer implements java_cup.runtime.Scanner {
   private boolean zzEOFDone;
 
   /* user code: */
+    /** Handler for lexical errors, set by the subclass CUPScanner. */
+    protected Errors errors;
+
     /** To create a new java_cup.runtime.Symbol.
      * @param kind is an integer code representing the token.
      * Note that CUP and JFlex use integers to represent token kinds.
@@ -714,7 +717,7 @@ class Lexer implements java_cup.runtime.Scanner {
           value = Integer.parseInt( yytext() );
       } catch( NumberFormatException e ) { 
           /* Can only happen if the number is too big */
-          ErrorHandler.getErrorHandler().error(
+          errors.error(
             "integer too large", new Position( yychar ) );
       }
       return makeToken( CUPToken.NUMBER, new Integer( value ) );
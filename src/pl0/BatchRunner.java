@@ -0,0 +1,238 @@
+package pl0;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import machine.InputPort;
+import machine.MemoryLayout;
+import machine.StackMachine;
+import machine.StreamInputPort;
+import source.Errors;
+import source.Source;
+import tree.ClosureGenerator;
+import tree.Procedures;
+import tree.StatementNode;
+
+/**
+ * class BatchRunner - compiles and runs many programs in one JVM.
+ * @version $Revision: 22 $  $Date: 2014-05-20 15:14:36 +1000 (Tue, 20 May 2014) $
+ * The programs are compiled and executed on a fixed pool of worker
+ * threads. Each program has its own Compiler, error handler and output
+ * stream, and reads its own copy of the batch's input. The results are
+ * reported in the order the files were given, followed by a summary of
+ * the outcome and the compile and run times of each program.
+ */
+public class BatchRunner {
+    /** Number of worker threads */
+    private final int workers;
+    /** Execute the programs after compiling them */
+    private final boolean executing;
+    /** Translate frequently executed procedures to JVM code */
+    private final boolean tiered;
+    /** Execute the tree as closures rather than stack machine code */
+    private final boolean closing;
+    /** Input given to every program */
+    private final byte[] input;
+    /** Sizes of the code, stack and heap of every program */
+    private final MemoryLayout layout;
+    /** Optimise the generated code */
+    private boolean optimizing = false;
+
+    public BatchRunner( int workers, boolean executing, boolean tiered,
+            boolean closing, byte[] input, MemoryLayout layout ) {
+        this.workers = workers;
+        this.executing = executing;
+        this.tiered = tiered;
+        this.closing = closing;
+        this.input = input;
+        this.layout = layout;
+    }
+    public void setOptimizing( boolean optimizing ) {
+        this.optimizing = optimizing;
+    }
+
+    /** Outcome of compiling and running a single program */
+    public static class Result {
+        private final String file;
+        /** Output of the compiler and the program */
+        private String output = "";
+        /** Description of the outcome */
+        private String status = "ok";
+        private boolean passed = false;
+        private long compileNanos = 0;
+        private long runNanos = 0;
+
+        Result( String file ) {
+            this.file = file;
+        }
+        public String getFile() {
+            return file;
+        }
+        public String getOutput() {
+            return output;
+        }
+        public String getStatus() {
+            return status;
+        }
+        /** @return true if the program compiled without errors and, if it
+         * was executed, terminated without a runtime error */
+        public boolean passed() {
+            return passed;
+        }
+        public long getCompileNanos() {
+            return compileNanos;
+        }
+        public long getRunNanos() {
+            return runNanos;
+        }
+    }
+
+    /** Expand the command line arguments into the list of source files:
+     * a directory stands for the source files it contains, in order of
+     * their names. */
+    public static List<String> sourceFiles( List<String> args ) {
+        List<String> files = new ArrayList<String>();
+        for( String arg : args ) {
+            File dir = new File( arg );
+            if( dir.isDirectory() ) {
+                String[] names = dir.list( (d, name) ->
+                        name.endsWith( PL0_LALR.SourceSuffix ) );
+                if( names != null ) {
+                    Arrays.sort( names );
+                    for( String name : names ) {
+                        files.add( new File( dir, name ).getPath() );
+                    }
+                }
+            } else {
+                files.add( arg );
+            }
+        }
+        return files;
+    }
+
+    /** Compile and run the files on the worker pool.
+     * @return the results in the same order as files */
+    public List<Result> run( List<String> files ) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool( workers );
+        try {
+            List<Future<Result>> futures = new ArrayList<Future<Result>>();
+            for( final String file : files ) {
+                futures.add( pool.submit( new Callable<Result>() {
+                    public Result call() {
+                        return runFile( file );
+                    }
+                } ) );
+            }
+            List<Result> results = new ArrayList<Result>();
+            for( Future<Result> future : futures ) {
+                try {
+                    results.add( future.get() );
+                } catch( ExecutionException e ) {
+                    /* runFile handles all exceptions of the program */
+                    throw new IllegalStateException( e.getCause() );
+                }
+            }
+            return results;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /** Compile and run a single program, capturing its output */
+    private Result runFile( String file ) {
+        Result result = new Result( file );
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream( buf, true );
+        long start = System.nanoTime();
+        try {
+            Compiler compiler = new Compiler( new Source( file ), out, false );
+            compiler.setOptimizing( optimizing );
+            Errors errors = compiler.getErrors();
+            StatementNode.ProgramNode tree = compiler.compile( true );
+            Procedures code = null;
+            ClosureGenerator.Program closures = null;
+            if( tree != null ) {
+                if( closing ) {
+                    closures = compiler.generateClosures( tree );
+                } else {
+                    code = compiler.generateCode( tree );
+                }
+            }
+            errors.flush();
+            errors.errorSummary();
+            StackMachine machine = null;
+            if( code != null ) {
+                machine = new StackMachine( errors, out, false, code, layout );
+                machine.setTiered( tiered );
+            }
+            result.compileNanos = System.nanoTime() - start;
+            if( tree == null ) {
+                result.status = "compile errors";
+            } else if( executing ) {
+                InputPort in =
+                    new StreamInputPort( new ByteArrayInputStream( input ) );
+                out.println( "Running ..." );
+                start = System.nanoTime();
+                boolean failed;
+                if( closures != null ) {
+                    closures.setLayout( layout );
+                    closures.setInput( in );
+                    closures.run();
+                    failed = closures.hadRuntimeError();
+                } else {
+                    machine.setInput( in );
+                    machine.run();
+                    failed = machine.hadRuntimeError();
+                }
+                result.runNanos = System.nanoTime() - start;
+                if( failed ) {
+                    result.status = "runtime error";
+                } else {
+                    result.passed = true;
+                }
+            } else {
+                result.passed = true;
+            }
+        } catch( Exception | StackOverflowError e ) {
+            out.println( "Got exception: " + e + "... Aborting" );
+            result.status = "exception";
+        }
+        out.flush();
+        result.output = buf.toString();
+        return result;
+    }
+
+    /** Print the output of each program, in order, and then a summary */
+    public static void printResults( List<Result> results, PrintStream out ) {
+        int passed = 0;
+        for( Result result : results ) {
+            out.println( "==== " + result.getFile() + " ====" );
+            out.print( result.getOutput() );
+            if( result.passed() ) {
+                passed++;
+            }
+        }
+        out.println( "==== Summary ====" );
+        out.println( String.format( "%-40s %-22s %12s %12s",
+                "File", "Result", "Compile ms", "Run ms" ) );
+        for( Result result : results ) {
+            out.println( String.format( "%-40s %-22s %12.1f %12.1f",
+                    result.getFile(),
+                    result.passed() ? "pass" : "FAIL: " + result.getStatus(),
+                    result.getCompileNanos() / 1e6,
+                    result.getRunNanos() / 1e6 ) );
+        }
+        out.println( passed + " passed, " + (results.size() - passed) +
+                " failed" );
+    }
+}
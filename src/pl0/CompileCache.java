@@ -0,0 +1,131 @@
+package pl0;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import machine.ProgramImage;
+import machine.StackMachine;
+
+/**
+ * class CompileCache - cache of the compiled code of source programs.
+ * @version $Revision: 22 $  $Date: 2014-05-20 15:14:36 +1000 (Tue, 20 May 2014) $
+ * The code is kept as program images in a cache directory, named by a
+ * hash of the contents of the source file and the compiler version, so
+ * an unchanged program is run without being compiled again.
+ * Images are stored atomically, so concurrent compilers never see a
+ * partly written image. When the total size of the images exceeds the
+ * limit the least recently used images are removed.
+ */
+public class CompileCache {
+    /** Version of the compiler. Must be changed whenever the code
+     * generated for a program changes, so that older images are not used. */
+    public static final String COMPILER_VERSION = "PL0_LALR 3";
+    /** Default limit on the total size of the cached images in bytes */
+    public static final long DEFAULT_LIMIT = 64L * 1024 * 1024;
+    /** Suffix of image files in the cache directory */
+    private static final String SUFFIX = ".ibsm";
+
+    /** Directory holding the cached images */
+    private final Path directory;
+    /** Limit on the total size of the cached images in bytes */
+    private final long limit;
+
+    public CompileCache( String directory, long limit ) throws IOException {
+        this.directory = Paths.get( directory );
+        this.limit = limit;
+        Files.createDirectories( this.directory );
+    }
+    /** @return the file holding the image of the source file */
+    public String imageFile( String srcFile ) throws IOException {
+        return imageFile( srcFile, "" );
+    }
+    /** @return the file holding the image of the source file compiled
+     * with the options affecting its code, e.g. "-O" */
+    public String imageFile( String srcFile, String options )
+            throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance( "SHA-256" );
+        } catch( NoSuchAlgorithmException e ) {
+            throw new IOException( e );
+        }
+        digest.update( COMPILER_VERSION.getBytes( StandardCharsets.UTF_8 ) );
+        digest.update( (byte)0 );
+        if( !options.isEmpty() ) {
+            digest.update( options.getBytes( StandardCharsets.UTF_8 ) );
+            digest.update( (byte)0 );
+        }
+        digest.update( Files.readAllBytes( Paths.get( srcFile ) ) );
+        StringBuilder name = new StringBuilder();
+        for( byte b : digest.digest() ) {
+            name.append( String.format( "%02x", b ) );
+        }
+        return directory.resolve( name + SUFFIX ).toString();
+    }
+    /** Look up a cached image.
+     * @param imageFile file for the image, as given by imageFile
+     * @return the cached image or null if there is none */
+    public ProgramImage lookup( String imageFile ) {
+        Path image = Paths.get( imageFile );
+        if( !Files.exists( image ) ) {
+            return null;
+        }
+        try {
+            ProgramImage result = ProgramImage.map( image.toString() );
+            /* Mark the image as recently used */
+            Files.setLastModifiedTime( image,
+                    FileTime.fromMillis( System.currentTimeMillis() ) );
+            return result;
+        } catch( IOException e ) {
+            /* Removed by another compiler, or not a valid image */
+            return null;
+        }
+    }
+    /** Store the image of the program loaded in machine, and then remove
+     * the least recently used images if the cache is over its size limit.
+     * @param imageFile file for the image, as given by imageFile */
+    public void store( String imageFile, StackMachine machine )
+        throws IOException
+    {
+        Path image = Paths.get( imageFile );
+        Path temp = Files.createTempFile( directory, "new", ".tmp" );
+        try {
+            machine.writeImage( temp.toString() );
+            Files.move( temp, image, StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING );
+        } finally {
+            Files.deleteIfExists( temp );
+        }
+        evict();
+    }
+    /** Remove the least recently used images until the total size of the
+     * images is within the limit */
+    private void evict() {
+        File[] images = directory.toFile().listFiles(
+                (dir, name) -> name.endsWith( SUFFIX ) );
+        if( images == null ) {
+            return;
+        }
+        long total = 0;
+        for( File image : images ) {
+            total += image.length();
+        }
+        Arrays.sort( images, Comparator.comparingLong( File::lastModified ) );
+        for( int i = 0; i < images.length && total > limit; i++ ) {
+            long size = images[i].length();
+            if( images[i].delete() ) {
+                total -= size;
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package pl0;
+
+import java.io.PrintStream;
+
+import parser.CUPParser;
+import parser.CUPScanner;
+import source.ErrorHandler;
+import source.Errors;
+import source.Source;
+import tree.ClosureGenerator;
+import tree.CodeGenerator;
+import tree.Procedures;
+import tree.StatementNode;
+import tree.StaticChecker;
+
+/**
+ * class Compiler - compiles a single PL0 program.
+ * @version $Revision: 22 $  $Date: 2014-05-20 15:14:36 +1000 (Tue, 20 May 2014) $
+ * Each compiler owns its error handler, output stream and symbol table
+ * (with its own predefined scope), and shares only the immutable
+ * predefined types, so any number of compilers may be used concurrently
+ * on different threads. A compiler is used for one program only.
+ */
+public class Compiler {
+    /** Program source */
+    private final Source src;
+    /** Output stream for compiler messages */
+    private final PrintStream outStream;
+    /** Error handler for this compilation */
+    private final Errors errors;
+    /** Debugging messages during parsing */
+    private final boolean debugParse;
+    /** Optimise the generated code */
+    private boolean optimizing = false;
+
+    /** @param src program source
+     * @param outStream output stream for compiler and error messages
+     * @param debugParse debugging messages during parsing */
+    public Compiler( Source src, PrintStream outStream, boolean debugParse ) {
+        this.src = src;
+        this.outStream = outStream;
+        this.errors = new ErrorHandler( outStream, src, debugParse );
+        this.debugParse = debugParse;
+    }
+    public Errors getErrors() {
+        return errors;
+    }
+    public void setOptimizing( boolean optimizing ) {
+        this.optimizing = optimizing;
+    }
+
+    /** Parse and check the program
+     * @param staticCheck do the static checking
+     * @return checked tree for the program, or null if there were errors
+     *      or the program was not checked
+     */
+    public StatementNode.ProgramNode compile( boolean staticCheck )
+        throws Exception
+    {
+        /** Abstract syntax tree returned by parser */
+        StatementNode.ProgramNode tree = null;
+        /** Abstract syntax tree returned by parser.
+         * Really of type Tree.ProgramNode but the parser generator doesn't know that. */
+        Object parseResult;
+
+        outStream.println( "Compiling " + src.getFileName() );
+        /* Set up the lexical analyzer using the source program stream */
+        CUPScanner lex = new CUPScanner( src, errors );
+        /** Generated parser.
+         * Set up the parser with the lexical analyzer. */
+        CUPParser parser = new CUPParser( lex, errors );
+        if( debugParse ) {
+            parseResult = parser.debug_parse().value;
+        } else {
+            parseResult = parser.parse().value;
+        }
+        /* Flush any error messages from the parse */
+        errors.flush();
+        outStream.println( "Parsing complete" );
+        if( staticCheck && parseResult instanceof StatementNode.ProgramNode ) {
+            tree = (StatementNode.ProgramNode)parseResult;
+            /* Perform the static semantics analysis */
+            StaticChecker staticSemantics = new StaticChecker( errors );
+            staticSemantics.visitProgramNode( tree );
+            /* Don't generate any code if there are any errors. */
+            if( errors.hadErrors() ) {
+                /* Skip code generation if there were errors */
+                tree = null;
+            }
+            errors.flush();
+            outStream.println( "Static semantic analysis complete" );
+        }
+        return tree;
+    }
+    /** Generate the stack machine code for a checked program */
+    public Procedures generateCode( StatementNode.ProgramNode tree ) {
+        CodeGenerator generator = new CodeGenerator( errors );
+        generator.setOptimizing( optimizing );
+        Procedures code = generator.generateCode( tree );
+        code.setSource( src );
+        outStream.println( "Code generation complete" );
+        return code;
+    }
+    /** Translate a checked program into closures */
+    public ClosureGenerator.Program generateClosures(
+            StatementNode.ProgramNode tree ) {
+        ClosureGenerator.Program closures =
+            new ClosureGenerator( errors ).generateClosures( tree, outStream );
+        outStream.println( "Closure generation complete" );
+        return closures;
+    }
+}
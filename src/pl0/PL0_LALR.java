@@ -1,16 +1,24 @@
 package pl0;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 
-import parser.CUPParser;
-import parser.CUPScanner;
 import source.ErrorHandler;
 import source.Errors;
 import source.Source;
-import tree.CodeGenerator;
+import tree.ClosureGenerator;
 import tree.Procedures;
-import tree.StaticChecker;
 import tree.StatementNode;
+import machine.Coverage;
+import machine.MappedInputPort;
+import machine.MemoryLayout;
+import machine.ProgramImage;
 import machine.StackMachine;
 
 /** 
@@ -27,15 +35,58 @@ public class PL0_LALR {
     public static void usage() {
         outStream.println(
             "PL0 Compiler\n" +
-            "Usage: java pl0.PL0_LALR [-cdhptv] <filename>\n"+
+            "Usage: java pl0.PL0_LALR [-acdhOprstvx] [-cov] [-f flamefile] [-i inputfile] [-j jarfile]" +
+            " [-k cachedir] [-m layout] [-o imagefile] [-P filter] [-S statsfile]" +
+            " [-T tracefile]" +
+            " [-w workers] <filename>...\n"+
+            "  -a  =  execute the syntax tree directly as closures" +
+            " (no stack machine code,\n" +
+            "        so not with -j or -o)\n" +
             "  -c  =  compile only (no execution)\n" +
+            "  -cov  =  count the statements executed, writing the source" +
+            " annotated with\n" +
+            "        the counts to <filename>.cov and a summary to" +
+            " <filename>.cov.json\n" +
             "  -d  =  debug messages on\n" +
+            "  -f flamefile  =  profile the call stacks, writing them to" +
+            " flamefile in\n" +
+            "        collapsed stack format for flame graphs\n" +
             "  -h  =  output this usage information\n" +
+            "  -i inputfile  =  read the program's input from inputfile" +
+            " rather than stdin\n" +
+            "  -j jarfile  =  write the program as a runnable JAR file" +
+            " (no execution)\n" +
+            "  -k cachedir  =  reuse the code of an unchanged program" +
+            " from cachedir\n" +
+            "  -m layout  =  memory sizes in words, e.g." +
+            " code=9000,stack=1000,heap=0 (the defaults)\n" +
+            "  -o imagefile  =  write the compiled program as an image file\n" +
+            "  -O  =  optimise the generated code\n" +
             "  -p  =  parse only (implies -c)\n" +
+            "  -P filter  =  only trace the procedures and address ranges" +
+            " listed in filter,\n" +
+            "        e.g. p,q,1000..1020\n" +
+            "  -r  =  <filename> is an image file, which is run without" +
+            " compiling\n" +
+            "  -s  =  report execution statistics when the program" +
+            " terminates\n" +
+            "  -S statsfile  =  also write the execution statistics to" +
+            " statsfile as JSON\n" +
             "  -t  =  trace execution of resulting code\n" +
+            "  -T tracefile  =  trace execution as binary records written" +
+            " to tracefile,\n" +
+            "        printed by java machine.TraceDecoder tracefile\n" +
             "  -v  =  verbose output of generated code\n" +
+            "  -w workers  =  number of worker threads in batch mode\n" +
+            "  -x  =  execute frequently used procedures as JVM code\n" +
             " <filename> is compiled, and if no errors the generated code" +
-            " is executed unless -c or -p is given." );
+            " is executed unless -c or -p is given.\n" +
+            " Given several files or a directory of files, they are" +
+            " compiled and run in\n" +
+            " parallel, each with a copy of the standard input, followed" +
+            " by a summary.\n" +
+            " The options -cov, -f, -j, -k, -o, -P, -r, -s, -S, -t and -T" +
+            " apply to\n a single file only." );
     }
     public static String SourceSuffix = ".pl0";
 
@@ -43,12 +94,20 @@ public class PL0_LALR {
     public static void main( String args[] ) throws java.lang.Exception {
         /** Name of the input source program file. */
         String srcFile = null;
+        /** All the files (or directories) given */
+        List<String> srcFiles = new ArrayList<String>();
         /** Error handler for reporting error messages */
         Errors errors;
         /** Input source stream */
         Source src;
+        /** Checked abstract syntax tree of the program */
+        StatementNode.ProgramNode tree;
         /** Generated code for the procedures */
         Procedures code = null;
+        /** Program translated into closures */
+        ClosureGenerator.Program closures = null;
+        /** Stack machine with the program loaded */
+        StackMachine machine = null;
         /** Perform a static check */
         boolean staticCheck = true;
         /** Execute after successful compile */
@@ -59,14 +118,117 @@ public class PL0_LALR {
         boolean verbose = false;
         /** Debug mode for parser - quite verbose */
         boolean debug = false;
+        /** Translate frequently executed procedures to JVM code */
+        boolean tiered = false;
+        /** Execute the tree as closures rather than stack machine code */
+        boolean closing = false;
+        /** JAR file to which the compiled program is exported */
+        String jarFile = null;
+        /** Image file to which the compiled program is written */
+        String imageFile = null;
+        /** Run an image file rather than compiling a source file */
+        boolean runImage = false;
+        /** Directory of the cache of compiled code */
+        String cacheDir = null;
+        /** File read by the program instead of stdin */
+        String inputFile = null;
+        /** Number of worker threads for batch mode */
+        int workers = Runtime.getRuntime().availableProcessors();
+        /** Sizes of the code, stack and heap */
+        MemoryLayout layout = MemoryLayout.DEFAULT;
+        /** Collect and report execution statistics */
+        boolean statistics = false;
+        /** File to which the statistics are written as JSON */
+        String statsFile = null;
+        /** File to which the profile of the call stacks is written */
+        String flameFile = null;
+        /** Count the statements executed */
+        boolean covering = false;
+        /** Remove redundant instructions from the generated code */
+        boolean optimizing = false;
+        /** File to which a binary trace of execution is written */
+        String traceFile = null;
+        /** Procedures and address ranges traced, or null for all */
+        String traceFilter = null;
 
         /* Parse command line */
-        for( String arg : args ) {
-            if( arg.charAt(0) == '-' ) { /* Option */
+        for( int i = 0; i < args.length; i++ ) {
+            String arg = args[i];
+            if( arg.equals( "-cov" ) ) { /* Statement coverage */
+                covering = true;
+            } else if( arg.charAt(0) == '-' ) { /* Option */
                 switch( arg.charAt(1) ) {
+                case 'a': /* Execute the tree as closures */
+                    closing = true;
+                    break;
                 case 'c': /* Compile only */
                     executing = false;
                     break;
+                case 'f': /* Profile the call stacks */
+                    if( i + 1 == args.length ) {
+                        usage();
+                        System.exit(1);
+                    }
+                    flameFile = args[++i];
+                    break;
+                case 'i': /* Input file */
+                    if( i + 1 == args.length ) {
+                        usage();
+                        System.exit(1);
+                    }
+                    inputFile = args[++i];
+                    break;
+                case 'j': /* Export as a runnable JAR */
+                    if( i + 1 == args.length ) {
+                        usage();
+                        System.exit(1);
+                    }
+                    jarFile = args[++i];
+                    executing = false;
+                    break;
+                case 'o': /* Write an image file */
+                    if( i + 1 == args.length ) {
+                        usage();
+                        System.exit(1);
+                    }
+                    imageFile = args[++i];
+                    break;
+                case 'O': /* Optimise the generated code */
+                    optimizing = true;
+                    break;
+                case 'k': /* Cache compiled code */
+                    if( i + 1 == args.length ) {
+                        usage();
+                        System.exit(1);
+                    }
+                    cacheDir = args[++i];
+                    break;
+                case 'm': /* Memory layout */
+                    if( i + 1 == args.length ) {
+                        usage();
+                        System.exit(1);
+                    }
+                    try {
+                        layout = MemoryLayout.parse( args[++i] );
+                    } catch( IllegalArgumentException e ) {
+                        outStream.println( e.getMessage() );
+                        System.exit(1);
+                    }
+                    break;
+                case 'r': /* Run an image file */
+                    runImage = true;
+                    break;
+                case 's': /* Execution statistics */
+                    statistics = true;
+                    break;
+                case 'S': /* Execution statistics as JSON */
+                    if( i + 1 == args.length ) {
+                        usage();
+                        System.exit(1);
+                    }
+                    statsFile = args[++i];
+                    statistics = true;
+                    break;
                 case 'd': /* Debug parse */
                     debug = true;
                     break;
@@ -77,9 +239,42 @@ public class PL0_LALR {
                 case 't': /* Trace program at runtime. */
                     tracing = true;
                     break;
+                case 'T': /* Binary trace written to a file */
+                    if( i + 1 == args.length ) {
+                        usage();
+                        System.exit(1);
+                    }
+                    traceFile = args[++i];
+                    tracing = true;
+                    break;
+                case 'P': /* Limit the trace to some of the code */
+                    if( i + 1 == args.length ) {
+                        usage();
+                        System.exit(1);
+                    }
+                    traceFilter = args[++i];
+                    break;
                 case 'v': /* Verbose output (of generated code) */
                     verbose = true;
                     break;
+                case 'w': /* Worker threads for batch mode */
+                    if( i + 1 == args.length ) {
+                        usage();
+                        System.exit(1);
+                    }
+                    try {
+                        workers = Integer.parseInt( args[++i] );
+                    } catch( NumberFormatException e ) {
+                        workers = 0;
+                    }
+                    if( workers < 1 ) {
+                        usage();
+                        System.exit(1);
+                    }
+                    break;
+                case 'x': /* Tiered execution with compiled procedures */
+                    tiered = true;
+                    break;
                 case 'h': /* Help */
                 default:
                     usage();
@@ -88,7 +283,28 @@ public class PL0_LALR {
                 }
             } else { /* ( arg.charAt(0) != '-' ) Not Option */
                 srcFile = arg;
+                srcFiles.add( arg );
+            }
+        }
+        if( closing && (jarFile != null || imageFile != null) ) {
+            /* No stack machine code is generated to write out */
+            usage();
+            System.exit(1);
+        }
+        if( srcFiles.size() > 1 || 
+                (srcFile != null && new File( srcFile ).isDirectory()) ) {
+            /* Options for a single program are not supported in batch
+             * mode, so reject them rather than ignore them */
+            if( jarFile != null || imageFile != null || runImage ||
+                    tracing || traceFilter != null || statistics ||
+                    flameFile != null || covering || cacheDir != null ) {
+                usage();
+                System.exit(1);
             }
+            runBatch( BatchRunner.sourceFiles( srcFiles ), workers,
+                    executing && staticCheck, tiered, closing, optimizing,
+                    inputFile, layout );
+            return;
         }
         try {
             /* Set up the input source stream for the source file */
@@ -96,19 +312,112 @@ public class PL0_LALR {
                 outStream.println( "No source file specified." );
                 System.exit( 1 );
             }
-            src = new Source( srcFile );
-            /* Set up the error handler reference */
-            errors = new ErrorHandler( outStream, src, debug );
-            /* Compile the program */
-            code = compile( src, errors, verbose, staticCheck, debug );
-            if( code != null ) { /* run it if possible */
-                StackMachine machine;
-                machine = new StackMachine( errors, outStream, verbose, code );
+            /** Image of the program, if it need not be compiled */
+            ProgramImage image = null;
+            /** Cache of compiled code and the image file for srcFile */
+            CompileCache cache = null;
+            String cachedImage = null;
+            if( runImage ) {
+                image = ProgramImage.map( srcFile );
+            } else if( cacheDir != null && !closing && staticCheck &&
+                    !verbose && !debug ) {
+                cache = new CompileCache( cacheDir, CompileCache.DEFAULT_LIMIT );
+                cachedImage = cache.imageFile( srcFile,
+                        optimizing ? "-O" : "" );
+                image = cache.lookup( cachedImage );
+                if( image != null ) {
+                    outStream.println( "Using cached code for " + srcFile );
+                }
+            }
+            if( image != null ) {
+                /* Load the machine straight from the image */
+                errors = new ErrorHandler( outStream, null, debug );
+                machine = new StackMachine( errors, outStream, image, layout );
+            } else {
+                src = new Source( srcFile );
+                /* The compiler owns the error handler for the program */
+                Compiler compiler = new Compiler( src, outStream, debug );
+                compiler.setOptimizing( optimizing );
+                errors = compiler.getErrors();
+                /* Compile the program */
+                tree = compiler.compile( staticCheck );
+                if( tree != null ) {
+                    if( closing ) {
+                        /* Translate the tree into closures */
+                        closures = compiler.generateClosures( tree );
+                    } else {
+                        /* Generate the stack machine code */
+                        code = compiler.generateCode( tree );
+                    }
+                }
+                errors.flush();
+                errors.errorSummary();
+                if( closures != null && executing ) {
+                    outStream.println( "Running ..." );
+                    closures.setLayout( layout );
+                    if( inputFile != null ) {
+                        closures.setInput( new MappedInputPort( inputFile ) );
+                    }
+                    closures.run();
+                } else if( code != null ) {
+                    machine = new StackMachine( errors, outStream, verbose, code,
+                            layout );
+                    if( cache != null ) {
+                        cache.store( cachedImage, machine );
+                    }
+                }
+            }
+            if( machine != null ) { /* run it if possible */
+                if( imageFile != null ) {
+                    machine.writeImage( imageFile );
+                    outStream.println( "Wrote " + imageFile );
+                }
+                if( jarFile != null ) {
+                    machine.writeJar( jarFile );
+                    outStream.println( "Wrote " + jarFile );
+                }
                 if( executing ) {
                     outStream.println( "Running ..." );
                     machine.setTracing( tracing ? StackMachine.TRACE_ALL 
                                      : StackMachine.TRACE_NONE );
+                    if( traceFilter != null ) {
+                        try {
+                            machine.setTraceFilter( traceFilter );
+                        } catch( IllegalArgumentException e ) {
+                            outStream.println( e.getMessage() );
+                            System.exit(1);
+                        }
+                    }
+                    if( traceFile != null ) {
+                        machine.setTraceFile( traceFile );
+                    }
+                    machine.setTiered( tiered );
+                    machine.setStatistics( statistics );
+                    machine.setProfiling( flameFile != null );
+                    machine.setCoverage( covering );
+                    if( inputFile != null ) {
+                        machine.setInput( new MappedInputPort( inputFile ) );
+                    }
                     machine.run();
+                    if( traceFile != null ) {
+                        machine.closeTrace();
+                        outStream.println( "Wrote " + traceFile );
+                    }
+                    if( statsFile != null ) {
+                        Files.write( Paths.get( statsFile ), machine
+                                .getStatistics().toJson().getBytes( "UTF-8" ) );
+                        outStream.println( "Wrote " + statsFile );
+                    }
+                    if( flameFile != null ) {
+                        PrintStream flame = new PrintStream( flameFile );
+                        machine.getProfiler().write( flame );
+                        flame.close();
+                        outStream.println( "Wrote " + flameFile );
+                    }
+                    if( covering ) {
+                        writeCoverage( machine.getCoverage(), srcFile,
+                                !runImage );
+                    }
                 }
             }
         } catch( IOException e ) {
@@ -117,68 +426,48 @@ public class PL0_LALR {
         }
     }
 
-    /** Compile the program
-     * 
-     * @param src program source
-     * @param errors handler for errors
-     * @param verbose generate more messages during compilation
-     * @param staticCheck do the static checking
-     * @param debugParse debugging messages during parsing 
-     * @return generated code for procedures
-     */
-    private static Procedures compile( Source src, Errors errors,
-            boolean verbose, boolean staticCheck, boolean debugParse ) 
-        throws IOException, Exception
+    /** Write the coverage of the program, as a listing of its source
+     * annotated with the execution counts if it has a source file, and
+     * as a JSON summary */
+    private static void writeCoverage( Coverage coverage, String srcFile,
+            boolean hasSource ) throws IOException {
+        if( hasSource ) {
+            PrintStream listing = new PrintStream( srcFile + ".cov" );
+            coverage.writeListing( Files.readAllLines( Paths.get( srcFile ),
+                    Charset.defaultCharset() ), listing );
+            listing.close();
+            outStream.println( "Wrote " + srcFile + ".cov" );
+        }
+        Files.write( Paths.get( srcFile + ".cov.json" ),
+                coverage.toJson( srcFile ).getBytes( "UTF-8" ) );
+        outStream.println( "Wrote " + srcFile + ".cov.json" );
+    }
+
+    /** Compile and run the files in parallel, each with its own copy of
+     * the input file, or the standard input if it is null, and print their
+     * results in order */
+    private static void runBatch( List<String> files, int workers,
+            boolean executing, boolean tiered, boolean closing, 
+            boolean optimizing, String inputFile, MemoryLayout layout ) 
+        throws IOException, InterruptedException
     {
-        /** Abstract syntax tree returned by parser */
-        StatementNode.ProgramNode tree = null;
-        /** Generated code for procedures */
-        Procedures code = null;
-        /** Abstract syntax tree returned by parser. 
-         * Really of type Tree.ProgramNode but the parser generator doesn't know that. */
-        Object parseResult; 
-        
-        outStream.println( "Compiling " + src.getFileName() );
-        try {
-            /* Set up the lexical analyzer using the source program stream */
-            CUPScanner lex = new CUPScanner( src );
-            /** Generated parser.
-             * Set up the parser with the lexical analyzer. */
-            CUPParser parser = new CUPParser( lex );
-            if( debugParse ) {
-                parseResult = parser.debug_parse().value;
-            } else {
-                parseResult = parser.parse().value;
+        ByteArrayOutputStream input = new ByteArrayOutputStream();
+        if( inputFile != null ) {
+            input.write( Files.readAllBytes( Paths.get( inputFile ) ) );
+        } else if( executing ) {
+            byte[] bytes = new byte[ 4096 ];
+            for( int n; (n = System.in.read( bytes )) > 0; ) {
+                input.write( bytes, 0, n );
             }
-            /* Flush any error messages from the parse */
-            errors.flush();
-            outStream.println( "Parsing complete" );
-            if( staticCheck && parseResult instanceof StatementNode.ProgramNode ) {
-                tree = (StatementNode.ProgramNode)parseResult;
-                /* Perform the static semantics analysis */
-                StaticChecker staticSemantics = 
-                    new StaticChecker( ErrorHandler.getErrorHandler() );
-                staticSemantics.visitProgramNode( tree );           
-                /* Don't generate any code if there are any errors. */
-                if( ErrorHandler.getErrorHandler().hadErrors() ) {
-                    /* Skip code generation if there were errors */
-                    tree = null;
-                }
-                errors.flush();
-                outStream.println( "Static semantic analysis complete" );
-            }
-        } catch (IOException e) {
-            System.out.println( "Exception: " + e + "... Aborting" );
-            System.exit(1);
-        }
-        if( tree != null ) {
-            /* Generate the stack machine code */
-            CodeGenerator codeGen = new CodeGenerator( errors );
-            code = codeGen.generateCode( tree );
-            outStream.println( "Code generation complete" );
         }
-        errors.flush();
-        errors.errorSummary();
-        return code;
+        BatchRunner batch = 
+            new BatchRunner( workers, executing, tiered, closing, 
+                    input.toByteArray(), layout );
+        batch.setOptimizing( optimizing );
+        long start = System.nanoTime();
+        List<BatchRunner.Result> results = batch.run( files );
+        BatchRunner.printResults( results, outStream );
+        outStream.println( String.format( "%d files in %.1f ms using %d workers",
+                files.size(), (System.nanoTime() - start) / 1e6, workers ) );
     }
 }
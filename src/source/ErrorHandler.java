@@ -11,15 +11,14 @@ import java.util.List;
 /**
  * class ErrorHandler - Handles error message generated by the compiler.
  * @version $Revision: 14 $  $Date: 2013-05-08 10:40:38 +1000 (Wed, 08 May 2013) $
+ * Each compilation has its own handler, which is passed explicitly to
+ * the phases that report errors.
  */
 public class ErrorHandler implements Errors 
 {
     private static final int LINE_NUM_WIDTH = 6;
     private static final int MAX_ERRORS = 100;
 
-    /** global handle on the singleton error handler. */
-    private static ErrorHandler handler = null;
-
     /** Accumulated error messages. */
     private List<CompileError> errors;
     /** Number of errors. */
@@ -38,24 +37,18 @@ public class ErrorHandler implements Errors
     private int debugLevel;
     
     public ErrorHandler( PrintStream output, Source source, boolean debug ) {
-        assert handler == null; // only one instance allowed
         this.errors = new ArrayList<CompileError>( MAX_ERRORS );
         this.numberOfErrors = 0;
         this.output = output;
         this.source = source;
         this.debug = debug;
         this.debugLevel = 0;
-        handler = this;
     }
     /** count errors of each severity for the program. 
     private Map<Severity, Integer> errorCounts = 
         new EnumMap<Severity, Integer>( Severity.class ); 
     */
 
-    /** @return the singleton error handler. */
-    public static Errors getErrorHandler() {
-        return handler;
-    }
     /** Signal an error at the given position */
     public void error( String m, Position pos ) {
         errorMessage( m, Severity.ERROR, pos );
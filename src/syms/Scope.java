@@ -5,6 +5,7 @@ import java.util.TreeMap;
 import java.util.SortedMap;
 
 import machine.StackMachine;
+import source.Errors;
 import source.Position;
 import syms.SymEntry;
 import syms.SymEntry.ProcedureEntry;
@@ -37,6 +38,8 @@ public class Scope {
     private int variableSpace;
     /** true if this is an extension of its parent scope */
     private boolean extension;
+    /** Error handler of the compilation this scope belongs to */
+    private Errors errors;
 
 
     /** This constructs a single scope within a symbol table
@@ -54,6 +57,18 @@ public class Scope {
         this.entries = new TreeMap<String, SymEntry>();
         variableSpace = 0;
         extension = false;
+        if( parent != null ) {
+            this.errors = parent.errors;
+        }
+    }
+    /** Constructor for the outermost (predefined) scope of a symbol table.
+     * @param errors handler for errors found resolving entries in this
+     *      scope and all its nested scopes
+     * @param procEntry the corresponding procedure's symbol table entry
+     */
+    public Scope( Errors errors, ProcedureEntry procEntry ) {
+        this( null, 0, procEntry );
+        this.errors = errors;
     }
     /** Scope constructor for use in extending the current scope 
      * @param parent scope
@@ -70,6 +85,9 @@ public class Scope {
     public int getLevel() {
         return level;
     }
+    public Errors getErrors() {
+        return errors;
+    }
     public ProcedureEntry getProcEntry() {
         return procEntry;
     }
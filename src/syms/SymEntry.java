@@ -1,6 +1,5 @@
 package syms;
 
-import source.ErrorHandler;
 import source.Position;
 import syms.Type.ReferenceType;
 import tree.ConstExp;
@@ -66,7 +65,7 @@ public abstract class SymEntry {
     /** Resolve any references to type identifiers in supplied scope */
     public void resolve() {
         if( ! resolved ) {
-            type = type.resolveType( pos );
+            type = type.resolveType( pos, scope.getErrors() );
             resolved = true;
         }
     }
@@ -111,7 +110,8 @@ public abstract class SymEntry {
                 resolved = true;
                 break;
             case Resolving:
-                error( "circular reference in constant expression", pos );
+                scope.getErrors().error(
+                        "circular reference in constant expression", pos );
                 status = Status.Resolved;
                 resolved = true;
                 break;
@@ -259,8 +259,4 @@ public abstract class SymEntry {
             return toString("OPER  ", " : ");
         }
     }
-
-    private static void error( String message, Position pos ) {
-        ErrorHandler.getErrorHandler().error(message, pos);
-    }
 }
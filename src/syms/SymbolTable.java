@@ -1,5 +1,6 @@
 package syms;
 
+import source.Errors;
 import source.Position;
 
 /** A SymbolTable represents a sequence of scopes, one for each nested static
@@ -16,13 +17,14 @@ public class SymbolTable {
 
     /** Construct a symbol table and build the predefined scope
      * as its initial scope.
+     * @param errors handler for errors found resolving the entries
      */
-    public SymbolTable() {
+    public SymbolTable( Errors errors ) {
         super();
         SymEntry.ProcedureEntry predefined = 
                 new SymEntry.ProcedureEntry("<predefined>", 
                 Position.NO_POSITION, null );
-        currentScope = new Scope( null, 0, predefined );
+        currentScope = new Scope( errors, predefined );
         predefined.setLocalScope( currentScope );
         Predefined.addPredefinedEntries( this );
     }
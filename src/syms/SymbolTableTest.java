@@ -1,6 +1,7 @@
 package syms;
 import machine.StackMachine;
 import junit.framework.TestCase;
+import source.ErrorHandler;
 import source.Position;
 import syms.SymEntry.ProcedureEntry;
 
@@ -21,7 +22,7 @@ public class SymbolTableTest extends TestCase {
     @Override
     protected void setUp() throws Exception {
         super.setUp();
-        symtab = new SymbolTable();
+        symtab = new SymbolTable( new ErrorHandler( System.out, null, false ) );
         ProcedureEntry test = 
             new ProcedureEntry( "test", Position.NO_POSITION );
         symtab.newScope( test );
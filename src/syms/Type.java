@@ -7,7 +7,6 @@ import java.util.List;
 import java.util.ListIterator;
 
 import machine.StackMachine;
-import source.ErrorHandler;
 import source.Errors;
 import source.Position;
 import tree.ConstExp;
@@ -38,9 +37,6 @@ public abstract class Type
     /** Name of type for error messages */
     protected String name;
     
-    /** Error handler */
-    protected static Errors errors = ErrorHandler.getErrorHandler();
-        
     /** Only subclasses provide public constructors. */
     protected Type( int n, boolean resolved ) {
         this.space = n;
@@ -80,9 +76,13 @@ public abstract class Type
      * Default just sets resolved true; it needs to be overridden 
      * when appropriate.
      * @param pos - position for error messages (in overriding methods) 
+     * @param errors - handler for error messages (in overriding methods)
      */
-    public Type resolveType( Position pos ) {
-        resolved = true;
+    public Type resolveType( Position pos, Errors errors ) {
+        if( !resolved ) {
+            /* Predefined types are shared, so are never written here */
+            resolved = true;
+        }
         return this;
     }
     /** The coercion procedures will throw an IncompatibleTypes exception
@@ -105,12 +105,13 @@ public abstract class Type
     }
     /** Coerce an expression to this type and report error if incompatible
      * @param exp is the expression to be coerced
+     * @param errors handler for error and debugging messages
      * @returns the coerced expression or ErrorNode on failure
      */
-    public ExpNode coerceExp( ExpNode exp ) {
+    public ExpNode coerceExp( ExpNode exp, Errors errors ) {
         /** Try coercing the expression. */
         try {
-            return this.coerceToType( exp );
+            return this.coerceToType( exp, errors );
         } catch( IncompatibleTypes e ) {
             /** At this point the coercion has failed. */
             errors.debugMessage("******" + e.getMessage());
@@ -120,10 +121,11 @@ public abstract class Type
     }
     /** Coerce exp to this type or throw IncompatibleTypes exception if can't
      * @param exp expression to be coerced
+     * @param errors handler for debugging messages
      * @return coerced expression
      * @throws IncompatibleTypes if cannot coerce
      */
-    public ExpNode coerceToType( ExpNode exp ) 
+    public ExpNode coerceToType( ExpNode exp, Errors errors ) 
             throws IncompatibleTypes {
         errors.debugMessage( "Coercing " + exp + ":" + exp.getType().getName() + 
                 " to " + this.getName() );
@@ -133,7 +135,7 @@ public abstract class Type
          * the expression to get its base type.
          */
         if( !(this instanceof ReferenceType) ) {
-            newExp = optDereferenceExp( newExp );
+            newExp = optDereferenceExp( newExp, errors );
         }
         /** If the type of the expression is this type or ERROR_TYPE, 
          * we are done.
@@ -144,7 +146,7 @@ public abstract class Type
              * type is used to control the coercion process.
              */
             try {
-                newExp = this.coerce( newExp );
+                newExp = this.coerce( newExp, errors );
             } catch (IncompatibleTypes e) {
                 errors.debugMessage("Failed to coerce " + newExp + " to " + 
                         this.getName());
@@ -163,7 +165,8 @@ public abstract class Type
      * @return resulting coerced expression node. 
      * @throws IncompatibleTypes exception if it can't coerce.
      */
-    protected ExpNode coerce( ExpNode exp ) throws IncompatibleTypes {
+    protected ExpNode coerce( ExpNode exp, Errors errors )
+            throws IncompatibleTypes {
         throw new IncompatibleTypes( 
             "cannot treat " + exp.getType().getName() + " as " + this.getName(),
             exp.getPosition() );
@@ -175,7 +178,7 @@ public abstract class Type
     public static final Type ERROR_TYPE = new Type( "error_type", 0, true ) {
         
         @Override
-        protected ExpNode coerce( ExpNode exp ) {
+        protected ExpNode coerce( ExpNode exp, Errors errors ) {
             return exp;
         }
     };
@@ -234,7 +237,8 @@ public abstract class Type
          *         exp to this scalar type
          */
         @Override
-        protected ExpNode coerce( ExpNode exp ) throws IncompatibleTypes {
+        protected ExpNode coerce( ExpNode exp, Errors errors )
+                throws IncompatibleTypes {
             Type fromType = exp.getType();
             if( fromType instanceof SubrangeType ) {
                 /** This code implements Rule Widen subrange. 
@@ -248,6 +252,11 @@ public abstract class Type
                 if( this.equals( baseType ) ) {
                     errors.debugMessage("Widened " + fromType.getName() + 
                             " to " + baseType.getName());
+                    if( exp instanceof ExpNode.ConstNode ) {
+                        /* A constant is widened at compile time */
+                        return new ExpNode.ConstNode( exp.getPosition(),
+                                this, ((ExpNode.ConstNode)exp).getValue() );
+                    }
                     return new ExpNode.WidenSubrangeNode( exp.getPosition(), 
                             this, exp );
                 }
@@ -309,20 +318,33 @@ public abstract class Type
          *         exp to this subrange type
          */
         @Override
-        protected ExpNode coerce( ExpNode exp ) throws IncompatibleTypes {
+        protected ExpNode coerce( ExpNode exp, Errors errors )
+                throws IncompatibleTypes {
             /** This implements Rule Narrow subrange in the static semantics. 
              * If the types don't match, we can try coercing the expression
              * to the base type of this subrange, and then narrow that
              * to this type. If the coercion to the base type fails it will
              * generate an exception, which is allowed to pass up to the caller.
              */
-            ExpNode coerceExp = getBaseType().coerceToType( exp );
+            ExpNode coerceExp = getBaseType().coerceToType( exp, errors );
             /** If we get here, coerceExp is of the same type as the base 
              * type of this subrange type. We just need to narrow it
              * down to this subrange. 
              */
             errors.debugMessage("Narrowed " + exp.getType().getName() + 
                     " to " + this.getName());
+            if( coerceExp instanceof ExpNode.ConstNode ) {
+                /* A constant is narrowed at compile time, so it must be
+                 * within the subrange */
+                int value = ((ExpNode.ConstNode)coerceExp).getValue();
+                if( value < getLower() || getUpper() < value ) {
+                    throw new IncompatibleTypes( "value " + value + 
+                            " out of range of " + this.getName(), 
+                            exp.getPosition() );
+                }
+                return new ExpNode.ConstNode( coerceExp.getPosition(), 
+                        this, value );
+            }
             return new ExpNode.NarrowSubrangeNode( coerceExp.getPosition(), 
                         this, coerceExp );
         }
@@ -330,7 +352,7 @@ public abstract class Type
          * expressions to be evaluated.
          */
         @Override
-        public Type resolveType( Position pos ) {
+        public Type resolveType( Position pos, Errors errors ) {
             if( !resolved ) {
                 lower = lowerExp.getValue();
                 upper = upperExp.getValue();
@@ -376,10 +398,20 @@ public abstract class Type
             super( 0 );
             types = new LinkedList<Type>();
         }
-        /** Constructor when list of types available */
+        /** Constructor when list of types available. A product of
+         * resolved types is resolved already, so that predefined types
+         * shared by concurrent compilations are never modified. */
         public ProductType( List<Type> types ) {
             super( 0 );
             this.types = types;
+            boolean all = true;
+            for( Type t : types ) {
+                all = all && t.resolved;
+            }
+            if( all ) {
+                space = calcSpace( types );
+                resolved = true;
+            }
         }
         /** Constructor allowing individual types to be specified */
         public ProductType( Type... typeArray ) {
@@ -400,12 +432,12 @@ public abstract class Type
         }
         /** Resolve identifier references anywhere within type */
         @Override
-        public ProductType resolveType( Position pos ) {
+        public ProductType resolveType( Position pos, Errors errors ) {
             if( ! resolved ) {
                 /* Build a list of resolved types */
                 List<Type> resolvedTypes = new LinkedList<Type>();
                 for( Type t : types ) {
-                    resolvedTypes.add( t.resolveType( pos ) );
+                    resolvedTypes.add( t.resolveType( pos, errors ) );
                 }
                 types = resolvedTypes;
                 space = calcSpace( types );
@@ -446,7 +478,7 @@ public abstract class Type
          *         exp to this product type
          */
         @Override
-        protected ExpNode.ArgumentsNode coerce( ExpNode exp ) 
+        protected ExpNode.ArgumentsNode coerce( ExpNode exp, Errors errors ) 
                 throws IncompatibleTypes {
             /** If exp is not an ArgumentsNode consisting of a list of 
              * expressions of the same length as this product type, 
@@ -477,7 +509,7 @@ public abstract class Type
                          * which we allow to pass back up to the next level
                          */
                         try {
-                            newArgs.add( t.coerceToType( subExp ) );
+                            newArgs.add( t.coerceToType( subExp, errors ) );
                         } catch( IncompatibleTypes e) {
                             errors.debugMessage("Can't coerce " + subExp + 
                                     " to " + t.getName());
@@ -525,8 +557,10 @@ public abstract class Type
         /** Type of the result of the function */
         protected Type resultType;
         
+        /** A function between resolved types is resolved already, as for
+         * a ProductType. */
         public FunctionType( Type arg, Type result ) {
-            super( 0 );
+            super( 0, arg.resolved && result.resolved );
             this.argType = arg;
             this.resultType = result;
         }
@@ -538,10 +572,10 @@ public abstract class Type
         }
         /** Resolve identifier references anywhere within type */
         @Override
-        public FunctionType resolveType( Position pos ) {
+        public FunctionType resolveType( Position pos, Errors errors ) {
             if( ! resolved ) {
-                argType = argType.resolveType( pos );
-                resultType = resultType.resolveType( pos );
+                argType = argType.resolveType( pos, errors );
+                resultType = resultType.resolveType( pos, errors );
                 resolved = true;
             }
             return this;
@@ -595,12 +629,12 @@ public abstract class Type
         }
         /** Resolve identifier references anywhere within type */
         @Override
-        public IntersectionType resolveType( Position pos ) {
+        public IntersectionType resolveType( Position pos, Errors errors ) {
             if( !resolved ) {
                 /* Build a list of resolved types */
                 List<Type> resolvedTypes = new LinkedList<Type>();
                 for( Type t : types ) {
-                    resolvedTypes.add( t.resolveType( pos ) );
+                    resolvedTypes.add( t.resolveType( pos, errors ) );
                 }
                 types = resolvedTypes;
                 resolved = true;
@@ -639,7 +673,8 @@ public abstract class Type
          *         coerce exp to any type within the intersection
          */
         @Override
-        protected ExpNode coerce( ExpNode exp ) throws IncompatibleTypes {
+        protected ExpNode coerce( ExpNode exp, Errors errors )
+                throws IncompatibleTypes {
             /** We iterate through all the types in the intersection, trying 
              * to coerce the exp to each, until one succeeds and we return
              * that coerced expression. If a coercion to a type in the 
@@ -650,7 +685,7 @@ public abstract class Type
             errors.incDebug();
             for( Type toType : this.getTypes() ) {
                 try {
-                    ExpNode newExp = toType.coerceToType( exp );
+                    ExpNode newExp = toType.coerceToType( exp, errors );
                     errors.debugMessage("Coerced " + exp + " to " +
                             toType.getName());
                     return newExp;
@@ -693,7 +728,7 @@ public abstract class Type
          * @return resolved type
          */
         @Override
-        public ProcedureType resolveType( Position pos ) {
+        public ProcedureType resolveType( Position pos, Errors errors ) {
             resolved = true;
             return this;
         }
@@ -730,7 +765,7 @@ public abstract class Type
         }
         /** Resolve the type identifier and return the real type. */
         @Override
-        public Type resolveType( Position usePos ) {
+        public Type resolveType( Position usePos, Errors errors ) {
             // System.out.println( "Resolving " + id );
             switch( status ) {
             case Unresolved:
@@ -787,9 +822,9 @@ public abstract class Type
             return baseType;
         }
         @Override
-        public AddressType resolveType( Position pos ) {
+        public AddressType resolveType( Position pos, Errors errors ) {
             if( !resolved ) {
-                baseType = baseType.resolveType( pos );
+                baseType = baseType.resolveType( pos, errors );
                 resolved = true;
             }
             return this;
@@ -802,7 +837,7 @@ public abstract class Type
      * a new DereferenceNode of type T is created with exp as a subtree
      * and returned, otherwise exp is returned unchanged.
      */
-    public static ExpNode optDereferenceExp( ExpNode exp ) {
+    public static ExpNode optDereferenceExp( ExpNode exp, Errors errors ) {
         Type fromType = exp.getType();
         if( fromType instanceof ReferenceType ) {
             /* Dereference of fromType is not optional here */
@@ -864,8 +899,8 @@ public abstract class Type
             this.resolved = false;
         }
         @Override
-        public ArrayType resolveType( Position pos ) {
-            super.resolveType( pos );
+        public ArrayType resolveType( Position pos, Errors errors ) {
+            super.resolveType( pos, errors );
             /* Calculate the size of the whole array */
             if( argType instanceof SubrangeType 
             ) {
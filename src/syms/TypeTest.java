@@ -1,5 +1,7 @@
 package syms;
 
+import java.util.List;
+
 import source.ErrorHandler;
 import source.Errors;
 import source.Position;
@@ -19,6 +21,7 @@ public class TypeTest extends TestCase {
         super(arg0);
     }
 
+    Errors errors;
     Type et;
     Type.ScalarType it;
     Type.ScalarType bt;
@@ -44,8 +47,8 @@ public class TypeTest extends TestCase {
     protected void setUp() throws Exception {
         super.setUp();
         Position nopos = Position.NO_POSITION;
-        Errors errors = new ErrorHandler( System.out, null, false );
-        SymbolTable symtab = new SymbolTable();
+        errors = new ErrorHandler( System.out, null, false );
+        SymbolTable symtab = new SymbolTable( errors );
         et = Type.ERROR_TYPE;
         it = Predefined.INTEGER_TYPE;
         bt = Predefined.BOOLEAN_TYPE;
@@ -55,27 +58,27 @@ public class TypeTest extends TestCase {
                         symtab.getCurrentScope(), it, 3),
                 new ConstExp.NumberNode( Position.NO_POSITION,
                         symtab.getCurrentScope(), it, 7) );
-        ist.resolveType(nopos);
+        ist.resolveType(nopos, errors);
         bst = new Type.SubrangeType(  
                 new ConstExp.NumberNode( Position.NO_POSITION, 
                         symtab.getCurrentScope(), bt, 0),
                 new ConstExp.NumberNode( Position.NO_POSITION,
                         symtab.getCurrentScope(), bt, 1) );
-        bst.resolveType(nopos);
+        bst.resolveType(nopos, errors);
         isst = new Type.SubrangeType(  
                 new ConstExp.NumberNode( Position.NO_POSITION, 
                         symtab.getCurrentScope(), ist, 5),
                 new ConstExp.NumberNode( Position.NO_POSITION,
                         symtab.getCurrentScope(), ist, 7) );
-        isst.resolveType(nopos);
+        isst.resolveType(nopos, errors);
         addop = Operator.ADD_OP;
         eqop = Operator.EQUALS_OP;
         
         rit = new Type.ReferenceType( it );
         iit = new Type.ProductType( it, it );
-        iit.resolveType(nopos);
+        iit.resolveType(nopos, errors);
         bbt = new Type.ProductType( bt, bt );
-        bbt.resolveType(nopos);
+        bbt.resolveType(nopos, errors);
         iiit = new Type.FunctionType( iit, it );
         iibt = new Type.FunctionType( iit, bt );
         bbbt = new Type.FunctionType( bbt, bt );
@@ -114,22 +117,56 @@ public class TypeTest extends TestCase {
         assertEquals( 2, bbt.getSpace() );
     }
 
+    /*
+     * Test that the predefined types shared by all compilations are
+     * resolved when they are created, so resolving them changes nothing.
+     */
+    public void testPredefinedResolved() {
+        Position nopos = Position.NO_POSITION;
+        assertEquals( 2, Predefined.PAIR_INTEGER_TYPE.getSpace() );
+        assertEquals( 2, Predefined.PAIR_BOOLEAN_TYPE.getSpace() );
+        List<Type> types = Predefined.PAIR_INTEGER_TYPE.getTypes();
+        assertSame( Predefined.PAIR_INTEGER_TYPE,
+                Predefined.PAIR_INTEGER_TYPE.resolveType( nopos, errors ) );
+        assertSame( types, Predefined.PAIR_INTEGER_TYPE.getTypes() );
+        Type argType = Predefined.INT_RELATIONAL_TYPE.getArgType();
+        assertSame( Predefined.INT_RELATIONAL_TYPE,
+                Predefined.INT_RELATIONAL_TYPE.resolveType( nopos, errors ) );
+        assertSame( argType, Predefined.INT_RELATIONAL_TYPE.getArgType() );
+        assertSame( Predefined.BOOLEAN_TYPE,
+                Predefined.INT_RELATIONAL_TYPE.getResultType() );
+    }
+
     /*
      * Test method for 'pl0.symbol_table.Type.coerce()'
      */
     public void testCoerce() throws IncompatibleTypes {
-        ExpNode result = it.coerceToType( ix );
+        ExpNode result = it.coerceToType( ix, errors );
         assertTrue( "int compatible with int",
                 result == ix );
-        result = it.coerceToType( ivx );
+        result = it.coerceToType( ivx, errors );
         assertTrue( "int variable coerces to dereference",
                 result instanceof ExpNode.DereferenceNode &&
                 ((ExpNode.DereferenceNode)result).getLeftValue() == ivx);
-        result = ist.coerceToType( ix );
+        result = ist.coerceToType( ivx, errors );
         assertTrue( "int coerces to subrange of int",
                 result instanceof ExpNode.NarrowSubrangeNode &&
-                ((ExpNode.NarrowSubrangeNode)result).getExp() == ix );
-        result = it.coerceToType( isx );
+                ((ExpNode.NarrowSubrangeNode)result).getExp() 
+                    instanceof ExpNode.DereferenceNode );
+        result = ist.coerceToType( 
+                new ExpNode.ConstNode( null, it, 5 ), errors );
+        assertTrue( "int constant in range folds to subrange constant",
+                result instanceof ExpNode.ConstNode &&
+                result.getType() == ist &&
+                ((ExpNode.ConstNode)result).getValue() == 5 );
+        try {
+            ist.coerceToType( ix, errors );
+            fail( "int constant out of range of subrange" );
+        } catch( IncompatibleTypes e ) {
+            assertEquals( "value 42 out of range of int[3..7]", 
+                    e.getMessage() );
+        }
+        result = it.coerceToType( isx, errors );
         assertTrue( "int subrange coerces to int" + result,
                 result instanceof ExpNode.WidenSubrangeNode && 
                 ((ExpNode.WidenSubrangeNode)result).getExp() == isx );
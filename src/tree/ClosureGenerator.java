@@ -0,0 +1,629 @@
+package tree;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import machine.BufferedOutputPort;
+import machine.InputPort;
+import machine.MemoryLayout;
+import machine.OutputPort;
+import machine.StackMachine;
+import machine.StreamInputPort;
+import source.Errors;
+import syms.SymEntry;
+import syms.Type;
+import tree.StatementNode.*;
+
+/** class ClosureGenerator is an alternative back end to the CodeGenerator.
+ * It translates the abstract syntax tree into a tree of closures that is
+ * executed directly, without generating and loading stack machine code.
+ * @version $Revision: 22 $  $Date: 2014-05-20 15:14:36 +1000 (Tue, 20 May 2014) $
+ * Variable references are resolved to a static level difference and an
+ * offset within the frame, and each operator is translated into a closure
+ * specialised for that operator. Frames are laid out in memory as for the
+ * stack machine: static link, dynamic link and (in place of the return
+ * address) the procedure number, followed by the local variables.
+ * Intermediate values are held in Java local variables rather than on
+ * the stack, so a frame only holds its links and its variables.
+ * Runtime errors are reported with a trace back of the active frames.
+ */
+public class ClosureGenerator implements DeclVisitor,
+        StatementTransform<ClosureGenerator.Command>,
+        ExpTransform<ClosureGenerator.Value> {
+    /** Translated statement */
+    public interface Command {
+        /** Execute the statement in the frame at fp */
+        void exec( int[] mem, int fp );
+    }
+    /** Translated expression. The value of an LValue is its address. */
+    public interface Value {
+        /** Evaluate the expression in the frame at fp */
+        int eval( int[] mem, int fp );
+    }
+
+    /** Size of the links at the start of each frame */
+    private static final int FRAME_LINKS = 3;
+
+    /** Current static level of nesting into procedures. */
+    private int staticLevel;
+
+    /** Procedure whose block is being translated */
+    private Procedure current;
+
+    /** Translated procedures indexed by their symbol table entries */
+    private Map<SymEntry.ProcedureEntry,Procedure> procedureMap;
+
+    /** Program being generated */
+    private Program program;
+
+    /** Error message handler */
+    private Errors errors;
+
+    public ClosureGenerator( Errors errors ) {
+        super();
+        this.errors = errors;
+    }
+
+    /*-------------------- Main Method to start generation -------------*/
+
+    /** Translate the tree into an executable program. */
+    public Program generateClosures( ProgramNode node, PrintStream outStream ) {
+        staticLevel = 1;        // Main program is at static level 1
+        procedureMap = new HashMap<SymEntry.ProcedureEntry,Procedure>();
+        program = new Program( outStream );
+        /* The main program is procedure number 0 */
+        getProcedure( node.getBlock().getBlockLocals().getProcEntry() );
+        visitProgramNode( node );
+        return program;
+    }
+
+    /** @return the procedure for entry, created on its first reference */
+    private Procedure getProcedure( SymEntry.ProcedureEntry entry ) {
+        Procedure proc = procedureMap.get( entry );
+        if( proc == null ) {
+            proc = new Procedure( entry, program.procedures.size() );
+            procedureMap.put( entry, proc );
+            program.procedures.add( proc );
+        }
+        return proc;
+    }
+
+    /* -------------------- Visitor methods ----------------------------*/
+
+    /** Translate the main program. */
+    public Command visitProgramNode( ProgramNode node ) {
+        return visitBlockNode( node.getBlock() );
+    }
+
+    /** Translate a block and its local procedures. */
+    public Command visitBlockNode( BlockNode node ) {
+        Procedure proc = getProcedure( node.getBlockLocals().getProcEntry() );
+        Procedure outer = current;
+        current = proc;
+        proc.frameSize = FRAME_LINKS +
+                node.getBlockLocals().getVariableSpace();
+        proc.body = node.getBody().genCode( this );
+        /* Static level is one greater for the procedures. */
+        staticLevel++;
+        node.getProcedures().accept(this);
+        staticLevel--;
+        current = outer;
+        return proc.body;
+    }
+
+    /** Translation of a declaration list */
+    public void visitDeclListNode( DeclNode.DeclListNode node ) {
+        for( DeclNode decl : node.getDeclarations() ) {
+            decl.accept( this );
+        }
+    }
+
+    /** Translate a single procedure. */
+    public void visitProcedureNode( DeclNode.ProcedureNode node ) {
+        visitBlockNode( node.getBlock() );
+    }
+    /*************************************************
+     *  Statement node translation visit methods
+     *************************************************/
+    /** Translation of an erroneous statement should not be attempted. */
+    public Command visitStatementErrorNode( StatementNode.ErrorNode node ) {
+        errors.fatal( "PL0 Internal error: generateClosures for Statement Error Node",
+                node.getPosition() );
+        return null;
+    }
+
+    /** Translate an assignment statement. */
+    public Command visitAssignmentNode( StatementNode.AssignmentNode node ) {
+        ExpNode lValue = node.getVariable();
+        int size = ((Type.ReferenceType)lValue.getType()).getBaseType().getSpace();
+        if( size != 1 ) {
+            /* A multi-word value can only be given by dereferencing
+             * another variable; copy the words across. */
+            if( !(node.getExp() instanceof ExpNode.DereferenceNode) ) {
+                errors.fatal( "PL0 Internal error: multi-word value expected",
+                        node.getPosition() );
+                return null;
+            }
+            final Value from = ((ExpNode.DereferenceNode)node.getExp())
+                    .getLeftValue().genCode( this );
+            final Value to = lValue.genCode( this );
+            final int words = size;
+            return (mem, fp) -> System.arraycopy( mem, from.eval( mem, fp ),
+                    mem, to.eval( mem, fp ), words );
+        }
+        final Value exp = node.getExp().genCode( this );
+        if( lValue instanceof ExpNode.VariableNode ) {
+            SymEntry.VarEntry var = ((ExpNode.VariableNode)lValue).getVariable();
+            final int offset = var.getOffset();
+            switch( staticLevel - var.getLevel() ) {
+            case 0:
+                return (mem, fp) -> mem[fp + offset] = exp.eval( mem, fp );
+            case 1:
+                return (mem, fp) -> mem[mem[fp] + offset] = exp.eval( mem, fp );
+            }
+        }
+        /* The value is evaluated before its address, as for the
+         * stack machine code */
+        final Value address = lValue.genCode( this );
+        return (mem, fp) -> {
+            int value = exp.eval( mem, fp );
+            mem[address.eval( mem, fp )] = value;
+        };
+    }
+    /** Translate a "write" statement. */
+    public Command visitWriteNode( StatementNode.WriteNode node ) {
+        final Value exp = node.getExp().genCode( this );
+        final Program program = this.program;
+        return (mem, fp) -> program.write( exp.eval( mem, fp ) );
+    }
+    /** Translate a "call" statement. */
+    public Command visitCallNode( StatementNode.CallNode node ) {
+        final Procedure callee = getProcedure( node.getEntry() );
+        final int levelDiff = staticLevel - node.getEntry().getLevel();
+        /* The callee's frame follows the caller's variables */
+        final int frameSize = current.frameSize;
+        final Program program = this.program;
+        return (mem, fp) -> program.call( mem, callee,
+                frame( mem, fp, levelDiff ), fp, fp + frameSize );
+    }
+    /** Translate a statement list */
+    public Command visitStatementListNode( StatementNode.ListNode node ) {
+        List<StatementNode> statements = node.getStatements();
+        final Command[] commands = new Command[ statements.size() ];
+        for( int i = 0; i < commands.length; i++ ) {
+            commands[i] = statements.get(i).genCode( this );
+        }
+        if( commands.length == 1 ) {
+            return commands[0];
+        }
+        return (mem, fp) -> {
+            for( Command command : commands ) {
+                command.exec( mem, fp );
+            }
+        };
+    }
+
+    /** Translate an "if" statement. */
+    public Command visitIfNode( StatementNode.IfNode node ) {
+        final Value condition = node.getCondition().genCode( this );
+        final Command thenCommand = node.getThenStmt().genCode( this );
+        final Command elseCommand = node.getElseStmt().genCode( this );
+        return (mem, fp) -> {
+            if( test( condition.eval( mem, fp ), fp ) ) {
+                thenCommand.exec( mem, fp );
+            } else {
+                elseCommand.exec( mem, fp );
+            }
+        };
+    }
+
+    /** Translate a "while" statement. */
+    public Command visitWhileNode( StatementNode.WhileNode node ) {
+        final Value condition = node.getCondition().genCode( this );
+        final Command body = node.getLoopStmt().genCode( this );
+        return (mem, fp) -> {
+            while( test( condition.eval( mem, fp ), fp ) ) {
+                body.exec( mem, fp );
+            }
+        };
+    }
+
+    /** Translate a "for" statement. The bounds are evaluated once each,
+     * and the loop stops if incrementing the control variable would
+     * wrap around at the maximum integer. */
+    public Command visitForNode( ForNode node ) {
+        final Value start = node.getCondition1().genCode( this );
+        final Value end = node.getCondition2().genCode( this );
+        final Value control = node.getControlVariable().genCode( this );
+        final Command body = node.getLoopStmt().genCode( this );
+        return (mem, fp) -> {
+            int value = start.eval( mem, fp );
+            int address = control.eval( mem, fp );
+            mem[address] = value;
+            int last = end.eval( mem, fp );
+            while( mem[address] <= last ) {
+                body.exec( mem, fp );
+                int previous = mem[address];
+                mem[address] = previous + 1;
+                if( previous >= mem[address] ) {
+                    break;
+                }
+            }
+        };
+    }
+    /*************************************************
+     *  Expression node translation visit methods
+     *************************************************/
+    /** Translation of an erroneous expression should not be attempted. */
+    public Value visitErrorExpNode( ExpNode.ErrorNode node ) {
+        errors.fatal( "PL0 Internal error: generateClosures for ErrorExpNode",
+                node.getPosition() );
+        return null;
+    }
+
+    /** Translate a constant expression. */
+    public Value visitConstNode( ExpNode.ConstNode node ) {
+        final int value = node.getValue();
+        return (mem, fp) -> value;
+    }
+
+    /** Translate a "read" expression. */
+    public Value visitReadNode( ExpNode.ReadNode node ) {
+        final Program program = this.program;
+        return (mem, fp) -> program.read( fp );
+    }
+
+    /** Translate an operator into a closure specialised for it. */
+    public Value visitOperatorNode( ExpNode.OperatorNode node ) {
+        if( node.getOp() == Operator.NEG_OP ) {
+            final Value arg = node.getArg().genCode( this );
+            return (mem, fp) -> -arg.eval( mem, fp );
+        }
+        List<ExpNode> args = ((ExpNode.ArgumentsNode)node.getArg()).getArgs();
+        final Value left = args.get(0).genCode( this );
+        final Value right = args.get(1).genCode( this );
+        switch ( node.getOp() ) {
+        case ADD_OP:
+            return (mem, fp) -> left.eval( mem, fp ) + right.eval( mem, fp );
+        case SUB_OP:
+            return (mem, fp) -> left.eval( mem, fp ) - right.eval( mem, fp );
+        case MUL_OP:
+            return (mem, fp) -> left.eval( mem, fp ) * right.eval( mem, fp );
+        case DIV_OP:
+            return (mem, fp) -> {
+                int dividend = left.eval( mem, fp );
+                int divisor = right.eval( mem, fp );
+                if( divisor == 0 ) {
+                    throw new RuntimeError( "divide by zero", fp );
+                }
+                return dividend / divisor;
+            };
+        case EQUALS_OP:
+            return (mem, fp) ->
+                left.eval( mem, fp ) == right.eval( mem, fp ) ? 1 : 0;
+        case NEQUALS_OP:
+            return (mem, fp) ->
+                left.eval( mem, fp ) != right.eval( mem, fp ) ? 1 : 0;
+        case LESS_OP:
+            return (mem, fp) ->
+                left.eval( mem, fp ) < right.eval( mem, fp ) ? 1 : 0;
+        case LEQUALS_OP:
+            return (mem, fp) ->
+                left.eval( mem, fp ) <= right.eval( mem, fp ) ? 1 : 0;
+        case GREATER_OP:
+            return (mem, fp) ->
+                left.eval( mem, fp ) > right.eval( mem, fp ) ? 1 : 0;
+        case GEQUALS_OP:
+            return (mem, fp) ->
+                left.eval( mem, fp ) >= right.eval( mem, fp ) ? 1 : 0;
+        default:
+            errors.fatal("PL0 Internal error: Unknown operator",
+                    node.getPosition() );
+            return null;
+        }
+    }
+
+    /** Arguments are translated by the operator they belong to. */
+    public Value visitArgumentsNode( ExpNode.ArgumentsNode node ) {
+        errors.fatal( "PL0 Internal error: generateClosures for ArgumentsNode",
+                node.getPosition() );
+        return null;
+    }
+    /** Translate the dereference of an RValue. */
+    public Value visitDereferenceNode( ExpNode.DereferenceNode node ) {
+        ExpNode lValue = node.getLeftValue();
+        if( lValue instanceof ExpNode.VariableNode ) {
+            SymEntry.VarEntry var = ((ExpNode.VariableNode)lValue).getVariable();
+            final int offset = var.getOffset();
+            switch( staticLevel - var.getLevel() ) {
+            case 0:
+                return (mem, fp) -> mem[fp + offset];
+            case 1:
+                return (mem, fp) -> mem[mem[fp] + offset];
+            }
+        }
+        final Value address = lValue.genCode( this );
+        return (mem, fp) -> mem[address.eval( mem, fp )];
+    }
+
+    /** Translation of an identifier should not be attempted. */
+    public Value visitIdentifierNode( ExpNode.IdentifierNode node ) {
+        errors.fatal("Internal error: closure generator called on IdentifierNode",
+                node.getPosition() );
+        return null;
+    }
+    /** Translate a variable (Exp) reference to its address. */
+    public Value visitVariableNode( ExpNode.VariableNode node ) {
+        SymEntry.VarEntry var = node.getVariable();
+        final int offset = var.getOffset();
+        final int levelDiff = staticLevel - var.getLevel();
+        if( levelDiff == 0 ) {
+            return (mem, fp) -> fp + offset;
+        }
+        return (mem, fp) -> frame( mem, fp, levelDiff ) + offset;
+    }
+    /** Translate a bounds check on a subrange. */
+    public Value visitNarrowSubrangeNode( ExpNode.NarrowSubrangeNode node ) {
+        final Value exp = node.getExp().genCode( this );
+        final int lower = node.getSubrangeType().getLower();
+        final int upper = node.getSubrangeType().getUpper();
+        return (mem, fp) -> checkBounds( exp.eval( mem, fp ), lower, upper, fp );
+    }
+
+    /** Widening a subrange to an integer doesn't require anything extra. */
+    public Value visitWidenSubrangeNode( ExpNode.WidenSubrangeNode node ) {
+        return node.getExp().genCode( this );
+    }
+
+    /** Translate an array element reference to its address. */
+    public Value visitArrayNode( ExpNode.ArrayNode node ) {
+        Value cond = node.getCond().genCode( this );
+        /* Load the condition. */
+        if( node.getCond().getType() instanceof Type.ReferenceType ) {
+            final Value condAddress = cond;
+            cond = (mem, fp) -> mem[condAddress.eval( mem, fp )];
+        }
+        final Value index = cond;
+        Type.SubrangeType indexType = node.getLVal().getType()
+                .getArrayType().getArgType().getSubrangeType();
+        final int lower = indexType.getLower();
+        final int upper = indexType.getUpper();
+        final int size = indexType.getSpace();
+        final Value array = node.getLVal().genCode( this );
+        return (mem, fp) -> {
+            int offset =
+                checkBounds( index.eval( mem, fp ), lower, upper, fp ) - lower;
+            return offset * size + array.eval( mem, fp );
+        };
+    }
+
+    /*************************************************
+     *  Support for executing the closures
+     *************************************************/
+    /** @return the address of the frame levelDiff static links out from fp */
+    private static int frame( int[] mem, int fp, int levelDiff ) {
+        for( int i = 0; i < levelDiff; i++ ) {
+            fp = mem[fp];
+        }
+        return fp;
+    }
+    /** @return the boolean represented by value */
+    private static boolean test( int value, int fp ) {
+        if( value == 1 ) {
+            return true;
+        } else if( value != 0 ) {
+            throw new RuntimeError( "non-boolean operand in branch", fp );
+        }
+        return false;
+    }
+    /** @return value, if it is within lower..upper */
+    private static int checkBounds( int value, int lower, int upper, int fp ) {
+        if( value < lower || value > upper ) {
+            throw new RuntimeError( "bounds check failed: " + value +
+                    " not in " + lower + ".." + upper, fp );
+        }
+        return value;
+    }
+
+    /** Translated procedure */
+    private static class Procedure {
+        SymEntry.ProcedureEntry entry;
+        /** Number of the procedure, stored in each of its frames */
+        int number;
+        /** Size of a frame, including the links */
+        int frameSize;
+        Command body;
+
+        Procedure( SymEntry.ProcedureEntry entry, int number ) {
+            this.entry = entry;
+            this.number = number;
+        }
+    }
+
+    /** Runtime error detected while executing the closures */
+    private static class RuntimeError extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        /** Frame pointer of the procedure in which the error occurred */
+        int fp;
+
+        RuntimeError( String message, int fp ) {
+            super( message );
+            this.fp = fp;
+        }
+    }
+
+    /** Program translated into closures, with the memory for its frames. */
+    public static class Program {
+        /** Bytes of Java stack used by a call, which nests the closures
+         * of the statements it is called from, with a margin for deeply
+         * nested statements */
+        private static final long CALL_STACK_BYTES = 2048;
+        /** Bytes of Java stack for the main program */
+        private static final long MIN_THREAD_STACK = 1 << 20;
+        /** Bytes of Java stack reserved at most */
+        private static final long MAX_THREAD_STACK = 4L << 30;
+        /** Frames are limited to the same space as the stack machine's
+         * stack. The memory is allocated at its full size when the program
+         * is run, as each closure holds on to the array it is given. */
+        private int[] memory = null;
+        /** Sizes of the stack and heap */
+        private MemoryLayout layout = MemoryLayout.DEFAULT;
+        /** Translated procedures, the main program first */
+        private List<Procedure> procedures = new ArrayList<Procedure>();
+        private PrintStream outStream;
+        /** Input port for read; the standard input unless set by setInput */
+        private InputPort in = null;
+        /** Output port for write; flushed before anything else is written
+         * to outStream */
+        private OutputPort output;
+        /** Set if the program terminated with a runtime error */
+        private boolean failed = false;
+
+        Program( PrintStream outStream ) {
+            this.outStream = outStream;
+            this.output = new BufferedOutputPort( outStream );
+        }
+        /** Specify the size of the stack, instead of the default layout */
+        public void setLayout( MemoryLayout layout ) {
+            this.layout = layout;
+        }
+        /** Specify the input read by the program, instead of stdin */
+        public void setInput( InputPort in ) {
+            this.in = in;
+        }
+        /** Specify the output port for the values written by the program */
+        public void setOutput( OutputPort output ) {
+            this.output = output;
+        }
+        /** @return true if the program terminated with a runtime error */
+        public boolean hadRuntimeError() {
+            return failed;
+        }
+        /** Execute the main program. Each call nests Java calls, so the
+         * program runs on a thread with a stack large enough for as many
+         * calls as fit in the frames' memory. */
+        public void run() {
+            final Throwable[] failure = new Throwable[ 1 ];
+            Thread thread = new Thread( null, () -> {
+                try {
+                    execute();
+                } catch( RuntimeException | Error e ) {
+                    failure[0] = e;
+                }
+            }, "PL0 closures", threadStackSize() );
+            thread.start();
+            boolean interrupted = false;
+            while( thread.isAlive() ) {
+                try {
+                    thread.join();
+                } catch( InterruptedException e ) {
+                    interrupted = true;
+                }
+            }
+            if( interrupted ) {
+                Thread.currentThread().interrupt();
+            }
+            if( failure[0] instanceof RuntimeException ) {
+                throw (RuntimeException)failure[0];
+            } else if( failure[0] != null ) {
+                throw (Error)failure[0];
+            }
+        }
+        /** @return bytes of Java stack for the deepest nesting of calls
+         * the stack size allows, each frame holding at least its links */
+        private long threadStackSize() {
+            long calls = layout.getStackSize() / FRAME_LINKS;
+            return Math.min( MIN_THREAD_STACK + calls * CALL_STACK_BYTES,
+                    MAX_THREAD_STACK );
+        }
+        /** Execute the main program on the current thread */
+        private void execute() {
+            memory = new int[ layout.getStackSize() ];
+            try {
+                call( memory, procedures.get(0), 0, 0, 0 );
+            } catch( RuntimeError e ) {
+                failed = true;
+                output.flush();
+                outStream.println( "\nRuntime error: " + e.getMessage() );
+                traceBack( e.fp );
+            }
+            output.flush();
+            outStream.println( "\nTerminated" );
+        }
+        /** Call proc with a new frame at newFp.
+         * @param staticLink frame of the procedure enclosing proc
+         * @param fp frame of the caller
+         */
+        void call( int[] mem, Procedure proc, int staticLink, int fp,
+                int newFp ) {
+            int top = newFp + proc.frameSize;
+            if( top > mem.length ) {
+                throw new RuntimeError( "memory overflow!", fp );
+            }
+            mem[newFp] = staticLink;
+            mem[newFp + 1] = fp;
+            mem[newFp + 2] = proc.number;
+            /* Fill the variables to make error detection more likely. */
+            Arrays.fill( mem, newFp + FRAME_LINKS, top, StackMachine.NULL_ADDR );
+            try {
+                proc.body.exec( mem, newFp );
+            } catch( StackOverflowError e ) {
+                /* Calls nest on the JVM stack, which may run out first */
+                throw new RuntimeError( "memory overflow!", fp );
+            }
+        }
+        /** Write a number to the output */
+        void write( int value ) {
+            output.writeInt( value );
+        }
+        /** Read a number from the input, first writing out any buffered
+         * output if the read has to wait */
+        int read( int fp ) {
+            try {
+                if( in == null ) {
+                    in = new StreamInputPort( System.in );
+                }
+                if( !in.ready() ) {
+                    output.flush();
+                }
+                return in.readInt();
+            } catch( Exception e ) {
+                throw new RuntimeError(
+                        "invalid value read - must be an integer", fp );
+            }
+        }
+        /** Trace back of the active frames, starting at the frame fp */
+        private void traceBack( int fp ) {
+            while( true ) {
+                Procedure proc = procedures.get( memory[fp + 2] );
+                outStream.print( "In PROC " + proc.entry.getIdent() );
+                outStream.print( " FP=" + fp );
+                outStream.print( " SL=" + memory[fp] );
+                outStream.println( " DL=" + memory[fp + 1] );
+                for( SymEntry entry :
+                        proc.entry.getLocalScope().getEntries() ) {
+                    if( entry instanceof SymEntry.VarEntry ) {
+                        SymEntry.VarEntry varEntry = (SymEntry.VarEntry)entry;
+                        int varSize = varEntry.getType().getBaseType().getSpace();
+                        int addr = fp + varEntry.getOffset();
+                        String varVal = "  " + varEntry.getIdent() +
+                                "(" + varEntry.getOffset() + ")" + " =";
+                        for( int i = 0; i < varSize; i++ ) {
+                            varVal += " " + memory[addr + i];
+                        }
+                        outStream.println( varVal );
+                    }
+                }
+                if( fp == 0 ) {
+                    break;
+                }
+                fp = memory[fp + 1];
+            }
+            outStream.println( "End of traceBack" );
+        }
+    }
+}
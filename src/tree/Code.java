@@ -1,32 +1,122 @@
 package tree;
 
-import java.util.List;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
-import machine.Instruction;
 import machine.Operation;
+import source.Position;
 import syms.SymEntry;
 
 /**
  * class Code - store sequence of instructions
  * @version $Revision: 22 $  $Date: 2014-05-20 15:14:36 +1000 (Tue, 20 May 2014) $
+ * The instructions are held as their encoded words in a growable array,
+ * so the machine loads the code by copying it. The only words not known
+ * when they are generated are the addresses of the procedures called,
+ * which are listed as relocations to be filled in when the code is
+ * loaded.
+ * The code for a whole procedure is generated into a single Code,
+ * appending each instruction once. Branches to code not yet generated
+ * refer to a Label, and are patched when the label is placed.
  */
 
 public class Code {
-    /** List of instructions generated */
-    private List<Instruction> code;
-    /** Size of the instructions in words.
-     * This is not just the length of the list. */
+    /** Initial capacity of the code in words */
+    private static final int INITIAL_SIZE = 64;
+
+    /** Words of the instructions generated */
+    private int[] words;
+    /** Size of the instructions in words */
     private int size;
+    /** Offsets of the LOAD_CON instructions whose operand is the address
+     * of a procedure, in increasing order */
+    private int[] relocations;
+    /** Procedures whose addresses are loaded at each relocation */
+    private List<SymEntry.ProcedureEntry> relocatedProcs;
+    /** Number of relocations */
+    private int relocationCount;
+    /** Source positions of the statements, indexed by the offset of the
+     * first instruction of the statement's code */
+    private Map<Integer,Position> positions;
+    /** Descriptions of the operands too large for their instructions */
+    private List<String> operandErrors;
+
+    /** Location in the code that is the target of branches */
+    public static class Label {
+        /** Offset of the label from the start of the code, or -1 until
+         * it is placed */
+        private int address = -1;
+        /** Offsets of the branches to the label that are waiting for it
+         * to be placed */
+        private List<Integer> fixups = new ArrayList<Integer>();
+    }
 
     /** Code array is initially empty */
     public Code() {
+        this( INITIAL_SIZE );
+    }
+    /** Empty code with room for capacity words before it grows */
+    public Code( int capacity ) {
         super();
-        code = new ArrayList<Instruction>();
+        words = new int[ Math.max( capacity, 1 ) ];
         size = 0;
+        relocations = new int[ 0 ];
+        relocatedProcs = new ArrayList<SymEntry.ProcedureEntry>();
+        relocationCount = 0;
+        positions = new TreeMap<Integer,Position>();
+        operandErrors = new ArrayList<String>();
+    }
+    /** @return the array holding the words of the code, of which the
+     * first size() are in use */
+    public int[] getWords() {
+        return words;
+    }
+    /** @return the word at offset */
+    public int getWord( int offset ) {
+        return words[offset];
+    }
+    /** @return the offsets of the words holding procedure addresses, in
+     * increasing order */
+    public int[] getRelocations() {
+        return Arrays.copyOf( relocations, relocationCount );
+    }
+    /** @return the procedures whose addresses are loaded at each of
+     * getRelocations() */
+    public List<SymEntry.ProcedureEntry> getRelocatedProcedures() {
+        return relocatedProcs;
     }
-    public List<Instruction> getInstructionList() {
-        return code;
+    /** @return the procedure whose address is loaded at offset, or null
+     * if the word there is not relocated */
+    public SymEntry.ProcedureEntry getRelocation( int offset ) {
+        int i = Arrays.binarySearch( relocations, 0, relocationCount, offset );
+        return i < 0 ? null : relocatedProcs.get( i );
+    }
+    /** @return descriptions of the operands that were too large for
+     * their instructions, each of which was generated with operand 0 */
+    public List<String> getOperandErrors() {
+        return operandErrors;
+    }
+    /** @return the source positions of the statements, indexed by the
+     * offset of their first instruction */
+    public Map<Integer,Position> getPositions() {
+        return positions;
+    }
+    /** Mark the code from the current instruction on as that of the
+     * statement at pos. */
+    public void markPosition( Position pos ) {
+        positions.put( size, pos );
+    }
+    /** Mark the code generated from offset start on as that of the
+     * statement at pos, unless it is empty or its first instruction
+     * already belongs to a nested statement.
+     * @param start offset of the statement's first instruction */
+    public void markStart( int start, Position pos ) {
+        if( start < size && !positions.containsKey( start ) ) {
+            positions.put( start, pos );
+        }
     }
     public int size() {
         return size;
@@ -34,41 +124,120 @@ public class Code {
     /*---------------------------------------------------------------*/
     /*--------------- Utility Code Generation Methods ---------------*/
     /*---------------------------------------------------------------*/
-    /** Append the code sequence newCode to this code sequence.
-     * @param newCode sequence to be appended
-     */
-    public void append( Code newCode ) {
-        code.addAll( newCode.code );
-        size += newCode.size();
+    /** @return a new label, to be placed later */
+    public Label newLabel() {
+        return new Label();
+    }
+    /** @return a label placed at the current location */
+    public Label placedLabel() {
+        Label label = new Label();
+        placeLabel( label );
+        return label;
+    }
+    /** Place the label at the current location, patching the branches
+     * already generated to it */
+    public void placeLabel( Label label ) {
+        assert label.address < 0 : "label placed twice";
+        label.address = size;
+        for( int offset : label.fixups ) {
+            patchBranch( offset, size );
+        }
+        label.fixups = null;
+    }
+    /** Set the target of the branch at offset. The offset of the branch
+     * is relative to the address of the following instruction. */
+    void patchBranch( int offset, int target ) {
+        Operation op = Operation.decode( words[offset] );
+        words[offset] = encode( op, target - (offset + op.getSize()) );
+    }
+    /** Generate a branch by op to the label */
+    private void genBranch( Operation op, Label label ) {
+        if( label.address >= 0 ) {
+            generateOp( op, label.address - (size + op.getSize()) );
+        } else {
+            label.fixups.add( size );
+            generateOp( op, 0 );    /* patched by placeLabel */
+        }
+    }
+    /** Append a word to the code */
+    private void addWord( int word ) {
+        if( size == words.length ) {
+            words = Arrays.copyOf( words, 2 * words.length );
+        }
+        words[size++] = word;
+    }
+    /** @return the word for op with the immediate operand, or with
+     * operand 0 (noting the error) if it does not fit */
+    private int encode( Operation op, int operand ) {
+        if( !Operation.fitsOperand( operand ) ) {
+            operandErrors.add( "Operand " + operand + " of " + op + 
+                    " too large." );
+            operand = 0;
+        }
+        return op.encode( operand );
     }
     /** Append instruction to code sequence.
      * @param opcode of the generated instruction.
      */
     public void generateOp( Operation opcode ) {
-        code.add( new Instruction( opcode ) );
-        size += opcode.getSize();
+        addWord( opcode.encode( 0 ) );
+    }
+    /** Append instruction with an operand to code sequence.
+     * @param opcode of the generated instruction.
+     * @param operand value of the immediate operand, or of the following
+     *  word for LOAD_WIDE
+     */
+    public void generateOp( Operation opcode, int operand ) {
+        if( opcode == Operation.LOAD_WIDE ) {
+            addWord( opcode.encode( 0 ) );
+            addWord( operand );
+        } else {
+            addWord( encode( opcode, operand ) );
+        }
+    }
+    /** Append a copy of the instruction at offset in from, with its
+     * relocation if any */
+    void copyInstruction( Code from, int offset ) {
+        SymEntry.ProcedureEntry proc = from.getRelocation( offset );
+        if( proc != null ) {
+            genProcCallRef( proc );
+        } else {
+            int end = offset + 
+                Operation.decode( from.words[offset] ).getSize();
+            for( int i = offset; i < end; i++ ) {
+                addWord( from.words[i] );
+            }
+        }
     }
     /** Generate a LoadConstant instruction at the current location.
+     * Constants that do not fit in an immediate operand use LOAD_WIDE.
      * @param word the value of the constant
-     * @result location of the constant for later patching
      */ 
     public void genLoadConstant( int value ) {
-        code.add( new Instruction.LoadConInstruction( value ) );
-        size += Operation.LOAD_CON.getSize();
+        if( Operation.fitsOperand( value ) ) {
+            generateOp( Operation.LOAD_CON, value );
+        } else {
+            generateOp( Operation.LOAD_WIDE, value );
+        }
     }
-    /** Generate a procedure call reference instruction */
+    /** Generate a procedure call reference instruction: a LOAD_CON of
+     * the address of the procedure, which is filled in when the code is
+     * loaded */
     public void genProcCallRef( SymEntry.ProcedureEntry proc ) {
-        code.add( new Instruction.ProcRefInstruction( proc ) );
-        size += Operation.LOAD_CON.getSize();
+        if( relocationCount == relocations.length ) {
+            relocations = Arrays.copyOf( relocations, 
+                    Math.max( 4, 2 * relocationCount ) );
+        }
+        relocations[relocationCount++] = size;
+        relocatedProcs.add( proc );
+        generateOp( Operation.LOAD_CON );
     }
     
     /** Generate code to perform a logical negation.
      * False is represented by 0 and true by 1. 
      * Using a bitwise not operation does not give the correct result. */
     public void genBoolNot( ) {
-        generateOp( Operation.NEGATE );
-        generateOp( Operation.ONE );
-        generateOp( Operation.ADD );
+        generateOp( Operation.NOT_BOOL );
     }
     /** Generate code to load the address of a variable relative
      * to the current frame pointer. If the difference in level
@@ -129,23 +298,17 @@ public class Code {
             generateOp( Operation.LOAD_ABS );
         }
     }
-    /** Size of instructions implementing jump_if_false */ 
-    static final int SIZE_JUMP_IF_FALSE = 
-            Operation.BR_FALSE.getSize() + Operation.LOAD_CON.getSize();
-    /** Generate a JumpIf False to location dest. The branch address
-     * is relative to the address of the instruction following the
-     * BR_FALSE instruction. */
-    public void genJumpIfFalse( int offset ) {
-        genLoadConstant( offset );  
-        generateOp( Operation.BR_FALSE );
-    }
-    /** Size of instructions implementing jump_always */ 
-    static final int SIZE_JUMP_ALWAYS = 
-            Operation.BR.getSize() + Operation.LOAD_CON.getSize();
-    /** Generate an unconditional branch. */
-    public void genJumpAlways( int offset ) {
-        genLoadConstant( offset );
-        generateOp( Operation.BR );
+    /** Generate a JumpIfFalse to the label */
+    public void genJumpIfFalse( Label label ) {
+        genBranch( Operation.BR_FALSE_REL, label );
+    }
+    /** Generate a compare-and-branch, e.g. BR_LESS, to the label */
+    public void genCompareBranch( Operation op, Label label ) {
+        genBranch( op, label );
+    }
+    /** Generate an unconditional branch to the label */
+    public void genJumpAlways( Label label ) {
+        genBranch( Operation.BR_REL, label );
     }
     /** Generate a bounds check instruction. Assumes the value to check is
      * already on the stack */
@@ -157,15 +320,13 @@ public class Code {
     /** Generate code to allocate stack space */
     public void genAllocStack( int variableSpace ) {
         if( variableSpace != 0 ) {
-            genLoadConstant( variableSpace );
-            generateOp( Operation.ALLOC_STACK );
+            generateOp( Operation.ALLOC_STACK, variableSpace );
         }
     }
     /** Generate code to deallocate stack space */
     public void genDeallocStack( int variableSpace ) {
         if( variableSpace != 0 ) {
-            genLoadConstant( variableSpace );
-            generateOp( Operation.DEALLOC_STACK );
+            generateOp( Operation.DEALLOC_STACK, variableSpace );
         }
     }
 }
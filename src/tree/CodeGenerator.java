@@ -13,6 +13,10 @@ import tree.StatementNode.*;
 /** class CodeGenerator implements code generation using the
  * visitor pattern to traverse the abstract syntax tree.
  * @version $Revision: 22 $  $Date: 2014-05-20 15:14:36 +1000 (Tue, 20 May 2014) $ 
+ * The code for each procedure is generated in a single pass into one
+ * Code, so each instruction is generated once. The visit methods
+ * append the code for their node to the current procedure's code, and
+ * return it.
  */
 public class CodeGenerator implements DeclVisitor, StatementTransform<Code>,
                     ExpTransform<Code> {
@@ -25,10 +29,23 @@ public class CodeGenerator implements DeclVisitor, StatementTransform<Code>,
     /** Error message handler */
     private Errors errors;
     
+    /** Pass fusing common instruction pairs in the code for a procedure */
+    private Superinstructions superinstructions = new Superinstructions();
+    
+    /** Pass removing redundant instructions, if optimising */
+    private PeepholeOptimizer peephole = null;
+    
+    /** Code of the procedure being generated */
+    private Code code;
+    
     public CodeGenerator(Errors errors) {
         super();
         this.errors = errors;
     }
+    /** Rewrite redundant instruction sequences in the generated code */
+    public void setOptimizing( boolean optimizing ) {
+        peephole = optimizing ? new PeepholeOptimizer() : null;
+    }
 
     /*-------------------- Main Method to start code generation --------*/
 
@@ -36,12 +53,14 @@ public class CodeGenerator implements DeclVisitor, StatementTransform<Code>,
     public Procedures generateCode( ProgramNode node ) {
         staticLevel = 1;        // Main program is at static level 1
         procedures = new Procedures();
+        code = new Code();
         /* Generate the code for the main program and all procedures */
         Code mainCode = visitProgramNode( node );
         /* Add the dummy environment to the table of procedures */
         Scope mainScope = node.getBlock().getBlockLocals();
         /* Save code for main program */
-        procedures.addProcedure( mainScope.getProcEntry(), mainCode );
+        procedures.addProcedure( mainScope.getProcEntry(), 
+                rewrite( mainCode ) );
         return procedures;
     }
     
@@ -49,7 +68,6 @@ public class CodeGenerator implements DeclVisitor, StatementTransform<Code>,
     
     /** Generate the code for the main program. */
     public Code visitProgramNode( ProgramNode node ) {
-        Code code = new Code();
         /* Generate the prefix code main stack frame.
          * Place dummy static and dynamic links on stack.
          * The stack machine begins execution with the frame pointer
@@ -62,7 +80,7 @@ public class CodeGenerator implements DeclVisitor, StatementTransform<Code>,
          * a return address of 0 will terminate stack machine execution. */
         code.generateOp( Operation.ZERO );
         /* generate code for body of program */
-        code.append( visitBlockNode( node.getBlock() ) );
+        visitBlockNode( node.getBlock() );
         return code;
     }
 
@@ -71,10 +89,9 @@ public class CodeGenerator implements DeclVisitor, StatementTransform<Code>,
         /** Generate code to allocate space for local variables on
          * procedure entry.
          */
-        Code code = new Code();
         code.genAllocStack( node.getBlockLocals().getVariableSpace() );
         /* Generate the code for the body */
-        code.append( node.getBody().genCode( this ) );
+        genStatement( node.getBody() );
         code.generateOp( Operation.RETURN );
         /** Generate code for local procedures. */
         /* Static level is one greater for the procedures. */
@@ -93,9 +110,20 @@ public class CodeGenerator implements DeclVisitor, StatementTransform<Code>,
 
     /** Generate code for a single procedure. */
     public void visitProcedureNode( DeclNode.ProcedureNode node ) {
-        // Generate code for the block
-        Code code = visitBlockNode( node.getBlock() );
-        procedures.addProcedure( node.getProcEntry(), code );
+        /* Generate code for the block into a new Code, as the
+         * procedure is declared within the code of another block */
+        Code enclosing = code;
+        code = new Code();
+        visitBlockNode( node.getBlock() );
+        procedures.addProcedure( node.getProcEntry(), rewrite( code ) );
+        code = enclosing;
+    }
+    /** Apply the passes over the complete code of a procedure */
+    private Code rewrite( Code procCode ) {
+        if( peephole != null ) {
+            procCode = peephole.rewrite( procCode );
+        }
+        return superinstructions.rewrite( procCode );
     }
     /*************************************************
      *  Statement node code generation visit methods
@@ -110,17 +138,22 @@ public class CodeGenerator implements DeclVisitor, StatementTransform<Code>,
     /** Code generation for an assignment statement. */
     public Code visitAssignmentNode(StatementNode.AssignmentNode node) {
         /* Generate code to evaluate the expression */
-        Code code = node.getExp().genCode( this );
+        node.getExp().genCode( this );
         /* Generate the code to load the address of the variable */
-        code.append( node.getVariable().genCode( this ) );
+        node.getVariable().genCode( this );
         /* Generate the store based on the type/size of value */
-        code.append( genStore( 
-                (Type.ReferenceType)node.getVariable().getType() ) );
+        genStore( (Type.ReferenceType)node.getVariable().getType() );
         return code;
     }
+    /** Generate the code for a statement, marked with the statement's
+     * position for the line table */
+    private void genStatement( StatementNode node ) {
+        int start = code.size();
+        node.genCode( this );
+        code.markStart( start, node.getPosition() );
+    }
     /** Generate a store instruction based on the size of values of the type */
-    private Code genStore( Type.ReferenceType refType ) {
-        Code code = new Code();
+    private void genStore( Type.ReferenceType refType ) {
         int size = refType.getBaseType().getSpace();
         if (size == 1) {
             /* For an expression that can fit in a single word,
@@ -131,21 +164,18 @@ public class CodeGenerator implements DeclVisitor, StatementTransform<Code>,
             /* For the assignment of one multi-word variable to another 
              * generate a STORE_MULTI instruction to store the entire value.
              */
-            code.genLoadConstant(size);
-            code.generateOp(Operation.STORE_MULTI);
+            code.generateOp(Operation.STORE_MULTI, size);
         }
-        return code;
     }
     /** Generate code for a "write" statement. */
     public Code visitWriteNode( StatementNode.WriteNode node ) {
-        Code code = node.getExp().genCode( this );
+        node.getExp().genCode( this );
         code.generateOp( Operation.WRITE );
         return code;
     }
     /** Generate code for a "call" statement. */
     public Code visitCallNode( StatementNode.CallNode node ) {
         SymEntry.ProcedureEntry proc = node.getEntry();
-        Code code = new Code();
         /* Generate the call instruction. The second parameter is the
          * procedure's symbol table entry. The actual address is resolved 
          * at load time.
@@ -155,113 +185,93 @@ public class CodeGenerator implements DeclVisitor, StatementTransform<Code>,
     }
     /** Generate code for a statement list */
     public Code visitStatementListNode( StatementNode.ListNode node ) {
-        Code code = new Code();
         for( StatementNode s : node.getStatements() ) {
-            code.append( s.genCode( this ) );
+            genStatement( s );
         }
         return code;
     }
 
     /** Generate code for an "if" statement. */
     public Code visitIfNode(StatementNode.IfNode node) {
-        /* Generate code to evaluate the condition and then and else parts */
-        Code code = node.getCondition().genCode( this );
-        Code thenCode = node.getThenStmt().genCode( this );
-        Code elseCode = node.getElseStmt().genCode( this );
-        /* Append a branch over then part code */
-        code.genJumpIfFalse( thenCode.size() + Code.SIZE_JUMP_ALWAYS );
+        Code.Label elseLabel = code.newLabel();
+        Code.Label endLabel = code.newLabel();
+        /* Generate code to evaluate the condition and branch over
+         * the then part if it is false */
+        genJumpIfFalse( node.getCondition(), elseLabel );
         /* Next append the code for the then part */
-        code.append( thenCode );
+        genStatement( node.getThenStmt() );
         /* Append branch over the else part */
-        code.genJumpAlways( elseCode.size() );
+        code.genJumpAlways( endLabel );
         /* Finally append the code for the else part */
-        code.append( elseCode );
+        code.placeLabel( elseLabel );
+        genStatement( node.getElseStmt() );
+        code.placeLabel( endLabel );
         return code;
     }
  
     /** Generate code for a "while" statement. */
     public Code visitWhileNode(StatementNode.WhileNode node) {
+        Code.Label exitLabel = code.newLabel();
         /* Generate the code to evaluate the condition. */
-        Code code = node.getCondition().genCode( this );
-        /* Generate the code for the loop body */
-        Code bodyCode = node.getLoopStmt().genCode( this );
-        /* Add a branch over the loop body on false.
-         * The offset is the size of the loop body code plus 
-         * the size of the branch to follow the body.
-         */
-        code.genJumpIfFalse( bodyCode.size() + Code.SIZE_JUMP_ALWAYS );
+        Code.Label conditionLabel = code.placedLabel();
+        /* Add a branch over the loop body and the branch following
+         * it on false. */
+        genJumpIfFalse( node.getCondition(), exitLabel );
         /* Append the code for the body */
-        code.append( bodyCode );
-        /* Add a branch back to the condition.
-         * The offset is the total size of the current code plus the
-         * size of a Jump Always (being generated).
-         */
-        code.genJumpAlways( -(code.size() + Code.SIZE_JUMP_ALWAYS) );
+        genStatement( node.getLoopStmt() );
+        /* Add a branch back to the condition. */
+        code.genJumpAlways( conditionLabel );
+        code.placeLabel( exitLabel );
         return code;
     }
     
     /** Generate code for a "for" statement */
 	public Code visitForNode(ForNode node) {
-		/* New empty codes */
-		Code code = new Code();
-		Code conditionCode = new Code();
-		Code bodyCode = new Code();
-		/* Condition and control codes */
-		Code startCond = node.getCondition1().genCode( this );
-		Code endCond = node.getCondition2().genCode( this );
-		Code conVar = node.getControlVariable().genCode( this );
+		Code.Label exitLabel = code.newLabel();
 		/* RefTypes */
 		Type.ReferenceType conVarType = (Type.ReferenceType)node.getControlVariable().getType();
 		/* Generate the code to evaluate the start condition */
-		code.append( startCond );
+		node.getCondition1().genCode( this );
 		/* Generate the code to store the control variable at the start condition */
-		code.append( conVar );
-		code.append( genStore( conVarType ) );
+		node.getControlVariable().genCode( this );
+		genStore( conVarType );
 		/* Generate the code to evaluate the end condition */
-		code.append( endCond );
+		node.getCondition2().genCode( this );
 		/* Generate code for comparison */
+		Code.Label conditionLabel = code.placedLabel();
+		code.markPosition( node.getPosition() );
 		/* DUP the end condition so that it remains constant */
-		conditionCode.generateOp( Operation.DUP );
+		code.generateOp( Operation.DUP );
 		/* Load control variable */
-		conditionCode.append( node.getControlVariable().genCode( this ) );
-		conditionCode.append( genLoad( conVarType ) );
-		/* Generate less operation */
-		conditionCode.generateOp( Operation.LESS );
-		/* Negate the result */
-		conditionCode.genLoadConstant( 1 );
-		conditionCode.generateOp( Operation.XOR );
+		node.getControlVariable().genCode( this );
+		genLoad( conVarType );
+		/* Branch over the loop body if the end condition is less */
+		code.genCompareBranch( Operation.BR_LESS, exitLabel );
 		/* Generate the code for the loop body */
-		bodyCode.append( node.getLoopStmt().genCode( this ) );
+		genStatement( node.getLoopStmt() );
 		/* Increment the control variable and store it */
+		code.markPosition( node.getPosition() );
 		/* Load the control variable twice */
-		bodyCode.append( conVar );
-		bodyCode.append( genLoad( conVarType ) );
-		bodyCode.append( conVar );
-		bodyCode.append( genLoad( conVarType ) );
+		node.getControlVariable().genCode( this );
+		genLoad( conVarType );
+		node.getControlVariable().genCode( this );
+		genLoad( conVarType );
 		/* Increment by 1 */
-		bodyCode.genLoadConstant( 1 );
-		bodyCode.generateOp( Operation.ADD );
+		code.generateOp( Operation.INC );
 		/* Store the incremented control variable */
-		bodyCode.append( conVar );
-		bodyCode.append( genStore( conVarType ) );	
+		node.getControlVariable().genCode( this );
+		genStore( conVarType );	
 		/* Load the incremented control variable */
-		bodyCode.append( conVar );
-		bodyCode.append( genLoad( conVarType ) );
+		node.getControlVariable().genCode( this );
+		genLoad( conVarType );
 		/* Check if wrapped around at max int and jump to end if so */
-		bodyCode.generateOp( Operation.LESS );
-		bodyCode.genJumpIfFalse( Code.SIZE_JUMP_ALWAYS );
-		/* Append the condition code */
-		code.append( conditionCode );
-		/* Add a branch over the loop body if false */
-		code.genJumpIfFalse( bodyCode.size() + Code.SIZE_JUMP_ALWAYS );
-		/* Append the body code to the main code */
-		code.append( bodyCode );
+		code.genCompareBranch( Operation.BR_GREATEREQ, exitLabel );
 		/* Jump back to start of code execution */
-		code.genJumpAlways( -( bodyCode.size() + Code.SIZE_JUMP_IF_FALSE + 
-				Code.SIZE_JUMP_ALWAYS + conditionCode.size() ) );
+		code.genJumpAlways( conditionLabel );
 		/* Pop the original evaluation of the end condition off the stack
 		 * so the stack doesn't leak like a colander
 		 */
+		code.placeLabel( exitLabel );
 		code.generateOp( Operation.POP );
 		return code;
 	}
@@ -277,7 +287,6 @@ public class CodeGenerator implements DeclVisitor, StatementTransform<Code>,
 
     /** Generate code for a constant expression. */
     public Code visitConstNode( ExpNode.ConstNode node ) {
-        Code code = new Code();
         if( node.getValue() == 0 ) {
             code.generateOp( Operation.ZERO );
         } else if( node.getValue() == 1 ) {
@@ -290,107 +299,151 @@ public class CodeGenerator implements DeclVisitor, StatementTransform<Code>,
 
     /** Generate code for a "read" expression. */
     public Code visitReadNode( ExpNode.ReadNode node ) {
-        Code code = new Code();
         code.generateOp( Operation.READ );
         return code;
     }
     
     /** Generate code for a binary expression. */
     public Code visitOperatorNode( ExpNode.OperatorNode node ) {
-        Code code;
         ExpNode args = node.getArg();
         switch ( node.getOp() ) {
         case ADD_OP:
-            code = args.genCode( this );
-            code.generateOp(Operation.ADD);
-            break;
         case SUB_OP:
-            code = args.genCode( this );
-            code.generateOp(Operation.NEGATE);
-            code.generateOp(Operation.ADD);
+            genAddOrSubtract( node.getOp(), (ExpNode.ArgumentsNode)args );
             break;
         case MUL_OP:
-            code = args.genCode( this );
+            args.genCode( this );
             code.generateOp(Operation.MPY);
             break;
         case DIV_OP:
-            code = args.genCode( this );
+            args.genCode( this );
             code.generateOp(Operation.DIV);
             break;
         case EQUALS_OP:
-            code = args.genCode( this );
+            args.genCode( this );
             code.generateOp(Operation.EQUAL);
             break;
         case LESS_OP:
-            code = args.genCode( this );
+            args.genCode( this );
             code.generateOp(Operation.LESS);
             break;
         case NEQUALS_OP:
-            code = args.genCode( this );
+            args.genCode( this );
             code.generateOp(Operation.EQUAL);
             code.genBoolNot();
             break;
         case LEQUALS_OP:
-            code = args.genCode( this );
+            args.genCode( this );
             code.generateOp(Operation.LESSEQ);
             break;
         case GREATER_OP:
-            /* Generate argument values in reverse order and use LESS */
-            code = genArgsInReverse( (ExpNode.ArgumentsNode)args );
-            code.generateOp(Operation.LESS);
+            args.genCode( this );
+            code.generateOp(Operation.GREATER);
             break;
         case GEQUALS_OP:
-            /* Generate argument values in reverse order and use LESSEQ */
-            code = genArgsInReverse( (ExpNode.ArgumentsNode)args );
-            code.generateOp(Operation.LESSEQ);
+            args.genCode( this );
+            code.generateOp(Operation.GREATEREQ);
             break;
         case NEG_OP:
-            code = args.genCode( this );
+            args.genCode( this );
             code.generateOp(Operation.NEGATE);
             break;
         default:
             errors.fatal("PL0 Internal error: Unknown operator",
                     node.getPosition() );
-            code = null;
+            return null;
         }
         return code;
     }
 
     /** Generate the code to load arguments (in order) */
     public Code visitArgumentsNode( ExpNode.ArgumentsNode node ) {
-        Code code = new Code();
         for( ExpNode exp : node.getArgs() ) {
-            code.append( exp.genCode( this ) );
+            exp.genCode( this );
         }
         return code;
     }
-    /** Generate operator operands in reverse order */
-    private Code genArgsInReverse( ExpNode.ArgumentsNode args ) {
+    /** Generate code for an addition or subtraction, using INC or DEC
+     * if the second operand is the constant 1 */
+    private void genAddOrSubtract( Operator op, ExpNode.ArgumentsNode args ) {
         List<ExpNode> argList = args.getArgs();
-        Code code = new Code();
-        for( int i = argList.size()-1; 0 <= i; i-- ) {
-            code.append( argList.get(i).genCode( this ) );
+        if( isConstantOne( argList.get(1) ) ) {
+            argList.get(0).genCode( this );
+            code.generateOp( op == Operator.ADD_OP ?
+                    Operation.INC : Operation.DEC );
+        } else {
+            args.genCode( this );
+            code.generateOp( op == Operator.ADD_OP ?
+                    Operation.ADD : Operation.SUB );
+        }
+    }
+    /** @return whether exp is the constant 1, possibly widened */
+    private boolean isConstantOne( ExpNode exp ) {
+        while( exp instanceof ExpNode.WidenSubrangeNode ) {
+            exp = ((ExpNode.WidenSubrangeNode)exp).getExp();
+        }
+        return exp instanceof ExpNode.ConstNode &&
+            ((ExpNode.ConstNode)exp).getValue() == 1;
+    }
+    /** Generate the code to branch to the label if the condition is
+     * false. A comparison is done by the compare-and-branch for the
+     * opposite test, rather than by computing a boolean to branch on. */
+    private void genJumpIfFalse( ExpNode cond, Code.Label label ) {
+        if( cond instanceof ExpNode.ConstNode ) {
+            /* Folded by the static checker */
+            if( ((ExpNode.ConstNode)cond).getValue() != 
+                    StackMachine.TRUE_VALUE ) {
+                code.genJumpAlways( label );
+            }
+            return;
+        }
+        if( cond instanceof ExpNode.OperatorNode ) {
+            ExpNode.OperatorNode comparison = (ExpNode.OperatorNode)cond;
+            Operation branch = oppositeBranch( comparison.getOp() );
+            if( branch != null ) {
+                comparison.getArg().genCode( this );
+                code.genCompareBranch( branch, label );
+                return;
+            }
+        }
+        cond.genCode( this );
+        code.genJumpIfFalse( label );
+    }
+    /** @return the compare-and-branch taken when the comparison op is
+     * false, or null if op is not a comparison */
+    private Operation oppositeBranch( Operator op ) {
+        switch( op ) {
+        case EQUALS_OP:
+            return Operation.BR_NOT_EQUAL;
+        case NEQUALS_OP:
+            return Operation.BR_EQUAL;
+        case LESS_OP:
+            return Operation.BR_GREATEREQ;
+        case LEQUALS_OP:
+            return Operation.BR_GREATER;
+        case GREATER_OP:
+            return Operation.BR_LESSEQ;
+        case GEQUALS_OP:
+            return Operation.BR_LESS;
+        default:
+            return null;
         }
-        return code;
     }
     /** Generate code to dereference an RValue. */
     public Code visitDereferenceNode( ExpNode.DereferenceNode node ) {
-        Code code = node.getLeftValue().genCode( this );
-        code.append( genLoad( node.getType() ) );
+        node.getLeftValue().genCode( this );
+        genLoad( node.getType() );
         return code;
     }
     /** Generate the load instruction depending on size */
-    private Code genLoad( Type type ) {
-        Code code = new Code();
+    private void genLoad( Type type ) {
         if( type.getSpace() == 1 ) {
             /* A single word value is loaded with LOAD_FRAME */
             code.generateOp( Operation.LOAD_FRAME );
         } else {
             /* A multi-word value is loaded with LOAD_MULTI */
-            code.genLoadConstant( type.getSpace() );
-            code.generateOp( Operation.LOAD_MULTI );
+            code.generateOp( Operation.LOAD_MULTI, type.getSpace() );
         }
-        return code;
     }
 
     /** Generate code for an identifier. */
@@ -403,13 +456,12 @@ public class CodeGenerator implements DeclVisitor, StatementTransform<Code>,
     /** Generate code for a variable (Exp) reference. */
     public Code visitVariableNode( ExpNode.VariableNode node ) {
         SymEntry.VarEntry var = node.getVariable();
-        Code code = new Code();
         code.genMemRef( staticLevel - var.getLevel(), var.getOffset() );
         return code;
     }
     /** Generate code to perform a bounds check on a subrange. */
     public Code visitNarrowSubrangeNode(ExpNode.NarrowSubrangeNode node) {
-        Code code = node.getExp().genCode( this );
+        node.getExp().genCode( this );
         code.genBoundsCheck(node.getSubrangeType().getLower(), 
                 node.getSubrangeType().getUpper());
         return code;
@@ -423,10 +475,10 @@ public class CodeGenerator implements DeclVisitor, StatementTransform<Code>,
     
 	/** Generate code for an array node */
 	public Code visitArrayNode(ExpNode.ArrayNode node) {
-		Code code = node.getCond().genCode( this );
+		node.getCond().genCode( this );
 		/* Load the condition. */
 		if( node.getCond().getType() instanceof Type.ReferenceType ) {
-			code.append( genLoad( node.getCond().getType() ) );
+			genLoad( node.getCond().getType() );
 		}
 		/* Generate bounds check */
 		int lower = node.getLVal().getType().getArrayType().getArgType().getSubrangeType().getLower();
@@ -435,15 +487,21 @@ public class CodeGenerator implements DeclVisitor, StatementTransform<Code>,
 		code.genBoundsCheck(lower, upper);
 		/* If we've gotten here, then we have a valid index. Just need to calculate the offset */
 		/* Index is now on the top of the stack */
-		code.genLoadConstant( lower );
-		/* Add the lower bound to the stack, then negate and add to perform a subtract */
-		code.generateOp( Operation.NEGATE );
-		code.generateOp( Operation.ADD );
+		/* Subtract the lower bound by adding its negation, which
+		 * Superinstructions turns into a single LOAD_CON_ADD.
+		 * The least int has no negation, so it is subtracted. */
+		if( lower == Integer.MIN_VALUE ) {
+			code.genLoadConstant( lower );
+			code.generateOp( Operation.SUB );
+		} else {
+			code.genLoadConstant( -lower );
+			code.generateOp( Operation.ADD );
+		}
 		/* Get the space size and multiply it by the current offset */
 		code.genLoadConstant( size );
 		code.generateOp( Operation.MPY );
 		/* Add the offset to the start of the array */
-		code.append( node.getLVal().genCode( this ) );
+		node.getLVal().genCode( this );
 		code.generateOp( Operation.ADD );
 		return code;
 	}
@@ -1,6 +1,5 @@
 package tree;
 
-import source.ErrorHandler;
 import source.Errors;
 import source.Position;
 import syms.Predefined;
@@ -25,14 +24,15 @@ public abstract class ConstExp {
     protected Type type;
     /** Value of the expression */
     protected int value;
-    /** Error handler */
-    protected Errors errors = ErrorHandler.getErrorHandler();
+    /** Error handler of the compilation */
+    protected final Errors errors;
     /** Constructor used by subclass constructors only */
     protected ConstExp( Position pos, Status status, Scope scope, 
             Type type, int value ) {
         this.pos = pos;
         this.status = status;
         this.scope = scope;
+        this.errors = scope.getErrors();
         this.type = type;
         this.value = value;
     }
@@ -93,6 +93,48 @@ public abstract class ConstExp {
             status = Status.Resolved;
         }
     }
+    /** A constant expression consisting of a binary operator applied to
+     * two constant expressions */
+    public static class OperatorNode extends ConstExp {
+        private Operator op;
+        private ConstExp left, right;
+        
+        public OperatorNode( Position pos, Scope scope, Operator op,
+                ConstExp left, ConstExp right ) {
+            super( pos, Status.Unresolved, scope );
+            this.op = op;
+            this.left = left;
+            this.right = right;
+        }
+        @Override
+        protected void evaluate() {
+            Type leftType = left.getType();
+            Type rightType = right.getType();
+            if( leftType == Type.ERROR_TYPE || rightType == Type.ERROR_TYPE ) {
+                /* Already reported */
+            } else if( op == Operator.EQUALS_OP || op == Operator.NEQUALS_OP ) {
+                if( !leftType.equals( rightType ) ) {
+                    errors.error( "can only compare constants of the same type",
+                            pos );
+                } else {
+                    type = Predefined.BOOLEAN_TYPE;
+                    value = op.evaluate( left.getValue(), right.getValue() );
+                }
+            } else if( leftType != Predefined.INTEGER_TYPE ||
+                    rightType != Predefined.INTEGER_TYPE ) {
+                errors.error( "operands of " + op.getName() + 
+                        " must be integers", pos );
+            } else if( op == Operator.DIV_OP && right.getValue() == 0 ) {
+                errors.error( "division by zero in constant expression",
+                        pos );
+            } else {
+                type = op.isRelation() ? 
+                        Predefined.BOOLEAN_TYPE : Predefined.INTEGER_TYPE;
+                value = op.evaluate( left.getValue(), right.getValue() );
+            }
+            status = Status.Resolved;
+        }
+    }
     /** A constant expression consisting of a reference to an identifier */
     public static class ConstIdNode extends ConstExp {
         private String id;
@@ -53,7 +53,7 @@ public abstract class ExpNode {
      * @param visitor object that implements a traversal.
      * @return generated code
      */
-    public abstract Code genCode( ExpTransform<Code> visitor );
+    public abstract <R> R genCode( ExpTransform<R> visitor );
         
     /** Tree node representing an erroneous expression. */
     public static class ErrorNode extends ExpNode {
@@ -66,7 +66,7 @@ public abstract class ExpNode {
             return visitor.visitErrorExpNode( this );
         }
         @Override
-        public Code genCode( ExpTransform<Code> visitor ) {
+        public <R> R genCode( ExpTransform<R> visitor ) {
             return visitor.visitErrorExpNode( this );
         }
         @Override
@@ -92,7 +92,7 @@ public abstract class ExpNode {
             return visitor.visitConstNode( this );
         }
         @Override
-        public Code genCode( ExpTransform<Code> visitor ) {
+        public <R> R genCode( ExpTransform<R> visitor ) {
             return visitor.visitConstNode( this );
         }
         @Override
@@ -121,7 +121,7 @@ public abstract class ExpNode {
             return visitor.visitIdentifierNode( this );
         }
         @Override
-        public Code genCode( ExpTransform<Code> visitor ) {
+        public <R> R genCode( ExpTransform<R> visitor ) {
             return visitor.visitIdentifierNode( this );
         }
         @Override
@@ -146,7 +146,7 @@ public abstract class ExpNode {
             return visitor.visitVariableNode( this );
         }
         @Override
-        public Code genCode( ExpTransform<Code> visitor ) {
+        public <R> R genCode( ExpTransform<R> visitor ) {
             return visitor.visitVariableNode( this );
         }
         @Override
@@ -165,7 +165,7 @@ public abstract class ExpNode {
             return visitor.visitReadNode( this );
         }
         @Override
-        public Code genCode( ExpTransform<Code> visitor ) {
+        public <R> R genCode( ExpTransform<R> visitor ) {
             return visitor.visitReadNode( this );
         }
         @Override
@@ -201,7 +201,7 @@ public abstract class ExpNode {
             return visitor.visitOperatorNode( this );
         }
         @Override
-        public Code genCode( ExpTransform<Code> visitor ) {
+        public <R> R genCode( ExpTransform<R> visitor ) {
             return visitor.visitOperatorNode( this );
         }
         @Override
@@ -240,7 +240,7 @@ public abstract class ExpNode {
             return visitor.visitArgumentsNode( this );
         }
         @Override
-        public Code genCode(ExpTransform<Code> visitor ) {
+        public <R> R genCode( ExpTransform<R> visitor ) {
             return visitor.visitArgumentsNode( this );
         }
         @Override
@@ -273,7 +273,7 @@ public abstract class ExpNode {
             return visitor.visitDereferenceNode( this );
         }
         @Override
-        public Code genCode( ExpTransform<Code> visitor ) {
+        public <R> R genCode( ExpTransform<R> visitor ) {
             return visitor.visitDereferenceNode( this );
         }
         @Override
@@ -305,7 +305,7 @@ public abstract class ExpNode {
             return visitor.visitNarrowSubrangeNode( this );
         }
         @Override
-        public Code genCode( ExpTransform<Code> visitor ) {
+        public <R> R genCode( ExpTransform<R> visitor ) {
             return visitor.visitNarrowSubrangeNode( this );
         }
         @Override
@@ -333,7 +333,7 @@ public abstract class ExpNode {
             return visitor.visitWidenSubrangeNode( this );
         }
         @Override
-        public Code genCode( ExpTransform<Code> visitor ) {
+        public <R> R genCode( ExpTransform<R> visitor ) {
             return visitor.visitWidenSubrangeNode( this );
         }
         @Override
@@ -357,7 +357,7 @@ public abstract class ExpNode {
     		return visitor.visitArrayNode( this );
     	}
     	@Override
-    	public Code genCode( ExpTransform<Code> visitor ) {
+    	public <R> R genCode( ExpTransform<R> visitor ) {
     		return visitor.visitArrayNode( this );
     	}
     	public ExpNode getLVal() {
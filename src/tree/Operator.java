@@ -1,5 +1,7 @@
 package tree;
 
+import machine.StackMachine;
+
 /**
  * enumeration Operator - operators in abstract syntax tree.
  * @version $Revision: 14 $  $Date: 2013-05-08 10:40:38 +1000 (Wed, 08 May 2013) $
@@ -30,4 +32,53 @@ public enum Operator {
     public String getName() {
         return name;
     }
+    /** @return whether the operator compares its arguments */
+    public boolean isRelation() {
+        switch( this ) {
+        case EQUALS_OP:
+        case NEQUALS_OP:
+        case GREATER_OP:
+        case LESS_OP:
+        case LEQUALS_OP:
+        case GEQUALS_OP:
+            return true;
+        default:
+            return false;
+        }
+    }
+    /** Evaluate the operator at compile time, with the same result as the
+     * code generated for it. A unary operator ignores right.
+     * @return the result, with booleans represented as by the machine
+     * @requires this is not DIV_OP or right != 0 */
+    public int evaluate( int left, int right ) {
+        switch( this ) {
+        case ADD_OP:
+            return left + right;
+        case SUB_OP:
+            return left - right;
+        case MUL_OP:
+            return left * right;
+        case DIV_OP:
+            return left / right;
+        case EQUALS_OP:
+            return bool( left == right );
+        case NEQUALS_OP:
+            return bool( left != right );
+        case GREATER_OP:
+            return bool( left > right );
+        case LESS_OP:
+            return bool( left < right );
+        case LEQUALS_OP:
+            return bool( left <= right );
+        case GEQUALS_OP:
+            return bool( left >= right );
+        case NEG_OP:
+            return -left;
+        default:
+            throw new IllegalArgumentException( "cannot evaluate " + name );
+        }
+    }
+    private static int bool( boolean b ) {
+        return b ? StackMachine.TRUE_VALUE : StackMachine.FALSE_VALUE;
+    }
 }
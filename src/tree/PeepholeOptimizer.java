@@ -0,0 +1,603 @@
+package tree;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import machine.Operation;
+import machine.StackMachine;
+import source.Position;
+import syms.SymEntry;
+
+/**
+ * class PeepholeOptimizer - rewrites redundant instruction sequences in
+ * the code generated for a procedure, before the superinstructions are
+ * formed.
+ * @version $Revision: 22 $  $Date: 2014-05-20 15:14:36 +1000 (Tue, 20 May 2014) $
+ * The code is decoded into its instructions, the rules below are applied
+ * until none applies, and the code is generated again with the branch
+ * offsets recomputed. A rule only matches instructions that are not
+ * branch targets, other than the first, and replaces them in place, so
+ * a branch to the first goes to the replacement, or to the instruction
+ * following them if they are removed. With c a constant:
+ *   c1 c2 op  =>  c1 op c2, for arithmetic, logical and comparison ops,
+ *                 except division by 0
+ *   c lower upper BOUND  =>  c, if c is in bounds
+ *   c NEGATE, c NOT_BOOL, c INC, c DEC  =>  the result
+ *   c SUB  =>  -c ADD
+ *   0 ADD, 1 MPY, c POP, DUP POP, NEGATE NEGATE, SWAP SWAP  =>  nothing
+ *   cmp NOT_BOOL  =>  the opposite comparison, other than for EQUAL
+ *   cmp BR_FALSE_REL  =>  the compare-and-branch for the opposite test,
+ *                 and cmp NOT_BOOL BR_FALSE_REL  =>  that for cmp
+ *   0 BR_FALSE_REL  =>  BR_REL, and 1 BR_FALSE_REL  =>  nothing
+ *   c1 c2 BR_cmp  =>  BR_REL if c1 cmp c2 holds, otherwise nothing
+ *   BR_cmp L BR_REL M L:  =>  BR_opposite M L:
+ *   a branch to a BR_REL  =>  a branch to its target
+ *   BR_REL to the following instruction  =>  nothing
+ *   instructions after a BR_REL, RETURN or STOP that are not branch
+ *   targets  =>  nothing
+ * Constants are loaded by LOAD_CON rather than ZERO or ONE, so that
+ * Superinstructions can fuse them with the instruction following.
+ */
+public class PeepholeOptimizer {
+    /** Limit on the passes over the code */
+    private static final int MAX_PASSES = 100;
+
+    /* The instructions of the procedure being rewritten, in order */
+    /** Number of instructions */
+    private int n;
+    private Operation[] ops;
+    /** Immediate operands, the constants of LOAD_WIDE, and the index of
+     * the instruction branched to by the branches (n for the end) */
+    private int[] operands;
+    /** Procedures whose address is loaded, for the relocated LOAD_CONs */
+    private SymEntry.ProcedureEntry[] procs;
+    /** Statement positions marking the instructions */
+    private Position[] marks;
+    /** Instructions removed */
+    private boolean[] deleted;
+    /** Instructions that may be branch targets */
+    private boolean[] targets;
+
+    /** Rewrite the code for a whole procedure.
+     * @param code for the complete body of a procedure, so that all
+     *  branch targets are within it
+     * @return the rewritten code, or code itself if it contains an
+     *  invalid instruction or operand, or a branch whose target cannot
+     *  be determined or is not the start of an instruction
+     */
+    public Code rewrite( Code code ) {
+        if( !code.getOperandErrors().isEmpty() || !decode( code ) ) {
+            return code;
+        }
+        for( int pass = 0; pass < MAX_PASSES && rewritePass(); pass++ ) {
+        }
+        return encode( code.size() );
+    }
+    /** Decode the code into the instruction arrays.
+     * @return false if the code cannot be rewritten */
+    private boolean decode( Code code ) {
+        int size = code.size();
+        n = 0;
+        for( int addr = 0; addr < size; n++ ) {
+            Operation op = Operation.decode( code.getWord( addr ) );
+            if( op == null || op == Operation.BR ||
+                    op == Operation.BR_FALSE ) {
+                return false;
+            }
+            addr += op.getSize();
+        }
+        ops = new Operation[ n ];
+        operands = new int[ n ];
+        procs = new SymEntry.ProcedureEntry[ n ];
+        marks = new Position[ n ];
+        deleted = new boolean[ n ];
+        targets = new boolean[ n ];
+        /* Index of the instruction at each offset, -1 within one */
+        int[] index = new int[ size + 1 ];
+        Arrays.fill( index, -1 );
+        int[] addrs = new int[ n ];
+        int addr = 0;
+        for( int i = 0; i < n; i++ ) {
+            int word = code.getWord( addr );
+            index[addr] = i;
+            addrs[i] = addr;
+            ops[i] = Operation.decode( word );
+            operands[i] = ops[i] == Operation.LOAD_WIDE ?
+                    code.getWord( addr + 1 ) : Operation.operand( word );
+            procs[i] = code.getRelocation( addr );
+            addr += ops[i].getSize();
+        }
+        index[size] = n;
+        for( int i = 0; i < n; i++ ) {
+            if( isBranch( ops[i] ) ) {
+                int target = addrs[i] + ops[i].getSize() + operands[i];
+                if( target < 0 || size < target || index[target] < 0 ) {
+                    return false;
+                }
+                operands[i] = index[target];
+            }
+        }
+        for( Map.Entry<Integer,Position> mark :
+                code.getPositions().entrySet() ) {
+            int i = mark.getKey() <= size ? index[mark.getKey()] : -1;
+            if( 0 <= i && i < n ) {
+                marks[i] = mark.getValue();
+            }
+        }
+        return true;
+    }
+    /** Generate the code for the remaining instructions */
+    private Code encode( int size ) {
+        /* New address of each instruction, or of the one following a
+         * removed instruction */
+        int[] newAddr = new int[ n + 1 ];
+        int locn = 0;
+        for( int i = 0; i < n; i++ ) {
+            newAddr[i] = locn;
+            if( !deleted[i] ) {
+                locn += ops[i].getSize();
+            }
+        }
+        newAddr[n] = locn;
+        Code newCode = new Code( size );
+        /* Position of a statement whose first instructions were removed */
+        Position pending = null;
+        for( int i = 0; i < n; i++ ) {
+            if( deleted[i] ) {
+                if( pending == null ) {
+                    pending = marks[i];
+                }
+                continue;
+            }
+            Position pos = marks[i] != null ? marks[i] : pending;
+            if( pos != null ) {
+                newCode.markPosition( pos );
+            }
+            pending = null;
+            Operation op = ops[i];
+            if( procs[i] != null ) {
+                newCode.genProcCallRef( procs[i] );
+            } else if( isBranch( op ) ) {
+                newCode.generateOp( op,
+                        newAddr[ operands[i] ] - (newAddr[i] + op.getSize()) );
+            } else if( op.hasOperand() || op == Operation.LOAD_WIDE ) {
+                newCode.generateOp( op, operands[i] );
+            } else {
+                newCode.generateOp( op );
+            }
+        }
+        return newCode;
+    }
+    /** Apply the rules once over the code.
+     * @return true if any rule applied */
+    private boolean rewritePass() {
+        /* Move the branches to removed instructions on to the instruction
+         * following, and find the branch targets again */
+        Arrays.fill( targets, false );
+        for( int i = 0; i < n; i++ ) {
+            if( !deleted[i] && isBranch( ops[i] ) ) {
+                operands[i] = live( operands[i] );
+                if( operands[i] < n ) {
+                    targets[ operands[i] ] = true;
+                }
+            }
+        }
+        boolean changed = false;
+        int prev = -1;
+        for( int i = live( 0 ); i < n; ) {
+            if( prev >= 0 && !targets[i] && endsFlow( ops[prev] ) ) {
+                /* Unreachable */
+                delete( i );
+                changed = true;
+            } else if( rewriteAt( i ) ) {
+                changed = true;
+                if( !deleted[i] ) {
+                    /* Try the rules again on the replacement */
+                    continue;
+                }
+            } else {
+                prev = i;
+            }
+            i = live( i + 1 );
+        }
+        return changed;
+    }
+    /** Apply the first rule that matches the instructions from i.
+     * @return true if one did */
+    private boolean rewriteAt( int i ) {
+        int j = next( i );
+        int k = next( j );
+        int l = next( k );
+        Operation op = ops[i];
+        if( isConstant( i ) ) {
+            int c = constant( i );
+            if( free( j ) ) {
+                switch( ops[j] ) {
+                case NEGATE:
+                case NOT_BOOL:
+                case INC:
+                case DEC:
+                    setConstant( i, fold( ops[j], c, 0 ) );
+                    delete( j );
+                    return true;
+                case SUB:
+                    setConstant( i, -c );
+                    ops[j] = Operation.ADD;
+                    return true;
+                case POP:
+                    delete( j );
+                    delete( i );
+                    return true;
+                case ADD:
+                case MPY:
+                    if( c == (ops[j] == Operation.ADD ? 0 : 1) ) {
+                        delete( j );
+                        delete( i );
+                        return true;
+                    }
+                    break;
+                case BR_FALSE_REL:
+                    if( c == StackMachine.FALSE_VALUE ) {
+                        ops[i] = Operation.BR_REL;
+                        operands[i] = operands[j];
+                        delete( j );
+                        return true;
+                    } else if( c == StackMachine.TRUE_VALUE ) {
+                        delete( j );
+                        delete( i );
+                        return true;
+                    }
+                    break;
+                default:
+                }
+                if( isConstant( j ) && free( k ) &&
+                        canFold( ops[k], constant( j ) ) ) {
+                    setConstant( i, fold( ops[k], c, constant( j ) ) );
+                    delete( k );
+                    delete( j );
+                    return true;
+                }
+                if( isConstant( j ) && free( k ) &&
+                        isCompareBranch( ops[k] ) ) {
+                    if( holds( ops[k], c, constant( j ) ) ) {
+                        ops[i] = Operation.BR_REL;
+                        operands[i] = operands[k];
+                    } else {
+                        delete( i );
+                    }
+                    delete( k );
+                    delete( j );
+                    return true;
+                }
+                if( isConstant( j ) && isConstant( k ) && free( k ) &&
+                        free( l ) && ops[l] == Operation.BOUND &&
+                        constant( j ) <= c && c <= constant( k ) ) {
+                    delete( l );
+                    delete( k );
+                    delete( j );
+                    return true;
+                }
+            }
+            if( op == Operation.ZERO || op == Operation.ONE ) {
+                setConstant( i, c );
+                return true;
+            }
+            return false;
+        }
+        switch( op ) {
+        case NEGATE:
+        case SWAP:
+            if( free( j ) && ops[j] == op ) {
+                delete( j );
+                delete( i );
+                return true;
+            }
+            return false;
+        case DUP:
+            if( free( j ) && ops[j] == Operation.POP ) {
+                delete( j );
+                delete( i );
+                return true;
+            }
+            return false;
+        case EQUAL:
+        case LESS:
+        case LESSEQ:
+        case GREATER:
+        case GREATEREQ:
+            if( !free( j ) ) {
+                return false;
+            }
+            if( ops[j] == Operation.BR_FALSE_REL ) {
+                ops[i] = branchIf( opposite( op ) );
+                operands[i] = operands[j];
+                delete( j );
+                return true;
+            }
+            if( ops[j] == Operation.NOT_BOOL && free( k ) &&
+                    ops[k] == Operation.BR_FALSE_REL ) {
+                ops[i] = branchIf( op );
+                operands[i] = operands[k];
+                delete( k );
+                delete( j );
+                return true;
+            }
+            if( ops[j] == Operation.NOT_BOOL && op != Operation.EQUAL ) {
+                ops[i] = opposite( op );
+                delete( j );
+                return true;
+            }
+            return false;
+        case BR_EQUAL:
+        case BR_NOT_EQUAL:
+        case BR_LESS:
+        case BR_LESSEQ:
+        case BR_GREATER:
+        case BR_GREATEREQ:
+            if( free( j ) && ops[j] == Operation.BR_REL &&
+                    live( operands[i] ) == k ) {
+                ops[i] = opposite( op );
+                operands[i] = operands[j];
+                delete( j );
+                return true;
+            }
+            return threadBranch( i, j );
+        case BR_REL:
+        case BR_FALSE_REL:
+            return threadBranch( i, j );
+        default:
+            return false;
+        }
+    }
+    /** Remove the branch at i if it is a BR_REL to the next instruction
+     * j, or else make it go straight to the end of any chain of BR_RELs
+     * it leads to.
+     * @return true if the branch was changed */
+    private boolean threadBranch( int i, int j ) {
+        int target = live( operands[i] );
+        if( ops[i] == Operation.BR_REL && target == j ) {
+            delete( i );
+            return true;
+        }
+        int last = finalTarget( target );
+        if( last != target ) {
+            operands[i] = last;
+            if( last < n ) {
+                targets[last] = true;
+            }
+            return true;
+        }
+        return false;
+    }
+    /** @return the first instruction from i on that has not been
+     * removed, or n if there is none */
+    private int live( int i ) {
+        while( i < n && deleted[i] ) {
+            i++;
+        }
+        return i;
+    }
+    /** @return the instruction reached from i by following BR_RELs, or
+     * i if they loop */
+    private int finalTarget( int i ) {
+        int target = i;
+        for( int steps = 0; target < n && ops[target] == Operation.BR_REL;
+                steps++ ) {
+            if( steps == n ) {
+                return i;
+            }
+            target = live( operands[target] );
+        }
+        return target;
+    }
+    /** @return the instruction following i, or n if there is none */
+    private int next( int i ) {
+        return i < n ? live( i + 1 ) : n;
+    }
+    /** @return true if i is an instruction that no branch goes to */
+    private boolean free( int i ) {
+        return i < n && !targets[i];
+    }
+    /** Remove instruction i. Branches to it go to the next instruction,
+     * which becomes a target. */
+    private void delete( int i ) {
+        deleted[i] = true;
+        if( targets[i] ) {
+            targets[i] = false;
+            int j = live( i + 1 );
+            if( j < n ) {
+                targets[j] = true;
+            }
+        }
+    }
+    /** @return true if i loads a constant known now */
+    private boolean isConstant( int i ) {
+        if( i >= n || procs[i] != null ) {
+            return false;
+        }
+        switch( ops[i] ) {
+        case LOAD_CON:
+        case LOAD_WIDE:
+        case ZERO:
+        case ONE:
+            return true;
+        default:
+            return false;
+        }
+    }
+    private int constant( int i ) {
+        switch( ops[i] ) {
+        case ZERO:
+            return 0;
+        case ONE:
+            return 1;
+        default:
+            return operands[i];
+        }
+    }
+    /** Make i load the constant value */
+    private void setConstant( int i, int value ) {
+        ops[i] = Operation.fitsOperand( value ) ?
+                Operation.LOAD_CON : Operation.LOAD_WIDE;
+        operands[i] = value;
+        procs[i] = null;
+    }
+    /** @return true if op of two constants, the second b, can be done now
+     * with the same result as at run time */
+    private boolean canFold( Operation op, int b ) {
+        switch( op ) {
+        case ADD:
+        case MPY:
+        case OR:
+        case AND:
+        case XOR:
+        case EQUAL:
+        case LESS:
+        case LESSEQ:
+        case SUB:
+        case GREATER:
+        case GREATEREQ:
+            return true;
+        case DIV:
+            return b != 0;
+        default:
+            return false;
+        }
+    }
+    /** @return the result of op on the constants a and b */
+    private int fold( Operation op, int a, int b ) {
+        switch( op ) {
+        case ADD:
+            return a + b;
+        case MPY:
+            return a * b;
+        case DIV:
+            return a / b;
+        case OR:
+            return a | b;
+        case AND:
+            return a & b;
+        case XOR:
+            return a ^ b;
+        case EQUAL:
+            return a == b ? StackMachine.TRUE_VALUE : StackMachine.FALSE_VALUE;
+        case LESS:
+            return a < b ? StackMachine.TRUE_VALUE : StackMachine.FALSE_VALUE;
+        case LESSEQ:
+            return a <= b ? StackMachine.TRUE_VALUE : StackMachine.FALSE_VALUE;
+        case SUB:
+            return a - b;
+        case GREATER:
+            return a > b ? StackMachine.TRUE_VALUE : StackMachine.FALSE_VALUE;
+        case GREATEREQ:
+            return a >= b ? StackMachine.TRUE_VALUE : StackMachine.FALSE_VALUE;
+        case NEGATE:
+            return -a;
+        case NOT_BOOL:
+            return a == StackMachine.FALSE_VALUE ?
+                    StackMachine.TRUE_VALUE : StackMachine.FALSE_VALUE;
+        case INC:
+            return a + 1;
+        case DEC:
+            return a - 1;
+        default:
+            throw new IllegalArgumentException( "cannot fold " + op );
+        }
+    }
+    /** @return whether the comparison of a with b by the comparison or
+     * compare-and-branch op holds */
+    private boolean holds( Operation op, int a, int b ) {
+        if( op == Operation.BR_NOT_EQUAL ) {
+            return a != b;
+        }
+        return fold( comparison( op ), a, b ) == StackMachine.TRUE_VALUE;
+    }
+    /** @return the comparison done by the compare-and-branch op, other
+     * than BR_NOT_EQUAL, or op itself if it is a comparison */
+    private Operation comparison( Operation op ) {
+        switch( op ) {
+        case BR_EQUAL:
+            return Operation.EQUAL;
+        case BR_LESS:
+            return Operation.LESS;
+        case BR_LESSEQ:
+            return Operation.LESSEQ;
+        case BR_GREATER:
+            return Operation.GREATER;
+        case BR_GREATEREQ:
+            return Operation.GREATEREQ;
+        default:
+            return op;
+        }
+    }
+    /** @return the compare-and-branch for the comparison or
+     * compare-and-branch op, or null if op is neither */
+    private Operation branchIf( Operation op ) {
+        switch( op ) {
+        case EQUAL:
+        case BR_EQUAL:
+            return Operation.BR_EQUAL;
+        case BR_NOT_EQUAL:
+            return Operation.BR_NOT_EQUAL;
+        case LESS:
+        case BR_LESS:
+            return Operation.BR_LESS;
+        case LESSEQ:
+        case BR_LESSEQ:
+            return Operation.BR_LESSEQ;
+        case GREATER:
+        case BR_GREATER:
+            return Operation.BR_GREATER;
+        case GREATEREQ:
+        case BR_GREATEREQ:
+            return Operation.BR_GREATEREQ;
+        default:
+            return null;
+        }
+    }
+    /** @return the comparison or compare-and-branch for the opposite
+     * test to op, or null if there is none. As there is no NOT_EQUAL,
+     * that for EQUAL is BR_NOT_EQUAL. */
+    private Operation opposite( Operation op ) {
+        switch( op ) {
+        case EQUAL:
+        case BR_EQUAL:
+            return Operation.BR_NOT_EQUAL;
+        case BR_NOT_EQUAL:
+            return Operation.BR_EQUAL;
+        case LESS:
+            return Operation.GREATEREQ;
+        case LESSEQ:
+            return Operation.GREATER;
+        case GREATER:
+            return Operation.LESSEQ;
+        case GREATEREQ:
+            return Operation.LESS;
+        case BR_LESS:
+            return Operation.BR_GREATEREQ;
+        case BR_LESSEQ:
+            return Operation.BR_GREATER;
+        case BR_GREATER:
+            return Operation.BR_LESSEQ;
+        case BR_GREATEREQ:
+            return Operation.BR_LESS;
+        default:
+            return null;
+        }
+    }
+    /** Compare-and-branch operations */
+    private boolean isCompareBranch( Operation op ) {
+        return op.isRelativeBranch() && op != Operation.BR_REL &&
+            op != Operation.BR_FALSE_REL;
+    }
+    /** Branches with the offset as their operand */
+    private boolean isBranch( Operation op ) {
+        return op.isRelativeBranch();
+    }
+    /** @return true if the instruction following op is only reached by
+     * a branch */
+    private boolean endsFlow( Operation op ) {
+        return op == Operation.BR_REL || op == Operation.RETURN ||
+            op == Operation.STOP;
+    }
+}
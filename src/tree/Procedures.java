@@ -1,11 +1,13 @@
 package tree;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import machine.StackMachine;
-import source.ErrorHandler;
 import source.Position;
+import source.Source;
 import syms.Scope;
 import syms.SymEntry;
 
@@ -13,6 +15,9 @@ import syms.SymEntry;
  * class Procedures - code for each procedure and start and finish
  * addresses. Handles a stack trace back for the stack machine
  * in the event of a runtime error.
+ * Each procedure has a line table, giving the source position of the
+ * statement whose code starts at each address, from which the source
+ * line of any address of the code can be found.
  * @version $Revision: 22 $  $Date: 2014-05-20 15:14:36 +1000 (Tue, 20 May 2014) $
  */
 public class Procedures {
@@ -21,17 +26,34 @@ public class Procedures {
     private List<ProcedureCode> procEntries;
     /** Current code location for tracking start addresses of procedures */
     private int current;
+    /** Source of the program, for the line numbers of the positions */
+    private Source source = null;
 
     public class ProcedureCode {
         SymEntry.ProcedureEntry procEntry;
         Code code;
         int finish;
+        /** Addresses at which the code of each statement starts,
+         * in increasing order */
+        int[] lineAddresses;
+        /** Source positions of the statements starting at lineAddresses */
+        Position[] linePositions;
         
         ProcedureCode( SymEntry.ProcedureEntry procEntry, Code code ) {
             super();
             this.procEntry = procEntry;
             this.code = code;
             procEntry.setStart( current );
+            /* Convert the offsets of the statements into addresses */
+            Map<Integer,Position> marks = code.getPositions();
+            lineAddresses = new int[ marks.size() ];
+            linePositions = new Position[ marks.size() ];
+            int i = 0;
+            for( Map.Entry<Integer,Position> mark : marks.entrySet() ) {
+                lineAddresses[i] = current + mark.getKey();
+                linePositions[i] = mark.getValue();
+                i++;
+            }
             current += code.size();
             this.finish = current;
         }
@@ -44,6 +66,29 @@ public class Procedures {
         public Code getCode() {
             return code;
         }
+        /** @return address of the first instruction of the procedure */
+        public int getStart() {
+            return procEntry.getStart();
+        }
+        /** @return address just past the last instruction of the procedure */
+        public int getFinish() {
+            return finish;
+        }
+        /** @return the addresses at which the code of each statement
+         * starts, in increasing order */
+        public int[] getLineAddresses() {
+            return lineAddresses;
+        }
+        /** @return the position of the statement whose code includes pc,
+         * or NO_POSITION if pc precedes the code of every statement */
+        public Position getPosition( int pc ) {
+            int i = Arrays.binarySearch( lineAddresses, pc );
+            if( i < 0 ) {
+                /* The last statement starting before pc */
+                i = -(i + 1) - 1;
+            }
+            return i < 0 ? Position.NO_POSITION : linePositions[i];
+        }
         @Override
         public String toString() {
             return procEntry + " : " + finish;
@@ -51,7 +96,7 @@ public class Procedures {
     }
     
     public Procedures() {
-        procEntries = new LinkedList<ProcedureCode>();
+        procEntries = new ArrayList<ProcedureCode>();
         current = StackMachine.CODE_START;
     }
     public List<ProcedureCode> getProcedureEntries() {
@@ -60,19 +105,50 @@ public class Procedures {
     public void addProcedure( SymEntry.ProcedureEntry procEntry, Code code ) {
         procEntries.add( new ProcedureCode( procEntry, code ) );
     }
+    /** Specify the source of the program, to resolve line numbers */
+    public void setSource( Source source ) {
+        this.source = source;
+    }
+    /** @return the position of the statement whose code includes pc,
+     * or NO_POSITION if there is none */
+    public Position getPosition( int pc ) {
+        ProcedureCode proc = getProcedure( pc );
+        return proc == null ? Position.NO_POSITION : proc.getPosition( pc );
+    }
+    /** @return the source line of the statement whose code includes pc,
+     * or 0 if it is not known */
+    public int getLineNumber( int pc ) {
+        return getLineNumber( getPosition( pc ) );
+    }
+    /** @return the source line of pos, or 0 if it is not known */
+    public int getLineNumber( Position pos ) {
+        if( source == null || pos == Position.NO_POSITION ) {
+            return 0;
+        }
+        return source.getLineNumber( pos );
+    }
     public ProcedureCode getProcedure( int pc ) {
         if( pc < StackMachine.CODE_START || current <= pc ) {
             // Must be in main program setup or finalization code
             return null;
         }
-        for( ProcedureCode ps : procEntries ) {
-            if( pc < ps.finish ) {
-                return ps;
+        /* The procedures are in order of their addresses, so search for
+         * the first one that finishes after pc by bisection */
+        int low = 0;
+        int high = procEntries.size() - 1;
+        while( low < high ) {
+            int mid = (low + high) >>> 1;
+            if( pc < procEntries.get( mid ).finish ) {
+                high = mid;
+            } else {
+                low = mid + 1;
             }
         }
+        if( low < procEntries.size() && pc < procEntries.get( low ).finish ) {
+            return procEntries.get( low );
+        }
         // Can't get here
-        ErrorHandler.getErrorHandler().fatal(
-                "getProcedure failed assertion 2: pc = " + pc, Position.NO_POSITION );
+        assert false : "getProcedure failed assertion 2: pc = " + pc;
         return null;
     }
     @Override
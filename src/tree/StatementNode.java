@@ -38,7 +38,7 @@ public abstract class StatementNode {
      * pattern to traverse the tree for code generation.
      * @param visitor class implementing the code generation
      */
-    public abstract Code genCode( StatementTransform<Code> visitor );
+    public abstract <R> R genCode( StatementTransform<R> visitor );
     
     /** Debugging output of a statement at an indent level */
     public abstract String toString( int level );
@@ -75,7 +75,7 @@ public abstract class StatementNode {
             visitor.visitProgramNode( this );
         }
         @Override
-        public Code genCode( StatementTransform<Code> visitor ) {
+        public <R> R genCode( StatementTransform<R> visitor ) {
             return visitor.visitProgramNode( this );
         }
         public SymbolTable getBaseSymbolTable() {
@@ -109,7 +109,7 @@ public abstract class StatementNode {
             visitor.visitBlockNode( this );
         }
         @Override
-        public Code genCode( StatementTransform<Code> visitor ) {
+        public <R> R genCode( StatementTransform<R> visitor ) {
             return visitor.visitBlockNode( this );
         }
 
@@ -144,7 +144,7 @@ public abstract class StatementNode {
             visitor.visitStatementErrorNode( this );
         }
         @Override
-        public Code genCode( StatementTransform<Code> visitor ) {
+        public <R> R genCode( StatementTransform<R> visitor ) {
             return visitor.visitStatementErrorNode( this );
         }
         @Override
@@ -170,7 +170,7 @@ public abstract class StatementNode {
             visitor.visitAssignmentNode( this );
         }
         @Override
-        public Code genCode( StatementTransform<Code> visitor ) {
+        public <R> R genCode( StatementTransform<R> visitor ) {
             return visitor.visitAssignmentNode( this );
         }
         public ExpNode getVariable() {
@@ -211,7 +211,7 @@ public abstract class StatementNode {
             visitor.visitWriteNode( this );
         }
         @Override
-        public Code genCode( StatementTransform<Code> visitor ) {
+        public <R> R genCode( StatementTransform<R> visitor ) {
             return visitor.visitWriteNode( this );
         }
         public ExpNode getExp() {
@@ -240,7 +240,7 @@ public abstract class StatementNode {
             visitor.visitCallNode( this );
         }
         @Override
-        public Code genCode( StatementTransform<Code> visitor ) {
+        public <R> R genCode( StatementTransform<R> visitor ) {
             return visitor.visitCallNode( this );
         }
         public String getId() {
@@ -274,7 +274,7 @@ public abstract class StatementNode {
             visitor.visitStatementListNode( this );
         }
         @Override
-        public Code genCode( StatementTransform<Code> visitor ) {
+        public <R> R genCode( StatementTransform<R> visitor ) {
             return visitor.visitStatementListNode( this );
         }
         public List<StatementNode> getStatements() {
@@ -309,7 +309,7 @@ public abstract class StatementNode {
             visitor.visitIfNode( this );
         }
         @Override
-        public Code genCode( StatementTransform<Code> visitor ) {
+        public <R> R genCode( StatementTransform<R> visitor ) {
             return visitor.visitIfNode( this );
         }
         public ExpNode getCondition() {
@@ -349,7 +349,7 @@ public abstract class StatementNode {
             visitor.visitWhileNode( this );
         }
         @Override
-        public Code genCode( StatementTransform<Code> visitor ) {
+        public <R> R genCode( StatementTransform<R> visitor ) {
             return visitor.visitWhileNode( this );
         }
         public ExpNode getCondition() {
@@ -389,7 +389,7 @@ public abstract class StatementNode {
 			visitor.visitForNode( this );
 		}
 		@Override
-		public Code genCode(StatementTransform<Code> visitor) {
+		public <R> R genCode( StatementTransform<R> visitor ) {
 			return visitor.visitForNode( this );
 		}
 		public ExpNode getCondition1() {
@@ -1,4 +1,5 @@
 package tree;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -133,7 +134,7 @@ public class StaticChecker implements DeclVisitor, StatementVisitor,
              * right side expression is coerced to the dereferenced
              * type of the left side LValue. */
             Type baseType = ((Type.ReferenceType)lvalType).getBaseType();
-            node.setExp( baseType.coerceExp( exp ) );
+            node.setExp( baseType.coerceExp( exp, errors ) );
         }
         endCheck("Assignment");
     }
@@ -144,7 +145,7 @@ public class StaticChecker implements DeclVisitor, StatementVisitor,
         ExpNode exp = node.getExp().transform( this );
         // coerce expression to be of type integer,
         // or complain if not possible.
-        node.setExp( Predefined.INTEGER_TYPE.coerceExp( exp ) );
+        node.setExp( Predefined.INTEGER_TYPE.coerceExp( exp, errors ) );
         endCheck("Write");
     }
 
@@ -179,7 +180,7 @@ public class StaticChecker implements DeclVisitor, StatementVisitor,
         cond = cond.transform( this );
         /* Validate that the condition is boolean, which may require
          * coercing the condition to be of type boolean. */     
-        return Predefined.BOOLEAN_TYPE.coerceExp( cond );
+        return Predefined.BOOLEAN_TYPE.coerceExp( cond, errors );
     }
     public void visitIfNode(StatementNode.IfNode node) {
         beginCheck("If");
@@ -208,12 +209,12 @@ public class StaticChecker implements DeclVisitor, StatementVisitor,
     	ExpNode c2 = node.getCondition2().transform( this );
     	node.setCondition1( c1 );
     	node.setCondition2( c2 );
-    	c1 = Type.optDereferenceExp( c1 ).transform( this );
-    	c2 = Type.optDereferenceExp( c2 ).transform( this );
+    	c1 = Type.optDereferenceExp( c1, errors ).transform( this );
+    	c2 = Type.optDereferenceExp( c2, errors ).transform( this );
     	// Dereference check
     	if( !(c1.getType().equals( c2.getType() ) ) ) {
-    		c1 = c1.getType().optWidenSubrange().coerceExp( c1 ).transform( this );
-    		c2 = c2.getType().optWidenSubrange().coerceExp( c2 ).transform( this );
+    		c1 = c1.getType().optWidenSubrange().coerceExp( c1, errors ).transform( this );
+    		c2 = c2.getType().optWidenSubrange().coerceExp( c2, errors ).transform( this );
     	}
     	node.setCondition1( c1 );
     	node.setCondition2( c2 );
@@ -278,8 +279,10 @@ public class StaticChecker implements DeclVisitor, StatementVisitor,
              * result type.
              */
             Type.FunctionType fType = (Type.FunctionType)opType;
-            node.setArg( fType.getArgType().coerceExp( arg ) );
+            node.setArg( fType.getArgType().coerceExp( arg, errors ) );
             node.setType( fType.getResultType() );
+            endCheck( "Operator" );
+            return foldConstant( node );
         } else if( opType instanceof Type.IntersectionType ) {
             /* The operator is overloaded. Its type is represented
              * by an IntersectionType containing a set of possible
@@ -297,13 +300,13 @@ public class StaticChecker implements DeclVisitor, StatementVisitor,
                      * exception will be trapped and an alternative 
                      * function type within the intersection tried.
                      */
-                    ExpNode newArg = opArgType.coerceToType( arg );
+                    ExpNode newArg = opArgType.coerceToType( arg, errors );
                     /* The coercion succeeded if we get here */
                     node.setArg( newArg );
                     node.setType( fType.getResultType() );
                     errors.decDebug();
                     endCheck( "Operator" );
-                    return node;
+                    return foldConstant( node );
                 } catch ( IncompatibleTypes ex ) {
                     // Allow "for" loop to try an alternative
                 }
@@ -320,6 +323,31 @@ public class StaticChecker implements DeclVisitor, StatementVisitor,
         endCheck( "Operator" );
         return node;
     }
+    /** Evaluate an operator whose arguments are all constants, so that
+     * it is not evaluated at run time.
+     * @return a constant node for the result, or node itself if any
+     *  argument is not a constant, or the operator divides by zero,
+     *  which is reported
+     */
+    private ExpNode foldConstant( ExpNode.OperatorNode node ) {
+        List<ExpNode> args = node.getArg() instanceof ExpNode.ArgumentsNode ?
+            ((ExpNode.ArgumentsNode)node.getArg()).getArgs() :
+            Collections.singletonList( node.getArg() );
+        int[] values = new int[ 2 ];
+        for( int i = 0; i < args.size() && i < values.length; i++ ) {
+            if( !(args.get(i) instanceof ExpNode.ConstNode) ) {
+                return node;
+            }
+            values[i] = ((ExpNode.ConstNode)args.get(i)).getValue();
+        }
+        if( node.getOp() == Operator.DIV_OP && values[1] == 0 ) {
+            staticError( "division by zero", node.getPosition() );
+            return node;
+        }
+        debugMessage( "Folded " + node );
+        return new ExpNode.ConstNode( node.getPosition(), node.getType(),
+                node.getOp().evaluate( values[0], values[1] ) );
+    }
     /** An ArgumentsNode is used to represent a list of arguments, each 
      * of which is an expression. The arguments for a binary operator are 
      * represented by list with two elements.
@@ -424,7 +452,7 @@ public class StaticChecker implements DeclVisitor, StatementVisitor,
 			node.setCond( cond );
 			Type.FunctionType fLValType = (Type.FunctionType)lValType;
 			Type argType = fLValType.getArgType();
-			argType.coerceExp( node.getCond() );
+			argType.coerceExp( node.getCond(), errors );
 			node.setType( new Type.ReferenceType( fLValType.getResultType() ) );
 		}		
 		endCheck("Array");
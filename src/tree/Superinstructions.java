@@ -0,0 +1,156 @@
+package tree;
+
+import java.util.Iterator;
+import java.util.Map;
+
+import machine.Operation;
+import source.Position;
+
+/**
+ * class Superinstructions - rewrites the code for a procedure to replace
+ * a LOAD_CON followed by a LOAD_FRAME, STORE_FRAME, BR, BR_FALSE or ADD
+ * by the corresponding superinstruction with the constant as its operand,
+ * saving a dispatch in the stack machine for each pair.
+ * @version $Revision: 22 $  $Date: 2014-05-20 15:14:36 +1000 (Tue, 20 May 2014) $
+ * The branch offsets are recomputed for the new code. A pair is not
+ * fused if the second instruction is the target of a branch.
+ * The source positions of the statements are kept, marking the fused
+ * instruction with the position of the LOAD_CON.
+ */
+public class Superinstructions {
+
+    /** Rewrite the code for a whole procedure.
+     * @param code for the complete body of a procedure, so that all
+     *  branch targets are within it
+     * @return the rewritten code, or code itself if it contains an
+     *  invalid instruction or operand, or a branch whose target cannot
+     *  be determined or is not the start of an instruction
+     */
+    public Code rewrite( Code code ) {
+        if( !code.getOperandErrors().isEmpty() ) {
+            return code;
+        }
+        int n = code.size();
+        /* Find the start of each instruction */
+        boolean[] starts = new boolean[ n + 1 ];
+        starts[n] = true;
+        for( int addr = 0; addr < n; ) {
+            Operation op = Operation.decode( code.getWord( addr ) );
+            if( op == null ) {
+                return code;
+            }
+            starts[addr] = true;
+            addr += op.getSize();
+        }
+        /* Find the targets of all the branches */
+        boolean[] targets = new boolean[ n + 1 ];
+        int prev = -1;
+        for( int addr = 0; addr < n; ) {
+            Operation op = Operation.decode( code.getWord( addr ) );
+            int next = addr + op.getSize();
+            int target = -1;
+            if( isRelativeBranch( op ) ) {
+                target = next + Operation.operand( code.getWord( addr ) );
+            } else if( op == Operation.BR || op == Operation.BR_FALSE ) {
+                if( prev < 0 || !isConstant( code, prev ) ) {
+                    return code;
+                }
+                target = next + Operation.operand( code.getWord( prev ) );
+            }
+            if( target != -1 ) {
+                if( target < 0 || n < target || !starts[target] ) {
+                    return code;
+                }
+                targets[target] = true;
+            }
+            prev = addr;
+            addr = next;
+        }
+        /* Build the new code, recording the new address of each old
+         * address, and the new addresses and old targets of the
+         * branches. */
+        Code newCode = new Code( n );
+        int[] newAddr = new int[ n + 1 ];
+        int[] branchAt = new int[ n ];
+        int[] branchTarget = new int[ n ];
+        int m = 0;
+        /* The statement marks, in order of their offsets */
+        Iterator<Map.Entry<Integer,Position>> marks = 
+            code.getPositions().entrySet().iterator();
+        Map.Entry<Integer,Position> mark = 
+            marks.hasNext() ? marks.next() : null;
+        for( int addr = 0; addr < n; ) {
+            newAddr[addr] = newCode.size();
+            /* Skip any marks of the second instruction of a fused pair */
+            while( mark != null && mark.getKey() < addr ) {
+                mark = marks.hasNext() ? marks.next() : null;
+            }
+            if( mark != null && mark.getKey() == addr ) {
+                newCode.markPosition( mark.getValue() );
+            }
+            Operation op = Operation.decode( code.getWord( addr ) );
+            int next = addr + op.getSize();
+            Operation fused = null;
+            if( isConstant( code, addr ) && next < n && !targets[next] ) {
+                fused = fusedOp( Operation.decode( code.getWord( next ) ) );
+            }
+            if( fused == null ) {
+                if( isRelativeBranch( op ) ) {
+                    branchAt[m] = newCode.size();
+                    branchTarget[m++] = next + 
+                        Operation.operand( code.getWord( addr ) );
+                }
+                newCode.copyInstruction( code, addr );
+                addr = next;
+            } else {
+                int value = Operation.operand( code.getWord( addr ) );
+                /* The second instruction of the pair */
+                addr = next;
+                next = addr + 
+                    Operation.decode( code.getWord( addr ) ).getSize();
+                if( isRelativeBranch( fused ) ) {
+                    branchAt[m] = newCode.size();
+                    branchTarget[m++] = next + value;
+                    value = 0;  /* patched below */
+                }
+                newCode.generateOp( fused, value );
+                newAddr[addr] = newCode.size();
+                addr = next;
+            }
+        }
+        newAddr[n] = newCode.size();
+        /* Patch the branch offsets relative to the following instruction */
+        for( int j = 0; j < m; j++ ) {
+            newCode.patchBranch( branchAt[j], newAddr[ branchTarget[j] ] );
+        }
+        return newCode;
+    }
+    /** @return the superinstruction for a LOAD_CON followed by op,
+     *  or null if there is none */
+    private Operation fusedOp( Operation op ) {
+        switch( op ) {
+        case LOAD_FRAME:
+            return Operation.LOAD_LOCAL;
+        case STORE_FRAME:
+            return Operation.STORE_LOCAL;
+        case BR:
+            return Operation.BR_REL;
+        case BR_FALSE:
+            return Operation.BR_FALSE_REL;
+        case ADD:
+            return Operation.LOAD_CON_ADD;
+        default:
+            return null;
+        }
+    }
+    /** Branches with the offset as their operand */
+    private boolean isRelativeBranch( Operation op ) {
+        return op.isRelativeBranch();
+    }
+    /** A LOAD_CON whose value is known now, i.e. not a procedure address,
+     * and fits in an immediate operand */
+    private boolean isConstant( Code code, int addr ) {
+        return Operation.decode( code.getWord( addr ) ) == Operation.LOAD_CON &&
+            code.getRelocation( addr ) == null;
+    }
+}